@@ -1,15 +1,35 @@
 package online.yueyun.mq.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import online.yueyun.mq.dedupe.ConsumedMarkerStore;
+import online.yueyun.mq.dedupe.RedisConsumedMarkerStore;
 import online.yueyun.mq.kafka.KafkaConfiguration;
+import online.yueyun.mq.outbox.OutboxPublisher;
+import online.yueyun.mq.outbox.OutboxRelay;
 import online.yueyun.mq.rabbitmq.RabbitMqConfiguration;
+import online.yueyun.mq.retry.RetryDispatcher;
 import online.yueyun.mq.rocketmq.RocketMqConfiguration;
+import online.yueyun.mq.service.MessageRecordService;
+import online.yueyun.mq.service.MessageService;
+import online.yueyun.mq.service.RetryShardLeaseService;
+import online.yueyun.mq.service.impl.MybatisPlusMessageConsumedServiceImpl;
+import online.yueyun.mq.service.impl.TieredMessageConsumedServiceImpl;
 
 /**
  * 消息队列自动配置类
@@ -17,9 +37,11 @@ import online.yueyun.mq.rocketmq.RocketMqConfiguration;
  * @author YueYun
  * @since 1.0.0
  */
+@Slf4j
 @Configuration
 @EnableConfigurationProperties(MqProperties.class)
 @ConditionalOnProperty(prefix = "yueyun.mq", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(name = "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration")
 @Import({KafkaConfiguration.class})
 public class MqAutoConfiguration {
 
@@ -34,6 +56,73 @@ public class MqAutoConfiguration {
         return new MqConfigurationSelector(mqProperties);
     }
 
+    /**
+     * 配置发件箱投递器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "yueyun.mq.outbox", name = "enabled", havingValue = "true")
+    public OutboxRelay outboxRelay(MessageService messageService,
+                                   MessageRecordService messageRecordService,
+                                   PlatformTransactionManager transactionManager,
+                                   MqProperties mqProperties) {
+        if (!(messageService instanceof OutboxPublisher)) {
+            throw new IllegalStateException("当前消息服务不支持发件箱投递: " + messageService.getClass().getName());
+        }
+        return new OutboxRelay(messageRecordService, (OutboxPublisher) messageService, transactionManager, mqProperties);
+    }
+
+    /**
+     * 配置失败消息重试分发器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "yueyun.mq.retry", name = "enabled", havingValue = "true")
+    public RetryDispatcher retryDispatcher(MessageService messageService,
+                                           MessageRecordService messageRecordService,
+                                           RetryShardLeaseService retryShardLeaseService,
+                                           MqProperties mqProperties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!(messageService instanceof OutboxPublisher)) {
+            throw new IllegalStateException("当前消息服务不支持批量重发: " + messageService.getClass().getName());
+        }
+        return new RetryDispatcher(messageRecordService, retryShardLeaseService, (OutboxPublisher) messageService,
+                mqProperties, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 配置分层消费去重服务，作为首选的消息消费记录服务
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "yueyun.mq.dedupe", name = "mode", havingValue = "tiered")
+    public TieredMessageConsumedServiceImpl tieredMessageConsumedService(MybatisPlusMessageConsumedServiceImpl databaseService,
+                                                                         MqProperties mqProperties,
+                                                                         ObjectProvider<ConsumedMarkerStore> markerStore,
+                                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        ConsumedMarkerStore store = markerStore.getIfAvailable();
+        if (store == null) {
+            log.warn("未配置消费标记存储（StringRedisTemplate），分层消费去重将跳过Redis层和布隆过滤器，本地缓存未命中的消息都会查询数据库");
+        }
+        return new TieredMessageConsumedServiceImpl(databaseService, store, mqProperties, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 分层消费去重的Redis层，仅在引入spring-data-redis且应用配置了StringRedisTemplate时生效
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(RedisTemplate.class)
+    @ConditionalOnProperty(prefix = "yueyun.mq.dedupe", name = "mode", havingValue = "tiered")
+    static class RedisDedupeConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(ConsumedMarkerStore.class)
+        @ConditionalOnBean(StringRedisTemplate.class)
+        public RedisConsumedMarkerStore redisConsumedMarkerStore(StringRedisTemplate redisTemplate, MqProperties mqProperties) {
+            return new RedisConsumedMarkerStore(redisTemplate, mqProperties);
+        }
+    }
+
     /**
      * 消息队列配置选择器，用于根据配置动态选择消息队列实现
      */
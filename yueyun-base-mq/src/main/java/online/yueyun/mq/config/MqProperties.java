@@ -37,6 +37,11 @@ public class MqProperties {
      * 消费者并发处理线程数
      */
     private Integer consumerConcurrency = 1;
+
+    /**
+     * 批量消费时每批的最大消息数
+     */
+    private int consumerBatchSize = 100;
     
     /**
      * 最大重试次数
@@ -58,6 +63,21 @@ public class MqProperties {
      */
     private final RabbitMq rabbitMq = new RabbitMq();
 
+    /**
+     * 发件箱配置
+     */
+    private final Outbox outbox = new Outbox();
+
+    /**
+     * 失败重试配置
+     */
+    private final Retry retry = new Retry();
+
+    /**
+     * 消费去重配置
+     */
+    private final Dedupe dedupe = new Dedupe();
+
     /**
      * Kafka配置
      */
@@ -202,4 +222,122 @@ public class MqProperties {
          */
         private String virtualHost = "/";
     }
-} 
\ No newline at end of file
+
+    /**
+     * 发件箱配置
+     * <p>
+     * 开启后send/sendAsync只在调用方事务内写入消息记录，由投递器批量认领并发送到消息队列
+     * </p>
+     */
+    @Data
+    public static class Outbox {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批认领的消息数
+         */
+        private int batchSize = 200;
+
+        /**
+         * 轮询间隔（毫秒）
+         */
+        private long pollIntervalMs = 500;
+
+        /**
+         * 等待一批消息发送确认的超时时间（毫秒）
+         */
+        private long publishTimeoutMs = 10000;
+    }
+
+    /**
+     * 失败重试配置
+     * <p>
+     * 开启后每个节点运行重试分发器，按消息记录的槽位区间把发送失败的消息划分为多个分片，
+     * 节点通过数据库租约认领分片后只处理自己持有分片内的消息
+     * </p>
+     */
+    @Data
+    public static class Retry {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 分片数，取值1到1024，集群各节点应保持一致
+         */
+        private int shardCount = 16;
+
+        /**
+         * 每个分片每批重试的消息数
+         */
+        private int batchSize = 100;
+
+        /**
+         * 同时重试的分片数上限
+         */
+        private int concurrency = 4;
+
+        /**
+         * 轮询间隔（毫秒）
+         */
+        private long pollIntervalMs = 5000;
+
+        /**
+         * 分片租约时长（毫秒），每1/3租约时长续期一次
+         */
+        private long leaseMs = 30000;
+    }
+
+    /**
+     * 消费去重配置
+     * <p>
+     * mode为tiered时依次查询本地LRU、按时间分桶滚动的布隆过滤器、Redis，只有结果不确定时才查询数据库
+     * </p>
+     */
+    @Data
+    public static class Dedupe {
+        /**
+         * 去重模式：db（只使用数据库）, tiered（分层去重）
+         */
+        private String mode = "db";
+
+        /**
+         * 本地LRU缓存的最大消息数
+         */
+        private int localCacheSize = 100000;
+
+        /**
+         * 去重窗口（毫秒），应覆盖消息队列的重新投递时间，Redis标记的过期时间与布隆过滤器的覆盖时间均为该值
+         */
+        private long windowMs = 86400000;
+
+        /**
+         * 布隆过滤器分桶数，每个桶覆盖windowMs / bloomBuckets
+         */
+        private int bloomBuckets = 4;
+
+        /**
+         * 每个消费组每个桶预计写入的消息数
+         */
+        private int bloomExpectedInsertions = 100000;
+
+        /**
+         * 布隆过滤器误判率
+         */
+        private double bloomFpp = 0.01;
+
+        /**
+         * Redis标记的键前缀
+         */
+        private String redisKeyPrefix = "yueyun:mq:consumed:";
+
+        /**
+         * 是否同时写入数据库消费记录表，关闭后数据库只用于查询历史记录
+         */
+        private boolean dbWrite = true;
+    }
+}
@@ -0,0 +1,59 @@
+package online.yueyun.mq.dedupe;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 跨节点共享的消费标记存储，作为分层消费去重中本地缓存之后、布隆过滤器之前的一层
+ * <p>
+ * 查询方法在存储不可用时直接抛出异常，由调用方回退到数据库；写入方法自行处理失败，
+ * 并通过{@link #isTrusted()}告知调用方标记是否可能缺失
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public interface ConsumedMarkerStore {
+
+    /**
+     * 判断消息是否存在消费标记
+     *
+     * @param msgId 消息ID
+     * @param consumerGroup 消费组
+     * @return 是否存在
+     */
+    boolean contains(String msgId, String consumerGroup);
+
+    /**
+     * 批量查询存在消费标记的消息
+     *
+     * @param msgIds 消息ID
+     * @param consumerGroup 消费组
+     * @return 存在标记的消息ID
+     */
+    Set<String> findContained(List<String> msgIds, String consumerGroup);
+
+    /**
+     * 写入消费标记
+     *
+     * @param msgId 消息ID
+     * @param consumerGroup 消费组
+     */
+    void add(String msgId, String consumerGroup);
+
+    /**
+     * 批量写入消费标记
+     *
+     * @param msgIds 消息ID
+     * @param consumerGroup 消费组
+     */
+    void addAll(Collection<String> msgIds, String consumerGroup);
+
+    /**
+     * 标记不存在时能否作为未消费的依据
+     *
+     * @return false表示去重窗口内有节点写入标记失败，标记可能缺失，调用方需要继续查询数据库
+     */
+    boolean isTrusted();
+}
@@ -0,0 +1,154 @@
+package online.yueyun.mq.dedupe;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.mq.config.MqProperties;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis的消费标记存储
+ * <p>
+ * 消费时以SET NX写入带过期时间的标记，过期时间等于去重窗口。
+ * 任一节点写入标记失败时，会在Redis可用后写入一个同样存活一个去重窗口的降级标记，
+ * 各节点每秒检查一次该标记，存在期间标记缺失不再视为未消费，由调用方继续查询数据库。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisConsumedMarkerStore implements ConsumedMarkerStore {
+
+    /**
+     * 降级标记的检查间隔（毫秒）
+     */
+    private static final long DEGRADED_CHECK_INTERVAL_MS = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final MqProperties.Dedupe config;
+
+    private final String degradedKey;
+
+    /**
+     * 本节点写入标记失败、但降级标记尚未成功写入Redis
+     */
+    private volatile boolean degradePending;
+
+    /**
+     * 最近一次检查时降级标记是否存在
+     */
+    private volatile boolean degraded;
+
+    private volatile long degradedCheckedAt;
+
+    /**
+     * @param redisTemplate Redis模板
+     * @param properties 消息队列配置
+     */
+    public RedisConsumedMarkerStore(StringRedisTemplate redisTemplate, MqProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.config = properties.getDedupe();
+        this.degradedKey = config.getRedisKeyPrefix() + "__degraded";
+        this.degradedCheckedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(DEGRADED_CHECK_INTERVAL_MS);
+    }
+
+    @Override
+    public boolean contains(String msgId, String consumerGroup) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(key(msgId, consumerGroup)));
+    }
+
+    @Override
+    public Set<String> findContained(List<String> msgIds, String consumerGroup) {
+        List<String> keys = new ArrayList<>(msgIds.size());
+        msgIds.forEach(msgId -> keys.add(key(msgId, consumerGroup)));
+        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            throw new IllegalStateException("批量查询Redis消费标记没有返回结果");
+        }
+        Set<String> contained = new HashSet<>();
+        for (int i = 0; i < msgIds.size(); i++) {
+            if (values.get(i) != null) {
+                contained.add(msgIds.get(i));
+            }
+        }
+        return contained;
+    }
+
+    @Override
+    public void add(String msgId, String consumerGroup) {
+        try {
+            redisTemplate.opsForValue().setIfAbsent(key(msgId, consumerGroup), "1", Duration.ofMillis(config.getWindowMs()));
+        } catch (Exception e) {
+            degradePending = true;
+            log.warn("写入Redis消费标记失败: msgId={}, consumerGroup={}", msgId, consumerGroup, e);
+        }
+    }
+
+    @Override
+    public void addAll(Collection<String> msgIds, String consumerGroup) {
+        try {
+            Expiration expiration = Expiration.milliseconds(config.getWindowMs());
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String msgId : msgIds) {
+                    stringConnection.set(key(msgId, consumerGroup), "1", expiration,
+                            RedisStringCommands.SetOption.SET_IF_ABSENT);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            degradePending = true;
+            log.warn("批量写入Redis消费标记失败: consumerGroup={}, size={}", consumerGroup, msgIds.size(), e);
+        }
+    }
+
+    @Override
+    public boolean isTrusted() {
+        if (degradePending) {
+            publishDegraded();
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - degradedCheckedAt >= TimeUnit.MILLISECONDS.toNanos(DEGRADED_CHECK_INTERVAL_MS)) {
+            try {
+                degraded = Boolean.TRUE.equals(redisTemplate.hasKey(degradedKey));
+                degradedCheckedAt = now;
+            } catch (Exception e) {
+                log.warn("查询Redis消费标记降级状态失败", e);
+                return false;
+            }
+        }
+        return !degraded;
+    }
+
+    /**
+     * 写入降级标记，通知所有节点在一个去重窗口内不再信任标记缺失
+     */
+    private void publishDegraded() {
+        try {
+            redisTemplate.opsForValue().set(degradedKey, "1", Duration.ofMillis(config.getWindowMs()));
+            degradePending = false;
+            degraded = true;
+            degradedCheckedAt = System.nanoTime();
+            log.warn("消费标记写入曾经失败，{}毫秒内分层去重对Redis未命中的消息回退到数据库", config.getWindowMs());
+        } catch (Exception e) {
+            log.debug("写入Redis消费标记降级状态失败，稍后重试", e);
+        }
+    }
+
+    private String key(String msgId, String consumerGroup) {
+        return config.getRedisKeyPrefix() + consumerGroup + ":" + msgId;
+    }
+}
@@ -0,0 +1,157 @@
+package online.yueyun.mq.dedupe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间分桶滚动的布隆过滤器
+ * <p>
+ * 时间轴按bucketMillis划分，写入只进入当前时间所在的桶，查询检查覆盖最近windowMillis的所有桶，
+ * 桶在新的时间段首次被使用时清空复用，因此内存固定且不会因长期运行而误判率升高。
+ * 清空与并发写入交错时可能丢失极少量记录，调用方需把“不存在”视为可能的漏判而非绝对结论。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class RollingBloomFilter {
+
+    private final int bitCount;
+
+    private final int hashCount;
+
+    private final long bucketMillis;
+
+    private final Bucket[] buckets;
+
+    /**
+     * @param expectedInsertions 每个桶预计写入的元素数
+     * @param fpp 期望误判率
+     * @param bucketCount 桶数
+     * @param windowMillis 覆盖的时间窗口（毫秒）
+     */
+    public RollingBloomFilter(int expectedInsertions, double fpp, int bucketCount, long windowMillis) {
+        int n = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(bits, Integer.MAX_VALUE - 63L));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        int count = Math.max(1, bucketCount);
+        this.bucketMillis = Math.max(1, windowMillis / count);
+        this.buckets = new Bucket[count];
+        for (int i = 0; i < count; i++) {
+            buckets[i] = new Bucket((bitCount + 63) / 64);
+        }
+    }
+
+    /**
+     * 写入元素
+     *
+     * @param value 元素
+     */
+    public void put(String value) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        bucket.rotate(epoch);
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            bucket.set(index(h1, h2, i));
+        }
+    }
+
+    /**
+     * 判断元素是否可能在时间窗口内写入过
+     *
+     * @param value 元素
+     * @return false表示一定没有写入过（不考虑桶清空时的漏记），true表示可能写入过
+     */
+    public boolean mightContain(String value) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (Bucket bucket : buckets) {
+            long bucketEpoch = bucket.epoch;
+            if (bucketEpoch < 0 || bucketEpoch > epoch || epoch - bucketEpoch >= buckets.length) {
+                continue;
+            }
+            boolean all = true;
+            for (int i = 1; i <= hashCount && all; i++) {
+                all = bucket.get(index(h1, h2, i));
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int index(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        if (combined < 0) {
+            combined = ~combined;
+        }
+        return combined % bitCount;
+    }
+
+    /**
+     * FNV-1a 64位哈希后做一次murmur3的fmix64扰动
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 单个时间段的位数组
+     */
+    private static final class Bucket {
+
+        private final AtomicLongArray bits;
+
+        private volatile long epoch = -1;
+
+        private Bucket(int words) {
+            this.bits = new AtomicLongArray(words);
+        }
+
+        private void rotate(long current) {
+            if (epoch == current) {
+                return;
+            }
+            synchronized (this) {
+                if (epoch != current) {
+                    for (int i = 0; i < bits.length(); i++) {
+                        bits.set(i, 0L);
+                    }
+                    epoch = current;
+                }
+            }
+        }
+
+        private void set(int index) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    return;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+
+        private boolean get(int index) {
+            return (bits.get(index >>> 6) & (1L << index)) != 0;
+        }
+    }
+}
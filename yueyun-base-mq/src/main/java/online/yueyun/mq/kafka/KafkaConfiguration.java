@@ -115,6 +115,7 @@ public class KafkaConfiguration {
     public MessageService kafkaMessageService(
             KafkaTemplate<String, byte[]> kafkaTemplate,
             ConcurrentMessageListenerContainer<String, byte[]> container,
+            ConsumerFactory<String, byte[]> consumerFactory,
             MqProperties properties,
             MessageRecordService messageRecordService,
             MessageConsumedService messageConsumedService) {
@@ -122,6 +123,7 @@ public class KafkaConfiguration {
         return new KafkaMessageServiceImpl(
                 kafkaTemplate,
                 container,
+                consumerFactory,
                 properties,
                 messageRecordService,
                 messageConsumedService);
@@ -8,10 +8,14 @@ import online.yueyun.mq.model.MessageRecord;
 import online.yueyun.mq.service.AbstractMessageService;
 import online.yueyun.mq.service.MessageConsumedService;
 import online.yueyun.mq.service.MessageRecordService;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.MessageListener;
@@ -20,8 +24,15 @@ import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
@@ -32,21 +43,29 @@ import java.util.regex.Pattern;
  * @since 1.0.0
  */
 @Slf4j
-public class KafkaMessageServiceImpl extends AbstractMessageService {
+public class KafkaMessageServiceImpl extends AbstractMessageService implements DisposableBean {
 
     private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ConcurrentMessageListenerContainer<String, byte[]> container;
+    private final ConsumerFactory<String, byte[]> consumerFactory;
     private final MqProperties properties;
     private final ObjectMapper objectMapper;
 
+    /**
+     * 批量订阅创建的监听容器，应用关闭时统一停止
+     */
+    private final List<ConcurrentMessageListenerContainer<String, byte[]>> batchContainers = new CopyOnWriteArrayList<>();
+
     public KafkaMessageServiceImpl(KafkaTemplate<String, byte[]> kafkaTemplate,
                                    ConcurrentMessageListenerContainer<String, byte[]> container,
+                                   ConsumerFactory<String, byte[]> consumerFactory,
                                    MqProperties properties,
                                    MessageRecordService messageRecordService,
                                    MessageConsumedService messageConsumedService) {
         super(properties, messageRecordService, messageConsumedService);
         this.kafkaTemplate = kafkaTemplate;
         this.container = container;
+        this.consumerFactory = consumerFactory;
         this.properties = properties;
         this.objectMapper = new ObjectMapper();
     }
@@ -63,6 +82,10 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
 
     @Override
     public <T> boolean send(String topic, String key, T message, Map<String, Object> headers) {
+        if (isOutboxEnabled()) {
+            return saveToOutbox(topic, key, message, headers);
+        }
+        MessageRecord messageRecord = null;
         try {
             String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
             byte[] msgBytes = serializeMessage(message);
@@ -71,23 +94,11 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
             String msgId = generateMessageId(actualTopic, key, message);
 
             // 先保存消息记录
-            MessageRecord messageRecord = createMessageRecord(actualTopic, msgId, message);
+            messageRecord = createMessageRecord(actualTopic, key, msgId, message, headers);
             messageRecordService.save(messageRecord);
 
             // 创建Kafka消息
-            ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(actualTopic, key, msgBytes);
-
-            // 添加消息ID到头部
-            producerRecord.headers().add("msgId", msgId.getBytes(StandardCharsets.UTF_8));
-
-            // 添加其他头部
-            if (headers != null && !headers.isEmpty()) {
-                headers.forEach((name, value) -> {
-                    if (value != null) {
-                        producerRecord.headers().add(name, value.toString().getBytes(StandardCharsets.UTF_8));
-                    }
-                });
-            }
+            ProducerRecord<String, byte[]> producerRecord = buildProducerRecord(actualTopic, key, msgId, msgBytes, headers);
 
             // 同步发送消息
             SendResult<String, byte[]> sendResult = kafkaTemplate.send(producerRecord).get();
@@ -98,18 +109,24 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
 
             // 更新消息状态为已发送
             messageRecord.setStatus(MessageRecord.Status.SENT.getValue());
-            messageRecord.setMsgId(msgId);
             messageRecordService.update(messageRecord);
 
             return true;
         } catch (Exception e) {
             log.error("发送Kafka消息失败: topic={}, key={}, message={}", topic, key, message, e);
+            // 已保存的消息记录标记为发送失败，交由重试机制补发
+            if (messageRecord != null && messageRecord.getId() != null) {
+                messageRecordService.markAsSendFailed(Collections.singletonList(messageRecord.getId()));
+            }
             return false;
         }
     }
 
     @Override
     public <T> CompletableFuture<Boolean> sendAsync(String topic, String key, T message, Map<String, Object> headers) {
+        if (isOutboxEnabled()) {
+            return CompletableFuture.completedFuture(saveToOutbox(topic, key, message, headers));
+        }
         CompletableFuture<Boolean> resultFuture = new CompletableFuture<>();
         String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
 
@@ -120,23 +137,11 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
             String msgId = generateMessageId(actualTopic, key, message);
 
             // 先保存消息记录
-            MessageRecord messageRecord = createMessageRecord(actualTopic, msgId, message);
+            MessageRecord messageRecord = createMessageRecord(actualTopic, key, msgId, message, headers);
             messageRecordService.save(messageRecord);
 
             // 创建Kafka消息
-            ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(actualTopic, key, msgBytes);
-
-            // 添加消息ID到头部
-            producerRecord.headers().add("msgId", msgId.getBytes(StandardCharsets.UTF_8));
-
-            // 添加其他头部
-            if (headers != null && !headers.isEmpty()) {
-                headers.forEach((name, value) -> {
-                    if (value != null) {
-                        producerRecord.headers().add(name, value.toString().getBytes(StandardCharsets.UTF_8));
-                    }
-                });
-            }
+            ProducerRecord<String, byte[]> producerRecord = buildProducerRecord(actualTopic, key, msgId, msgBytes, headers);
 
             // 异步发送消息
             CompletableFuture<SendResult<String, byte[]>> future = kafkaTemplate.send(producerRecord);
@@ -148,7 +153,6 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
 
                     // 更新消息状态为已发送
                     messageRecord.setStatus(MessageRecord.Status.SENT.getValue());
-                    messageRecord.setMsgId(msgId);
                     messageRecordService.update(messageRecord);
 
                     resultFuture.complete(true);
@@ -176,6 +180,24 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
         return resultFuture;
     }
 
+    @Override
+    public Set<Long> publish(List<MessageRecord> records) {
+        Map<Long, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (MessageRecord record : records) {
+            try {
+                ProducerRecord<String, byte[]> producerRecord = buildProducerRecord(record.getTopic(),
+                        record.getBusinessKey(), record.getMsgId(),
+                        readPayload(record), readHeaders(record));
+                // 不逐条等待，整批消息共享生产者的linger和batch
+                futures.put(record.getId(), kafkaTemplate.send(producerRecord).thenApply(result -> true));
+            } catch (Exception e) {
+                log.error("批量发送Kafka消息失败: topic={}, msgId={}", record.getTopic(), record.getMsgId(), e);
+            }
+        }
+        kafkaTemplate.flush();
+        return awaitPublished(futures);
+    }
+
     @Override
     public <T> void subscribe(String topic, String group, Class<T> messageType, Consumer<T> consumer) {
         String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
@@ -224,6 +246,80 @@ public class KafkaMessageServiceImpl extends AbstractMessageService {
         log.info("Kafka消费者启动成功: topic={}, group={}", actualTopic, actualGroup);
     }
 
+    @Override
+    public <T> void subscribeBatch(String topic, String group, Class<T> messageType, Consumer<List<T>> consumer) {
+        String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
+        String actualGroup = StringUtils.hasText(group) ? group : properties.getDefaultGroup();
+
+        // 每个批量订阅使用独立的容器，监听器返回后按批提交位点，抛出异常时整批重新投递
+        ContainerProperties containerProperties = new ContainerProperties(actualTopic);
+        containerProperties.setGroupId(actualGroup);
+        containerProperties.setAckMode(ContainerProperties.AckMode.BATCH);
+        Properties consumerProperties = new Properties();
+        consumerProperties.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(properties.getConsumerBatchSize()));
+        containerProperties.setKafkaConsumerProperties(consumerProperties);
+
+        ConcurrentMessageListenerContainer<String, byte[]> batchContainer =
+                new ConcurrentMessageListenerContainer<>(consumerFactory, containerProperties);
+        batchContainer.setConcurrency(properties.getConsumerConcurrency());
+        batchContainer.setupMessageListener((BatchMessageListener<String, byte[]>) records -> {
+            List<String> msgIds = new ArrayList<>(records.size());
+            List<byte[]> bodies = new ArrayList<>(records.size());
+            for (ConsumerRecord<String, byte[]> record : records) {
+                msgIds.add(getHeaderValue(record, "msgId"));
+                bodies.add(record.value());
+            }
+            try {
+                int consumed = consumeBatch(msgIds, bodies, actualGroup, messageType, consumer);
+                log.debug("批量消费Kafka消息成功: topic={}, group={}, size={}, consumed={}",
+                        actualTopic, actualGroup, records.size(), consumed);
+            } catch (Exception e) {
+                log.error("批量消费Kafka消息失败: topic={}, group={}, size={}", actualTopic, actualGroup, records.size(), e);
+                throw new IllegalStateException("批量消费Kafka消息失败", e);
+            }
+        });
+        batchContainer.start();
+        batchContainers.add(batchContainer);
+
+        log.info("Kafka批量消费者启动成功: topic={}, group={}, batchSize={}",
+                actualTopic, actualGroup, properties.getConsumerBatchSize());
+    }
+
+    @Override
+    public void destroy() {
+        for (ConcurrentMessageListenerContainer<String, byte[]> batchContainer : batchContainers) {
+            try {
+                batchContainer.stop();
+            } catch (Exception e) {
+                log.warn("停止Kafka批量消费者失败", e);
+            }
+        }
+        batchContainers.clear();
+    }
+
+    /**
+     * 创建Kafka消息，消息ID和消息头写入Kafka头部
+     */
+    private ProducerRecord<String, byte[]> buildProducerRecord(String topic, String key, String msgId,
+                                                               byte[] msgBytes, Map<String, Object> headers) {
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(topic, key, msgBytes);
+
+        // 添加消息ID到头部
+        if (msgId != null) {
+            producerRecord.headers().add("msgId", msgId.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // 添加其他头部
+        if (headers != null && !headers.isEmpty()) {
+            headers.forEach((name, value) -> {
+                if (value != null) {
+                    producerRecord.headers().add(name, value.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            });
+        }
+        return producerRecord;
+    }
+
     /**
      * 获取消息头的值
      */
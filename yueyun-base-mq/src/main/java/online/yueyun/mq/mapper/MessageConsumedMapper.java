@@ -2,8 +2,11 @@ package online.yueyun.mq.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import online.yueyun.mq.model.MessageConsumed;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.List;
+
 /**
  * 消息消费记录Mapper接口
  *
@@ -12,4 +15,18 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface MessageConsumedMapper extends BaseMapper<MessageConsumed> {
+
+    /**
+     * 多行INSERT IGNORE批量写入消费记录，已存在的记录被忽略
+     *
+     * @param records 消费记录
+     * @return 实际插入的记录数
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO mq_message_consumed (msg_id, consumer_group, consume_time) VALUES " +
+            "<foreach collection='list' item='r' separator=','>" +
+            "(#{r.msgId}, #{r.consumerGroup}, #{r.consumeTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(List<MessageConsumed> records);
 } 
\ No newline at end of file
@@ -2,7 +2,11 @@ package online.yueyun.mq.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import online.yueyun.mq.model.MessageRecord;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+
+import java.util.List;
 
 /**
  * 消息记录Mapper接口
@@ -12,4 +16,22 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface MessageRecordMapper extends BaseMapper<MessageRecord> {
+
+    /**
+     * 多行INSERT批量保存消息记录，并回填自增主键
+     *
+     * @param records 消息记录
+     * @return 插入的记录数
+     */
+    @Insert("<script>" +
+            "INSERT INTO mq_message_record (msg_id, business_key, topic, tag, content, content_encoding, headers, status, " +
+            "shard_slot, retry_count, max_retry_count, consumer_group, next_retry_time, create_time, update_time) VALUES " +
+            "<foreach collection='list' item='r' separator=','>" +
+            "(#{r.msgId}, #{r.businessKey}, #{r.topic}, #{r.tag}, #{r.content}, #{r.contentEncoding}, #{r.headers}, #{r.status}, " +
+            "#{r.shardSlot}, #{r.retryCount}, #{r.maxRetryCount}, #{r.consumerGroup}, #{r.nextRetryTime}, #{r.createTime}, " +
+            "#{r.updateTime})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertBatch(List<MessageRecord> records);
 } 
\ No newline at end of file
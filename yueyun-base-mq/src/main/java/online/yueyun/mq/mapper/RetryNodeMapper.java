@@ -0,0 +1,15 @@
+package online.yueyun.mq.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import online.yueyun.mq.model.RetryNode;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 重试节点心跳Mapper接口
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Mapper
+public interface RetryNodeMapper extends BaseMapper<RetryNode> {
+}
@@ -0,0 +1,15 @@
+package online.yueyun.mq.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import online.yueyun.mq.model.RetryShardLease;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 重试分片租约Mapper接口
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Mapper
+public interface RetryShardLeaseMapper extends BaseMapper<RetryShardLease> {
+}
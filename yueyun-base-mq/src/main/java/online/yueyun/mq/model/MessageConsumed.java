@@ -1,5 +1,8 @@
 package online.yueyun.mq.model;
 
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,11 +20,13 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@TableName("mq_message_consumed")
 public class MessageConsumed {
     
     /**
      * 主键ID
      */
+    @TableId(type = IdType.AUTO)
     private Long id;
     
     /**
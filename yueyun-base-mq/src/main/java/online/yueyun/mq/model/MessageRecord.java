@@ -1,5 +1,8 @@
 package online.yueyun.mq.model;
 
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,8 +20,25 @@ import java.time.LocalDateTime;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@TableName("mq_message_record")
 public class MessageRecord {
     
+    /**
+     * 重试分片槽位总数，shardSlot取值范围为[0, SHARD_SLOTS)
+     */
+    public static final int SHARD_SLOTS = 1024;
+    
+    /**
+     * 二进制消息体的内容编码，content中保存消息体的Base64编码
+     */
+    public static final String ENCODING_BASE64 = "base64";
+    
+    /**
+     * 主键ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
     /**
      * 消息ID
      */
@@ -40,15 +60,30 @@ public class MessageRecord {
     private String tag;
     
     /**
-     * 消息内容（JSON格式）
+     * 消息内容：字符串消息原样保存，对象消息为JSON，二进制消息为Base64编码
      */
     private String content;
     
+    /**
+     * 消息内容编码：为空表示UTF-8文本，{@value #ENCODING_BASE64}表示二进制消息体
+     */
+    private String contentEncoding;
+    
+    /**
+     * 消息头（JSON格式），发件箱模式下由投递器还原
+     */
+    private String headers;
+    
     /**
      * 消息状态：0-待发送，1-已发送，2-发送失败，3-已消费，4-消费失败
      */
     private Integer status;
     
+    /**
+     * 重试分片槽位，写入时随机分配，重试分发器按槽位区间划分分片
+     */
+    private Integer shardSlot;
+    
     /**
      * 重试次数
      */
@@ -0,0 +1,36 @@
+package online.yueyun.mq.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 重试节点心跳实体类，用于统计存活节点数以均分重试分片
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("mq_retry_node")
+public class RetryNode {
+
+    /**
+     * 节点标识
+     */
+    @TableId(value = "node_id", type = IdType.INPUT)
+    private String nodeId;
+
+    /**
+     * 心跳到期时间
+     */
+    private LocalDateTime expireTime;
+}
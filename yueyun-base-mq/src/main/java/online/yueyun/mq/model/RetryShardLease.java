@@ -0,0 +1,42 @@
+package online.yueyun.mq.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 重试分片租约实体类，用于在多个节点间划分失败消息的重试任务
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("mq_retry_shard_lease")
+public class RetryShardLease {
+
+    /**
+     * 分片序号，负责shard_slot落在第shard个连续区间内的消息记录，
+     * 即[shard * SHARD_SLOTS / shardCount, (shard + 1) * SHARD_SLOTS / shardCount)
+     */
+    @TableId(value = "shard", type = IdType.INPUT)
+    private Integer shard;
+
+    /**
+     * 持有租约的节点，空字符串表示未被持有
+     */
+    private String owner;
+
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime expireTime;
+}
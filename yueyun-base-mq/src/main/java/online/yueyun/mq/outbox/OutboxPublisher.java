@@ -0,0 +1,28 @@
+package online.yueyun.mq.outbox;
+
+import online.yueyun.mq.model.MessageRecord;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 消息记录批量发布接口，由各消息队列实现类提供批量发送能力，
+ * 供批量发送、发件箱投递和失败重试共用
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public interface OutboxPublisher {
+
+    /**
+     * 批量发送已保存的消息记录
+     * <p>
+     * 实现应使用消息队列原生的批量能力，一次性提交整批消息后统一等待确认；
+     * 单条消息失败不应抛出异常，只需不出现在返回结果中
+     * </p>
+     *
+     * @param records 消息记录
+     * @return 已被消息队列确认的消息记录主键
+     */
+    Set<Long> publish(List<MessageRecord> records);
+}
@@ -0,0 +1,127 @@
+package online.yueyun.mq.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.mq.config.MqProperties;
+import online.yueyun.mq.model.MessageRecord;
+import online.yueyun.mq.service.MessageRecordService;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱投递器
+ * <p>
+ * 后台线程在一个事务内完成一轮投递：用SELECT ... FOR UPDATE SKIP LOCKED认领一批待发送的消息记录，
+ * 交给{@link OutboxPublisher}按消息队列原生方式批量发送，再用一条UPDATE ... WHERE id IN (...)
+ * 批量标记为已发送，未确认的消息标记为发送失败并按指数退避等待重试。
+ * 每个节点都可以运行投递器，行锁保证同一条消息只会被一个节点认领。
+ * </p>
+ * <p>
+ * 投递语义为至少一次：发送成功但事务提交失败时消息会被再次投递，消费端需做幂等处理。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class OutboxRelay {
+
+    private final MessageRecordService messageRecordService;
+
+    private final OutboxPublisher publisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MqProperties.Outbox config;
+
+    private final ScheduledExecutorService executor;
+
+    private volatile boolean shutdown;
+
+    public OutboxRelay(MessageRecordService messageRecordService,
+                       OutboxPublisher publisher,
+                       PlatformTransactionManager transactionManager,
+                       MqProperties properties) {
+        this.messageRecordService = messageRecordService;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = properties.getOutbox();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("mq-outbox-relay-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long period = config.getPollIntervalMs();
+        this.executor.scheduleWithFixedDelay(this::relayQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 立即执行一轮投递
+     *
+     * @return 本轮认领的消息数
+     */
+    public int relay() {
+        Integer claimed = transactionTemplate.execute(status -> relayBatch());
+        return claimed != null ? claimed : 0;
+    }
+
+    /**
+     * 停止投递器，已开始的一轮会执行完毕
+     */
+    public void shutdown() {
+        shutdown = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(config.getPublishTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int relayBatch() {
+        List<MessageRecord> records = messageRecordService.claimPending(config.getBatchSize());
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> published = publisher.publish(records);
+        List<Long> sent = new ArrayList<>(published.size());
+        List<Long> failed = new ArrayList<>();
+        for (MessageRecord record : records) {
+            if (published.contains(record.getId())) {
+                sent.add(record.getId());
+            } else {
+                failed.add(record.getId());
+            }
+        }
+        messageRecordService.markAsSent(sent);
+        messageRecordService.markAsSendFailed(failed);
+
+        if (!failed.isEmpty()) {
+            log.warn("发件箱部分消息投递失败: claimed={}, sent={}, failed={}", records.size(), sent.size(), failed.size());
+        } else {
+            log.debug("发件箱消息投递完成: sent={}", sent.size());
+        }
+        return records.size();
+    }
+
+    private void relayQuietly() {
+        try {
+            // 取满一批说明仍有积压，继续投递直到取不满为止
+            int claimed;
+            do {
+                claimed = relay();
+            } while (!shutdown && claimed >= config.getBatchSize());
+        } catch (Exception e) {
+            log.error("发件箱投递失败，下一轮重试", e);
+        }
+    }
+}
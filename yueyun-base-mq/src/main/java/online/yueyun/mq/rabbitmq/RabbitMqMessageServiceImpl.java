@@ -10,17 +10,26 @@ import online.yueyun.mq.service.MessageConsumedService;
 import online.yueyun.mq.service.MessageRecordService;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
 import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
@@ -30,12 +39,17 @@ import java.util.function.Consumer;
  * @since 1.0.0
  */
 @Slf4j
-public class RabbitMqMessageServiceImpl extends AbstractMessageService {
+public class RabbitMqMessageServiceImpl extends AbstractMessageService implements DisposableBean {
 
     private final RabbitTemplate rabbitTemplate;
     private final ConnectionFactory connectionFactory;
     private final RabbitAdmin rabbitAdmin;
 
+    /**
+     * 订阅创建的监听容器，应用关闭时统一停止
+     */
+    private final List<SimpleMessageListenerContainer> containers = new CopyOnWriteArrayList<>();
+
     public RabbitMqMessageServiceImpl(
             RabbitTemplate rabbitTemplate,
             ConnectionFactory connectionFactory,
@@ -60,6 +74,9 @@ public class RabbitMqMessageServiceImpl extends AbstractMessageService {
 
     @Override
     public <T> boolean send(String topic, String key, T message, Map<String, Object> headers) {
+        if (isOutboxEnabled()) {
+            return saveToOutbox(topic, key, message, headers);
+        }
         try {
             String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
             byte[] msgBytes = serializeMessage(message);
@@ -68,7 +85,7 @@ public class RabbitMqMessageServiceImpl extends AbstractMessageService {
             String msgId = generateMessageId(actualTopic, key, message);
             
             // 先保存消息记录
-            MessageRecord messageRecord = createMessageRecord(actualTopic, msgId, message);
+            MessageRecord messageRecord = createMessageRecord(actualTopic, key, msgId, message, headers);
             messageRecordService.save(messageRecord);
             
             // 确保交换机和队列存在
@@ -100,7 +117,6 @@ public class RabbitMqMessageServiceImpl extends AbstractMessageService {
             
             // 更新消息状态为已发送
             messageRecord.setStatus(MessageRecord.Status.SENT.getValue());
-            messageRecord.setMsgId(msgId);
             messageRecordService.update(messageRecord);
             
             return true;
@@ -121,6 +137,36 @@ public class RabbitMqMessageServiceImpl extends AbstractMessageService {
         return resultFuture;
     }
 
+    @Override
+    public Set<Long> publish(List<MessageRecord> records) {
+        Set<String> declared = new HashSet<>();
+        Map<Long, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        for (MessageRecord record : records) {
+            try {
+                if (declared.add(record.getTopic())) {
+                    ensureExchangeAndQueueExist(record.getTopic());
+                }
+                MessageProperties messageProperties = new MessageProperties();
+                messageProperties.setMessageId(record.getMsgId());
+                readHeaders(record).forEach((name, value) -> {
+                    if (value != null) {
+                        messageProperties.setHeader(name, value);
+                    }
+                });
+                Message amqpMessage = new Message(readPayload(record), messageProperties);
+                String routingKey = StringUtils.hasText(record.getBusinessKey()) ? record.getBusinessKey() : record.getTopic();
+
+                // 连续发布整批消息，再统一等待发布确认
+                CorrelationData correlationData = new CorrelationData(record.getMsgId());
+                rabbitTemplate.send(record.getTopic(), routingKey, amqpMessage, correlationData);
+                futures.put(record.getId(), correlationData.getFuture().thenApply(CorrelationData.Confirm::isAck));
+            } catch (Exception e) {
+                log.error("批量发送RabbitMQ消息失败: exchange={}, msgId={}", record.getTopic(), record.getMsgId(), e);
+            }
+        }
+        return awaitPublished(futures);
+    }
+
     @Override
     public <T> void subscribe(String topic, String group, Class<T> messageType, Consumer<T> consumer) {
         String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
@@ -185,10 +231,73 @@ public class RabbitMqMessageServiceImpl extends AbstractMessageService {
         
         // 启动监听容器
         container.start();
+        containers.add(container);
         
         log.info("RabbitMQ消费者启动成功: exchange={}, queue={}", actualTopic, actualGroup);
     }
     
+    @Override
+    public <T> void subscribeBatch(String topic, String group, Class<T> messageType, Consumer<List<T>> consumer) {
+        String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
+        String actualGroup = StringUtils.hasText(group) ? group : properties.getDefaultGroup();
+        int batchSize = properties.getConsumerBatchSize();
+        
+        // 确保交换机和队列存在
+        ensureExchangeAndQueueExist(actualTopic);
+        
+        // 创建批量接收的监听容器，攒满batchSize条或等待超时后整批回调
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(actualGroup);
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(batchSize);
+        container.setPrefetchCount(batchSize);
+        container.setMessageListener(new ChannelAwareBatchMessageListener() {
+            @Override
+            public void onMessageBatch(List<Message> messages, Channel channel) {
+                List<String> msgIds = new ArrayList<>(messages.size());
+                List<byte[]> bodies = new ArrayList<>(messages.size());
+                for (Message message : messages) {
+                    msgIds.add(message.getMessageProperties().getMessageId());
+                    bodies.add(message.getBody());
+                }
+                // 整批一次确认，deliveryTag在同一信道内递增
+                long lastDeliveryTag = messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag();
+                try {
+                    int consumed = consumeBatch(msgIds, bodies, actualGroup, messageType, consumer);
+                    channel.basicAck(lastDeliveryTag, true);
+                    log.debug("批量消费RabbitMQ消息成功: queue={}, size={}, consumed={}", actualGroup, messages.size(), consumed);
+                } catch (Exception e) {
+                    log.error("批量消费RabbitMQ消息失败: queue={}, size={}", actualGroup, messages.size(), e);
+                    try {
+                        // 消费失败，整批重新放回队列
+                        channel.basicNack(lastDeliveryTag, true, true);
+                    } catch (Exception ex) {
+                        log.error("拒绝RabbitMQ消息失败", ex);
+                    }
+                }
+            }
+        });
+        
+        // 启动监听容器
+        container.start();
+        containers.add(container);
+        
+        log.info("RabbitMQ批量消费者启动成功: exchange={}, queue={}, batchSize={}", actualTopic, actualGroup, batchSize);
+    }
+    
+    @Override
+    public void destroy() {
+        for (SimpleMessageListenerContainer container : containers) {
+            try {
+                container.stop();
+            } catch (Exception e) {
+                log.warn("停止RabbitMQ消费者失败: queues={}", String.join(",", container.getQueueNames()), e);
+            }
+        }
+        containers.clear();
+    }
+    
     /**
      * 确保交换机和队列存在
      */
@@ -0,0 +1,339 @@
+package online.yueyun.mq.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.mq.config.MqProperties;
+import online.yueyun.mq.model.MessageRecord;
+import online.yueyun.mq.model.RetryShardLease;
+import online.yueyun.mq.outbox.OutboxPublisher;
+import online.yueyun.mq.service.MessageRecordService;
+import online.yueyun.mq.service.RetryShardLeaseService;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送失败消息的分片重试分发器
+ * <p>
+ * 消息记录写入时随机分配槽位，槽位按shardCount等分为连续区间作为分片，每个节点上报心跳并通过数据库租约认领分片，
+ * 按存活节点数均分：新节点加入时持有过多分片的节点会释放多余分片，节点宕机后其租约过期由其他节点接管。
+ * 每轮轮询对持有的分片并发（受concurrency限制）统计积压并批量查询到期的失败消息，
+ * 交给{@link OutboxPublisher}按消息队列原生方式批量重发，结果以批量UPDATE写回。
+ * </p>
+ * <p>
+ * 租约依赖各节点时钟基本一致，本节点按发起续期的时间加租约时长再减去十分之一的安全余量判断租约有效；
+ * 租约过期与重发并发时同一批消息可能被发送两次，消费端需做幂等处理。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RetryDispatcher {
+
+    /**
+     * 待重试积压消息数指标名称
+     */
+    private static final String METRIC_BACKLOG = "yueyun.mq.retry.backlog";
+
+    /**
+     * 本节点持有分片数指标名称
+     */
+    private static final String METRIC_SHARDS = "yueyun.mq.retry.shards";
+
+    /**
+     * 分发延迟指标名称，即一批消息中最早的计划重试时间到实际重发的间隔
+     */
+    private static final String METRIC_LAG = "yueyun.mq.retry.lag";
+
+    /**
+     * 重发消息数指标名称
+     */
+    private static final String METRIC_DISPATCHED = "yueyun.mq.retry.dispatched";
+
+    /**
+     * 本地租约有效期相对租约时长预留的比例，抵消数据库往返和各节点时钟误差
+     */
+    private static final int SAFETY_MARGIN_DIVISOR = 10;
+
+    private final MessageRecordService messageRecordService;
+
+    private final RetryShardLeaseService leaseService;
+
+    private final OutboxPublisher publisher;
+
+    private final MqProperties.Retry config;
+
+    /**
+     * 本节点标识
+     */
+    private final String nodeId;
+
+    /**
+     * 本节点持有的分片
+     */
+    private final Set<Integer> ownedShards = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本节点持有的各分片最近一次统计的积压消息数
+     */
+    private final Map<Integer, Long> shardBacklog = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次成功续期租约时发起续期的时间，续期持续失败超过租约时长减去安全余量后停止分发，避免与接管的节点重复发送
+     */
+    private volatile long leaseRenewedAt;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService workers;
+
+    private final Timer lagTimer;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean shutdown;
+
+    public RetryDispatcher(MessageRecordService messageRecordService,
+                           RetryShardLeaseService leaseService,
+                           OutboxPublisher publisher,
+                           MqProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.messageRecordService = messageRecordService;
+        this.leaseService = leaseService;
+        this.publisher = publisher;
+        this.config = properties.getRetry();
+        if (config.getShardCount() < 1 || config.getShardCount() > MessageRecord.SHARD_SLOTS) {
+            throw new IllegalArgumentException("重试分片数必须在1到" + MessageRecord.SHARD_SLOTS + "之间: " + config.getShardCount());
+        }
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        if (meterRegistry != null) {
+            Gauge.builder(METRIC_BACKLOG, this, RetryDispatcher::getBacklog).register(meterRegistry);
+            Gauge.builder(METRIC_SHARDS, ownedShards, Set::size).register(meterRegistry);
+            this.lagTimer = Timer.builder(METRIC_LAG).register(meterRegistry);
+            this.sentCounter = Counter.builder(METRIC_DISPATCHED).tag("result", "sent").register(meterRegistry);
+            this.failedCounter = Counter.builder(METRIC_DISPATCHED).tag("result", "failed").register(meterRegistry);
+        } else {
+            this.lagTimer = null;
+            this.sentCounter = null;
+            this.failedCounter = null;
+        }
+
+        leaseService.initShards(config.getShardCount());
+
+        CustomizableThreadFactory schedulerFactory = new CustomizableThreadFactory("mq-retry-scheduler-");
+        schedulerFactory.setDaemon(true);
+        this.scheduler = Executors.newScheduledThreadPool(2, schedulerFactory);
+        CustomizableThreadFactory workerFactory = new CustomizableThreadFactory("mq-retry-worker-");
+        workerFactory.setDaemon(true);
+        this.workers = Executors.newFixedThreadPool(Math.max(1, config.getConcurrency()), workerFactory);
+
+        long renewPeriod = Math.max(1, config.getLeaseMs() / 3);
+        this.scheduler.scheduleWithFixedDelay(this::renewLeasesQuietly, 0, renewPeriod, TimeUnit.MILLISECONDS);
+        long pollPeriod = config.getPollIntervalMs();
+        this.scheduler.scheduleWithFixedDelay(this::dispatchQuietly, pollPeriod, pollPeriod, TimeUnit.MILLISECONDS);
+        log.info("重试分发器启动: nodeId={}, shardCount={}", nodeId, config.getShardCount());
+    }
+
+    /**
+     * 获取本节点持有的分片
+     *
+     * @return 分片序号
+     */
+    public Set<Integer> getOwnedShards() {
+        return new TreeSet<>(ownedShards);
+    }
+
+    /**
+     * 获取本节点持有的分片最近一次统计的待重试积压消息数之和
+     *
+     * @return 消息数
+     */
+    public long getBacklog() {
+        long total = 0;
+        for (Long count : shardBacklog.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * 立即对本节点持有的所有分片执行一轮重试
+     */
+    public void dispatch() {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (Integer shard : getOwnedShards()) {
+            tasks.add(CompletableFuture.runAsync(() -> dispatchShard(shard), workers));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * 停止分发器并释放持有的分片租约
+     */
+    public void shutdown() {
+        shutdown = true;
+        scheduler.shutdown();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(config.getLeaseMs(), TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (Integer shard : getOwnedShards()) {
+            try {
+                leaseService.release(shard, nodeId);
+            } catch (Exception e) {
+                log.warn("释放分片租约失败: shard={}", shard, e);
+            }
+        }
+        ownedShards.clear();
+        shardBacklog.clear();
+        try {
+            leaseService.unregister(nodeId);
+        } catch (Exception e) {
+            log.warn("注销重试节点失败: nodeId={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 续期已持有的租约，并按存活节点数调整持有的分片
+     */
+    private void renewLeases() {
+        // 按发起续期的时间计算本地有效期，数据库中的到期时间不早于该时间加租约时长
+        long requestedAt = System.nanoTime();
+        leaseService.heartbeat(nodeId, config.getLeaseMs());
+        List<RetryShardLease> leases = leaseService.findAll();
+        LocalDateTime now = LocalDateTime.now();
+        long liveNodes = Math.max(1, leaseService.countLiveNodes());
+        int shardCount = config.getShardCount();
+        int fairShare = (int) ((shardCount + liveNodes - 1) / liveNodes);
+
+        // 续期已持有的分片，超出均分数量的释放给其他节点
+        int kept = 0;
+        for (Integer shard : getOwnedShards()) {
+            if (shard < shardCount && kept < fairShare && leaseService.tryAcquire(shard, nodeId, config.getLeaseMs())) {
+                kept++;
+            } else {
+                ownedShards.remove(shard);
+                shardBacklog.remove(shard);
+                leaseService.release(shard, nodeId);
+            }
+        }
+
+        // 认领空闲或已过期的分片
+        for (RetryShardLease lease : leases) {
+            if (ownedShards.size() >= fairShare) {
+                break;
+            }
+            int shard = lease.getShard();
+            boolean free = !StringUtils.hasText(lease.getOwner()) || !lease.getExpireTime().isAfter(now);
+            if (shard < shardCount && free && !ownedShards.contains(shard)
+                    && leaseService.tryAcquire(shard, nodeId, config.getLeaseMs())) {
+                ownedShards.add(shard);
+                log.debug("认领重试分片: nodeId={}, shard={}", nodeId, shard);
+            }
+        }
+
+        leaseRenewedAt = requestedAt;
+    }
+
+    /**
+     * 本地判断租约是否仍然有效，有效期为租约时长减去安全余量，在其他节点认为租约过期之前停止分发
+     */
+    private boolean isLeaseValid() {
+        long leaseNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeaseMs());
+        return System.nanoTime() - leaseRenewedAt < leaseNanos - leaseNanos / SAFETY_MARGIN_DIVISOR;
+    }
+
+    /**
+     * 重试单个分片内到期的消息，取满一批时继续处理直到取不满或失去租约
+     */
+    private void dispatchShard(int shard) {
+        try {
+            if (shutdown || !ownedShards.contains(shard) || !isLeaseValid()) {
+                return;
+            }
+            // 只统计本分片的积压，各节点指标相加即为全局积压
+            shardBacklog.put(shard, messageRecordService.countToRetry(shard, config.getShardCount()));
+            int claimed;
+            do {
+                if (shutdown || !ownedShards.contains(shard) || !isLeaseValid()) {
+                    return;
+                }
+                List<MessageRecord> records = messageRecordService.findToRetry(shard, config.getShardCount(), config.getBatchSize());
+                if (records.isEmpty()) {
+                    return;
+                }
+                if (lagTimer != null && records.get(0).getNextRetryTime() != null) {
+                    lagTimer.record(Duration.between(records.get(0).getNextRetryTime(), LocalDateTime.now()));
+                }
+
+                Set<Long> published = publisher.publish(records);
+                List<Long> sent = new ArrayList<>(published.size());
+                List<Long> failed = new ArrayList<>();
+                for (MessageRecord record : records) {
+                    if (published.contains(record.getId())) {
+                        sent.add(record.getId());
+                    } else {
+                        failed.add(record.getId());
+                    }
+                }
+                messageRecordService.markAsSent(sent);
+                messageRecordService.markAsSendFailed(failed);
+                if (sentCounter != null) {
+                    sentCounter.increment(sent.size());
+                    failedCounter.increment(failed.size());
+                }
+                log.debug("重试分片消息: shard={}, sent={}, failed={}", shard, sent.size(), failed.size());
+                claimed = records.size();
+            } while (claimed >= config.getBatchSize());
+        } catch (Exception e) {
+            log.error("重试分片消息失败: shard={}", shard, e);
+        }
+    }
+
+    private void renewLeasesQuietly() {
+        if (shutdown) {
+            return;
+        }
+        try {
+            renewLeases();
+        } catch (Exception e) {
+            log.error("续期重试分片租约失败", e);
+        }
+    }
+
+    private void dispatchQuietly() {
+        if (shutdown) {
+            return;
+        }
+        try {
+            dispatch();
+        } catch (Exception e) {
+            log.error("重试分发失败", e);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.apache.rocketmq.client.producer.SendResult;
 import org.apache.rocketmq.client.producer.SendStatus;
 import org.apache.rocketmq.common.message.Message;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.StringUtils;
 
 import online.yueyun.mq.config.MqProperties;
@@ -23,25 +24,45 @@ import online.yueyun.mq.service.MessageRecordService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 /**
  * RocketMQ消息服务实现类
+ * <p>
+ * 消息记录的消息ID写入用户属性{@value #MSG_ID_PROPERTY}，发件箱投递、批量发送和失败重试重发同一条记录时保持不变，
+ * 消费端优先按该属性去重，没有该属性时才使用Broker分配的消息ID
+ * </p>
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
-public class RocketMqMessageServiceImpl extends AbstractMessageService {
+public class RocketMqMessageServiceImpl extends AbstractMessageService implements DisposableBean {
+
+    /**
+     * 保存消息记录ID的用户属性名
+     */
+    public static final String MSG_ID_PROPERTY = "msgId";
 
     private final DefaultMQProducer mqProducer;
     private final DefaultMQPushConsumer mqPushConsumer;
     private final MqProperties properties;
     private final ObjectMapper objectMapper;
 
+    /**
+     * 批量订阅创建的推送消费者，应用关闭时统一关闭
+     */
+    private final List<DefaultMQPushConsumer> batchConsumers = new CopyOnWriteArrayList<>();
+
     public RocketMqMessageServiceImpl(DefaultMQProducer mqProducer, 
                                      DefaultMQPushConsumer mqPushConsumer, 
                                      MqProperties properties,
@@ -66,6 +87,9 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
 
     @Override
     public <T> boolean send(String topic, String key, T message, Map<String, Object> headers) {
+        if (isOutboxEnabled()) {
+            return saveToOutbox(topic, key, message, headers);
+        }
         try {
             String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
             byte[] msgBytes = serializeMessage(message);
@@ -74,10 +98,11 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
             String msgId = generateMessageId(actualTopic, key, message);
             
             // 先保存消息记录
-            MessageRecord messageRecord = createMessageRecord(actualTopic, msgId, message);
+            MessageRecord messageRecord = createMessageRecord(actualTopic, key, msgId, message, headers);
             messageRecordService.save(messageRecord);
             
             Message rocketMessage = new Message(actualTopic, msgBytes);
+            rocketMessage.putUserProperty(MSG_ID_PROPERTY, msgId);
             
             // 设置消息Key
             if (StringUtils.hasText(key)) {
@@ -98,12 +123,11 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
             
             // 检查发送结果
             if (sendResult.getSendStatus() == SendStatus.SEND_OK) {
-                log.debug("发送RocketMQ消息成功: topic={}, key={}, messageId={}, message={}", 
-                        actualTopic, key, sendResult.getMsgId(), message);
+                log.debug("发送RocketMQ消息成功: topic={}, key={}, msgId={}, brokerMsgId={}, message={}", 
+                        actualTopic, key, msgId, sendResult.getMsgId(), message);
                 
-                // 更新消息状态为已发送
+                // 更新消息状态为已发送，消息ID保持不变，与消费端的去重ID一致
                 messageRecord.setStatus(MessageRecord.Status.SENT.getValue());
-                messageRecord.setMsgId(sendResult.getMsgId());
                 messageRecordService.update(messageRecord);
                 
                 return true;
@@ -129,6 +153,9 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
 
     @Override
     public <T> CompletableFuture<Boolean> sendAsync(String topic, String key, T message, Map<String, Object> headers) {
+        if (isOutboxEnabled()) {
+            return CompletableFuture.completedFuture(saveToOutbox(topic, key, message, headers));
+        }
         CompletableFuture<Boolean> resultFuture = new CompletableFuture<>();
         String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
         
@@ -139,10 +166,11 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
             String msgId = generateMessageId(actualTopic, key, message);
             
             // 先保存消息记录
-            MessageRecord messageRecord = createMessageRecord(actualTopic, msgId, message);
+            MessageRecord messageRecord = createMessageRecord(actualTopic, key, msgId, message, headers);
             messageRecordService.save(messageRecord);
             
             Message rocketMessage = new Message(actualTopic, msgBytes);
+            rocketMessage.putUserProperty(MSG_ID_PROPERTY, msgId);
             
             // 设置消息Key
             if (StringUtils.hasText(key)) {
@@ -161,12 +189,11 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
             mqProducer.send(rocketMessage, new SendCallback() {
                 @Override
                 public void onSuccess(SendResult sendResult) {
-                    log.debug("异步发送RocketMQ消息成功: topic={}, key={}, messageId={}, message={}", 
-                            actualTopic, key, sendResult.getMsgId(), message);
+                    log.debug("异步发送RocketMQ消息成功: topic={}, key={}, msgId={}, brokerMsgId={}, message={}", 
+                            actualTopic, key, msgId, sendResult.getMsgId(), message);
                     
-                    // 更新消息状态为已发送
+                    // 更新消息状态为已发送，消息ID保持不变，与消费端的去重ID一致
                     messageRecord.setStatus(MessageRecord.Status.SENT.getValue());
-                    messageRecord.setMsgId(sendResult.getMsgId());
                     messageRecordService.update(messageRecord);
                     
                     resultFuture.complete(true);
@@ -197,6 +224,88 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
         return resultFuture;
     }
 
+    @Override
+    public Set<Long> publish(List<MessageRecord> records) {
+        // RocketMQ批量消息要求同一主题，按主题分组后每组按大小拆分，每份一次send(Collection)
+        Map<String, List<MessageRecord>> byTopic = new LinkedHashMap<>();
+        for (MessageRecord record : records) {
+            byTopic.computeIfAbsent(record.getTopic(), t -> new ArrayList<>()).add(record);
+        }
+
+        Set<Long> published = new HashSet<>();
+        int maxBatchBytes = mqProducer.getMaxMessageSize();
+        byTopic.forEach((actualTopic, group) -> {
+            List<Message> batch = new ArrayList<>();
+            List<Long> batchIds = new ArrayList<>();
+            int batchBytes = 0;
+            for (MessageRecord record : group) {
+                Message rocketMessage = new Message(actualTopic, readPayload(record));
+                if (StringUtils.hasText(record.getMsgId())) {
+                    rocketMessage.putUserProperty(MSG_ID_PROPERTY, record.getMsgId());
+                }
+                if (StringUtils.hasText(record.getBusinessKey())) {
+                    rocketMessage.setKeys(record.getBusinessKey());
+                }
+                readHeaders(record).forEach((name, value) -> {
+                    if (value != null) {
+                        rocketMessage.putUserProperty(name, value.toString());
+                    }
+                });
+                int messageBytes = estimateSize(rocketMessage);
+                if (!batch.isEmpty() && batchBytes + messageBytes > maxBatchBytes) {
+                    sendChunk(actualTopic, batch, batchIds, published);
+                    batch = new ArrayList<>();
+                    batchIds = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(rocketMessage);
+                batchIds.add(record.getId());
+                batchBytes += messageBytes;
+            }
+            sendChunk(actualTopic, batch, batchIds, published);
+        });
+        return published;
+    }
+
+    /**
+     * 发送一批同主题的消息，成功时把对应的消息记录主键加入结果
+     */
+    private void sendChunk(String topic, List<Message> batch, List<Long> batchIds, Set<Long> published) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            SendResult sendResult = mqProducer.send(batch, properties.getOutbox().getPublishTimeoutMs());
+            if (sendResult.getSendStatus() == SendStatus.SEND_OK) {
+                published.addAll(batchIds);
+            } else {
+                log.error("批量发送RocketMQ消息失败: topic={}, size={}, status={}",
+                        topic, batch.size(), sendResult.getSendStatus());
+            }
+        } catch (Exception e) {
+            log.error("批量发送RocketMQ消息失败: topic={}, size={}", topic, batch.size(), e);
+        }
+    }
+
+    /**
+     * 消费端的去重ID，优先使用消息记录ID，重发的消息与首次发送的消息ID相同
+     */
+    private static String dedupeId(MessageExt msg) {
+        String msgId = msg.getUserProperty(MSG_ID_PROPERTY);
+        return StringUtils.hasText(msgId) ? msgId : msg.getMsgId();
+    }
+
+    /**
+     * 估算消息在批量请求中占用的字节数：消息体、属性以及约20字节的日志头
+     */
+    private int estimateSize(Message message) {
+        int size = message.getTopic().length() + message.getBody().length + 20;
+        for (Map.Entry<String, String> entry : message.getProperties().entrySet()) {
+            size += entry.getKey().length() + entry.getValue().length();
+        }
+        return size;
+    }
+
     @Override
     public <T> void subscribe(String topic, String group, Class<T> messageType, Consumer<T> consumer) {
         String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
@@ -212,10 +321,11 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
             // 注册消息监听器
             mqPushConsumer.registerMessageListener((MessageListenerConcurrently) (msgs, context) -> {
                 for (MessageExt msg : msgs) {
+                    String msgId = dedupeId(msg);
                     // 幂等性检查，防止重复消费
-                    if (messageConsumedService.isConsumed(msg.getMsgId(), actualGroup)) {
+                    if (messageConsumedService.isConsumed(msgId, actualGroup)) {
                         log.debug("消息已被消费，跳过: topic={}, msgId={}, key={}, group={}", 
-                                msg.getTopic(), msg.getMsgId(), msg.getKeys(), actualGroup);
+                                msg.getTopic(), msgId, msg.getKeys(), actualGroup);
                         continue;
                     }
                     
@@ -227,13 +337,13 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
                         consumer.accept(typedMessage);
                         
                         // 标记消息为已消费
-                        messageConsumedService.markAsConsumed(msg.getMsgId(), actualGroup);
+                        messageConsumedService.markAsConsumed(msgId, actualGroup);
                         
-                        log.debug("消费RocketMQ消息成功: topic={}, key={}, messageId={}, message={}", 
-                                msg.getTopic(), msg.getKeys(), msg.getMsgId(), msgBody);
+                        log.debug("消费RocketMQ消息成功: topic={}, key={}, msgId={}, message={}", 
+                                msg.getTopic(), msg.getKeys(), msgId, msgBody);
                     } catch (Exception e) {
-                        log.error("消费RocketMQ消息失败: topic={}, messageId={}", 
-                                msg.getTopic(), msg.getMsgId(), e);
+                        log.error("消费RocketMQ消息失败: topic={}, msgId={}", 
+                                msg.getTopic(), msgId, e);
                         
                         // 记录消费失败，但不重复消费（通过消息重试策略来处理）
                         return ConsumeConcurrentlyStatus.RECONSUME_LATER;
@@ -251,6 +361,61 @@ public class RocketMqMessageServiceImpl extends AbstractMessageService {
         }
     }
     
+    @Override
+    public <T> void subscribeBatch(String topic, String group, Class<T> messageType, Consumer<List<T>> consumer) {
+        String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
+        String actualGroup = StringUtils.hasText(group) ? group : properties.getDefaultGroup();
+        int batchSize = properties.getConsumerBatchSize();
+
+        // 一个推送消费者只能注册一个监听器，批量订阅使用独立的消费者；
+        // 同一进程内同一消费组只能在一个客户端实例中注册一次，因此使用独立的实例名
+        DefaultMQPushConsumer batchConsumer = new DefaultMQPushConsumer();
+        batchConsumer.setNamesrvAddr(properties.getRocketMq().getNameServer());
+        batchConsumer.setConsumerGroup(actualGroup);
+        batchConsumer.setInstanceName(actualGroup + "-batch-" + UUID.randomUUID().toString().substring(0, 8));
+        batchConsumer.setConsumeMessageBatchMaxSize(batchSize);
+        batchConsumer.setPullBatchSize(Math.max(batchSize, batchConsumer.getPullBatchSize()));
+        try {
+            batchConsumer.subscribe(actualTopic, "*");
+            batchConsumer.registerMessageListener((MessageListenerConcurrently) (msgs, context) -> {
+                List<String> msgIds = new ArrayList<>(msgs.size());
+                List<byte[]> bodies = new ArrayList<>(msgs.size());
+                for (MessageExt msg : msgs) {
+                    msgIds.add(dedupeId(msg));
+                    bodies.add(msg.getBody());
+                }
+                try {
+                    int consumed = consumeBatch(msgIds, bodies, actualGroup, messageType, consumer);
+                    log.debug("批量消费RocketMQ消息成功: topic={}, group={}, size={}, consumed={}",
+                            actualTopic, actualGroup, msgs.size(), consumed);
+                    return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+                } catch (Exception e) {
+                    log.error("批量消费RocketMQ消息失败: topic={}, group={}, size={}", actualTopic, actualGroup, msgs.size(), e);
+                    return ConsumeConcurrentlyStatus.RECONSUME_LATER;
+                }
+            });
+            batchConsumer.start();
+            batchConsumers.add(batchConsumer);
+        } catch (MQClientException e) {
+            log.error("批量订阅RocketMQ主题失败: topic={}, group={}", actualTopic, actualGroup, e);
+            throw new RuntimeException("批量订阅RocketMQ主题失败", e);
+        }
+
+        log.info("RocketMQ批量消费者启动成功: topic={}, group={}, batchSize={}", actualTopic, actualGroup, batchSize);
+    }
+    
+    @Override
+    public void destroy() {
+        for (DefaultMQPushConsumer batchConsumer : batchConsumers) {
+            try {
+                batchConsumer.shutdown();
+            } catch (Exception e) {
+                log.warn("关闭RocketMQ批量消费者失败: group={}", batchConsumer.getConsumerGroup(), e);
+            }
+        }
+        batchConsumers.clear();
+    }
+    
     /**
      * 创建RocketMQ特有的消息记录对象
      */
@@ -1,27 +1,41 @@
 package online.yueyun.mq.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import online.yueyun.mq.config.MqProperties;
 import online.yueyun.mq.model.MessageRecord;
+import online.yueyun.mq.outbox.OutboxPublisher;
 import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * 消息服务抽象基类，提供通用功能和模板方法
+ * <p>
+ * 子类通过{@link OutboxPublisher#publish(List)}提供消息队列原生的批量发送能力，
+ * 批量发送、发件箱投递和失败重试都复用这一实现
+ * </p>
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
-public abstract class AbstractMessageService implements MessageService {
+public abstract class AbstractMessageService implements MessageService, OutboxPublisher {
 
     protected final MqProperties properties;
     protected final ObjectMapper objectMapper;
@@ -57,6 +71,27 @@ public abstract class AbstractMessageService implements MessageService {
         return sendAsync(topic, key, message, null);
     }
 
+    @Override
+    public <T> boolean sendBatch(String topic, List<T> messages) {
+        List<MessageRecord> records = saveBatchRecords(topic, messages);
+        if (records == null) {
+            return false;
+        }
+        return isOutboxEnabled() || records.isEmpty() || publishAndMark(records);
+    }
+
+    @Override
+    public <T> CompletableFuture<Boolean> sendBatchAsync(String topic, List<T> messages) {
+        List<MessageRecord> records = saveBatchRecords(topic, messages);
+        if (records == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (isOutboxEnabled() || records.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return CompletableFuture.supplyAsync(() -> publishAndMark(records));
+    }
+
     /**
      * 生成消息ID
      * 子类可以覆盖此方法提供自定义的消息ID生成逻辑
@@ -99,11 +134,22 @@ public abstract class AbstractMessageService implements MessageService {
      * @throws JsonProcessingException JSON处理异常
      */
     protected <T> MessageRecord createMessageRecord(String topic, String key, T message) throws JsonProcessingException {
-        String content = message instanceof String ? (String) message : objectMapper.writeValueAsString(message);
+        String content;
+        String contentEncoding = null;
+        if (message instanceof String) {
+            content = (String) message;
+        } else if (message instanceof byte[]) {
+            // 二进制消息体原样保存，重发时解码得到与直接发送相同的字节
+            content = Base64.getEncoder().encodeToString((byte[]) message);
+            contentEncoding = MessageRecord.ENCODING_BASE64;
+        } else {
+            content = objectMapper.writeValueAsString(message);
+        }
         return MessageRecord.builder()
                 .businessKey(key)
                 .topic(topic)
                 .content(content)
+                .contentEncoding(contentEncoding)
                 .status(MessageRecord.Status.PENDING.getValue())
                 .retryCount(0)
                 .maxRetryCount(properties.getMaxRetryCount())
@@ -111,4 +157,231 @@ public abstract class AbstractMessageService implements MessageService {
                 .updateTime(LocalDateTime.now())
                 .build();
     }
-} 
\ No newline at end of file
+
+    /**
+     * 创建可由投递器或重试分发器独立重发的消息记录，消息ID和消息头在保存前写入
+     *
+     * @param topic 主题
+     * @param key 消息键
+     * @param msgId 消息ID
+     * @param message 消息内容
+     * @param headers 消息头
+     * @param <T> 消息类型
+     * @return 消息记录对象
+     * @throws JsonProcessingException JSON处理异常
+     */
+    protected <T> MessageRecord createMessageRecord(String topic, String key, String msgId, T message,
+                                                    Map<String, Object> headers) throws JsonProcessingException {
+        MessageRecord messageRecord = createMessageRecord(topic, key, message);
+        messageRecord.setMsgId(msgId);
+        if (headers != null && !headers.isEmpty()) {
+            messageRecord.setHeaders(objectMapper.writeValueAsString(headers));
+        }
+        return messageRecord;
+    }
+
+    /**
+     * 是否启用发件箱模式
+     *
+     * @return 启用时send/sendAsync只写入消息记录，由发件箱投递器负责发送
+     */
+    protected boolean isOutboxEnabled() {
+        return properties.getOutbox().isEnabled();
+    }
+
+    /**
+     * 将消息写入发件箱
+     * <p>
+     * 消息记录的保存会加入调用方的事务，业务回滚时消息也不会发出。
+     * 保存失败（如同一个消息键重复写入，违反msg_id唯一约束）时调用方事务已被标记为只回滚，
+     * 因此直接抛出异常而不是返回false，避免调用方继续执行后在提交时才收到UnexpectedRollbackException
+     * </p>
+     *
+     * @param topic 主题
+     * @param key 消息键
+     * @param message 消息内容
+     * @param headers 消息头
+     * @param <T> 消息类型
+     * @return 是否写入成功，消息序列化失败时返回false
+     * @throws RuntimeException 保存消息记录失败
+     */
+    protected <T> boolean saveToOutbox(String topic, String key, T message, Map<String, Object> headers) {
+        String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
+        MessageRecord messageRecord;
+        try {
+            messageRecord = createMessageRecord(actualTopic, key,
+                    generateMessageId(actualTopic, key, message), message, headers);
+        } catch (JsonProcessingException e) {
+            log.error("写入发件箱失败，消息序列化失败: topic={}, key={}, message={}", actualTopic, key, message, e);
+            return false;
+        }
+        return messageRecordService.save(messageRecord);
+    }
+
+    /**
+     * 还原消息记录中的消息体，与直接发送时的字节一致
+     *
+     * @param record 消息记录
+     * @return 消息体
+     */
+    protected byte[] readPayload(MessageRecord record) {
+        if (MessageRecord.ENCODING_BASE64.equals(record.getContentEncoding())) {
+            return Base64.getDecoder().decode(record.getContent());
+        }
+        return record.getContent().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 还原发件箱消息记录中的消息头
+     *
+     * @param record 消息记录
+     * @return 消息头，没有时返回空Map
+     */
+    protected Map<String, Object> readHeaders(MessageRecord record) {
+        if (!StringUtils.hasText(record.getHeaders())) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(record.getHeaders(), new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            log.warn("解析消息头失败，按无消息头发送: msgId={}", record.getMsgId(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 在发布超时时间内等待一批消息的发送确认
+     *
+     * @param futures 消息记录主键到发送确认结果的映射
+     * @return 确认成功的消息记录主键
+     */
+    protected Set<Long> awaitPublished(Map<Long, CompletableFuture<Boolean>> futures) {
+        Set<Long> published = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getOutbox().getPublishTimeoutMs());
+        for (Map.Entry<Long, CompletableFuture<Boolean>> entry : futures.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (Boolean.TRUE.equals(entry.getValue().get(remaining, TimeUnit.NANOSECONDS))) {
+                    published.add(entry.getKey());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("等待消息发送确认失败: id={}", entry.getKey(), e);
+            }
+        }
+        return published;
+    }
+
+    /**
+     * 为一批消息创建消息记录并通过一条多行INSERT保存
+     *
+     * @param topic 主题
+     * @param messages 消息内容列表
+     * @param <T> 消息类型
+     * @return 已保存的消息记录，保存失败返回null
+     */
+    private <T> List<MessageRecord> saveBatchRecords(String topic, List<T> messages) {
+        String actualTopic = StringUtils.hasText(topic) ? topic : properties.getDefaultTopic();
+        if (messages == null || messages.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<MessageRecord> records = new ArrayList<>(messages.size());
+            for (T message : messages) {
+                MessageRecord messageRecord = createMessageRecord(actualTopic, null, message);
+                messageRecord.setMsgId(generateMessageId(actualTopic, null, message));
+                records.add(messageRecord);
+            }
+            return messageRecordService.saveAll(records) ? records : null;
+        } catch (Exception e) {
+            log.error("批量保存消息记录失败: topic={}, size={}", actualTopic, messages.size(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 批量发送已保存的消息记录，并以批量UPDATE写回发送结果
+     *
+     * @param records 消息记录
+     * @return 是否全部发送成功
+     */
+    private boolean publishAndMark(List<MessageRecord> records) {
+        try {
+            Set<Long> published = publish(records);
+            List<Long> sent = new ArrayList<>(published.size());
+            List<Long> failed = new ArrayList<>();
+            for (MessageRecord record : records) {
+                if (published.contains(record.getId())) {
+                    sent.add(record.getId());
+                } else {
+                    failed.add(record.getId());
+                }
+            }
+            messageRecordService.markAsSent(sent);
+            messageRecordService.markAsSendFailed(failed);
+            if (!failed.isEmpty()) {
+                log.warn("批量发送消息部分失败: total={}, failed={}", records.size(), failed.size());
+            }
+            return failed.isEmpty();
+        } catch (Exception e) {
+            log.error("批量发送消息失败: size={}", records.size(), e);
+            // 整批标记为发送失败，交由重试机制补发
+            List<Long> ids = new ArrayList<>(records.size());
+            records.forEach(record -> ids.add(record.getId()));
+            messageRecordService.markAsSendFailed(ids);
+            return false;
+        }
+    }
+
+    /**
+     * 批量消费一批消息
+     * <p>
+     * 一次查询过滤已消费的消息（批内重复的消息也只保留一条），反序列化后整批交给消费者，
+     * 成功后一次批量写入消费记录；没有消息ID的消息无法去重，总是交给消费者
+     * </p>
+     *
+     * @param msgIds 消息ID，与消息体一一对应
+     * @param bodies 消息体
+     * @param group 消费组
+     * @param messageType 消息类型
+     * @param consumer 批量消息消费者
+     * @param <T> 消息类型
+     * @return 交给消费者的消息数
+     * @throws Exception 反序列化或消费失败时抛出，调用方负责让消息队列重新投递整批消息
+     */
+    protected <T> int consumeBatch(List<String> msgIds, List<byte[]> bodies, String group,
+                                   Class<T> messageType, Consumer<List<T>> consumer) throws Exception {
+        Set<String> distinctIds = new LinkedHashSet<>();
+        for (String msgId : msgIds) {
+            if (msgId != null) {
+                distinctIds.add(msgId);
+            }
+        }
+        Set<String> skipped = new HashSet<>(messageConsumedService.findConsumed(distinctIds, group));
+
+        List<T> batch = new ArrayList<>(bodies.size());
+        List<String> consumedIds = new ArrayList<>(distinctIds.size());
+        for (int i = 0; i < bodies.size(); i++) {
+            String msgId = msgIds.get(i);
+            if (msgId != null && !skipped.add(msgId)) {
+                continue;
+            }
+            batch.add(objectMapper.readValue(bodies.get(i), messageType));
+            if (msgId != null) {
+                consumedIds.add(msgId);
+            }
+        }
+        if (batch.size() < bodies.size()) {
+            log.debug("批量消费跳过已消费的消息: group={}, total={}, skipped={}", group, bodies.size(), bodies.size() - batch.size());
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        consumer.accept(batch);
+        messageConsumedService.markAllAsConsumed(consumedIds, group);
+        return batch.size();
+    }
+}
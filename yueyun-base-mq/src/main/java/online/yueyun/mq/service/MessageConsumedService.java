@@ -1,5 +1,8 @@
 package online.yueyun.mq.service;
 
+import java.util.Collection;
+import java.util.Set;
+
 /**
  * 消息消费记录服务接口，用于幂等性控制
  *
@@ -25,4 +28,22 @@ public interface MessageConsumedService {
      * @return 是否已消费
      */
     boolean isConsumed(String msgId, String consumerGroup);
-} 
\ No newline at end of file
+    
+    /**
+     * 批量记录消息已消费
+     *
+     * @param msgIds 消息ID
+     * @param consumerGroup 消费组
+     * @return 是否成功
+     */
+    boolean markAllAsConsumed(Collection<String> msgIds, String consumerGroup);
+    
+    /**
+     * 从一批消息中找出已消费的消息
+     *
+     * @param msgIds 消息ID
+     * @param consumerGroup 消费组
+     * @return 已消费的消息ID
+     */
+    Set<String> findConsumed(Collection<String> msgIds, String consumerGroup);
+}
@@ -2,6 +2,7 @@ package online.yueyun.mq.service;
 
 import online.yueyun.mq.model.MessageRecord;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -20,6 +21,14 @@ public interface MessageRecordService {
      */
     boolean save(MessageRecord record);
     
+    /**
+     * 批量保存消息记录，使用一条多行INSERT并回填主键
+     *
+     * @param records 消息记录
+     * @return 是否保存成功
+     */
+    boolean saveAll(List<MessageRecord> records);
+    
     /**
      * 更新消息状态
      *
@@ -61,6 +70,28 @@ public interface MessageRecordService {
      */
     List<MessageRecord> findToRetry(int limit);
     
+    /**
+     * 查询指定分片内需要重试发送的消息
+     * <p>
+     * 槽位[0, {@link MessageRecord#SHARD_SLOTS})按shardCount等分为连续区间，第shard个区间内的消息属于该分片
+     * </p>
+     *
+     * @param shard 分片序号
+     * @param shardCount 分片数
+     * @param limit 查询数量
+     * @return 消息记录列表
+     */
+    List<MessageRecord> findToRetry(int shard, int shardCount, int limit);
+    
+    /**
+     * 统计指定分片内已到重试时间但尚未重试的消息数
+     *
+     * @param shard 分片序号
+     * @param shardCount 分片数
+     * @return 消息数
+     */
+    long countToRetry(int shard, int shardCount);
+    
     /**
      * 查询已发送但未确认消费的消息
      *
@@ -98,4 +129,32 @@ public interface MessageRecordService {
      * @return 是否已被消费
      */
     boolean isConsumed(String msgId, String consumerGroup);
-} 
\ No newline at end of file
+    
+    /**
+     * 认领待发送的消息
+     * <p>
+     * 使用SELECT ... FOR UPDATE SKIP LOCKED加锁，需在事务内调用，
+     * 多个节点并发认领时互不阻塞且不会拿到同一条消息
+     * </p>
+     *
+     * @param limit 认领数量
+     * @return 消息记录列表
+     */
+    List<MessageRecord> claimPending(int limit);
+    
+    /**
+     * 批量标记消息为已发送
+     *
+     * @param ids 消息记录主键
+     * @return 更新的记录数
+     */
+    int markAsSent(Collection<Long> ids);
+    
+    /**
+     * 批量标记消息为发送失败，重试次数加1并按指数退避设置下次重试时间
+     *
+     * @param ids 消息记录主键
+     * @return 更新的记录数
+     */
+    int markAsSendFailed(Collection<Long> ids);
+}
@@ -1,5 +1,6 @@
 package online.yueyun.mq.service;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -41,7 +42,7 @@ public interface MessageService {
      * @param message 消息内容
      * @param headers 消息头
      * @param <T> 消息类型
-     * @return 发送结果，成功返回true，失败返回false
+     * @return 发送结果，成功返回true，失败返回false；开启发件箱模式时表示写入结果，保存消息记录失败时抛出异常并回滚调用方事务
      */
     <T> boolean send(String topic, String key, T message, Map<String, Object> headers);
     
@@ -78,6 +79,33 @@ public interface MessageService {
      */
     <T> CompletableFuture<Boolean> sendAsync(String topic, String key, T message, Map<String, Object> headers);
     
+    /**
+     * 批量同步发送消息
+     * <p>
+     * 消息记录通过一条多行INSERT保存，再按消息队列原生方式批量发送并统一等待确认，
+     * 发送结果以批量UPDATE写回；发件箱模式下只保存消息记录
+     * </p>
+     *
+     * @param topic 主题
+     * @param messages 消息内容列表
+     * @param <T> 消息类型
+     * @return 全部发送成功返回true，任意一条失败返回false，失败的消息由重试机制补发
+     */
+    <T> boolean sendBatch(String topic, List<T> messages);
+    
+    /**
+     * 批量异步发送消息
+     * <p>
+     * 消息记录在调用线程中保存，发送与结果写回在后台线程中完成
+     * </p>
+     *
+     * @param topic 主题
+     * @param messages 消息内容列表
+     * @param <T> 消息类型
+     * @return 异步发送结果，全部发送成功时为true
+     */
+    <T> CompletableFuture<Boolean> sendBatchAsync(String topic, List<T> messages);
+    
     /**
      * 订阅消息
      *
@@ -88,4 +116,19 @@ public interface MessageService {
      * @param <T> 消息类型
      */
     <T> void subscribe(String topic, String group, Class<T> clazz, Consumer<T> consumer);
-} 
\ No newline at end of file
+    
+    /**
+     * 批量订阅消息
+     * <p>
+     * 每批消息只做一次已消费查询，过滤重复后整批交给消费者，成功后一次批量写入消费记录；
+     * 消费者抛出异常时整批消息由消息队列重新投递
+     * </p>
+     *
+     * @param topic 主题
+     * @param group 消费组
+     * @param clazz 消息类型
+     * @param consumer 批量消息消费者
+     * @param <T> 消息类型
+     */
+    <T> void subscribeBatch(String topic, String group, Class<T> clazz, Consumer<List<T>> consumer);
+}
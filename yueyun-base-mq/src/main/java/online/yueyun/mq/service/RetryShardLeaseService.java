@@ -0,0 +1,69 @@
+package online.yueyun.mq.service;
+
+import online.yueyun.mq.model.RetryShardLease;
+
+import java.util.List;
+
+/**
+ * 重试分片租约服务接口
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public interface RetryShardLeaseService {
+
+    /**
+     * 初始化分片租约记录，已存在的分片保持不变
+     *
+     * @param shardCount 分片数
+     */
+    void initShards(int shardCount);
+
+    /**
+     * 查询所有分片租约
+     *
+     * @return 分片租约列表
+     */
+    List<RetryShardLease> findAll();
+
+    /**
+     * 获取或续期分片租约，只有租约未被持有、已过期或已由本节点持有时才会成功
+     *
+     * @param shard 分片序号
+     * @param owner 节点标识
+     * @param leaseMs 租约时长（毫秒）
+     * @return 是否持有租约
+     */
+    boolean tryAcquire(int shard, String owner, long leaseMs);
+
+    /**
+     * 释放分片租约
+     *
+     * @param shard 分片序号
+     * @param owner 节点标识
+     * @return 是否释放成功
+     */
+    boolean release(int shard, String owner);
+
+    /**
+     * 上报节点心跳，没有持有分片的节点也需要上报，其他节点才会让出分片
+     *
+     * @param owner 节点标识
+     * @param leaseMs 心跳有效时长（毫秒）
+     */
+    void heartbeat(String owner, long leaseMs);
+
+    /**
+     * 统计心跳未过期的节点数
+     *
+     * @return 存活节点数
+     */
+    long countLiveNodes();
+
+    /**
+     * 注销节点心跳
+     *
+     * @param owner 节点标识
+     */
+    void unregister(String owner);
+}
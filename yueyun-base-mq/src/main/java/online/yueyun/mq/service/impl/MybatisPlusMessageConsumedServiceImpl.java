@@ -12,6 +12,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * 消息消费记录服务MyBatis-Plus实现类
@@ -49,4 +55,43 @@ public class MybatisPlusMessageConsumedServiceImpl extends ServiceImpl<MessageCo
                 .eq(MessageConsumed::getConsumerGroup, consumerGroup);
         return super.count(queryWrapper) > 0;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public boolean markAllAsConsumed(Collection<String> msgIds, String consumerGroup) {
+        if (msgIds == null || msgIds.isEmpty()) {
+            return true;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<MessageConsumed> records = new ArrayList<>(msgIds.size());
+            for (String msgId : msgIds) {
+                records.add(MessageConsumed.builder()
+                        .msgId(msgId)
+                        .consumerGroup(consumerGroup)
+                        .consumeTime(now)
+                        .build());
+            }
+            getBaseMapper().insertIgnoreBatch(records);
+            return true;
+        } catch (Exception e) {
+            log.error("批量记录消息消费失败: consumerGroup={}, size={}", consumerGroup, msgIds.size(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public Set<String> findConsumed(Collection<String> msgIds, String consumerGroup) {
+        if (msgIds == null || msgIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        LambdaQueryWrapper<MessageConsumed> queryWrapper = Wrappers.lambdaQuery();
+        queryWrapper.select(MessageConsumed::getMsgId)
+                .eq(MessageConsumed::getConsumerGroup, consumerGroup)
+                .in(MessageConsumed::getMsgId, msgIds);
+        Set<String> consumed = new HashSet<>();
+        for (MessageConsumed record : super.list(queryWrapper)) {
+            consumed.add(record.getMsgId());
+        }
+        return consumed;
+    }
+}
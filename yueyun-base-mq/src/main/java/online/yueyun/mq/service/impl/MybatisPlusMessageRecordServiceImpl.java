@@ -1,6 +1,7 @@
 package online.yueyun.mq.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +13,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 消息记录服务MyBatis-Plus实现类
@@ -24,16 +27,48 @@ import java.util.List;
 @Service
 public class MybatisPlusMessageRecordServiceImpl extends ServiceImpl<MessageRecordMapper, MessageRecord> implements MessageRecordService {
 
+    /**
+     * 单条多行INSERT语句的最大行数
+     */
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean save(MessageRecord record) {
         if (record.getCreateTime() == null) {
             record.setCreateTime(LocalDateTime.now());
         }
+        if (record.getShardSlot() == null) {
+            record.setShardSlot(ThreadLocalRandom.current().nextInt(MessageRecord.SHARD_SLOTS));
+        }
         record.setUpdateTime(LocalDateTime.now());
         return super.save(record);
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveAll(List<MessageRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (MessageRecord record : records) {
+            if (record.getCreateTime() == null) {
+                record.setCreateTime(now);
+            }
+            if (record.getShardSlot() == null) {
+                record.setShardSlot(ThreadLocalRandom.current().nextInt(MessageRecord.SHARD_SLOTS));
+            }
+            record.setUpdateTime(now);
+        }
+        // 按固定行数拆分，避免单条语句超过max_allowed_packet
+        int inserted = 0;
+        for (int from = 0; from < records.size(); from += INSERT_BATCH_SIZE) {
+            inserted += getBaseMapper().insertBatch(records.subList(from, Math.min(from + INSERT_BATCH_SIZE, records.size())));
+        }
+        return inserted == records.size();
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean updateStatus(String msgId, MessageRecord.Status status) {
@@ -80,6 +115,34 @@ public class MybatisPlusMessageRecordServiceImpl extends ServiceImpl<MessageReco
         return super.list(queryWrapper);
     }
 
+    @Override
+    public List<MessageRecord> findToRetry(int shard, int shardCount, int limit) {
+        LambdaQueryWrapper<MessageRecord> queryWrapper = retryQuery(shard, shardCount);
+        queryWrapper.orderByAsc(MessageRecord::getNextRetryTime)
+                .last("LIMIT " + limit);
+        return super.list(queryWrapper);
+    }
+
+    @Override
+    public long countToRetry(int shard, int shardCount) {
+        return super.count(retryQuery(shard, shardCount));
+    }
+
+    /**
+     * 构造分片内到期重试消息的查询条件，槽位区间条件可以走(status, shard_slot, next_retry_time)索引
+     */
+    private LambdaQueryWrapper<MessageRecord> retryQuery(int shard, int shardCount) {
+        int fromSlot = shard * MessageRecord.SHARD_SLOTS / shardCount;
+        int toSlot = (shard + 1) * MessageRecord.SHARD_SLOTS / shardCount;
+        LambdaQueryWrapper<MessageRecord> queryWrapper = Wrappers.lambdaQuery();
+        queryWrapper.eq(MessageRecord::getStatus, MessageRecord.Status.SEND_FAILED.getValue())
+                .ge(MessageRecord::getShardSlot, fromSlot)
+                .lt(MessageRecord::getShardSlot, toSlot)
+                .le(MessageRecord::getNextRetryTime, LocalDateTime.now())
+                .apply("retry_count < max_retry_count");
+        return queryWrapper;
+    }
+
     @Override
     public List<MessageRecord> findSentButNotConsumed(String topic, String consumerGroup, int limit) {
         LambdaQueryWrapper<MessageRecord> queryWrapper = Wrappers.lambdaQuery();
@@ -141,4 +204,43 @@ public class MybatisPlusMessageRecordServiceImpl extends ServiceImpl<MessageReco
                 .eq(MessageRecord::getStatus, MessageRecord.Status.CONSUMED.getValue());
         return super.count(queryWrapper) > 0;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public List<MessageRecord> claimPending(int limit) {
+        LambdaQueryWrapper<MessageRecord> queryWrapper = Wrappers.lambdaQuery();
+        // 跳过其他节点已锁定的行，按主键顺序认领（需要MySQL 8.0+）
+        queryWrapper.eq(MessageRecord::getStatus, MessageRecord.Status.PENDING.getValue())
+                .orderByAsc(MessageRecord::getId)
+                .last("LIMIT " + limit + " FOR UPDATE SKIP LOCKED");
+        return super.list(queryWrapper);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int markAsSent(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        LambdaUpdateWrapper<MessageRecord> updateWrapper = Wrappers.lambdaUpdate();
+        updateWrapper.set(MessageRecord::getStatus, MessageRecord.Status.SENT.getValue())
+                .set(MessageRecord::getUpdateTime, LocalDateTime.now())
+                .in(MessageRecord::getId, ids);
+        return getBaseMapper().update(null, updateWrapper);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int markAsSendFailed(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        LambdaUpdateWrapper<MessageRecord> updateWrapper = Wrappers.lambdaUpdate();
+        // MySQL按顺序计算SET子句，next_retry_time使用的是已加1的retry_count，与单条失败的退避规则一致
+        updateWrapper.set(MessageRecord::getStatus, MessageRecord.Status.SEND_FAILED.getValue())
+                .setSql("retry_count = retry_count + 1")
+                .setSql("next_retry_time = DATE_ADD(NOW(), INTERVAL LEAST(60, POW(2, retry_count)) MINUTE)")
+                .set(MessageRecord::getUpdateTime, LocalDateTime.now())
+                .in(MessageRecord::getId, ids);
+        return getBaseMapper().update(null, updateWrapper);
+    }
+}
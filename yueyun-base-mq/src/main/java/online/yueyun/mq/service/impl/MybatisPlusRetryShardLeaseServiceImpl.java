@@ -0,0 +1,125 @@
+package online.yueyun.mq.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.mq.mapper.RetryNodeMapper;
+import online.yueyun.mq.mapper.RetryShardLeaseMapper;
+import online.yueyun.mq.model.RetryNode;
+import online.yueyun.mq.model.RetryShardLease;
+import online.yueyun.mq.service.RetryShardLeaseService;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 重试分片租约服务MyBatis-Plus实现类
+ * <p>
+ * 租约通过带条件的UPDATE抢占，同一分片同一时刻只有一个节点更新成功；
+ * 节点心跳记录在独立的表中，用于统计存活节点数
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class MybatisPlusRetryShardLeaseServiceImpl extends ServiceImpl<RetryShardLeaseMapper, RetryShardLease> implements RetryShardLeaseService {
+
+    private final RetryNodeMapper retryNodeMapper;
+
+    public MybatisPlusRetryShardLeaseServiceImpl(RetryNodeMapper retryNodeMapper) {
+        this.retryNodeMapper = retryNodeMapper;
+    }
+
+    @Override
+    public void initShards(int shardCount) {
+        Set<Integer> existing = findAll().stream()
+                .map(RetryShardLease::getShard)
+                .collect(Collectors.toSet());
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (existing.contains(shard)) {
+                continue;
+            }
+            try {
+                getBaseMapper().insert(RetryShardLease.builder()
+                        .shard(shard)
+                        .owner("")
+                        .expireTime(LocalDateTime.now())
+                        .build());
+            } catch (DuplicateKeyException e) {
+                log.debug("分片租约已由其他节点初始化: shard={}", shard);
+            }
+        }
+    }
+
+    @Override
+    public List<RetryShardLease> findAll() {
+        LambdaQueryWrapper<RetryShardLease> queryWrapper = Wrappers.lambdaQuery();
+        queryWrapper.orderByAsc(RetryShardLease::getShard);
+        return super.list(queryWrapper);
+    }
+
+    @Override
+    public boolean tryAcquire(int shard, String owner, long leaseMs) {
+        LocalDateTime now = LocalDateTime.now();
+        LambdaUpdateWrapper<RetryShardLease> updateWrapper = Wrappers.lambdaUpdate();
+        updateWrapper.set(RetryShardLease::getOwner, owner)
+                .set(RetryShardLease::getExpireTime, now.plusNanos(leaseMs * 1_000_000L))
+                .eq(RetryShardLease::getShard, shard)
+                .and(w -> w.eq(RetryShardLease::getOwner, owner)
+                        .or().eq(RetryShardLease::getOwner, "")
+                        .or().lt(RetryShardLease::getExpireTime, now));
+        return getBaseMapper().update(null, updateWrapper) > 0;
+    }
+
+    @Override
+    public boolean release(int shard, String owner) {
+        LambdaUpdateWrapper<RetryShardLease> updateWrapper = Wrappers.lambdaUpdate();
+        updateWrapper.set(RetryShardLease::getOwner, "")
+                .set(RetryShardLease::getExpireTime, LocalDateTime.now())
+                .eq(RetryShardLease::getShard, shard)
+                .eq(RetryShardLease::getOwner, owner);
+        return getBaseMapper().update(null, updateWrapper) > 0;
+    }
+
+    @Override
+    public void heartbeat(String owner, long leaseMs) {
+        LocalDateTime expireTime = LocalDateTime.now().plusNanos(leaseMs * 1_000_000L);
+        LambdaUpdateWrapper<RetryNode> updateWrapper = Wrappers.lambdaUpdate();
+        updateWrapper.set(RetryNode::getExpireTime, expireTime)
+                .eq(RetryNode::getNodeId, owner);
+        if (retryNodeMapper.update(null, updateWrapper) > 0) {
+            return;
+        }
+        try {
+            retryNodeMapper.insert(RetryNode.builder().nodeId(owner).expireTime(expireTime).build());
+        } catch (DuplicateKeyException e) {
+            log.debug("节点心跳已存在: owner={}", owner);
+        }
+        // 顺带清理早已过期的节点，避免心跳表无限增长
+        LambdaQueryWrapper<RetryNode> staleWrapper = Wrappers.lambdaQuery();
+        staleWrapper.lt(RetryNode::getExpireTime, LocalDateTime.now().minusDays(1));
+        retryNodeMapper.delete(staleWrapper);
+    }
+
+    @Override
+    public long countLiveNodes() {
+        LambdaQueryWrapper<RetryNode> queryWrapper = Wrappers.lambdaQuery();
+        queryWrapper.gt(RetryNode::getExpireTime, LocalDateTime.now());
+        return retryNodeMapper.selectCount(queryWrapper);
+    }
+
+    @Override
+    public void unregister(String owner) {
+        LambdaQueryWrapper<RetryNode> queryWrapper = Wrappers.lambdaQuery();
+        queryWrapper.eq(RetryNode::getNodeId, owner);
+        retryNodeMapper.delete(queryWrapper);
+    }
+}
@@ -0,0 +1,245 @@
+package online.yueyun.mq.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.mq.config.MqProperties;
+import online.yueyun.mq.dedupe.ConsumedMarkerStore;
+import online.yueyun.mq.dedupe.RollingBloomFilter;
+import online.yueyun.mq.service.MessageConsumedService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分层消息消费记录服务
+ * <p>
+ * 查询依次经过以下几层，前一层能给出确定结论时不再访问后一层：
+ * <ol>
+ *     <li>本地有界缓存：本节点最近消费过的消息，命中即为已消费</li>
+ *     <li>共享标记存储（如Redis）：消费时写入带过期时间的标记，过期时间等于去重窗口，存在即为已消费</li>
+ *     <li>按消费组划分、按时间分桶滚动的布隆过滤器：标记不存在且标记存储可信时，过滤器判定本节点未写入过的消息直接视为未消费</li>
+ *     <li>数据库：标记不存在但布隆过滤器命中（标记被淘汰或误判），或标记存储不可用、不可信（有节点写入标记失败）时才查询</li>
+ * </ol>
+ * 没有标记存储时跳过标记层和布隆过滤器层，本地缓存未命中的消息全部查询数据库：
+ * 布隆过滤器只反映本节点自启动以来的消费记录，重启后为空，不能据此判定消息未消费。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class TieredMessageConsumedServiceImpl implements MessageConsumedService {
+
+    /**
+     * 去重命中指标名称，tier标签区分命中的层级
+     */
+    private static final String METRIC_HIT = "yueyun.mq.dedupe.hit";
+
+    /**
+     * 数据库查询次数指标名称
+     */
+    private static final String METRIC_DB_QUERIES = "yueyun.mq.dedupe.db.queries";
+
+    private final MessageConsumedService databaseService;
+
+    private final ConsumedMarkerStore markerStore;
+
+    private final MqProperties.Dedupe config;
+
+    private final Cache<String, Boolean> localCache;
+
+    /**
+     * 各消费组的布隆过滤器
+     */
+    private final Map<String, RollingBloomFilter> bloomFilters = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter databaseHits;
+    private final Counter databaseQueries;
+
+    /**
+     * @param databaseService 数据库消费记录服务
+     * @param markerStore 共享标记存储，为null时跳过该层
+     * @param properties 消息队列配置
+     * @param meterRegistry 指标注册表，为null时不记录指标
+     */
+    public TieredMessageConsumedServiceImpl(MessageConsumedService databaseService,
+                                            ConsumedMarkerStore markerStore,
+                                            MqProperties properties,
+                                            MeterRegistry meterRegistry) {
+        this.databaseService = databaseService;
+        this.markerStore = markerStore;
+        this.config = properties.getDedupe();
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(config.getLocalCacheSize())
+                .expireAfterWrite(config.getWindowMs(), TimeUnit.MILLISECONDS)
+                .build();
+        if (meterRegistry != null) {
+            this.localHits = Counter.builder(METRIC_HIT).tag("tier", "local").register(meterRegistry);
+            this.redisHits = Counter.builder(METRIC_HIT).tag("tier", "redis").register(meterRegistry);
+            this.databaseHits = Counter.builder(METRIC_HIT).tag("tier", "db").register(meterRegistry);
+            this.databaseQueries = Counter.builder(METRIC_DB_QUERIES).register(meterRegistry);
+        } else {
+            this.localHits = null;
+            this.redisHits = null;
+            this.databaseHits = null;
+            this.databaseQueries = null;
+        }
+    }
+
+    @Override
+    public boolean markAsConsumed(String msgId, String consumerGroup) {
+        remember(msgId, consumerGroup);
+        if (markerStore != null) {
+            markerStore.add(msgId, consumerGroup);
+        }
+        return !config.isDbWrite() || databaseService.markAsConsumed(msgId, consumerGroup);
+    }
+
+    @Override
+    public boolean isConsumed(String msgId, String consumerGroup) {
+        if (msgId == null) {
+            return false;
+        }
+        if (localCache.getIfPresent(localKey(msgId, consumerGroup)) != null) {
+            increment(localHits, 1);
+            return true;
+        }
+
+        boolean ambiguous;
+        if (markerStore != null) {
+            try {
+                if (markerStore.contains(msgId, consumerGroup)) {
+                    increment(redisHits, 1);
+                    return true;
+                }
+                ambiguous = !markerStore.isTrusted() || bloomFilter(consumerGroup).mightContain(msgId);
+            } catch (Exception e) {
+                log.warn("查询消费标记失败，回退到数据库: msgId={}, consumerGroup={}", msgId, consumerGroup, e);
+                ambiguous = true;
+            }
+        } else {
+            // 没有共享标记时布隆过滤器的否定结论不可信，回退到数据库
+            ambiguous = true;
+        }
+        if (!ambiguous) {
+            return false;
+        }
+
+        increment(databaseQueries, 1);
+        boolean consumed = databaseService.isConsumed(msgId, consumerGroup);
+        if (consumed) {
+            increment(databaseHits, 1);
+            localCache.put(localKey(msgId, consumerGroup), Boolean.TRUE);
+        }
+        return consumed;
+    }
+
+    @Override
+    public boolean markAllAsConsumed(Collection<String> msgIds, String consumerGroup) {
+        if (msgIds == null || msgIds.isEmpty()) {
+            return true;
+        }
+        for (String msgId : msgIds) {
+            remember(msgId, consumerGroup);
+        }
+        if (markerStore != null) {
+            markerStore.addAll(msgIds, consumerGroup);
+        }
+        return !config.isDbWrite() || databaseService.markAllAsConsumed(msgIds, consumerGroup);
+    }
+
+    @Override
+    public Set<String> findConsumed(Collection<String> msgIds, String consumerGroup) {
+        Set<String> consumed = new HashSet<>();
+        if (msgIds == null || msgIds.isEmpty()) {
+            return consumed;
+        }
+
+        List<String> remaining = new ArrayList<>(msgIds.size());
+        for (String msgId : new LinkedHashSet<>(msgIds)) {
+            if (localCache.getIfPresent(localKey(msgId, consumerGroup)) != null) {
+                consumed.add(msgId);
+            } else {
+                remaining.add(msgId);
+            }
+        }
+        increment(localHits, consumed.size());
+        if (remaining.isEmpty()) {
+            return consumed;
+        }
+
+        List<String> ambiguous = new ArrayList<>();
+        Set<String> marked = null;
+        boolean trusted = true;
+        if (markerStore == null) {
+            // 没有共享标记时布隆过滤器的否定结论不可信，回退到数据库
+            ambiguous.addAll(remaining);
+        } else {
+            try {
+                marked = markerStore.findContained(remaining, consumerGroup);
+                trusted = markerStore.isTrusted();
+            } catch (Exception e) {
+                log.warn("批量查询消费标记失败，回退到数据库: consumerGroup={}, size={}", consumerGroup, remaining.size(), e);
+                ambiguous.addAll(remaining);
+            }
+        }
+        if (marked != null) {
+            RollingBloomFilter bloomFilter = bloomFilter(consumerGroup);
+            int markedCount = 0;
+            for (String msgId : remaining) {
+                if (marked.contains(msgId)) {
+                    consumed.add(msgId);
+                    markedCount++;
+                } else if (!trusted || bloomFilter.mightContain(msgId)) {
+                    ambiguous.add(msgId);
+                }
+            }
+            increment(redisHits, markedCount);
+        }
+
+        if (!ambiguous.isEmpty()) {
+            increment(databaseQueries, 1);
+            Set<String> fromDatabase = databaseService.findConsumed(ambiguous, consumerGroup);
+            increment(databaseHits, fromDatabase.size());
+            for (String msgId : fromDatabase) {
+                localCache.put(localKey(msgId, consumerGroup), Boolean.TRUE);
+            }
+            consumed.addAll(fromDatabase);
+        }
+        return consumed;
+    }
+
+    private void remember(String msgId, String consumerGroup) {
+        localCache.put(localKey(msgId, consumerGroup), Boolean.TRUE);
+        if (markerStore != null) {
+            bloomFilter(consumerGroup).put(msgId);
+        }
+    }
+
+    private RollingBloomFilter bloomFilter(String consumerGroup) {
+        return bloomFilters.computeIfAbsent(consumerGroup, group -> new RollingBloomFilter(
+                config.getBloomExpectedInsertions(), config.getBloomFpp(), config.getBloomBuckets(), config.getWindowMs()));
+    }
+
+    private String localKey(String msgId, String consumerGroup) {
+        return consumerGroup + '\u0000' + msgId;
+    }
+
+    private void increment(Counter counter, int amount) {
+        if (counter != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+}
@@ -5,8 +5,11 @@ CREATE TABLE IF NOT EXISTS `mq_message_record` (
     `business_key` varchar(128) DEFAULT NULL COMMENT '业务键',
     `topic` varchar(64) NOT NULL COMMENT '消息主题',
     `tag` varchar(64) DEFAULT NULL COMMENT '消息标签（RocketMQ专用）',
-    `content` text NOT NULL COMMENT '消息内容（JSON格式）',
+    `content` text NOT NULL COMMENT '消息内容：字符串原样保存，对象为JSON，二进制消息体为Base64',
+    `content_encoding` varchar(16) DEFAULT NULL COMMENT '消息内容编码：为空表示UTF-8文本，base64表示二进制消息体',
+    `headers` text DEFAULT NULL COMMENT '消息头（JSON格式）',
     `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '消息状态：0-待发送，1-已发送，2-发送失败，3-已消费，4-消费失败',
+    `shard_slot` smallint(6) NOT NULL DEFAULT '0' COMMENT '重试分片槽位（0-1023）',
     `retry_count` int(11) NOT NULL DEFAULT '0' COMMENT '重试次数',
     `max_retry_count` int(11) NOT NULL DEFAULT '3' COMMENT '最大重试次数',
     `consumer_group` varchar(64) DEFAULT NULL COMMENT '消费组',
@@ -19,6 +22,7 @@ CREATE TABLE IF NOT EXISTS `mq_message_record` (
     INDEX `idx_topic` (`topic`),
     INDEX `idx_status` (`status`),
     INDEX `idx_next_retry_time` (`next_retry_time`),
+    INDEX `idx_status_shard_slot_retry` (`status`, `shard_slot`, `next_retry_time`),
     INDEX `idx_consumer_group` (`consumer_group`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='消息记录表';
 
@@ -31,4 +35,19 @@ CREATE TABLE IF NOT EXISTS `mq_message_consumed` (
     PRIMARY KEY (`id`),
     UNIQUE KEY `uk_msg_id_consumer_group` (`msg_id`, `consumer_group`),
     INDEX `idx_consumer_group` (`consumer_group`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='消息消费记录表'; 
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='消息消费记录表';
+
+-- 重试分片租约表
+CREATE TABLE IF NOT EXISTS `mq_retry_shard_lease` (
+    `shard` int(11) NOT NULL COMMENT '分片序号',
+    `owner` varchar(128) NOT NULL DEFAULT '' COMMENT '持有租约的节点',
+    `expire_time` datetime(3) NOT NULL COMMENT '租约到期时间',
+    PRIMARY KEY (`shard`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='重试分片租约表';
+
+-- 重试节点心跳表
+CREATE TABLE IF NOT EXISTS `mq_retry_node` (
+    `node_id` varchar(128) NOT NULL COMMENT '节点标识',
+    `expire_time` datetime(3) NOT NULL COMMENT '心跳到期时间',
+    PRIMARY KEY (`node_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='重试节点心跳表';
@@ -0,0 +1,404 @@
+package online.yueyun.redis.analytics;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.utils.RedisKeyUtils;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 近似统计服务
+ * <p>
+ * UV统计使用HyperLogLog，每个计数器固定占用约12KB，标准误差0.81%，按天和按小时各维护一个计数器，
+ * 跨时间窗口查询时通过多键PFCOUNT在读取时合并，需要保存汇总结果时使用{@link #mergeUv}执行PFMERGE。
+ * 同一指标的所有时间窗口使用同一个哈希标签，集群模式下可以直接做多键操作。
+ * </p>
+ * <p>
+ * 人群圈选使用位图，以数字用户ID作为偏移量，支持交集、并集和计数。
+ * 集群模式下参与运算的人群必须位于同一个哈希槽，可以通过{@link RedisKeyUtils#withHashTag}命名。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisAnalyticsService {
+
+    /**
+     * 位图偏移量上限，SETBIT的最大偏移量为2^32-1
+     */
+    private static final long MAX_BIT_OFFSET = (1L << 32) - 1;
+
+    /**
+     * 交集、并集计数时临时结果的过期时间，单位：毫秒
+     */
+    private static final long TEMP_KEY_TTL_MILLIS = 60000L;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.Analytics config;
+
+    private final ZoneId zoneId;
+
+    /**
+     * 是否集群模式，集群模式下多键运算需要校验哈希槽
+     */
+    private final boolean cluster;
+
+    public RedisAnalyticsService(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getAnalytics();
+        this.zoneId = config.getZoneId() != null ? config.getZoneId() : ZoneId.systemDefault();
+        this.cluster = connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware();
+    }
+
+    // ------------------ UV统计 ------------------
+
+    /**
+     * 记录一次访问，同时计入当天和当前小时的UV
+     *
+     * @param metric 指标名称，例如页面或活动标识
+     * @param visitorId 访客标识
+     */
+    public void recordVisit(String metric, String visitorId) {
+        recordVisits(metric, List.of(visitorId));
+    }
+
+    /**
+     * 批量记录访问，通过管道分批写入
+     *
+     * @param metric 指标名称
+     * @param visitorIds 访客标识集合
+     */
+    public void recordVisits(String metric, Collection<String> visitorIds) {
+        if (visitorIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(zoneId);
+        String dayKey = dailyKey(metric, now.toLocalDate());
+        String hourKey = hourlyKey(metric, now);
+        List<String> visitors = new ArrayList<>(visitorIds);
+        int batchSize = config.getBatchSize();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int from = 0; from < visitors.size(); from += batchSize) {
+                String[] chunk = visitors.subList(from, Math.min(from + batchSize, visitors.size()))
+                        .toArray(new String[0]);
+                stringConnection.pfAdd(dayKey, chunk);
+                stringConnection.pfAdd(hourKey, chunk);
+            }
+            stringConnection.pExpire(dayKey, config.getDailyRetention().toMillis());
+            stringConnection.pExpire(hourKey, config.getHourlyRetention().toMillis());
+            return null;
+        });
+    }
+
+    /**
+     * 获取某一天的UV
+     *
+     * @param metric 指标名称
+     * @param day 日期
+     * @return UV估计值
+     */
+    public long countDailyUv(String metric, LocalDate day) {
+        return countDailyUv(metric, day, day);
+    }
+
+    /**
+     * 获取日期区间内去重后的UV，区间内各天的计数器在读取时合并
+     *
+     * @param metric 指标名称
+     * @param from 开始日期（包含）
+     * @param to 结束日期（包含）
+     * @return UV估计值
+     */
+    public long countDailyUv(String metric, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(dailyKey(metric, day));
+        }
+        return pfCount(keys);
+    }
+
+    /**
+     * 获取小时区间内去重后的UV
+     *
+     * @param metric 指标名称
+     * @param from 开始时间（包含，按小时截断）
+     * @param to 结束时间（包含，按小时截断）
+     * @return UV估计值
+     */
+    public long countHourlyUv(String metric, LocalDateTime from, LocalDateTime to) {
+        List<String> keys = new ArrayList<>();
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        for (LocalDateTime hour = from.truncatedTo(ChronoUnit.HOURS); !hour.isAfter(end); hour = hour.plusHours(1)) {
+            keys.add(hourlyKey(metric, hour));
+        }
+        return pfCount(keys);
+    }
+
+    /**
+     * 把日期区间内的计数器合并保存为一个新的计数器，例如按周、按月汇总
+     *
+     * @param metric 指标名称
+     * @param from 开始日期（包含）
+     * @param to 结束日期（包含）
+     * @param name 汇总计数器名称，保存在同一指标下
+     * @return 汇总后的UV估计值
+     */
+    public long mergeUv(String metric, LocalDate from, LocalDate to, String name) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(dailyKey(metric, day));
+        }
+        String destination = uvKey(metric, "m:" + name);
+        redisTemplate.opsForHyperLogLog().union(destination, keys.toArray(new String[0]));
+        redisTemplate.expire(destination, config.getDailyRetention());
+        return pfCount(List.of(destination));
+    }
+
+    /**
+     * 获取汇总计数器的UV
+     *
+     * @param metric 指标名称
+     * @param name 汇总计数器名称
+     * @return UV估计值
+     */
+    public long countMergedUv(String metric, String name) {
+        return pfCount(List.of(uvKey(metric, "m:" + name)));
+    }
+
+    // ------------------ 人群圈选 ------------------
+
+    /**
+     * 把用户加入人群
+     *
+     * @param cohort 人群名称
+     * @param userId 数字用户ID
+     */
+    public void addToCohort(String cohort, long userId) {
+        redisTemplate.opsForValue().setBit(cohortKey(cohort), checkOffset(userId), true);
+    }
+
+    /**
+     * 批量把用户加入人群，通过管道写入
+     *
+     * @param cohort 人群名称
+     * @param userIds 数字用户ID集合
+     */
+    public void addToCohort(String cohort, Collection<Long> userIds) {
+        setBits(cohort, userIds, true);
+    }
+
+    /**
+     * 批量把用户移出人群
+     *
+     * @param cohort 人群名称
+     * @param userIds 数字用户ID集合
+     */
+    public void removeFromCohort(String cohort, Collection<Long> userIds) {
+        setBits(cohort, userIds, false);
+    }
+
+    /**
+     * 判断用户是否在人群中
+     *
+     * @param cohort 人群名称
+     * @param userId 数字用户ID
+     * @return 是否在人群中
+     */
+    public boolean inCohort(String cohort, long userId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().getBit(cohortKey(cohort), checkOffset(userId)));
+    }
+
+    /**
+     * 获取人群人数
+     *
+     * @param cohort 人群名称
+     * @return 人数
+     */
+    public long cohortSize(String cohort) {
+        byte[] rawKey = raw(cohortKey(cohort));
+        Long count = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitCount(rawKey));
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * 计算多个人群的交集并保存为新人群
+     *
+     * @param destination 结果人群名称
+     * @param cohorts 参与运算的人群名称
+     * @return 结果人群人数
+     */
+    public long intersect(String destination, String... cohorts) {
+        return bitOp(BitOperation.AND, cohortKey(destination), cohorts);
+    }
+
+    /**
+     * 计算多个人群的并集并保存为新人群
+     *
+     * @param destination 结果人群名称
+     * @param cohorts 参与运算的人群名称
+     * @return 结果人群人数
+     */
+    public long union(String destination, String... cohorts) {
+        return bitOp(BitOperation.OR, cohortKey(destination), cohorts);
+    }
+
+    /**
+     * 计算多个人群交集的人数，不保存结果
+     *
+     * @param cohorts 参与运算的人群名称
+     * @return 交集人数
+     */
+    public long countIntersection(String... cohorts) {
+        return countBitOp(BitOperation.AND, cohorts);
+    }
+
+    /**
+     * 计算多个人群并集的人数，不保存结果
+     *
+     * @param cohorts 参与运算的人群名称
+     * @return 并集人数
+     */
+    public long countUnion(String... cohorts) {
+        return countBitOp(BitOperation.OR, cohorts);
+    }
+
+    /**
+     * 删除人群
+     *
+     * @param cohort 人群名称
+     */
+    public void deleteCohort(String cohort) {
+        redisTemplate.delete(cohortKey(cohort));
+    }
+
+    private void setBits(String cohort, Collection<Long> userIds, boolean value) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String key = cohortKey(cohort);
+        List<Long> offsets = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            offsets.add(checkOffset(userId));
+        }
+        int batchSize = config.getBatchSize();
+        for (int from = 0; from < offsets.size(); from += batchSize) {
+            List<Long> chunk = offsets.subList(from, Math.min(from + batchSize, offsets.size()));
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (Long offset : chunk) {
+                    stringConnection.setBit(key, offset, value);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 计算位运算结果的人数，临时结果在同一个管道中设置过期时间并在计数后删除，
+     * 客户端在删除前异常退出时临时结果也会自动过期
+     */
+    private long countBitOp(BitOperation operation, String... cohorts) {
+        String[] keys = cohortKeys(cohorts);
+        // 临时结果与参与运算的人群位于同一哈希槽
+        String temp = RedisKeyUtils.sameSlotKey(keys[0], "tmp:" + UUID.randomUUID());
+        checkSameSlot(keys, temp);
+        byte[] rawTemp = raw(temp);
+        byte[][] rawKeys = Arrays.stream(keys).map(this::raw).toArray(byte[][]::new);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().bitOp(operation, rawTemp, rawKeys);
+            connection.keyCommands().pExpire(rawTemp, TEMP_KEY_TTL_MILLIS);
+            connection.stringCommands().bitCount(rawTemp);
+            connection.keyCommands().del(rawTemp);
+            return null;
+        });
+        Object count = results.get(2);
+        return count instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private long bitOp(BitOperation operation, String destination, String... cohorts) {
+        String[] keys = cohortKeys(cohorts);
+        checkSameSlot(keys, destination);
+        byte[] rawDestination = raw(destination);
+        byte[][] rawKeys = Arrays.stream(keys).map(this::raw).toArray(byte[][]::new);
+        return redisTemplate.execute((RedisCallback<Long>) connection -> {
+            connection.stringCommands().bitOp(operation, rawDestination, rawKeys);
+            Long count = connection.stringCommands().bitCount(rawDestination);
+            return count != null ? count : 0L;
+        });
+    }
+
+    /**
+     * 集群模式下校验参与运算的人群和结果位于同一个哈希槽
+     */
+    private void checkSameSlot(String[] keys, String destination) {
+        List<String> allKeys = new ArrayList<>(Arrays.asList(keys));
+        allKeys.add(destination);
+        if (cluster && !RedisKeyUtils.isSameSlot(allKeys)) {
+            throw new InvalidDataAccessApiUsageException("参与运算的人群不在同一个哈希槽，请使用相同的哈希标签命名: " + allKeys);
+        }
+    }
+
+    private long pfCount(List<String> keys) {
+        Long count = redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+        return count != null ? count : 0L;
+    }
+
+    private String[] cohortKeys(String... cohorts) {
+        if (cohorts.length == 0) {
+            throw new IllegalArgumentException("至少需要一个人群");
+        }
+        return Arrays.stream(cohorts).map(this::cohortKey).toArray(String[]::new);
+    }
+
+    private String dailyKey(String metric, LocalDate day) {
+        return uvKey(metric, "d:" + DAY_FORMAT.format(day));
+    }
+
+    private String hourlyKey(String metric, LocalDateTime hour) {
+        return uvKey(metric, "h:" + HOUR_FORMAT.format(hour));
+    }
+
+    private String uvKey(String metric, String suffix) {
+        return config.getKeyPrefix() + "uv:" + RedisKeyUtils.hashTag(metric) + ":" + suffix;
+    }
+
+    private String cohortKey(String cohort) {
+        return config.getKeyPrefix() + "cohort:" + cohort;
+    }
+
+    private byte[] raw(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long checkOffset(Long userId) {
+        if (userId == null || userId < 0 || userId > MAX_BIT_OFFSET) {
+            throw new IllegalArgumentException("用户ID超出位图偏移量范围[0, 2^32-1]: " + userId);
+        }
+        return userId;
+    }
+}
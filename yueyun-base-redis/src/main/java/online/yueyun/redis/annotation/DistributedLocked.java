@@ -0,0 +1,51 @@
+package online.yueyun.redis.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁注解
+ * 方法执行前按SpEL表达式计算锁的key并加锁，执行完成后释放
+ * <p>
+ * 示例：{@code @DistributedLocked(key = "'order:' + #p0.userId")}。
+ * 按参数名引用（如{@code #order}）需要编译时开启-parameters，否则请使用{@code #p0}、{@code #a0}
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DistributedLocked {
+
+    /**
+     * 锁的key，支持SpEL表达式
+     */
+    String key();
+
+    /**
+     * 锁的key前缀
+     */
+    String prefix() default "lock:";
+
+    /**
+     * 等待时间
+     */
+    long waitTime() default 5;
+
+    /**
+     * 持有锁的时间，小于等于0时由看门狗自动续期
+     */
+    long leaseTime() default -1;
+
+    /**
+     * 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 获取锁失败时的提示信息
+     */
+    String message() default "操作过于频繁，请稍后重试";
+}
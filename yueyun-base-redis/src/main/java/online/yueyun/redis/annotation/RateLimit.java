@@ -0,0 +1,79 @@
+package online.yueyun.redis.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流注解
+ * 方法执行前按SpEL表达式计算限流key并获取令牌，获取失败时拒绝执行
+ * <p>
+ * 示例：{@code @RateLimit(key = "'sms:' + #p0", rate = 10, interval = 1, timeUnit = TimeUnit.MINUTES)}。
+ * 按参数名引用需要编译时开启-parameters，否则请使用{@code #p0}、{@code #a0}
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+
+    /**
+     * 限流的key，支持SpEL表达式
+     */
+    String key();
+
+    /**
+     * 限流的key前缀
+     */
+    String prefix() default "rate:";
+
+    /**
+     * 每个时间间隔允许的请求数
+     */
+    long rate();
+
+    /**
+     * 时间间隔
+     */
+    long interval() default 1;
+
+    /**
+     * 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 每次调用消耗的令牌数
+     */
+    int permits() default 1;
+
+    /**
+     * 限流算法
+     */
+    Algorithm algorithm() default Algorithm.LEASED;
+
+    /**
+     * 被限流时的提示信息
+     */
+    String message() default "请求过于频繁，请稍后重试";
+
+    /**
+     * 限流算法
+     */
+    enum Algorithm {
+        /**
+         * 本地租约令牌桶，高QPS场景下大部分请求无需访问Redis
+         */
+        LEASED,
+        /**
+         * 滑动窗口，每次请求访问Redis，限制精确，适合阈值较小的场景
+         */
+        SLIDING_WINDOW,
+        /**
+         * Redisson令牌桶
+         */
+        REDISSON
+    }
+}
@@ -0,0 +1,49 @@
+package online.yueyun.redis.aspect;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.common.exception.BusinessException;
+import online.yueyun.redis.config.OnRedisServerCondition;
+import online.yueyun.redis.annotation.DistributedLocked;
+import online.yueyun.redis.lock.DistributedLock;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分布式锁注解切面
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+@Aspect
+@Component
+@Conditional(OnRedisServerCondition.class)
+@RequiredArgsConstructor
+public class DistributedLockedAspect {
+
+    private final DistributedLock distributedLock;
+
+    private final SpelKeyResolver keyResolver = new SpelKeyResolver();
+
+    /**
+     * 环绕通知，加锁执行被注解的方法
+     */
+    @Around(value = "@annotation(distributedLocked)", argNames = "point,distributedLocked")
+    public Object around(ProceedingJoinPoint point, DistributedLocked distributedLocked) throws Throwable {
+        String lockKey = distributedLocked.prefix() + keyResolver.resolve(point, distributedLocked.key());
+        if (!distributedLock.tryLock(lockKey, distributedLocked.waitTime(), distributedLocked.leaseTime(),
+                distributedLocked.timeUnit())) {
+            log.warn("获取分布式锁失败: {}", lockKey);
+            throw new BusinessException(distributedLocked.message());
+        }
+        try {
+            return point.proceed();
+        } finally {
+            distributedLock.unlock(lockKey);
+        }
+    }
+}
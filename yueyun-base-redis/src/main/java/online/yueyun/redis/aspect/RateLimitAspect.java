@@ -0,0 +1,47 @@
+package online.yueyun.redis.aspect;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.common.exception.BusinessException;
+import online.yueyun.redis.config.OnRedisServerCondition;
+import online.yueyun.redis.annotation.RateLimit;
+import online.yueyun.redis.utils.RateLimiterUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 限流注解切面
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+@Aspect
+@Component
+@Conditional(OnRedisServerCondition.class)
+@RequiredArgsConstructor
+public class RateLimitAspect {
+
+    private final RateLimiterUtils rateLimiterUtils;
+
+    private final SpelKeyResolver keyResolver = new SpelKeyResolver();
+
+    /**
+     * 环绕通知，获取令牌后执行被注解的方法
+     */
+    @Around(value = "@annotation(rateLimit)", argNames = "point,rateLimit")
+    public Object around(ProceedingJoinPoint point, RateLimit rateLimit) throws Throwable {
+        String key = rateLimit.prefix() + keyResolver.resolve(point, rateLimit.key());
+        Duration interval = Duration.ofMillis(rateLimit.timeUnit().toMillis(rateLimit.interval()));
+        if (!rateLimiterUtils.tryAcquire(key, rateLimit.permits(), rateLimit.rate(), interval, rateLimit.algorithm())) {
+            log.warn("请求被限流: {}", key);
+            throw new BusinessException(rateLimit.message());
+        }
+        return point.proceed();
+    }
+}
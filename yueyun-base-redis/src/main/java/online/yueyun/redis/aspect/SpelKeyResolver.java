@@ -0,0 +1,51 @@
+package online.yueyun.redis.aspect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注解切面使用的SpEL键解析器
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+class SpelKeyResolver {
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 已解析的SpEL表达式缓存
+     */
+    private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+
+    /**
+     * 按方法参数解析键
+     *
+     * @param point 切点
+     * @param key SpEL表达式
+     * @return 解析结果
+     */
+    String resolve(ProceedingJoinPoint point, String key) {
+        Method method = ((MethodSignature) point.getSignature()).getMethod();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                point.getTarget(), method, point.getArgs(), parameterNameDiscoverer);
+        Expression expression = expressionCache.computeIfAbsent(key, parser::parseExpression);
+        Object value = expression.getValue(context);
+        if (value == null) {
+            throw new IllegalArgumentException("键解析结果为空: " + key);
+        }
+        return value.toString();
+    }
+}
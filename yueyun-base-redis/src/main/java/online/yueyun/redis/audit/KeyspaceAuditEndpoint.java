@@ -0,0 +1,39 @@
+package online.yueyun.redis.audit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Map;
+
+/**
+ * 键空间审计端点
+ * 访问路径：/actuator/rediskeyspace，POST请求立即触发一次审计
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Endpoint(id = "rediskeyspace")
+@RequiredArgsConstructor
+public class KeyspaceAuditEndpoint {
+
+    private final KeyspaceAuditor keyspaceAuditor;
+
+    /**
+     * 查看最近一次审计报告
+     */
+    @ReadOperation
+    public KeyspaceReport report() {
+        return keyspaceAuditor.getLastReport();
+    }
+
+    /**
+     * 立即触发一次审计，审计在后台执行
+     */
+    @WriteOperation
+    public Map<String, Object> audit() {
+        keyspaceAuditor.auditAsync();
+        return Map.of("triggered", true);
+    }
+}
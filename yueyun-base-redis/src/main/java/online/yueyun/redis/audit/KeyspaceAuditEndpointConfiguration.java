@@ -0,0 +1,27 @@
+package online.yueyun.redis.audit;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 键空间审计端点配置
+ * 仅在引入spring-boot-actuator且开启键空间审计时生效
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnProperty(prefix = "spring.data.redis.keyspace-audit", name = "enabled", havingValue = "true")
+public class KeyspaceAuditEndpointConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(KeyspaceAuditEndpoint.class)
+    public KeyspaceAuditEndpoint keyspaceAuditEndpoint(KeyspaceAuditor keyspaceAuditor) {
+        return new KeyspaceAuditEndpoint(keyspaceAuditor);
+    }
+}
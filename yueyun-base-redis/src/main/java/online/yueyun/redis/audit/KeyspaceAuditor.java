@@ -0,0 +1,339 @@
+package online.yueyun.redis.audit;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * 键空间审计
+ * <p>
+ * 后台按限速逐个主节点SCAN整个键空间，对每个key读取PTTL，并按比例采样MEMORY USAGE，
+ * 将key归并为模式（ID等变化部分以*代替）后统计数量、无过期时间的数量和估算内存，
+ * 结果以指标和监控端点的形式发布，用于在内存打满触发淘汰之前发现未设置过期时间的key。
+ * </p>
+ * <p>
+ * 配置了默认过期时间的前缀下，没有过期时间的key会被补设过期时间。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class KeyspaceAuditor {
+
+    private static final String METRIC_KEYS = "yueyun.redis.keyspace.keys";
+    private static final String METRIC_NO_TTL = "yueyun.redis.keyspace.no.ttl.keys";
+    private static final String METRIC_MEMORY = "yueyun.redis.keyspace.memory";
+
+    /**
+     * 判定为ID的key片段：纯数字、十六进制串（8位以上）、UUID
+     */
+    private static final Pattern ID_SEGMENT = Pattern.compile("\\d+|[0-9a-fA-F]{8,}|[0-9a-fA-F-]{32,36}");
+
+    /**
+     * 模式数量超过上限后归入该模式
+     */
+    private static final String OTHER_PATTERN = "(other)";
+
+    private static final long COMMAND_TIMEOUT_SECONDS = 10;
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final YueyunRedisProperties.KeyspaceAudit config;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final MultiGauge keysGauge;
+    private final MultiGauge noTtlGauge;
+    private final MultiGauge memoryGauge;
+
+    private final AtomicReference<KeyspaceReport> lastReport = new AtomicReference<>();
+
+    private final AtomicReference<CompletableFuture<KeyspaceReport>> running = new AtomicReference<>();
+
+    public KeyspaceAuditor(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.config = properties.getKeyspaceAudit();
+        if (meterRegistry != null) {
+            this.keysGauge = MultiGauge.builder(METRIC_KEYS).register(meterRegistry);
+            this.noTtlGauge = MultiGauge.builder(METRIC_NO_TTL).register(meterRegistry);
+            this.memoryGauge = MultiGauge.builder(METRIC_MEMORY).baseUnit("bytes").register(meterRegistry);
+        } else {
+            this.keysGauge = null;
+            this.noTtlGauge = null;
+            this.memoryGauge = null;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-keyspace-audit-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.scheduler.scheduleWithFixedDelay(this::auditQuietly, config.getInitialDelay().toMillis(),
+                config.getInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取最近一次审计报告
+     *
+     * @return 审计报告，尚未完成过审计时返回null
+     */
+    public KeyspaceReport getLastReport() {
+        return lastReport.get();
+    }
+
+    /**
+     * 立即异步执行一次审计，已有审计在执行时返回同一个任务
+     *
+     * @return 审计任务
+     */
+    public CompletableFuture<KeyspaceReport> auditAsync() {
+        CompletableFuture<KeyspaceReport> future = new CompletableFuture<>();
+        CompletableFuture<KeyspaceReport> current = running.compareAndExchange(null, future);
+        if (current != null) {
+            return current;
+        }
+        scheduler.execute(() -> run(future));
+        return future;
+    }
+
+    /**
+     * 停止审计
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void auditQuietly() {
+        CompletableFuture<KeyspaceReport> future = new CompletableFuture<>();
+        if (running.compareAndSet(null, future)) {
+            run(future);
+        }
+    }
+
+    private void run(CompletableFuture<KeyspaceReport> future) {
+        try {
+            future.complete(audit());
+        } catch (Exception e) {
+            log.error("键空间审计失败", e);
+            future.completeExceptionally(e);
+        } finally {
+            running.set(null);
+        }
+    }
+
+    /**
+     * 执行一次审计
+     */
+    private KeyspaceReport audit() throws Exception {
+        KeyspaceReport report = new KeyspaceReport();
+        report.setStartedAt(System.currentTimeMillis());
+        Map<String, KeyspaceReport.PatternStats> patterns = new HashMap<>();
+
+        if (connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware()) {
+            try (RedisClusterConnection connection = connectionFactory.getClusterConnection()) {
+                @SuppressWarnings("unchecked")
+                RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands =
+                        (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+                for (RedisClusterNode node : connection.clusterGetNodes()) {
+                    if (node.isMaster() && node.getHost() != null && node.getPort() != null) {
+                        scanNode(commands.getConnection(node.getHost(), node.getPort()), patterns, report);
+                        report.setNodes(report.getNodes() + 1);
+                    }
+                }
+            }
+        } else {
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                @SuppressWarnings("unchecked")
+                RedisClusterAsyncCommands<byte[], byte[]> commands =
+                        (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+                scanNode(commands, patterns, report);
+                report.setNodes(1);
+            }
+        }
+
+        List<KeyspaceReport.PatternStats> sorted = new ArrayList<>(patterns.values());
+        for (KeyspaceReport.PatternStats stats : sorted) {
+            stats.setEstimatedBytes(stats.getSampledKeys() > 0
+                    ? stats.getSampledBytes() * stats.getKeys() / stats.getSampledKeys() : 0);
+            report.setNoTtlKeys(report.getNoTtlKeys() + stats.getNoTtlKeys());
+        }
+        sorted.sort(Comparator.comparingLong(KeyspaceReport.PatternStats::getEstimatedBytes)
+                .thenComparingLong(KeyspaceReport.PatternStats::getKeys).reversed());
+        report.setPatterns(sorted);
+        report.setFinishedAt(System.currentTimeMillis());
+        lastReport.set(report);
+        publishMetrics(sorted);
+        log.info("键空间审计完成，节点: {}，key: {}，无过期时间: {}，模式: {}，补设过期时间: {}，耗时: {}ms",
+                report.getNodes(), report.getScannedKeys(), report.getNoTtlKeys(), sorted.size(),
+                report.getExpiredApplied(), report.getFinishedAt() - report.getStartedAt());
+        return report;
+    }
+
+    /**
+     * 按限速扫描一个节点
+     */
+    private void scanNode(RedisClusterAsyncCommands<byte[], byte[]> commands,
+                          Map<String, KeyspaceReport.PatternStats> patterns, KeyspaceReport report) throws Exception {
+        ScanArgs scanArgs = ScanArgs.Builder.limit(config.getScanCount());
+        long keysPerSecond = Math.max(1, config.getKeysPerSecond());
+        ScanCursor cursor = ScanCursor.INITIAL;
+        do {
+            long batchStart = System.nanoTime();
+            KeyScanCursor<byte[]> result = commands.scan(cursor, scanArgs)
+                    .get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            List<byte[]> keys = result.getKeys();
+            inspect(commands, keys, patterns, report);
+            cursor = result;
+
+            // 按每秒key数限速
+            long expectedNanos = TimeUnit.SECONDS.toNanos(keys.size()) / keysPerSecond;
+            long sleepNanos = expectedNanos - (System.nanoTime() - batchStart);
+            if (sleepNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+        } while (!cursor.isFinished());
+    }
+
+    /**
+     * 读取一批key的过期时间并采样内存，命令异步发送后统一等待结果
+     */
+    private void inspect(RedisClusterAsyncCommands<byte[], byte[]> commands, List<byte[]> keys,
+                         Map<String, KeyspaceReport.PatternStats> patterns, KeyspaceReport report) throws Exception {
+        List<RedisFuture<Long>> ttls = new ArrayList<>(keys.size());
+        List<RedisFuture<Long>> memories = new ArrayList<>(keys.size());
+        double sampleRatio = config.getMemorySampleRatio();
+        for (byte[] key : keys) {
+            ttls.add(commands.pttl(key));
+            memories.add(ThreadLocalRandom.current().nextDouble() < sampleRatio ? commands.memoryUsage(key) : null);
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            Long ttl = ttls.get(i).get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (ttl == null || ttl == -2) {
+                continue;
+            }
+            String key = new String(keys.get(i), StandardCharsets.UTF_8);
+            KeyspaceReport.PatternStats stats = statsFor(patterns, key);
+            stats.setKeys(stats.getKeys() + 1);
+            report.setScannedKeys(report.getScannedKeys() + 1);
+            if (ttl == -1) {
+                stats.setNoTtlKeys(stats.getNoTtlKeys() + 1);
+                if (applyDefaultTtl(commands, keys.get(i), key)) {
+                    report.setExpiredApplied(report.getExpiredApplied() + 1);
+                }
+            }
+            RedisFuture<Long> memory = memories.get(i);
+            Long bytes = memory != null ? memory.get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS) : null;
+            if (bytes != null) {
+                stats.setSampledKeys(stats.getSampledKeys() + 1);
+                stats.setSampledBytes(stats.getSampledBytes() + bytes);
+            }
+        }
+    }
+
+    /**
+     * 对配置了默认过期时间的前缀补设过期时间
+     */
+    private boolean applyDefaultTtl(RedisClusterAsyncCommands<byte[], byte[]> commands, byte[] rawKey, String key)
+            throws Exception {
+        for (Map.Entry<String, Duration> entry : config.getDefaultTtls().entrySet()) {
+            if (key.startsWith(entry.getKey())) {
+                Boolean applied = commands.pexpire(rawKey, entry.getValue().toMillis())
+                        .get(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return Boolean.TRUE.equals(applied);
+            }
+        }
+        return false;
+    }
+
+    private KeyspaceReport.PatternStats statsFor(Map<String, KeyspaceReport.PatternStats> patterns, String key) {
+        String pattern = toPattern(key, config.getPatternDepth());
+        KeyspaceReport.PatternStats stats = patterns.get(pattern);
+        if (stats == null) {
+            if (patterns.size() >= config.getMaxPatterns()) {
+                pattern = OTHER_PATTERN;
+                stats = patterns.get(pattern);
+            }
+            if (stats == null) {
+                stats = new KeyspaceReport.PatternStats(pattern);
+                stats.setExampleKey(key);
+                patterns.put(pattern, stats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 发布排名靠前的模式的指标，控制指标基数
+     */
+    private void publishMetrics(List<KeyspaceReport.PatternStats> sorted) {
+        if (keysGauge == null) {
+            return;
+        }
+        List<KeyspaceReport.PatternStats> top = sorted.subList(0, Math.min(config.getMetricsTopN(), sorted.size()));
+        keysGauge.register(top.stream().map(stats -> MultiGauge.Row.of(Tags.of("pattern", stats.getPattern()),
+                stats.getKeys())).toList(), true);
+        noTtlGauge.register(top.stream().map(stats -> MultiGauge.Row.of(Tags.of("pattern", stats.getPattern()),
+                stats.getNoTtlKeys())).toList(), true);
+        memoryGauge.register(top.stream().map(stats -> MultiGauge.Row.of(Tags.of("pattern", stats.getPattern()),
+                stats.getEstimatedBytes())).toList(), true);
+    }
+
+    /**
+     * 把key归并为模式：按冒号分段，ID形式的分段替换为*，超过深度的部分合并为*
+     *
+     * @param key 键
+     * @param depth 保留的分段数
+     * @return 模式，例如 {@code order:1001:detail} 归并为 {@code order:*:detail}
+     */
+    private static String toPattern(String key, int depth) {
+        String[] segments = key.split(":", -1);
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                pattern.append(':');
+            }
+            if (i >= depth) {
+                pattern.append('*');
+                break;
+            }
+            pattern.append(normalizeSegment(segments[i]));
+        }
+        return pattern.toString();
+    }
+
+    private static String normalizeSegment(String segment) {
+        if (segment.startsWith("{") && segment.endsWith("}") && segment.length() > 2) {
+            return "{" + normalizeSegment(segment.substring(1, segment.length() - 1)) + "}";
+        }
+        return ID_SEGMENT.matcher(segment).matches() ? "*" : segment;
+    }
+}
@@ -0,0 +1,96 @@
+package online.yueyun.redis.audit;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 键空间审计报告
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Data
+public class KeyspaceReport {
+
+    /**
+     * 审计开始时间戳
+     */
+    private long startedAt;
+
+    /**
+     * 审计结束时间戳
+     */
+    private long finishedAt;
+
+    /**
+     * 扫描的节点数
+     */
+    private int nodes;
+
+    /**
+     * 扫描的key总数
+     */
+    private long scannedKeys;
+
+    /**
+     * 没有过期时间的key总数
+     */
+    private long noTtlKeys;
+
+    /**
+     * 本次设置了默认过期时间的key数
+     */
+    private long expiredApplied;
+
+    /**
+     * 按估算内存降序排列的key模式统计
+     */
+    private List<PatternStats> patterns = new ArrayList<>();
+
+    /**
+     * key模式统计
+     */
+    @Data
+    public static class PatternStats {
+        /**
+         * key模式，变化的ID部分以*代替
+         */
+        private String pattern;
+
+        /**
+         * key数量
+         */
+        private long keys;
+
+        /**
+         * 没有过期时间的key数量
+         */
+        private long noTtlKeys;
+
+        /**
+         * 采样的key数量
+         */
+        private long sampledKeys;
+
+        /**
+         * 采样key的内存合计，单位：字节
+         */
+        private long sampledBytes;
+
+        /**
+         * 按采样均值估算的内存，单位：字节
+         */
+        private long estimatedBytes;
+
+        /**
+         * 一个示例key
+         */
+        private String exampleKey;
+
+        public PatternStats(String pattern) {
+            this.pattern = pattern;
+        }
+    }
+}
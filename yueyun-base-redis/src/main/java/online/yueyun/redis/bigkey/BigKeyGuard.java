@@ -0,0 +1,199 @@
+package online.yueyun.redis.bigkey;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.utils.RedisKeyUtils;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 大key防护
+ * <p>
+ * 按key前缀记录序列化后的值大小分布，超过警告阈值时记录日志，超过拒绝阈值时拒绝写入。
+ * 对配置了分片存储的key前缀，超过分片大小的值会被拆分为多个分片存入哈希，
+ * 主键只保存一个分片标记，读取时按批次流水线执行HMGET再拼接，避免单条命令传输数MB数据。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class BigKeyGuard {
+
+    /**
+     * 值大小分布指标名称
+     */
+    private static final String METRIC_VALUE_SIZE = "yueyun.redis.value.size";
+
+    /**
+     * 分片标记前缀，以NUL开头，不会与JSON等文本序列化结果冲突
+     */
+    private static final byte[] CHUNK_MARKER = "\0yueyun:chunked:".getBytes(StandardCharsets.US_ASCII);
+
+    private final YueyunRedisProperties.BigKey config;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean percentileHistogram;
+
+    public BigKeyGuard(YueyunRedisProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getBigKey();
+        this.meterRegistry = config.isMetricsEnabled() ? meterRegistry : null;
+        this.percentileHistogram = properties.getMetrics().isPercentileHistogram();
+    }
+
+    /**
+     * 检查序列化后的值大小，记录指标，超过阈值时警告或拒绝
+     *
+     * @param key 键
+     * @param command 命令
+     * @param size 序列化后的字节数
+     */
+    public void checkWrite(String key, String command, int size) {
+        record(key, command, size);
+        long rejectSize = config.getRejectSize().toBytes();
+        if (rejectSize > 0 && size > rejectSize) {
+            log.error("拒绝写入大key，key: {}, command: {}, size: {}", key, command, size);
+            throw new InvalidDataAccessApiUsageException("值大小" + size + "字节超过上限" + rejectSize + "字节: " + key);
+        }
+        if (size > config.getWarnSize().toBytes()) {
+            log.warn("写入大key，key: {}, command: {}, size: {}", key, command, size);
+        }
+    }
+
+    /**
+     * 记录读取到的值大小，超过警告阈值时记录日志
+     *
+     * @param key 键
+     * @param command 命令
+     * @param size 字节数
+     */
+    public void checkRead(String key, String command, int size) {
+        record(key, command, size);
+        if (size > config.getWarnSize().toBytes()) {
+            log.warn("读取大key，key: {}, command: {}, size: {}", key, command, size);
+        }
+    }
+
+    /**
+     * 检查整体读取的元素数
+     *
+     * @param key 键
+     * @param command 命令
+     * @param count 元素数
+     * @return 是否需要分批读取
+     */
+    public boolean checkElements(String key, String command, long count) {
+        if (count > config.getElementWarnThreshold()) {
+            log.warn("整体读取大集合，已改为分批读取，key: {}, command: {}, elements: {}", key, command, count);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 判断key是否开启了分片存储
+     *
+     * @param key 键
+     * @return 是否开启
+     */
+    public boolean isChunked(String key) {
+        for (String prefix : config.getChunkedPrefixes()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断值是否需要分片存储
+     *
+     * @param key 键
+     * @param size 序列化后的字节数
+     * @return 是否需要分片
+     */
+    public boolean shouldChunk(String key, int size) {
+        return size > getChunkSize() && isChunked(key);
+    }
+
+    /**
+     * 获取分片大小
+     */
+    public int getChunkSize() {
+        return (int) config.getChunkSize().toBytes();
+    }
+
+    /**
+     * 获取每条HMGET命令读取的分片数
+     */
+    public int getChunkFetchBatch() {
+        return Math.max(1, config.getChunkFetchBatch());
+    }
+
+    /**
+     * 获取分批读取时每批的元素数
+     */
+    public int getScanBatchSize() {
+        return Math.max(1, config.getScanBatchSize());
+    }
+
+    /**
+     * 保存分片的哈希key，与主键位于同一个哈希槽
+     *
+     * @param key 主键
+     * @return 分片哈希key
+     */
+    public static String chunkKey(String key) {
+        return RedisKeyUtils.sameSlotKey(key, "chunks");
+    }
+
+    /**
+     * 生成分片标记
+     *
+     * @param count 分片数
+     * @param length 原始值字节数
+     * @return 分片标记
+     */
+    public static byte[] chunkMarker(int count, int length) {
+        byte[] suffix = (count + ":" + length).getBytes(StandardCharsets.US_ASCII);
+        byte[] marker = Arrays.copyOf(CHUNK_MARKER, CHUNK_MARKER.length + suffix.length);
+        System.arraycopy(suffix, 0, marker, CHUNK_MARKER.length, suffix.length);
+        return marker;
+    }
+
+    /**
+     * 解析分片标记
+     *
+     * @param value 主键中保存的值
+     * @return 分片数和原始值字节数，不是分片标记时返回null
+     */
+    public static int[] parseChunkMarker(byte[] value) {
+        if (value == null || value.length <= CHUNK_MARKER.length
+                || !Arrays.equals(value, 0, CHUNK_MARKER.length, CHUNK_MARKER, 0, CHUNK_MARKER.length)) {
+            return null;
+        }
+        String[] parts = new String(value, CHUNK_MARKER.length, value.length - CHUNK_MARKER.length,
+                StandardCharsets.US_ASCII).split(":");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * 记录值大小分布
+     */
+    private void record(String key, String command, int size) {
+        if (meterRegistry != null) {
+            DistributionSummary.builder(METRIC_VALUE_SIZE)
+                    .baseUnit("bytes")
+                    .tag("prefix", RedisKeyUtils.prefix(key))
+                    .tag("command", command)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry)
+                    .record(size);
+        }
+    }
+}
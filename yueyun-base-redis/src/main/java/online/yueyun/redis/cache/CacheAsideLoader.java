@@ -0,0 +1,382 @@
+package online.yueyun.redis.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.lock.LockToken;
+import online.yueyun.redis.template.RedisTemplateWrapper;
+import online.yueyun.redis.utils.RedisKeyUtils;
+import online.yueyun.redis.utils.RedisLockUtil;
+import online.yueyun.redis.utils.RedissonUtils;
+import org.redisson.api.RBloomFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.support.NullValue;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 旁路缓存加载器
+ * <p>
+ * 缓存未命中时调用加载函数并回填缓存，同时提供以下防护：
+ * <ul>
+ *     <li>同一JVM内同一个key同时只有一个线程执行加载，其他线程最多等待mutex-wait-time + mutex-ttl，超时后自行加载（single-flight）</li>
+ *     <li>跨节点通过短时互斥锁保证同一时刻只有一个节点回源，其他节点在锁释放后直接读取缓存；批量加载按key分别加锁</li>
+ *     <li>加载结果为null时缓存空值标记，过期时间较短，防止不存在的key反复穿透到数据库</li>
+ *     <li>可选布隆过滤器预检查，过滤器中不存在的key直接返回null</li>
+ *     <li>过期时间增加随机抖动，避免同一批写入的key同时过期</li>
+ * </ul>
+ * 加载函数和等待加载的耗时通过{@link LoaderClock}累计，便于指标和熔断只统计Redis本身的耗时
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class CacheAsideLoader {
+
+    /**
+     * 等待其他线程加载超时的结果标记
+     */
+    private static final Object TIMED_OUT = new Object();
+
+    private final RedisTemplateWrapper redisTemplate;
+
+    private final RedisLockUtil redisLockUtil;
+
+    private final ObjectProvider<RedissonUtils> redissonUtils;
+
+    private final YueyunRedisProperties.CacheAside config;
+
+    /**
+     * 正在加载的key
+     */
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public CacheAsideLoader(RedisTemplateWrapper redisTemplate, RedisLockUtil redisLockUtil,
+                            ObjectProvider<RedissonUtils> redissonUtils, YueyunRedisProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.redisLockUtil = redisLockUtil;
+        this.redissonUtils = redissonUtils;
+        this.config = properties.getCacheAside();
+    }
+
+    /**
+     * 获取缓存，未命中时加载并回填
+     *
+     * @param key 键
+     * @param loader 加载函数
+     * @param ttl 过期时间
+     * @param bloomFilterKey 布隆过滤器的key，为空时不检查
+     * @param <T> 值类型
+     * @return 值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl, String bloomFilterKey) {
+        Object cached = redisTemplate.get(key);
+        if (cached != null) {
+            return cached instanceof NullValue ? null : (T) cached;
+        }
+        if (!mightContain(bloomFilterKey, key)) {
+            return null;
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            Object value = LoaderClock.time(() -> await(existing, System.currentTimeMillis() + awaitTimeoutMillis()));
+            if (value != TIMED_OUT) {
+                return (T) value;
+            }
+            log.warn("等待本节点其他线程加载超时，直接加载: {}", key);
+            return (T) loadWithMutex(key, loader, ttl);
+        }
+        try {
+            Object value = loadWithMutex(key, loader, ttl);
+            future.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 批量获取缓存，未命中的key合并为一次加载并回填
+     *
+     * @param keys 键集合
+     * @param loader 批量加载函数，入参为未命中的key，返回结果中不包含的key视为不存在
+     * @param ttl 过期时间
+     * @param <T> 值类型
+     * @return 存在的key与值的映射
+     */
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl) {
+        return getOrLoadAll(keys, loader, ttl, null);
+    }
+
+    /**
+     * 批量获取缓存，未命中的key逐个检查布隆过滤器后合并为一次加载并回填
+     *
+     * @param keys 键集合
+     * @param loader 批量加载函数，入参为未命中的key，返回结果中不包含的key视为不存在
+     * @param ttl 过期时间
+     * @param bloomFilterKey 布隆过滤器的key，为空时不检查
+     * @param <T> 值类型
+     * @return 存在的key与值的映射
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl, String bloomFilterKey) {
+        Map<String, T> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return result;
+        }
+        List<String> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        List<Object> values = redisTemplate.multiGet(keyList);
+
+        // 其他线程正在加载的key等待其结果，其余未命中的key由当前线程统一加载
+        Map<String, CompletableFuture<Object>> waiting = new LinkedHashMap<>();
+        Map<String, CompletableFuture<Object>> owned = new LinkedHashMap<>();
+        for (int i = 0; i < keyList.size(); i++) {
+            String key = keyList.get(i);
+            Object value = values != null ? values.get(i) : null;
+            if (value != null) {
+                if (!(value instanceof NullValue)) {
+                    result.put(key, (T) value);
+                }
+                continue;
+            }
+            if (!mightContain(bloomFilterKey, key)) {
+                continue;
+            }
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+            if (existing != null) {
+                waiting.put(key, existing);
+            } else {
+                owned.put(key, future);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            try {
+                Map<String, Object> loaded = loadAllWithMutex(owned.keySet(), loader, ttl);
+                owned.forEach((key, future) -> {
+                    Object value = loaded.get(key);
+                    if (value != null) {
+                        result.put(key, (T) value);
+                    }
+                    future.complete(value);
+                });
+            } catch (RuntimeException e) {
+                owned.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            } finally {
+                owned.forEach(inFlight::remove);
+            }
+        }
+
+        if (!waiting.isEmpty()) {
+            long deadline = System.currentTimeMillis() + awaitTimeoutMillis();
+            List<String> timedOut = new ArrayList<>();
+            waiting.forEach((key, future) -> {
+                Object value = LoaderClock.time(() -> await(future, deadline));
+                if (value == TIMED_OUT) {
+                    timedOut.add(key);
+                } else if (value != null) {
+                    result.put(key, (T) value);
+                }
+            });
+            if (!timedOut.isEmpty()) {
+                log.warn("等待本节点其他线程加载超时，直接加载: {}个key", timedOut.size());
+                loadAllWithMutex(timedOut, loader, ttl).forEach((key, value) -> {
+                    if (value != null) {
+                        result.put(key, (T) value);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按key分别获取跨节点互斥锁后批量加载：先不等待地尝试所有key，被其他节点持有的key在mutex-wait-time内等待锁释放，
+     * 拿到锁后重新读取缓存，仍未命中的key（包括等锁超时的key）合并为一次加载
+     *
+     * @return key与值的映射，不存在的key对应null
+     */
+    private <T> Map<String, Object> loadAllWithMutex(Collection<String> keys,
+                                                     Function<Collection<String>, Map<String, T>> loader,
+                                                     Duration ttl) {
+        long mutexTtl = config.getMutexTtl().toMillis();
+        Map<String, LockToken> tokens = new LinkedHashMap<>();
+        try {
+            List<String> contended = new ArrayList<>();
+            for (String key : keys) {
+                LockToken token = redisLockUtil.acquire(mutexKey(key), mutexTtl, 0, false, false);
+                if (token != null) {
+                    tokens.put(key, token);
+                } else {
+                    contended.add(key);
+                }
+            }
+            if (!contended.isEmpty()) {
+                // 等锁的时间是在等其他节点回源，计入加载耗时
+                long deadline = System.currentTimeMillis() + config.getMutexWaitTime().toMillis();
+                LoaderClock.time(() -> {
+                    for (String key : contended) {
+                        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                        LockToken token = redisLockUtil.acquire(mutexKey(key), mutexTtl, remaining, false, false);
+                        if (token != null) {
+                            tokens.put(key, token);
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            // 其他线程或节点可能已经回填
+            List<String> keyList = new ArrayList<>(keys);
+            List<Object> cached = redisTemplate.multiGet(keyList);
+            Map<String, Object> result = new LinkedHashMap<>(keyList.size() * 2);
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < keyList.size(); i++) {
+                Object value = cached != null ? cached.get(i) : null;
+                if (value != null) {
+                    result.put(keyList.get(i), value instanceof NullValue ? null : value);
+                } else {
+                    missing.add(keyList.get(i));
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+            long unlocked = missing.stream().filter(key -> !tokens.containsKey(key)).count();
+            if (unlocked > 0) {
+                log.warn("等待缓存加载互斥锁超时，直接加载: {}个key", unlocked);
+            }
+            Map<String, T> loaded = LoaderClock.time(() -> loader.apply(missing));
+            Map<String, Object> toCache = new LinkedHashMap<>(missing.size() * 2);
+            for (String key : missing) {
+                T value = loaded != null ? loaded.get(key) : null;
+                toCache.put(key, value != null ? value : NullValue.INSTANCE);
+                result.put(key, value);
+            }
+            writeAll(toCache, ttl);
+            return result;
+        } finally {
+            tokens.values().forEach(redisLockUtil::release);
+        }
+    }
+
+    /**
+     * 在跨节点互斥锁保护下加载，未抢到锁的节点在锁释放后先检查缓存
+     * 互斥锁按缓存key生成，不发放防护令牌，避免为每个缓存key残留令牌计数器
+     */
+    private Object loadWithMutex(String key, Supplier<?> loader, Duration ttl) {
+        // 等锁的时间是在等其他节点回源，计入加载耗时
+        LockToken token = LoaderClock.time(() -> redisLockUtil.acquire(mutexKey(key),
+                config.getMutexTtl().toMillis(), config.getMutexWaitTime().toMillis(), false, false));
+        try {
+            // 其他线程或节点可能已经回填
+            Object cached = redisTemplate.get(key);
+            if (cached != null) {
+                return cached instanceof NullValue ? null : cached;
+            }
+            if (token == null) {
+                log.warn("等待缓存加载互斥锁超时，直接加载: {}", key);
+            }
+            Object value = LoaderClock.time(loader);
+            write(key, value, ttl);
+            return value;
+        } finally {
+            redisLockUtil.release(token);
+        }
+    }
+
+    /**
+     * 缓存key对应的加载互斥锁，与缓存key位于同一个哈希槽
+     */
+    private static String mutexKey(String key) {
+        return RedisKeyUtils.sameSlotKey(key, "mutex");
+    }
+
+    /**
+     * 回填单个key，null值写入空值标记
+     */
+    private void write(String key, Object value, Duration ttl) {
+        if (value == null) {
+            redisTemplate.set(key, NullValue.INSTANCE, jitter(config.getNullTtl()));
+        } else {
+            redisTemplate.set(key, value, jitter(ttl));
+        }
+    }
+
+    /**
+     * 流水线回填多个key，每个key的过期时间单独抖动
+     */
+    private void writeAll(Map<String, Object> values, Duration ttl) {
+        redisTemplate.setAll(values, key -> jitter(values.get(key) instanceof NullValue ? config.getNullTtl() : ttl), false);
+    }
+
+    /**
+     * 布隆过滤器预检查，过滤器不存在时视为可能存在
+     */
+    private boolean mightContain(String bloomFilterKey, String key) {
+        if (bloomFilterKey == null) {
+            return true;
+        }
+        RedissonUtils utils = redissonUtils.getIfAvailable();
+        if (utils == null) {
+            return true;
+        }
+        RBloomFilter<String> bloomFilter = utils.getBloomFilter(bloomFilterKey);
+        return !bloomFilter.isExists() || bloomFilter.contains(key);
+    }
+
+    /**
+     * 为过期时间增加随机抖动
+     */
+    private Duration jitter(Duration ttl) {
+        long millis = ttl.toMillis();
+        long bound = (long) (millis * config.getTtlJitterRatio());
+        return bound > 0 ? Duration.ofMillis(millis + ThreadLocalRandom.current().nextLong(bound + 1)) : ttl;
+    }
+
+    /**
+     * 等待本节点其他线程的加载结果最长时间：对方可能先等待互斥锁，再执行加载函数
+     */
+    private long awaitTimeoutMillis() {
+        return config.getMutexWaitTime().toMillis() + config.getMutexTtl().toMillis();
+    }
+
+    /**
+     * 等待其他线程的加载结果，超过截止时间返回{@link #TIMED_OUT}
+     */
+    private Object await(CompletableFuture<Object> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return TIMED_OUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待缓存加载被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+}
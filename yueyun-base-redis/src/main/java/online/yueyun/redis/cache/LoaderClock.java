@@ -0,0 +1,72 @@
+package online.yueyun.redis.cache;
+
+import java.util.function.Supplier;
+
+/**
+ * 旁路缓存加载计时
+ * <p>
+ * 按线程累计执行加载函数、等待其他线程或节点加载所花的时间，并记住最近一次由加载函数抛出的异常。
+ * 指标、熔断等代理在调用前后读取累计值之差，从Redis耗时中扣除加载时间，
+ * 并据此区分加载函数的异常与Redis本身的异常。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public final class LoaderClock {
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private LoaderClock() {
+    }
+
+    /**
+     * 执行加载并累计耗时，抛出的异常记为加载异常
+     *
+     * @param action 加载或等待加载的操作
+     * @param <T> 返回值类型
+     * @return 操作结果
+     */
+    public static <T> T time(Supplier<T> action) {
+        State state = STATE.get();
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } catch (RuntimeException | Error e) {
+            state.lastFailure = e;
+            throw e;
+        } finally {
+            state.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 当前线程累计的加载耗时
+     *
+     * @return 纳秒
+     */
+    public static long elapsedNanos() {
+        return STATE.get().nanos;
+    }
+
+    /**
+     * 判断异常是否由当前线程最近一次加载抛出，代理包装后的异常按异常链查找
+     *
+     * @param e 异常
+     * @return 是否为加载异常
+     */
+    public static boolean isLoaderFailure(Throwable e) {
+        Throwable lastFailure = STATE.get().lastFailure;
+        for (Throwable t = e; t != null && lastFailure != null; t = t.getCause()) {
+            if (t == lastFailure) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class State {
+        private long nanos;
+        private Throwable lastFailure;
+    }
+}
@@ -0,0 +1,273 @@
+package online.yueyun.redis.circuit;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.cache.LoaderClock;
+import online.yueyun.redis.service.RedisService;
+import online.yueyun.redis.template.RedisTemplateWrapper;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.RedisSystemException;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 带熔断的Redis服务代理
+ * <p>
+ * 同时代理{@link RedisService}和{@link RedisTemplateWrapper}，两者共用一个熔断器和影子缓存；
+ * 经由RedisService进入包装类的调用只统计一次。熔断器打开时调用立即失败，不再等待命令超时：旁路缓存加载直接调用加载函数，
+ * 白名单前缀下的读命令返回影子缓存中最近一次成功的结果，其余调用抛出{@link RedisConnectionFailureException}。
+ * 只有连接失败、超时等Redis故障计入失败率，参数错误、WRONGTYPE等命令错误、加载函数异常等不影响熔断器；
+ * 旁路缓存加载的耗时按{@link LoaderClock}扣除加载函数的部分，只把Redis本身的耗时计入慢调用统计。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public final class CircuitBreakingRedisService implements InvocationHandler, MethodInterceptor {
+
+    /**
+     * 可以由影子缓存兜底的读命令，第一个参数均为key
+     */
+    private static final Set<String> READ_METHODS = Set.of(
+            "hasKey", "get", "hGet", "hMultiGet", "hHasKey", "hKeys", "hValues", "hEntries", "hSize",
+            "lIndex", "lRange", "lSize", "sSize", "sIsMember", "sMembers",
+            "zRank", "zReverseRank", "zRange", "zReverseRange", "zRangeWithScores", "zReverseRangeWithScores",
+            "zRangeByScore", "zReverseRangeByScore", "zRangeByScoreWithScores", "zReverseRangeByScoreWithScores",
+            "zCount", "zSize", "zScore", "multiGet");
+
+    /**
+     * 包装类中不访问Redis的方法，直接放行；opsForXxx返回的操作对象上的调用不经过熔断器
+     */
+    private static final Set<String> WRAPPER_PASS_THROUGH = Set.of(
+            "getRedisTemplate", "shutdown", "setBigKeyGuard", "setHotKeyDetector", "setClusterParallelism");
+
+    /**
+     * 当前线程是否已在熔断代理的调用中，RedisService调用包装类时不重复计入熔断器
+     */
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private final Object target;
+
+    private final RedisCircuitBreaker breaker;
+
+    private final ShadowCache shadowCache;
+
+    private final boolean loadThroughWhenOpen;
+
+    private CircuitBreakingRedisService(Object target, RedisCircuitBreaker breaker, ShadowCache shadowCache,
+                                        boolean loadThroughWhenOpen) {
+        this.target = target;
+        this.breaker = breaker;
+        this.shadowCache = shadowCache;
+        this.loadThroughWhenOpen = loadThroughWhenOpen;
+    }
+
+    /**
+     * 为Redis服务创建带熔断的代理
+     *
+     * @param target 被代理的Redis服务
+     * @param breaker 熔断器
+     * @param shadowCache 影子缓存，为null时不提供过期数据兜底
+     * @param loadThroughWhenOpen 熔断时旁路缓存加载是否直接调用加载函数
+     * @return 代理
+     */
+    public static RedisService wrap(RedisService target, RedisCircuitBreaker breaker, ShadowCache shadowCache,
+                                    boolean loadThroughWhenOpen) {
+        return (RedisService) Proxy.newProxyInstance(RedisService.class.getClassLoader(),
+                new Class<?>[]{RedisService.class},
+                new CircuitBreakingRedisService(target, breaker, shadowCache, loadThroughWhenOpen));
+    }
+
+    /**
+     * 为Redis模板包装类创建带熔断的代理
+     *
+     * @param target 被代理的模板包装类
+     * @param breaker 熔断器
+     * @param shadowCache 影子缓存，为null时不提供过期数据兜底
+     * @return 代理
+     */
+    public static RedisTemplateWrapper wrap(RedisTemplateWrapper target, RedisCircuitBreaker breaker,
+                                            ShadowCache shadowCache) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new CircuitBreakingRedisService(target, breaker, shadowCache, false));
+        return (RedisTemplateWrapper) proxyFactory.getProxy(RedisTemplateWrapper.class.getClassLoader());
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        return guard(method.getName(), args, () -> {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String name = invocation.getMethod().getName();
+        if (invocation.getMethod().getDeclaringClass() == Object.class
+                || WRAPPER_PASS_THROUGH.contains(name) || name.startsWith("opsFor")) {
+            return invocation.proceed();
+        }
+        return guard(name, invocation.getArguments(), invocation::proceed);
+    }
+
+    /**
+     * 在熔断器保护下执行调用，已在熔断代理的调用中时直接执行
+     */
+    private Object guard(String name, Object[] args, Call call) throws Throwable {
+        if (ACTIVE.get() != null) {
+            return call.proceed();
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return doGuard(name, args, call);
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    private Object doGuard(String name, Object[] args, Call call) throws Throwable {
+        String key = args != null && args.length > 0 && args[0] instanceof String str ? str : null;
+        boolean shadowed = shadowCache != null && key != null && READ_METHODS.contains(name) && shadowCache.accepts(key);
+
+        if (!breaker.tryAcquirePermission()) {
+            return fallback(name, key, args, shadowed);
+        }
+        long start = System.nanoTime();
+        long loaderStart = LoaderClock.elapsedNanos();
+        Object result;
+        try {
+            result = call.proceed();
+        } catch (Throwable cause) {
+            if (LoaderClock.isLoaderFailure(cause) || !isRedisFailure(cause)) {
+                breaker.onSuccess(redisNanos(start, loaderStart));
+                throw cause;
+            }
+            breaker.onError();
+            Object stale = shadowed ? shadowCache.get(key, signature(name, args)) : null;
+            if (stale != null) {
+                log.warn("Redis调用失败，返回影子缓存中的过期数据: {}", key);
+                return stale;
+            }
+            throw cause;
+        }
+        breaker.onSuccess(redisNanos(start, loaderStart));
+        updateShadow(name, key, args, result, shadowed);
+        return result;
+    }
+
+    /**
+     * 熔断打开时的兜底处理
+     */
+    @SuppressWarnings("unchecked")
+    private Object fallback(String name, String key, Object[] args, boolean shadowed) {
+        if (loadThroughWhenOpen && "getOrLoad".equals(name)) {
+            return ((Supplier<Object>) args[1]).get();
+        }
+        if (loadThroughWhenOpen && "getOrLoadAll".equals(name)) {
+            return ((Function<Object, Object>) args[1]).apply(args[0]);
+        }
+        if (shadowed) {
+            Object stale = shadowCache.get(key, signature(name, args));
+            if (stale != null) {
+                return stale;
+            }
+        }
+        throw new RedisConnectionFailureException("Redis熔断中，拒绝执行: " + name);
+    }
+
+    /**
+     * 读命令成功后保存影子副本，写命令成功后删除对应key的影子副本
+     */
+    private void updateShadow(String name, String key, Object[] args, Object result, boolean shadowed) {
+        if (shadowCache == null) {
+            return;
+        }
+        if (shadowed) {
+            if (result != null) {
+                shadowCache.put(key, signature(name, args), result);
+            }
+        } else if (!READ_METHODS.contains(name)) {
+            if (key != null) {
+                shadowCache.invalidate(key);
+            } else if (args != null && args.length > 0 && args[0] instanceof Collection<?> keys) {
+                keys.forEach(k -> shadowCache.invalidate(String.valueOf(k)));
+            } else if (args != null && args.length > 0 && args[0] instanceof Map<?, ?> map) {
+                map.keySet().forEach(k -> shadowCache.invalidate(String.valueOf(k)));
+            }
+        }
+    }
+
+    /**
+     * 调用签名，数组参数（包括可变参数）转换为列表按内容比较
+     */
+    private static List<Object> signature(String name, Object[] args) {
+        List<Object> signature = new ArrayList<>(args.length + 1);
+        signature.add(name);
+        for (Object arg : args) {
+            signature.add(contentOf(arg));
+        }
+        return signature;
+    }
+
+    private static Object contentOf(Object arg) {
+        if (arg == null || !arg.getClass().isArray()) {
+            return arg;
+        }
+        int length = Array.getLength(arg);
+        List<Object> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            elements.add(contentOf(Array.get(arg, i)));
+        }
+        return elements;
+    }
+
+    /**
+     * 调用耗时中扣除加载函数的部分
+     */
+    private static long redisNanos(long start, long loaderStart) {
+        return System.nanoTime() - start - (LoaderClock.elapsedNanos() - loaderStart);
+    }
+
+    /**
+     * 被保护的调用
+     */
+    @FunctionalInterface
+    private interface Call {
+        Object proceed() throws Throwable;
+    }
+
+    /**
+     * 判断异常是否属于Redis故障，服务端返回的命令错误说明Redis可用，不计入
+     */
+    private static boolean isRedisFailure(Throwable e) {
+        if (e instanceof DataAccessResourceFailureException || e instanceof TransientDataAccessException) {
+            return true;
+        }
+        return e instanceof RedisSystemException && !(e.getCause() instanceof RedisCommandExecutionException);
+    }
+}
@@ -0,0 +1,228 @@
+package online.yueyun.redis.circuit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Redis熔断器
+ * <p>
+ * 关闭状态下在最近{@code window-size}次调用的滑动窗口内统计失败率和慢调用率，任一超过阈值即打开；
+ * 打开状态下所有调用立即失败，经过{@code open-duration}后进入半开状态，只放行少量探测调用，
+ * 探测全部成功则关闭，任一失败或过慢则重新打开。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisCircuitBreaker {
+
+    /**
+     * 熔断器状态指标名称，0关闭、1打开、2半开
+     */
+    private static final String METRIC_STATE = "yueyun.redis.circuit.state";
+
+    /**
+     * 被拒绝调用数指标名称
+     */
+    private static final String METRIC_REJECTED = "yueyun.redis.circuit.rejected";
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final YueyunRedisProperties.CircuitBreaker config;
+
+    private final long slowCallNanos;
+
+    /**
+     * 滑动窗口中的调用结果
+     */
+    private final byte[] outcomes;
+
+    private int index;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+
+    /**
+     * 打开状态的结束时间
+     */
+    private volatile long openUntil;
+
+    /**
+     * 半开状态剩余的探测次数
+     */
+    private final AtomicInteger probePermits = new AtomicInteger();
+
+    private int probeSuccesses;
+
+    private final Counter rejected;
+
+    /**
+     * 状态变更监听器
+     */
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisCircuitBreaker(YueyunRedisProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getCircuitBreaker();
+        this.slowCallNanos = config.getSlowCallThreshold().toNanos();
+        this.outcomes = new byte[Math.max(1, config.getWindowSize())];
+        if (meterRegistry != null) {
+            Gauge.builder(METRIC_STATE, this, breaker -> breaker.state.ordinal()).register(meterRegistry);
+            this.rejected = Counter.builder(METRIC_REJECTED).register(meterRegistry);
+        } else {
+            this.rejected = null;
+        }
+    }
+
+    /**
+     * 判断是否允许本次调用
+     *
+     * @return 是否允许
+     */
+    public boolean tryAcquirePermission() {
+        State current = state;
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                reject();
+                return false;
+            }
+            synchronized (this) {
+                if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                    transitionTo(State.HALF_OPEN);
+                }
+            }
+            current = state;
+        }
+        if (current == State.HALF_OPEN && probePermits.getAndDecrement() <= 0) {
+            reject();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录调用成功
+     *
+     * @param elapsedNanos 调用耗时
+     */
+    public void onSuccess(long elapsedNanos) {
+        record(elapsedNanos > slowCallNanos ? SLOW : SUCCESS);
+    }
+
+    /**
+     * 记录调用失败
+     */
+    public void onError() {
+        record(FAILURE);
+    }
+
+    /**
+     * 添加状态变更监听器，监听器在状态变更的线程中执行，不应阻塞
+     *
+     * @param listener 监听器，参数为变更后的状态
+     */
+    public void addStateListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 状态
+     */
+    public State getState() {
+        return state;
+    }
+
+    private synchronized void record(byte outcome) {
+        if (state == State.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= config.getHalfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (calls == outcomes.length) {
+            byte evicted = outcomes[index];
+            if (evicted == FAILURE) {
+                failures--;
+            } else if (evicted == SLOW) {
+                slowCalls--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[index] = outcome;
+        index = (index + 1) % outcomes.length;
+        if (outcome == FAILURE) {
+            failures++;
+        } else if (outcome == SLOW) {
+            slowCalls++;
+        }
+
+        if (calls >= config.getMinimumCalls()) {
+            int failureRate = failures * 100 / calls;
+            int slowCallRate = slowCalls * 100 / calls;
+            if (failureRate >= config.getFailureRateThreshold() || slowCallRate >= config.getSlowCallRateThreshold()) {
+                log.warn("Redis熔断器打开，失败率: {}%，慢调用率: {}%", failureRate, slowCallRate);
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        switch (target) {
+            case OPEN -> openUntil = System.currentTimeMillis() + config.getOpenDuration().toMillis();
+            case HALF_OPEN -> {
+                probeSuccesses = 0;
+                probePermits.set(config.getHalfOpenProbes());
+            }
+            case CLOSED -> {
+                index = 0;
+                calls = 0;
+                failures = 0;
+                slowCalls = 0;
+            }
+        }
+        state = target;
+        log.info("Redis熔断器状态变更: {} -> {}", previous, target);
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(target);
+            } catch (Exception e) {
+                log.warn("熔断器状态监听器执行失败", e);
+            }
+        }
+    }
+
+    private void reject() {
+        if (rejected != null) {
+            rejected.increment();
+        }
+    }
+}
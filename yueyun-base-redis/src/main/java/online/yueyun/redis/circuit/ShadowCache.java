@@ -0,0 +1,129 @@
+package online.yueyun.redis.circuit;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 影子缓存
+ * 保存白名单前缀下读命令最近一次成功的结果，Redis不可用时作为过期数据返回；
+ * 读写不加全局锁，key数超过上限的十分之一后由一个线程批量淘汰最久未访问的key
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class ShadowCache {
+
+    /**
+     * key到影子副本的映射
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 访问序号，用于近似LRU淘汰
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * 淘汰锁，同一时刻只有一个线程执行淘汰
+     */
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    private final List<String> prefixes;
+
+    private final int maxKeys;
+
+    public ShadowCache(List<String> prefixes, int maxKeys) {
+        this.prefixes = List.copyOf(prefixes);
+        this.maxKeys = Math.max(1, maxKeys);
+    }
+
+    /**
+     * 判断key是否在白名单前缀下
+     *
+     * @param key 键
+     * @return 是否需要保存影子副本
+     */
+    public boolean accepts(String key) {
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 保存读命令结果
+     *
+     * @param key 键
+     * @param signature 调用签名，参数按内容比较
+     * @param value 结果
+     */
+    public void put(String key, List<Object> signature, Object value) {
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+        entry.values.put(signature, value);
+        entry.accessed = clock.incrementAndGet();
+        if (entries.size() > maxKeys + maxKeys / 10) {
+            evict();
+        }
+    }
+
+    /**
+     * 获取读命令最近一次成功的结果
+     *
+     * @param key 键
+     * @param signature 调用签名，参数按内容比较
+     * @return 结果，不存在时返回null
+     */
+    public Object get(String key, List<Object> signature) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.accessed = clock.incrementAndGet();
+        return entry.values.get(signature);
+    }
+
+    /**
+     * 本节点写入key后删除其影子副本
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 淘汰最久未访问的key，直到key数回到上限
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxKeys;
+            if (excess <= 0) {
+                return;
+            }
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().accessed))
+                    .limit(excess)
+                    .toList()
+                    .forEach(e -> entries.remove(e.getKey(), e.getValue()));
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * 单个key的影子副本，调用签名为方法名加参数
+     */
+    private static class Entry {
+        private final Map<List<Object>, Object> values = new ConcurrentHashMap<>(4);
+        private volatile long accessed;
+    }
+}
@@ -0,0 +1,33 @@
+package online.yueyun.redis.config;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.service.RedisService;
+import online.yueyun.redis.service.impl.InMemoryRedisService;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 内存模式自动配置类
+ * 设置{@code spring.data.redis.mode=embedded}时启用，只提供内存版RedisService，
+ * 不创建连接工厂、Redisson客户端及依赖Redis服务器的组件
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+@AutoConfiguration(before = RedisAutoConfiguration.class)
+@ConditionalOnProperty(prefix = "spring.data.redis", name = "mode", havingValue = "embedded")
+public class EmbeddedRedisAutoConfiguration {
+
+    /**
+     * 配置内存版Redis服务
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(RedisService.class)
+    public InMemoryRedisService inMemoryRedisService() {
+        log.info("Redis运行在embedded模式，RedisService使用进程内存实现");
+        return new InMemoryRedisService();
+    }
+}
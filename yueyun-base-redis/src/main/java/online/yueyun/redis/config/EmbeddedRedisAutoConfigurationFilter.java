@@ -0,0 +1,60 @@
+package online.yueyun.redis.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * 内存模式自动配置过滤器
+ * <p>
+ * {@code spring.data.redis.mode=embedded}时排除会在启动时创建Redis连接的自动配置：
+ * redisson-spring-boot-starter自带的RedissonClient、Spring Boot的Lettuce连接工厂、Redis仓库以及Redis健康检查，
+ * 使应用无需外部Redis即可启动，不需要手动配置排除。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class EmbeddedRedisAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    /**
+     * 内存模式下排除的自动配置类名前缀
+     */
+    private static final List<String> EXCLUDED_PREFIXES = List.of(
+            "org.redisson.spring.starter.",
+            "org.springframework.boot.autoconfigure.data.redis.",
+            "org.springframework.boot.actuate.autoconfigure.data.redis.");
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean embedded = environment != null
+                && "embedded".equalsIgnoreCase(environment.getProperty("spring.data.redis.mode"));
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            matches[i] = !embedded || !isExcluded(autoConfigurationClasses[i]);
+        }
+        return matches;
+    }
+
+    private static boolean isExcluded(String className) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,25 @@
+package online.yueyun.redis.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+
+/**
+ * 连接Redis服务器的条件
+ * <p>
+ * {@code spring.data.redis.mode=embedded}时不满足，连接工厂、Redisson客户端以及依赖它们的组件都不创建，
+ * 只由{@link EmbeddedRedisAutoConfiguration}提供内存版{@code RedisService}。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class OnRedisServerCondition extends NoneNestedConditions {
+
+    public OnRedisServerCondition() {
+        super(ConfigurationPhase.PARSE_CONFIGURATION);
+    }
+
+    @ConditionalOnProperty(prefix = "spring.data.redis", name = "mode", havingValue = "embedded")
+    static class EmbeddedMode {
+    }
+}
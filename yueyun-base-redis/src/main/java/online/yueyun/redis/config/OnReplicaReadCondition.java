@@ -0,0 +1,34 @@
+package online.yueyun.redis.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.util.StringUtils;
+
+/**
+ * 从节点读取的条件
+ * <p>
+ * 配置了{@code spring.data.redis.read-from}且连接模式为哨兵或集群时满足，单机模式没有可路由的从节点。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class OnReplicaReadCondition extends SpringBootCondition {
+
+    @Override
+    public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Environment environment = context.getEnvironment();
+        String readFrom = environment.getProperty("spring.data.redis.read-from");
+        if (!StringUtils.hasText(readFrom)) {
+            return ConditionOutcome.noMatch("未配置spring.data.redis.read-from");
+        }
+        String mode = environment.getProperty("spring.data.redis.mode", "standalone");
+        if ("sentinel".equalsIgnoreCase(mode) || "cluster".equalsIgnoreCase(mode)) {
+            return ConditionOutcome.match("读取策略: " + readFrom + "，模式: " + mode);
+        }
+        return ConditionOutcome.noMatch("模式" + mode + "不支持从节点读取");
+    }
+}
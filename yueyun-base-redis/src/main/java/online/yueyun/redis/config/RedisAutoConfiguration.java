@@ -1,39 +1,104 @@
 package online.yueyun.redis.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.metrics.MicrometerCommandLatencyRecorder;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.lettuce.core.resource.DefaultClientResources;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.analytics.RedisAnalyticsService;
+import online.yueyun.redis.audit.KeyspaceAuditor;
+import online.yueyun.redis.bigkey.BigKeyGuard;
+import online.yueyun.redis.cache.CacheAsideLoader;
+import online.yueyun.redis.circuit.CircuitBreakingRedisService;
+import online.yueyun.redis.circuit.RedisCircuitBreaker;
+import online.yueyun.redis.circuit.ShadowCache;
+import online.yueyun.redis.counter.BufferedCounterService;
+import online.yueyun.redis.delay.DelayedTaskScheduler;
+import online.yueyun.redis.hotkey.HotKeyDetector;
+import online.yueyun.redis.lock.DistributedLock;
+import online.yueyun.redis.id.RedisIdGenerator;
+import online.yueyun.redis.limiter.LeasedRateLimiter;
+import online.yueyun.redis.limiter.SlidingWindowRateLimiter;
+import online.yueyun.redis.metrics.InstrumentedRedisService;
+import online.yueyun.redis.metrics.MeteredRedisSerializer;
+import online.yueyun.redis.metrics.RedisCommandMetrics;
+import online.yueyun.redis.metrics.RedisPoolMetrics;
+import online.yueyun.redis.script.RedisScriptRegistry;
+import online.yueyun.redis.service.RedisService;
+import online.yueyun.redis.stream.RedisStreamConsumer;
+import online.yueyun.redis.service.impl.RedisServiceImpl;
+import online.yueyun.redis.template.RedisTemplateWrapper;
+import online.yueyun.redis.warmup.CacheWarmer;
+import online.yueyun.redis.warmup.CacheWarmupManager;
+import online.yueyun.redis.warmup.CacheWarmupReadinessIndicator;
+import online.yueyun.redis.utils.RedisLockUtil;
+import online.yueyun.redis.utils.RedissonUtils;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.availability.ApplicationAvailability;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
 
 import java.time.Duration;
 
 /**
  * Redis自动配置类
- * 当项目中引入了spring-boot-starter-data-redis依赖且没有配置RedisTemplate时，自动启用此配置
+ * 当项目中引入了spring-boot-starter-data-redis依赖且没有配置RedisTemplate时，自动启用此配置；
+ * embedded模式下不启用，由{@link EmbeddedRedisAutoConfiguration}提供内存版RedisService
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
-@AutoConfiguration
+@AutoConfiguration(before = org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration.class,
+        beforeName = "org.springframework.boot.actuate.autoconfigure.availability.AvailabilityHealthContributorAutoConfiguration")
+@Conditional(OnRedisServerCondition.class)
 @ComponentScan("online.yueyun.redis")
 public class RedisAutoConfiguration {
 
+    /**
+     * 默认命令超时时间
+     */
+    private static final Duration DEFAULT_COMMAND_TIMEOUT = Duration.ofSeconds(10);
+
     /**
      * 配置RedisTemplate
      * 如果项目中已经配置了RedisTemplate，则不会使用此配置
      */
     @Bean
     @ConditionalOnMissingBean(RedisTemplate.class)
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       YueyunRedisProperties properties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -43,34 +108,537 @@ public class RedisAutoConfiguration {
         
         // 使用GenericJackson2JsonRedisSerializer来序列化和反序列化redis的value值
         GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+        YueyunRedisProperties.Metrics metrics = properties.getMetrics();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (metrics.isEnabled() && metrics.isSerializedBytes() && registry != null) {
+            // 记录值的序列化字节数
+            template.setValueSerializer(new MeteredRedisSerializer<>(jsonSerializer, "value", registry,
+                    metrics.isPercentileHistogram()));
+            template.setHashValueSerializer(new MeteredRedisSerializer<>(jsonSerializer, "hash-value", registry,
+                    metrics.isPercentileHistogram()));
+        } else {
+            template.setValueSerializer(jsonSerializer);
+            template.setHashValueSerializer(jsonSerializer);
+        }
         
         template.afterPropertiesSet();
         return template;
     }
 
+    /**
+     * 配置Redis共享资源
+     * 开启后Lettuce与Redisson共用同一组Netty事件循环和定时器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(RedisSharedResources.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.shared-resources", name = "enabled", havingValue = "true")
+    public RedisSharedResources redisSharedResources(YueyunRedisProperties properties) {
+        return new RedisSharedResources(properties.getSharedResources().getIoThreads());
+    }
+
+    /**
+     * 配置Lettuce客户端资源
+     * 应用已提供ClientResources时不再创建，此时共享的Netty资源不会应用到Lettuce
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(ClientResources.class)
+    public ClientResources lettuceClientResources(@Nullable RedisSharedResources sharedResources,
+                                                  YueyunRedisProperties properties,
+                                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        DefaultClientResources.Builder builder = DefaultClientResources.builder();
+        // 直接注入共享资源，使容器关闭时先关闭客户端资源再关闭共享资源
+        if (sharedResources != null) {
+            builder.eventLoopGroupProvider(sharedResources.eventLoopGroupProvider())
+                    .timer(sharedResources.getTimer());
+        }
+        YueyunRedisProperties.Metrics metrics = properties.getMetrics();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (metrics.isEnabled() && metrics.isLettuceCommandLatency() && registry != null) {
+            builder.commandLatencyRecorder(new MicrometerCommandLatencyRecorder(registry, MicrometerOptions.create()));
+        }
+        return builder.build();
+    }
+
     /**
      * 配置Redis连接工厂
+     * 根据连接模式创建单机、哨兵或集群配置，所有命令都发送到主节点；
+     * 配置了读取策略时另建{@link RedisReplicaReads}供只读方法使用
      */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory(YueyunRedisProperties properties) {
-        // 创建Redis连接配置
+    public RedisConnectionFactory redisConnectionFactory(YueyunRedisProperties properties,
+                                                         ClientResources lettuceClientResources) {
+        log.info("初始化Redis连接工厂，模式: {}", properties.getMode().toLowerCase());
+        if (StringUtils.hasText(properties.getReadFrom()) && "standalone".equalsIgnoreCase(properties.getMode())) {
+            log.warn("单机模式不支持从节点读取，忽略读取策略: {}", properties.getReadFrom());
+        }
+        return createConnectionFactory(properties, lettuceClientResources, null);
+    }
+
+    /**
+     * 配置从节点读取连接
+     * 按读取策略单独创建连接工厂，只路由RedisService的只读方法，主连接工厂保持主节点读写
+     */
+    @Bean(destroyMethod = "destroy")
+    @ConditionalOnMissingBean(RedisReplicaReads.class)
+    @Conditional(OnReplicaReadCondition.class)
+    public RedisReplicaReads redisReplicaReads(YueyunRedisProperties properties,
+                                               ClientResources lettuceClientResources,
+                                               RedisTemplate<String, Object> redisTemplate,
+                                               ObjectProvider<HotKeyDetector> hotKeyDetector,
+                                               ObjectProvider<BigKeyGuard> bigKeyGuard) {
+        log.info("初始化Redis从节点读取连接，读取策略: {}", properties.getReadFrom());
+        ReadFrom readFrom = ReadFrom.valueOf(normalizeReadFrom(properties.getReadFrom()));
+        RedisReplicaReads replicaReads = new RedisReplicaReads(
+                createConnectionFactory(properties, lettuceClientResources, readFrom), redisTemplate,
+                properties.getBatch().getClusterParallelism());
+        replicaReads.getTemplateWrapper().setHotKeyDetector(hotKeyDetector.getIfAvailable());
+        replicaReads.getTemplateWrapper().setBigKeyGuard(bigKeyGuard.getIfAvailable());
+        return replicaReads;
+    }
+
+    /**
+     * 创建Lettuce连接工厂
+     *
+     * @param readFrom 读取策略，为空时所有命令发送到主节点
+     */
+    private LettuceConnectionFactory createConnectionFactory(YueyunRedisProperties properties,
+                                                             ClientResources lettuceClientResources,
+                                                             @Nullable ReadFrom readFrom) {
+        // 创建Lettuce连接池配置
+        LettucePoolingClientConfiguration.LettucePoolingClientConfigurationBuilder clientConfig =
+                LettucePoolingClientConfiguration.builder()
+                        .clientResources(lettuceClientResources)
+                        .commandTimeout(resolveCommandTimeout(properties));
+        if (properties.getSharedResources().isEnabled()) {
+            // 按连接预算划分Lettuce连接池
+            GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig = new GenericObjectPoolConfig<>();
+            int poolSize = properties.getSharedResources().getLettucePoolSize();
+            poolConfig.setMaxTotal(poolSize);
+            poolConfig.setMaxIdle(poolSize);
+            poolConfig.setMinIdle(0);
+            clientConfig.poolConfig(poolConfig);
+        }
+        if (readFrom != null) {
+            clientConfig.readFrom(readFrom);
+        }
+
+        // 根据配置的模式创建对应的连接配置
+        RedisConfiguration redisConfig;
+        switch (properties.getMode().toLowerCase()) {
+            case "sentinel":
+                redisConfig = createSentinelConfiguration(properties);
+                clientConfig.clientOptions(createClientOptions(properties));
+                break;
+            case "cluster":
+                redisConfig = createClusterConfiguration(properties);
+                clientConfig.clientOptions(createClusterClientOptions(properties));
+                break;
+            case "standalone":
+            default:
+                redisConfig = createStandaloneConfiguration(properties);
+                clientConfig.clientOptions(createClientOptions(properties));
+                break;
+        }
+
+        // 创建Lettuce连接工厂
+        return new LettuceConnectionFactory(redisConfig, clientConfig.build());
+    }
+
+    /**
+     * 创建单机模式配置
+     */
+    private RedisStandaloneConfiguration createStandaloneConfiguration(YueyunRedisProperties properties) {
         RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
         redisConfig.setHostName(properties.getHost());
         redisConfig.setPort(properties.getPort());
         redisConfig.setDatabase(properties.getDatabase());
+        redisConfig.setUsername(properties.getUsername());
         
         if (properties.getPassword() != null) {
             redisConfig.setPassword(properties.getPassword());
         }
+        return redisConfig;
+    }
 
-        // 创建Lettuce连接池配置
-        LettucePoolingClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
-                .commandTimeout(Duration.ofMillis(properties.getRedisson().getConnectTimeout()))
+    /**
+     * 创建哨兵模式配置
+     */
+    private RedisSentinelConfiguration createSentinelConfiguration(YueyunRedisProperties properties) {
+        RedisProperties.Sentinel sentinel = properties.getSentinel();
+        if (sentinel == null || sentinel.getNodes() == null || sentinel.getNodes().isEmpty()) {
+            throw new IllegalStateException("哨兵模式需要配置spring.data.redis.sentinel.nodes");
+        }
+
+        RedisSentinelConfiguration redisConfig = new RedisSentinelConfiguration();
+        redisConfig.master(sentinel.getMaster());
+        sentinel.getNodes().forEach(node -> redisConfig.sentinel(RedisNode.fromString(node.trim())));
+        redisConfig.setDatabase(properties.getDatabase());
+        redisConfig.setUsername(properties.getUsername());
+
+        if (properties.getPassword() != null) {
+            redisConfig.setPassword(properties.getPassword());
+        }
+        if (sentinel.getPassword() != null) {
+            redisConfig.setSentinelPassword(sentinel.getPassword());
+        }
+        return redisConfig;
+    }
+
+    /**
+     * 创建集群模式配置
+     */
+    private RedisClusterConfiguration createClusterConfiguration(YueyunRedisProperties properties) {
+        RedisProperties.Cluster cluster = properties.getCluster();
+        if (cluster == null || cluster.getNodes() == null || cluster.getNodes().isEmpty()) {
+            throw new IllegalStateException("集群模式需要配置spring.data.redis.cluster.nodes");
+        }
+
+        RedisClusterConfiguration redisConfig = new RedisClusterConfiguration();
+        cluster.getNodes().forEach(node -> redisConfig.addClusterNode(RedisNode.fromString(node.trim())));
+        if (cluster.getMaxRedirects() != null) {
+            redisConfig.setMaxRedirects(cluster.getMaxRedirects());
+        }
+        redisConfig.setUsername(properties.getUsername());
+
+        if (properties.getPassword() != null) {
+            redisConfig.setPassword(properties.getPassword());
+        }
+        return redisConfig;
+    }
+
+    /**
+     * 创建客户端选项
+     */
+    private ClientOptions createClientOptions(YueyunRedisProperties properties) {
+        return ClientOptions.builder()
+                .socketOptions(createSocketOptions(properties))
                 .build();
+    }
 
-        // 创建Lettuce连接工厂
-        return new LettuceConnectionFactory(redisConfig, clientConfig);
+    /**
+     * 创建集群客户端选项，开启拓扑自适应刷新，保证主从切换后读写路由及时更新
+     */
+    private ClusterClientOptions createClusterClientOptions(YueyunRedisProperties properties) {
+        ClusterTopologyRefreshOptions refreshOptions = ClusterTopologyRefreshOptions.builder()
+                .enablePeriodicRefresh(properties.getTopologyRefreshPeriod())
+                .enableAllAdaptiveRefreshTriggers()
+                .build();
+        return ClusterClientOptions.builder()
+                .socketOptions(createSocketOptions(properties))
+                .topologyRefreshOptions(refreshOptions)
+                .build();
+    }
+
+    /**
+     * 创建Socket选项
+     */
+    private SocketOptions createSocketOptions(YueyunRedisProperties properties) {
+        SocketOptions.Builder builder = SocketOptions.builder();
+        if (properties.getConnectTimeout() != null) {
+            builder.connectTimeout(properties.getConnectTimeout());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 规范化读取策略名称，支持replica-preferred、nearest、lowest-latency等写法；
+     * regex:、subnet:等带参数的写法只处理冒号前的名称，参数原样保留
+     */
+    private static String normalizeReadFrom(String readFrom) {
+        int separator = readFrom.indexOf(':');
+        if (separator < 0) {
+            return readFrom.replace("-", "");
+        }
+        return readFrom.substring(0, separator).replace("-", "") + readFrom.substring(separator);
+    }
+
+    /**
+     * 解析命令超时时间，优先使用spring.data.redis.timeout
+     */
+    private Duration resolveCommandTimeout(YueyunRedisProperties properties) {
+        return properties.getTimeout() != null ? properties.getTimeout() : DEFAULT_COMMAND_TIMEOUT;
+    }
+
+    /**
+     * 配置Redis模板包装类
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(RedisTemplateWrapper.class)
+    public RedisTemplateWrapper redisTemplateWrapper(RedisTemplate<String, Object> redisTemplate,
+                                                     YueyunRedisProperties properties,
+                                                     ObjectProvider<HotKeyDetector> hotKeyDetector,
+                                                     ObjectProvider<BigKeyGuard> bigKeyGuard,
+                                                     ObjectProvider<RedisCircuitBreaker> circuitBreaker,
+                                                     ObjectProvider<ShadowCache> shadowCache) {
+        RedisTemplateWrapper wrapper = new RedisTemplateWrapper(redisTemplate);
+        wrapper.setClusterParallelism(properties.getBatch().getClusterParallelism());
+        wrapper.setHotKeyDetector(hotKeyDetector.getIfAvailable());
+        wrapper.setBigKeyGuard(bigKeyGuard.getIfAvailable());
+        RedisCircuitBreaker breaker = circuitBreaker.getIfAvailable();
+        return breaker != null
+                ? CircuitBreakingRedisService.wrap(wrapper, breaker, shadowCache.getIfAvailable()) : wrapper;
+    }
+
+    /**
+     * 配置大key防护
+     */
+    @Bean
+    @ConditionalOnMissingBean(BigKeyGuard.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.big-key", name = "enabled", havingValue = "true")
+    public BigKeyGuard bigKeyGuard(YueyunRedisProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BigKeyGuard(properties, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 配置热点key探测器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(HotKeyDetector.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.hot-key", name = "enabled", havingValue = "true")
+    public HotKeyDetector hotKeyDetector(RedisConnectionFactory redisConnectionFactory,
+                                         YueyunRedisProperties properties) {
+        return new HotKeyDetector(redisConnectionFactory, properties);
+    }
+
+    /**
+     * 配置Redis服务
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisService.class)
+    public RedisService redisService(RedisTemplateWrapper redisTemplateWrapper, CacheAsideLoader cacheAsideLoader,
+                                     RedisScriptRegistry redisScriptRegistry,
+                                     ObjectProvider<RedisCircuitBreaker> circuitBreaker,
+                                     ObjectProvider<ShadowCache> shadowCache,
+                                     YueyunRedisProperties properties,
+                                     ObjectProvider<RedisCommandMetrics> commandMetrics,
+                                     ObjectProvider<RedisReplicaReads> replicaReads) {
+        RedisServiceImpl serviceImpl = new RedisServiceImpl(redisTemplateWrapper, cacheAsideLoader, redisScriptRegistry);
+        replicaReads.ifAvailable(replica -> serviceImpl.setReadTemplate(replica.getTemplateWrapper()));
+        RedisService redisService = serviceImpl;
+        RedisCircuitBreaker breaker = circuitBreaker.getIfAvailable();
+        if (breaker != null) {
+            redisService = CircuitBreakingRedisService.wrap(redisService, breaker, shadowCache.getIfAvailable(),
+                    properties.getCircuitBreaker().isLoadThroughWhenOpen());
+        }
+        RedisCommandMetrics metrics = commandMetrics.getIfAvailable();
+        return metrics != null ? InstrumentedRedisService.wrap(redisService, metrics) : redisService;
+    }
+
+    /**
+     * 配置Redis命令指标
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisCommandMetrics.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.metrics", name = {"enabled", "command-timers"},
+            havingValue = "true", matchIfMissing = true)
+    public RedisCommandMetrics redisCommandMetrics(YueyunRedisProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RedisCommandMetrics(properties, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * 配置Redis连接池指标
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisPoolMetrics.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.metrics", name = {"enabled", "pool-gauges"},
+            havingValue = "true", matchIfMissing = true)
+    public RedisPoolMetrics redisPoolMetrics(RedisConnectionFactory redisConnectionFactory,
+                                             ObjectProvider<RedissonClient> redissonClient) {
+        return new RedisPoolMetrics(redisConnectionFactory, redissonClient.getIfAvailable());
+    }
+
+    /**
+     * 配置旁路缓存加载器
+     */
+    @Bean
+    @ConditionalOnMissingBean(CacheAsideLoader.class)
+    public CacheAsideLoader cacheAsideLoader(RedisTemplateWrapper redisTemplateWrapper, RedisLockUtil redisLockUtil,
+                                             ObjectProvider<RedissonUtils> redissonUtils,
+                                             YueyunRedisProperties properties) {
+        return new CacheAsideLoader(redisTemplateWrapper, redisLockUtil, redissonUtils, properties);
+    }
+
+    /**
+     * 配置Redis分布式锁工具类
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisLockUtil.class)
+    public RedisLockUtil redisLockUtil(DistributedLock distributedLock, RedisConnectionFactory redisConnectionFactory,
+                                       ObjectProvider<RedisScriptRegistry> scriptRegistry) {
+        RedisLockUtil redisLockUtil = new RedisLockUtil(distributedLock, redisConnectionFactory);
+        redisLockUtil.setScriptRegistry(scriptRegistry.getIfAvailable());
+        return redisLockUtil;
+    }
+
+    /**
+     * 配置Lua脚本注册表
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisScriptRegistry.class)
+    public RedisScriptRegistry redisScriptRegistry(RedisConnectionFactory redisConnectionFactory,
+                                                   YueyunRedisProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = properties.getMetrics().isEnabled() ? meterRegistry.getIfAvailable() : null;
+        return new RedisScriptRegistry(redisConnectionFactory, properties, registry);
+    }
+
+    /**
+     * 配置本地租约限流器
+     */
+    @Bean(destroyMethod = "destroy")
+    @ConditionalOnMissingBean(LeasedRateLimiter.class)
+    public LeasedRateLimiter leasedRateLimiter(RedisConnectionFactory redisConnectionFactory,
+                                               YueyunRedisProperties properties,
+                                               ObjectProvider<RedisScriptRegistry> scriptRegistry) {
+        LeasedRateLimiter limiter = new LeasedRateLimiter(redisConnectionFactory, properties);
+        limiter.setScriptRegistry(scriptRegistry.getIfAvailable());
+        return limiter;
+    }
+
+    /**
+     * 配置滑动窗口限流器
+     */
+    @Bean
+    @ConditionalOnMissingBean(SlidingWindowRateLimiter.class)
+    public SlidingWindowRateLimiter slidingWindowRateLimiter(RedisConnectionFactory redisConnectionFactory,
+                                                             YueyunRedisProperties properties,
+                                                             ObjectProvider<RedisScriptRegistry> scriptRegistry) {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(redisConnectionFactory, properties);
+        limiter.setScriptRegistry(scriptRegistry.getIfAvailable());
+        return limiter;
+    }
+
+    /**
+     * 配置Redis Stream消费组引擎
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(RedisStreamConsumer.class)
+    public RedisStreamConsumer redisStreamConsumer(RedisConnectionFactory redisConnectionFactory,
+                                                   YueyunRedisProperties properties) {
+        return new RedisStreamConsumer(redisConnectionFactory, properties);
+    }
+
+    /**
+     * 配置延迟任务调度器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(DelayedTaskScheduler.class)
+    public DelayedTaskScheduler delayedTaskScheduler(RedisConnectionFactory redisConnectionFactory,
+                                                     YueyunRedisProperties properties,
+                                                     @Nullable RedisSharedResources sharedResources,
+                                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                                     ObjectProvider<RedisScriptRegistry> scriptRegistry) {
+        MeterRegistry registry = properties.getMetrics().isEnabled() ? meterRegistry.getIfAvailable() : null;
+        DelayedTaskScheduler scheduler = new DelayedTaskScheduler(redisConnectionFactory, properties, sharedResources,
+                registry);
+        scheduler.setScriptRegistry(scriptRegistry.getIfAvailable());
+        return scheduler;
+    }
+
+    /**
+     * 配置分布式ID服务
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(RedisIdGenerator.class)
+    public RedisIdGenerator redisIdGenerator(RedisConnectionFactory redisConnectionFactory,
+                                             YueyunRedisProperties properties) {
+        return new RedisIdGenerator(redisConnectionFactory, properties);
+    }
+
+    /**
+     * 配置合并计数服务
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(BufferedCounterService.class)
+    public BufferedCounterService bufferedCounterService(RedisConnectionFactory redisConnectionFactory,
+                                                         YueyunRedisProperties properties) {
+        return new BufferedCounterService(redisConnectionFactory, properties);
+    }
+
+    /**
+     * 配置近似统计服务
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisAnalyticsService.class)
+    public RedisAnalyticsService redisAnalyticsService(RedisConnectionFactory redisConnectionFactory,
+                                                       YueyunRedisProperties properties) {
+        return new RedisAnalyticsService(redisConnectionFactory, properties);
+    }
+
+    /**
+     * 配置Redis熔断器
+     */
+    @Bean
+    @ConditionalOnMissingBean(RedisCircuitBreaker.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.circuit-breaker", name = "enabled", havingValue = "true")
+    public RedisCircuitBreaker redisCircuitBreaker(YueyunRedisProperties properties,
+                                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = properties.getMetrics().isEnabled() ? meterRegistry.getIfAvailable() : null;
+        return new RedisCircuitBreaker(properties, registry);
+    }
+
+    /**
+     * 配置熔断影子缓存，RedisService与模板包装类共用，一方的写入会使另一方保存的影子副本失效；
+     * 未配置shadow-prefixes时不保存任何副本
+     */
+    @Bean
+    @ConditionalOnMissingBean(ShadowCache.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.circuit-breaker", name = "enabled", havingValue = "true")
+    public ShadowCache redisShadowCache(YueyunRedisProperties properties) {
+        YueyunRedisProperties.CircuitBreaker config = properties.getCircuitBreaker();
+        return new ShadowCache(config.getShadowPrefixes(), config.getShadowMaxKeys());
+    }
+
+    /**
+     * 配置缓存预热管理器
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(CacheWarmupManager.class)
+    public CacheWarmupManager cacheWarmupManager(RedisTemplateWrapper redisTemplateWrapper,
+                                                 ObjectProvider<CacheWarmer> warmers,
+                                                 YueyunRedisProperties properties,
+                                                 ObjectProvider<RedisCircuitBreaker> circuitBreaker) {
+        CacheWarmupManager manager = new CacheWarmupManager(redisTemplateWrapper, warmers.orderedStream().toList(),
+                properties);
+        RedisCircuitBreaker breaker = circuitBreaker.getIfAvailable();
+        if (breaker != null && properties.getWarmup().isRewarmOnRecovery()) {
+            breaker.addStateListener(state -> {
+                if (state == RedisCircuitBreaker.State.CLOSED) {
+                    manager.warmUpAsync();
+                }
+            });
+        }
+        return manager;
+    }
+
+    /**
+     * 配置键空间审计
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(KeyspaceAuditor.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.keyspace-audit", name = "enabled", havingValue = "true")
+    public KeyspaceAuditor keyspaceAuditor(RedisConnectionFactory redisConnectionFactory,
+                                           YueyunRedisProperties properties,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = properties.getMetrics().isEnabled() ? meterRegistry.getIfAvailable() : null;
+        return new KeyspaceAuditor(redisConnectionFactory, properties, registry);
+    }
+
+    /**
+     * 缓存预热的就绪门控，仅在引入Actuator且开启gate-readiness时生效，
+     * 以同名Bean替换Spring Boot默认的readinessState健康指示器
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(ReadinessStateHealthIndicator.class)
+    @ConditionalOnProperty(prefix = "spring.data.redis.warmup", name = "gate-readiness", havingValue = "true")
+    static class WarmupReadinessConfiguration {
+
+        @Bean("readinessStateHealthIndicator")
+        @ConditionalOnMissingBean(name = "readinessStateHealthIndicator")
+        public CacheWarmupReadinessIndicator readinessStateHealthIndicator(ApplicationAvailability availability,
+                                                                          CacheWarmupManager cacheWarmupManager) {
+            return new CacheWarmupReadinessIndicator(availability, cacheWarmupManager);
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,73 @@
+package online.yueyun.redis.config;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.template.RedisTemplateWrapper;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * 从节点读取连接
+ * <p>
+ * 按{@code read-from}策略单独创建的连接工厂和模板，只供{@code RedisService}的只读方法使用；
+ * 主连接工厂始终发送到主节点，锁、限流、旁路缓存加载等读后写的组件不会读到从节点上的旧数据。
+ * 不作为{@code RedisConnectionFactory}或{@code RedisTemplate}注册，避免按类型注入时出现多个候选。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisReplicaReads {
+
+    /**
+     * 按读取策略路由的连接工厂
+     */
+    private final LettuceConnectionFactory connectionFactory;
+
+    /**
+     * 从节点读取的模板包装类
+     */
+    private final RedisTemplateWrapper templateWrapper;
+
+    /**
+     * @param connectionFactory 按读取策略路由的连接工厂，尚未初始化
+     * @param primaryTemplate 主节点模板，从节点模板沿用它的序列化方式
+     * @param clusterParallelism 集群模式下按节点并行执行批量命令的线程数
+     */
+    public RedisReplicaReads(LettuceConnectionFactory connectionFactory, RedisTemplate<String, Object> primaryTemplate,
+                             int clusterParallelism) {
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        this.connectionFactory = connectionFactory;
+
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(primaryTemplate.getKeySerializer());
+        template.setValueSerializer(primaryTemplate.getValueSerializer());
+        template.setHashKeySerializer(primaryTemplate.getHashKeySerializer());
+        template.setHashValueSerializer(primaryTemplate.getHashValueSerializer());
+        template.afterPropertiesSet();
+
+        this.templateWrapper = new RedisTemplateWrapper(template);
+        this.templateWrapper.setClusterParallelism(clusterParallelism);
+    }
+
+    /**
+     * 获取从节点读取的模板包装类
+     */
+    public RedisTemplateWrapper getTemplateWrapper() {
+        return templateWrapper;
+    }
+
+    /**
+     * 关闭从节点读取连接
+     */
+    public void destroy() {
+        templateWrapper.shutdown();
+        try {
+            connectionFactory.destroy();
+        } catch (Exception e) {
+            log.warn("关闭从节点读取连接失败", e);
+        }
+    }
+}
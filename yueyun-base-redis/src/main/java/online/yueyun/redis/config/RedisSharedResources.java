@@ -0,0 +1,112 @@
+package online.yueyun.redis.config;
+
+import io.lettuce.core.resource.DefaultEventLoopGroupProvider;
+import io.lettuce.core.resource.EventLoopGroupProvider;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettuce与Redisson共享的Netty资源
+ * 两个客户端共用同一组I/O线程和定时器，避免每个客户端各自创建一套事件循环
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisSharedResources {
+
+    /**
+     * I/O线程数
+     */
+    private final int ioThreads;
+
+    /**
+     * 共享的事件循环组
+     */
+    private final EventLoopGroup eventLoopGroup;
+
+    /**
+     * 共享的定时器
+     */
+    private final HashedWheelTimer timer;
+
+    public RedisSharedResources(int ioThreads) {
+        this.ioThreads = ioThreads;
+        this.eventLoopGroup = new NioEventLoopGroup(ioThreads, new DefaultThreadFactory("redis-io", true));
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("redis-timer", true));
+        log.info("初始化Redis共享Netty资源，I/O线程数: {}", ioThreads);
+    }
+
+    /**
+     * 获取共享的事件循环组
+     */
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * 获取共享的定时器
+     */
+    public HashedWheelTimer getTimer() {
+        return timer;
+    }
+
+    /**
+     * 创建供Lettuce使用的事件循环组提供者
+     */
+    public EventLoopGroupProvider eventLoopGroupProvider() {
+        return new SharedEventLoopGroupProvider();
+    }
+
+    /**
+     * 关闭共享资源，需在两个客户端都关闭之后调用
+     */
+    public void shutdown() {
+        timer.stop();
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    /**
+     * 事件循环组提供者，请求的类型与共享事件循环组一致时直接复用，否则交给默认实现创建
+     */
+    private class SharedEventLoopGroupProvider implements EventLoopGroupProvider {
+
+        private final DefaultEventLoopGroupProvider delegate = new DefaultEventLoopGroupProvider(ioThreads);
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends EventLoopGroup> T allocate(Class<T> type) {
+            if (type.isInstance(eventLoopGroup)) {
+                return (T) eventLoopGroup;
+            }
+            return delegate.allocate(type);
+        }
+
+        @Override
+        public int threadPoolSize() {
+            return ioThreads;
+        }
+
+        @Override
+        public Future<Boolean> release(EventExecutorGroup eventLoopGroup, long quietPeriod, long timeout, TimeUnit unit) {
+            if (eventLoopGroup == RedisSharedResources.this.eventLoopGroup) {
+                // 共享的事件循环组由Spring容器统一关闭
+                return ImmediateEventExecutor.INSTANCE.newSucceededFuture(Boolean.TRUE);
+            }
+            return delegate.release(eventLoopGroup, quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<Boolean> shutdown(long quietPeriod, long timeout, TimeUnit timeUnit) {
+            return delegate.shutdown(quietPeriod, timeout, timeUnit);
+        }
+    }
+}
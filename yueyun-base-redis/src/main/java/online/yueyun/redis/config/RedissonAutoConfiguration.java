@@ -7,18 +7,21 @@ import org.redisson.config.Config;
 import org.redisson.config.SingleServerConfig;
 import org.redisson.config.SentinelServersConfig;
 import org.redisson.config.ClusterServersConfig;
+import org.redisson.config.BaseMasterSlaveServersConfig;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.lang.Nullable;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
 
 /**
  * Redisson自动配置类
- * 当项目中引入了redisson-spring-boot-starter依赖且没有配置RedissonClient时，自动启用此配置
+ * 当项目中引入了redisson-spring-boot-starter依赖且没有配置RedissonClient时，自动启用此配置，embedded模式下不启用
  *
  * @author YueYun
  * @since 1.0.0
@@ -26,6 +29,7 @@ import java.util.List;
 @Slf4j
 @AutoConfiguration
 @ConditionalOnClass(RedissonClient.class)
+@Conditional(OnRedisServerCondition.class)
 @ComponentScan("online.yueyun.redis")
 public class RedissonAutoConfiguration {
 
@@ -35,10 +39,17 @@ public class RedissonAutoConfiguration {
      */
     @Bean(destroyMethod = "shutdown")
     @ConditionalOnMissingBean(RedissonClient.class)
-    public RedissonClient redissonClient(YueyunRedisProperties properties) {
+    public RedissonClient redissonClient(YueyunRedisProperties properties,
+                                         @Nullable RedisSharedResources sharedResources) {
         log.info("初始化RedissonClient，模式: {}", properties.getMode());
         Config config = new Config();
 
+        // 与Lettuce共用Netty事件循环，Redisson不会关闭外部传入的事件循环组；
+        // 直接注入共享资源，使容器关闭时先关闭RedissonClient再关闭共享资源
+        if (sharedResources != null) {
+            config.setEventLoopGroup(sharedResources.getEventLoopGroup());
+        }
+
         // 根据配置的模式创建对应的配置
         switch (properties.getMode().toLowerCase()) {
             case "sentinel":
@@ -71,7 +82,14 @@ public class RedissonAutoConfiguration {
                 .setRetryAttempts(properties.getRedisson().getRetryAttempts())
                 .setRetryInterval(properties.getRedisson().getRetryInterval());
 
-        if (properties.getRedisson().isUseConnectionPool()) {
+        YueyunRedisProperties.SharedResources budget = properties.getSharedResources();
+        if (budget.isEnabled()) {
+            // 按连接预算使用小规模的专用连接池
+            serverConfig.setConnectionPoolSize(budget.getRedissonPoolSize())
+                    .setConnectionMinimumIdleSize(budget.getRedissonMinimumIdleSize())
+                    .setSubscriptionConnectionPoolSize(budget.getRedissonSubscriptionPoolSize())
+                    .setSubscriptionConnectionMinimumIdleSize(1);
+        } else if (properties.getRedisson().isUseConnectionPool()) {
             serverConfig.setConnectionPoolSize(properties.getRedisson().getConnectionPoolSize())
                     .setConnectionMinimumIdleSize(properties.getRedisson().getConnectionMinimumIdleSize());
         }
@@ -98,6 +116,8 @@ public class RedissonAutoConfiguration {
             serverConfig.setPassword(password);
         }
 
+        applyConnectionBudget(serverConfig, properties);
+
         List<String> nodes = properties.getSentinel().getNodes();
         if (nodes != null && !nodes.isEmpty()) {
             nodes.forEach(node -> serverConfig.addSentinelAddress("redis://" + node.trim()));
@@ -118,9 +138,27 @@ public class RedissonAutoConfiguration {
             serverConfig.setPassword(password);
         }
 
+        applyConnectionBudget(serverConfig, properties);
+
         List<String> nodes = properties.getCluster().getNodes();
         if (nodes != null && !nodes.isEmpty()) {
             nodes.forEach(node -> serverConfig.addNodeAddress("redis://" + node.trim()));
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 按连接预算设置主从模式下的连接池大小
+     */
+    private void applyConnectionBudget(BaseMasterSlaveServersConfig<?> serverConfig, YueyunRedisProperties properties) {
+        YueyunRedisProperties.SharedResources budget = properties.getSharedResources();
+        if (!budget.isEnabled()) {
+            return;
+        }
+        serverConfig.setMasterConnectionPoolSize(budget.getRedissonPoolSize())
+                .setMasterConnectionMinimumIdleSize(budget.getRedissonMinimumIdleSize())
+                .setSlaveConnectionPoolSize(budget.getRedissonPoolSize())
+                .setSlaveConnectionMinimumIdleSize(budget.getRedissonMinimumIdleSize())
+                .setSubscriptionConnectionPoolSize(budget.getRedissonSubscriptionPoolSize())
+                .setSubscriptionConnectionMinimumIdleSize(1);
+    }
+}
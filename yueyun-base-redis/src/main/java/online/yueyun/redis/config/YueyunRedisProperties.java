@@ -5,6 +5,14 @@ import lombok.EqualsAndHashCode;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 扩展Spring Boot的Redis配置属性
@@ -20,15 +28,112 @@ import org.springframework.stereotype.Component;
 public class YueyunRedisProperties extends RedisProperties {
 
     /**
-     * Redis连接模式：standalone（单机）、sentinel（哨兵）、cluster（集群）
+     * Redis连接模式：standalone（单机）、sentinel（哨兵）、cluster（集群）、embedded（内存）
+     * embedded模式下RedisService使用进程内存实现，不访问Redis服务器
      */
     private String mode = "standalone";
 
+    /**
+     * 读取策略，仅哨兵和集群模式生效：master、replica-preferred、replica、nearest、lowest-latency、any
+     * 只作用于RedisService的只读方法，其余命令始终发送到主节点；为空时全部读主节点，从节点读取可能读到稍旧的数据
+     */
+    private String readFrom;
+
+    /**
+     * 集群拓扑定时刷新周期
+     */
+    private Duration topologyRefreshPeriod = Duration.ofSeconds(30);
+
     /**
      * Redisson配置
      */
     private Redisson redisson = new Redisson();
 
+    /**
+     * 批量操作配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 共享资源配置
+     */
+    private SharedResources sharedResources = new SharedResources();
+
+    /**
+     * 分布式锁配置
+     */
+    private Lock lock = new Lock();
+
+    /**
+     * 限流配置
+     */
+    private RateLimiter rateLimiter = new RateLimiter();
+
+    /**
+     * 热点key探测配置
+     */
+    private HotKey hotKey = new HotKey();
+
+    /**
+     * 大key防护配置
+     */
+    private BigKey bigKey = new BigKey();
+
+    /**
+     * 旁路缓存配置
+     */
+    private CacheAside cacheAside = new CacheAside();
+
+    /**
+     * 指标配置
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * Stream消费配置
+     */
+    private Stream stream = new Stream();
+
+    /**
+     * 延迟任务配置
+     */
+    private Delay delay = new Delay();
+
+    /**
+     * 分布式ID配置
+     */
+    private Id id = new Id();
+
+    /**
+     * Lua脚本配置
+     */
+    private Script script = new Script();
+
+    /**
+     * 合并计数配置
+     */
+    private Counter counter = new Counter();
+
+    /**
+     * 近似统计配置
+     */
+    private Analytics analytics = new Analytics();
+
+    /**
+     * 熔断配置
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * 缓存预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 键空间审计配置
+     */
+    private KeyspaceAudit keyspaceAudit = new KeyspaceAudit();
+
     /**
      * Redisson配置类
      */
@@ -69,4 +174,699 @@ public class YueyunRedisProperties extends RedisProperties {
          */
         private int connectionMinimumIdleSize = 24;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 批量操作配置类
+     */
+    @Data
+    public static class Batch {
+        /**
+         * 集群模式下按节点并行执行批量命令的最大线程数
+         */
+        private int clusterParallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 共享资源配置类
+     * 开启后Lettuce与Redisson共用Netty事件循环，并按同一个连接预算划分两个客户端的连接池
+     */
+    @Data
+    public static class SharedResources {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = false;
+
+        /**
+         * 共享I/O线程数
+         */
+        private int ioThreads = Math.max(3, Runtime.getRuntime().availableProcessors());
+
+        /**
+         * 每个Redis节点的连接总预算
+         */
+        private int connectionBudget = 32;
+
+        /**
+         * Redisson连接池大小，仅用于锁、限流器、队列等Redisson特有功能
+         */
+        private int redissonPoolSize = 8;
+
+        /**
+         * Redisson连接池最小空闲连接数
+         */
+        private int redissonMinimumIdleSize = 1;
+
+        /**
+         * Redisson订阅连接池大小
+         */
+        private int redissonSubscriptionPoolSize = 4;
+
+        /**
+         * 计算Lettuce连接池大小：总预算扣除Redisson占用的连接
+         */
+        public int getLettucePoolSize() {
+            return Math.max(1, connectionBudget - redissonPoolSize - redissonSubscriptionPoolSize);
+        }
+    }
+
+    /**
+     * 分布式锁配置类
+     */
+    @Data
+    public static class Lock {
+        /**
+         * 本地锁是否公平，公平锁保证本地等待者按顺序交接
+         */
+        private boolean fairLocalLock = true;
+
+        /**
+         * 是否记录锁等待和持有时间指标
+         */
+        private boolean metricsEnabled = true;
+    }
+
+    /**
+     * 限流配置
+     */
+    @Data
+    public static class RateLimiter {
+        /**
+         * 本地租约时长，到期后未用完的令牌归还到共享令牌桶
+         */
+        private Duration leaseDuration = Duration.ofSeconds(1);
+
+        /**
+         * 单次租借的最小令牌数
+         */
+        private long minBatch = 1;
+
+        /**
+         * 单次租借的最大令牌数
+         */
+        private long maxBatch = 1000;
+
+        /**
+         * 单次租借数量占令牌桶容量的最大比例，避免少数节点占用全部令牌
+         */
+        private double maxBatchRatio = 0.1;
+
+        /**
+         * 限流器在Redis中的key前缀
+         */
+        private String keyPrefix = "yueyun:limiter:";
+    }
+
+    /**
+     * 热点key探测配置
+     */
+    @Data
+    public static class HotKey {
+        /**
+         * 是否开启热点key探测
+         */
+        private boolean enabled = false;
+
+        /**
+         * 统计窗口
+         */
+        private Duration window = Duration.ofSeconds(5);
+
+        /**
+         * 窗口内访问次数达到该值的key视为热点
+         */
+        private long threshold = 500;
+
+        /**
+         * 保留访问次数最多的key数量
+         */
+        private int topK = 100;
+
+        /**
+         * 采样率，取值(0, 1]，访问量很大时可以降低采样率减少开销
+         */
+        private double sampleRate = 1.0;
+
+        /**
+         * Count-Min Sketch每行计数器个数
+         */
+        private int sketchWidth = 4096;
+
+        /**
+         * Count-Min Sketch哈希函数个数
+         */
+        private int sketchDepth = 4;
+
+        /**
+         * 热点key本地副本的过期时间
+         */
+        private Duration localCacheTtl = Duration.ofSeconds(2);
+
+        /**
+         * 本地副本的最大数量
+         */
+        private int localCacheMaxSize = 1000;
+
+        /**
+         * 是否上报热点统计到Redis
+         */
+        private boolean reportEnabled = true;
+
+        /**
+         * 热点统计上报的有序集合key前缀，按reportTtl划分时间段，每段使用独立的key
+         */
+        private String reportKey = "yueyun:hotkey:report";
+
+        /**
+         * 热点统计时间段的长度，每段的有序集合在两个时间段后过期
+         */
+        private Duration reportTtl = Duration.ofMinutes(10);
+
+        /**
+         * 每个时间段的有序集合保留的最大key数量，每次上报后按累计次数裁剪
+         */
+        private int reportMaxKeys = 1000;
+    }
+
+    /**
+     * 大key防护配置
+     */
+    @Data
+    public static class BigKey {
+        /**
+         * 是否开启大key防护，开启后值的读写改为先序列化再执行
+         */
+        private boolean enabled = false;
+
+        /**
+         * 序列化后的值超过该大小时记录警告日志
+         */
+        private DataSize warnSize = DataSize.ofKilobytes(512);
+
+        /**
+         * 序列化后的值超过该大小时拒绝写入，为0时不拒绝
+         */
+        private DataSize rejectSize = DataSize.ofBytes(0);
+
+        /**
+         * 哈希、列表整体读取时元素数超过该值则记录警告日志并改为分批读取
+         */
+        private long elementWarnThreshold = 5000;
+
+        /**
+         * 分批读取时每批的元素数
+         */
+        private int scanBatchSize = 500;
+
+        /**
+         * 开启分片存储的key前缀，这些key的值超过分片大小时拆分为多个分片存入哈希
+         */
+        private List<String> chunkedPrefixes = new ArrayList<>();
+
+        /**
+         * 分片大小
+         */
+        private DataSize chunkSize = DataSize.ofKilobytes(256);
+
+        /**
+         * 读取分片时每条HMGET命令获取的分片数
+         */
+        private int chunkFetchBatch = 8;
+
+        /**
+         * 是否记录值大小分布指标
+         */
+        private boolean metricsEnabled = true;
+    }
+
+    /**
+     * 旁路缓存配置
+     */
+    @Data
+    public static class CacheAside {
+        /**
+         * 空值标记的过期时间
+         */
+        private Duration nullTtl = Duration.ofSeconds(60);
+
+        /**
+         * 过期时间随机抖动比例，实际过期时间在[ttl, ttl * (1 + ratio)]之间
+         */
+        private double ttlJitterRatio = 0.1;
+
+        /**
+         * 跨节点加载互斥锁的过期时间，应大于加载函数的最长执行时间
+         */
+        private Duration mutexTtl = Duration.ofSeconds(10);
+
+        /**
+         * 等待其他节点加载完成的最长时间，超时后直接加载
+         */
+        private Duration mutexWaitTime = Duration.ofSeconds(3);
+    }
+
+    /**
+     * 指标配置
+     */
+    @Data
+    public static class Metrics {
+        /**
+         * 是否开启Redis指标
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否按命令类型和key前缀记录RedisService的调用耗时
+         */
+        private boolean commandTimers = true;
+
+        /**
+         * 是否记录序列化字节数分布
+         */
+        private boolean serializedBytes = true;
+
+        /**
+         * 是否注册Lettuce和Redisson连接池指标
+         */
+        private boolean poolGauges = true;
+
+        /**
+         * 是否开启Lettuce驱动层的命令延迟指标，覆盖直接通过RedisTemplate执行的命令
+         */
+        private boolean lettuceCommandLatency = false;
+
+        /**
+         * 是否发布耗时的百分位直方图
+         */
+        private boolean percentileHistogram = false;
+
+        /**
+         * 慢命令阈值，超过时记录警告日志，为0时不记录
+         */
+        private Duration slowCommandThreshold = Duration.ofMillis(100);
+    }
+
+    /**
+     * Stream消费配置
+     */
+    @Data
+    public static class Stream {
+        /**
+         * 每次XREADGROUP拉取的最大消息数
+         */
+        private int batchSize = 100;
+
+        /**
+         * 没有新消息时XREADGROUP的阻塞时间
+         */
+        private Duration blockTime = Duration.ofSeconds(2);
+
+        /**
+         * 消息处理线程数
+         */
+        private int handlerThreads = 16;
+
+        /**
+         * 消息处理队列容量，队列满时由拉取线程执行处理，降低拉取速度
+         */
+        private int handlerQueueCapacity = 1000;
+
+        /**
+         * 认领空闲消息的周期
+         */
+        private Duration claimInterval = Duration.ofSeconds(30);
+
+        /**
+         * 待处理消息空闲超过该时间后被其他消费者认领
+         */
+        private Duration claimMinIdle = Duration.ofMinutes(1);
+
+        /**
+         * 发送消息时保留的Stream近似最大长度，为0时不裁剪
+         */
+        private int maxLen = 100000;
+
+        /**
+         * 消息内容字段名
+         */
+        private String payloadField = "payload";
+
+        /**
+         * 消费者名称，为空时使用主机名；同一主机上运行多个实例时需要分别配置
+         */
+        private String consumerName;
+
+        /**
+         * 最大投递次数，达到后消息转入死信Stream并确认，为0时不限制
+         */
+        private int maxDeliveries = 10;
+
+        /**
+         * 死信Stream的后缀，死信Stream的key为原Stream的key加该后缀
+         */
+        private String deadLetterSuffix = ":dead-letter";
+
+        /**
+         * 没有待处理消息的消费者不活跃超过该时间后从消费组中移除，为0时不移除
+         */
+        private Duration consumerExpire = Duration.ofHours(1);
+    }
+
+    /**
+     * 延迟任务配置
+     */
+    @Data
+    public static class Delay {
+        /**
+         * 每个队列的分片数，修改后已有任务所在的分片会变化，需在队列清空后调整
+         */
+        private int shards = 8;
+
+        /**
+         * 每次领取的最大任务数
+         */
+        private int batchSize = 100;
+
+        /**
+         * 任务租约时长，超过该时间仍未完成的任务会被重新执行
+         */
+        private Duration lease = Duration.ofSeconds(30);
+
+        /**
+         * 任务的最大执行次数，达到后移入死信集合不再自动执行，小于等于0时不限制
+         */
+        private int maxAttempts = 16;
+
+        /**
+         * 首次失败后的重试间隔，之后每次失败翻倍
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+
+        /**
+         * 重试间隔的上限
+         */
+        private Duration maxRetryBackoff = Duration.ofMinutes(10);
+
+        /**
+         * 拉取线程的最长空闲时间，决定其他节点新增任务的最大发现延迟
+         */
+        private Duration maxPollInterval = Duration.ofSeconds(1);
+
+        /**
+         * 本地时间轮的刻度，未开启共享资源时生效
+         */
+        private Duration wheelTick = Duration.ofMillis(10);
+
+        /**
+         * 任务处理线程数
+         */
+        private int handlerThreads = 16;
+
+        /**
+         * 任务处理队列容量，队列满时由拉取线程执行任务
+         */
+        private int handlerQueueCapacity = 1000;
+
+        /**
+         * 延迟队列在Redis中的key前缀
+         */
+        private String keyPrefix = "yueyun:delay:";
+    }
+
+    /**
+     * 分布式ID配置
+     */
+    @Data
+    public static class Id {
+        /**
+         * 号段长度，即每次从Redis租借的ID数量
+         */
+        private long segmentStep = 1000;
+
+        /**
+         * 当前号段剩余比例低于该值时预取下一个号段
+         */
+        private double prefetchRatio = 0.2;
+
+        /**
+         * 雪花ID的纪元时间戳（毫秒），默认2024-01-01 00:00:00 UTC，上线后不可修改
+         */
+        private long snowflakeEpoch = 1704067200000L;
+
+        /**
+         * 雪花ID机器号租约时长
+         */
+        private Duration workerLeaseTtl = Duration.ofSeconds(60);
+
+        /**
+         * ID在Redis中的key前缀
+         */
+        private String keyPrefix = "yueyun:id:";
+    }
+
+    /**
+     * Lua脚本配置
+     */
+    @Data
+    public static class Script {
+        /**
+         * 脚本文件位置，支持通配符，脚本名称为不含扩展名的文件名
+         */
+        private List<String> locations = new ArrayList<>(List.of("classpath*:redis/scripts/*.lua"));
+
+        /**
+         * 是否在启动时通过SCRIPT LOAD预加载脚本，集群模式下加载到每个主节点
+         */
+        private boolean preload = true;
+    }
+
+    /**
+     * 合并计数配置
+     */
+    @Data
+    public static class Counter {
+        /**
+         * 刷新间隔，即计数在Redis中最多滞后的时间
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+
+        /**
+         * 累计事件数达到该值时提前触发刷新
+         */
+        private long maxPendingEvents = 100000;
+
+        /**
+         * 每个管道批次的命令数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 计数项连续空闲的刷新轮数超过该值时移除本地累加器
+         */
+        private int idleRounds = 60;
+
+        /**
+         * 计数项的命令连续失败的轮数达到该值时丢弃其未刷新的增量并记录错误日志，如key类型错误
+         */
+        private int maxFailures = 5;
+
+        /**
+         * 读取计数时是否加上本节点未刷新的增量
+         */
+        private boolean readYourWrites = true;
+    }
+
+    /**
+     * 近似统计配置
+     */
+    @Data
+    public static class Analytics {
+        /**
+         * 统计数据在Redis中的key前缀
+         */
+        private String keyPrefix = "yueyun:analytics:";
+
+        /**
+         * 按天UV计数器的保留时间
+         */
+        private Duration dailyRetention = Duration.ofDays(90);
+
+        /**
+         * 按小时UV计数器的保留时间
+         */
+        private Duration hourlyRetention = Duration.ofDays(3);
+
+        /**
+         * 划分日期和小时使用的时区，默认使用系统时区
+         */
+        private ZoneId zoneId;
+
+        /**
+         * 批量写入时每批的元素数
+         */
+        private int batchSize = 1000;
+    }
+
+    /**
+     * 熔断配置
+     */
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * 是否启用熔断
+         */
+        private boolean enabled = false;
+
+        /**
+         * 滑动窗口大小，即参与统计的最近调用次数
+         */
+        private int windowSize = 100;
+
+        /**
+         * 窗口内至少有多少次调用才开始判断是否熔断
+         */
+        private int minimumCalls = 20;
+
+        /**
+         * 失败率阈值，百分比
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 慢调用率阈值，百分比
+         */
+        private int slowCallRateThreshold = 80;
+
+        /**
+         * 慢调用阈值
+         */
+        private Duration slowCallThreshold = Duration.ofMillis(500);
+
+        /**
+         * 熔断打开后等待多久进入半开状态
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        /**
+         * 半开状态放行的探测调用次数
+         */
+        private int halfOpenProbes = 5;
+
+        /**
+         * 熔断时旁路缓存加载是否直接调用加载函数
+         */
+        private boolean loadThroughWhenOpen = true;
+
+        /**
+         * 保存影子副本的key前缀，为空时不启用影子缓存
+         */
+        private List<String> shadowPrefixes = new ArrayList<>();
+
+        /**
+         * 影子缓存最多保存的key数量
+         */
+        private int shadowMaxKeys = 10000;
+    }
+
+    /**
+     * 缓存预热配置
+     */
+    @Data
+    public static class Warmup {
+        /**
+         * 是否在应用启动完成后执行预热
+         */
+        private boolean onStartup = true;
+
+        /**
+         * 预热完成前是否保持应用未就绪
+         */
+        private boolean gateReadiness = false;
+
+        /**
+         * 熔断器从打开恢复为关闭后是否重新预热
+         */
+        private boolean rewarmOnRecovery = true;
+
+        /**
+         * 并行执行的预热器数量
+         */
+        private int parallelism = 4;
+
+        /**
+         * 每个管道批次写入的key数量
+         */
+        private int batchSize = 500;
+
+        /**
+         * 所有预热器合计每秒最多写入的key数量，小于等于0时不限速
+         */
+        private long maxKeysPerSecond = 20000;
+
+        /**
+         * 预热器未指定过期时间时使用的默认值，为null时不过期
+         */
+        private Duration defaultTtl;
+
+        /**
+         * 是否覆盖已存在的key，默认只写入不存在的key
+         */
+        private boolean overwrite = false;
+    }
+
+    /**
+     * 键空间审计配置
+     */
+    @Data
+    public static class KeyspaceAudit {
+        /**
+         * 是否启用键空间审计
+         */
+        private boolean enabled = false;
+
+        /**
+         * 应用启动后首次审计的延迟
+         */
+        private Duration initialDelay = Duration.ofMinutes(5);
+
+        /**
+         * 审计间隔
+         */
+        private Duration interval = Duration.ofHours(6);
+
+        /**
+         * 每个节点每秒最多检查的key数量
+         */
+        private long keysPerSecond = 2000;
+
+        /**
+         * 每次SCAN的COUNT参数
+         */
+        private int scanCount = 200;
+
+        /**
+         * 执行MEMORY USAGE采样的key比例
+         */
+        private double memorySampleRatio = 0.05;
+
+        /**
+         * 归并key模式时保留的冒号分段数
+         */
+        private int patternDepth = 4;
+
+        /**
+         * 统计的key模式数量上限，超出的归入(other)
+         */
+        private int maxPatterns = 2000;
+
+        /**
+         * 发布指标的key模式数量，按估算内存取前N个
+         */
+        private int metricsTopN = 50;
+
+        /**
+         * 没有过期时间的key按前缀补设的默认过期时间，为空时只统计不修改
+         */
+        private Map<String, Duration> defaultTtls = new LinkedHashMap<>();
+    }
+}
@@ -0,0 +1,394 @@
+package online.yueyun.redis.counter;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 写后合并计数服务
+ * <p>
+ * 计数增量先累加到本地按key划分的{@link LongAdder}，由后台线程按时间间隔或累计事件数合并，
+ * 再通过管道批量执行INCRBY/HINCRBY写入Redis，每个key每轮只产生一条命令。
+ * 适用于浏览量、点赞数、接口配额等允许秒级最终一致的计数；节点宕机时未刷新的增量会丢失。
+ * </p>
+ * <p>
+ * 管道中每条命令的结果单独处理：成功的命令推进已写入总量，失败的命令保留增量到下一轮；
+ * 同一计数项连续失败达到{@code max-failures}轮（如key类型错误）时丢弃其增量并记录错误日志。
+ * </p>
+ * <p>
+ * 开启read-your-writes后，{@link #get(String)}、{@link #hGet(String, String)}会在Redis中的值上
+ * 加上本节点尚未刷新的增量。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class BufferedCounterService {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.Counter config;
+
+    /**
+     * 各计数项的本地累加器
+     */
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 已从映射中移除、等待下一轮做最后一次刷新的计数项，仅刷新线程访问
+     */
+    private List<Counter> retired = new ArrayList<>();
+
+    /**
+     * 自上次刷新以来累计的事件数，用于数量触发
+     */
+    private final LongAdder pendingEvents = new LongAdder();
+
+    /**
+     * 是否已提交数量触发的刷新
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * 刷新锁，保证同一时刻只有一轮刷新
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledExecutorService flusher;
+
+    private volatile boolean shutdown;
+
+    public BufferedCounterService(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getCounter();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-counter-flusher-");
+        threadFactory.setDaemon(true);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long period = config.getFlushInterval().toMillis();
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 计数加1
+     *
+     * @param key 键
+     */
+    public void increment(String key) {
+        increment(key, 1);
+    }
+
+    /**
+     * 增加计数
+     *
+     * @param key 键
+     * @param delta 增量，可以为负数
+     */
+    public void increment(String key, long delta) {
+        add(new CounterKey(key, null), delta);
+    }
+
+    /**
+     * 增加哈希字段的计数
+     *
+     * @param key 键
+     * @param field 哈希字段
+     * @param delta 增量，可以为负数
+     */
+    public void hIncrement(String key, String field, long delta) {
+        add(new CounterKey(key, field), delta);
+    }
+
+    /**
+     * 获取计数
+     *
+     * @param key 键
+     * @return Redis中的计数，开启read-your-writes时包含本节点未刷新的增量
+     */
+    public long get(String key) {
+        long value = parse(redisTemplate.opsForValue().get(key));
+        return config.isReadYourWrites() ? value + pending(key) : value;
+    }
+
+    /**
+     * 获取哈希字段的计数
+     *
+     * @param key 键
+     * @param field 哈希字段
+     * @return Redis中的计数，开启read-your-writes时包含本节点未刷新的增量
+     */
+    public long hGet(String key, String field) {
+        Object raw = redisTemplate.opsForHash().get(key, field);
+        long value = parse(raw != null ? raw.toString() : null);
+        return config.isReadYourWrites() ? value + hPending(key, field) : value;
+    }
+
+    /**
+     * 获取本节点尚未刷新的增量
+     *
+     * @param key 键
+     * @return 未刷新的增量
+     */
+    public long pending(String key) {
+        Counter counter = counters.get(new CounterKey(key, null));
+        return counter != null ? counter.pending() : 0;
+    }
+
+    /**
+     * 获取本节点哈希字段尚未刷新的增量
+     *
+     * @param key 键
+     * @param field 哈希字段
+     * @return 未刷新的增量
+     */
+    public long hPending(String key, String field) {
+        Counter counter = counters.get(new CounterKey(key, field));
+        return counter != null ? counter.pending() : 0;
+    }
+
+    /**
+     * 立即把所有未刷新的增量写入Redis
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 停止后台刷新并写入剩余增量
+     */
+    public void shutdown() {
+        shutdown = true;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(config.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushLock.lock();
+        try {
+            // 所有计数项转入待刷新列表，一次写完
+            retired.addAll(counters.values());
+            counters.clear();
+            doFlush();
+        } catch (Exception e) {
+            log.error("关闭时刷新计数失败", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void add(CounterKey counterKey, long delta) {
+        if (shutdown) {
+            // 关闭后直接写入，不再缓冲
+            write(counterKey, delta);
+            return;
+        }
+        Counter counter = counters.computeIfAbsent(counterKey, Counter::new);
+        counter.adder.add(delta);
+        if (shutdown) {
+            // 与关闭并发的增量可能错过最后一轮刷新，同步补写
+            flushAfterShutdown(counter);
+            return;
+        }
+        pendingEvents.increment();
+        if (pendingEvents.sum() >= config.getMaxPendingEvents() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (Exception e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 关闭后补写单个计数项，已由最后一轮刷新写入的部分按flushed扣除，不会重复写入
+     */
+    private void flushAfterShutdown(Counter counter) {
+        flushLock.lock();
+        try {
+            long sum = counter.adder.sum();
+            if (sum != counter.flushed) {
+                write(counter.key, sum - counter.flushed);
+                counter.flushed = sum;
+            }
+            counters.remove(counter.key, counter);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("刷新计数失败，增量保留到下一轮", e);
+        }
+    }
+
+    /**
+     * 执行一轮刷新，调用方需持有刷新锁
+     */
+    private void doFlush() {
+        pendingEvents.reset();
+        List<Counter> batch = new ArrayList<>();
+        List<Long> sums = new ArrayList<>();
+
+        // 上一轮移除的计数项经过一个刷新间隔后不会再有写入，做最后一次刷新
+        List<Counter> finished = retired;
+        retired = new ArrayList<>();
+        for (Counter counter : finished) {
+            long sum = counter.adder.sum();
+            if (sum != counter.flushed) {
+                batch.add(counter);
+                sums.add(sum);
+            }
+        }
+
+        for (Counter counter : counters.values()) {
+            long sum = counter.adder.sum();
+            if (sum != counter.flushed) {
+                counter.idleRounds = 0;
+                batch.add(counter);
+                sums.add(sum);
+            } else if (++counter.idleRounds > config.getIdleRounds() && counters.remove(counter.key, counter)) {
+                retired.add(counter);
+            }
+        }
+
+        int batchSize = config.getBatchSize();
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, batch.size());
+            List<Counter> chunk = batch.subList(from, to);
+            List<Long> chunkSums = sums.subList(from, to);
+            List<Object> results;
+            try {
+                results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Counter counter = chunk.get(i);
+                        long delta = chunkSums.get(i) - counter.flushed;
+                        if (counter.key.field() == null) {
+                            stringConnection.incrBy(counter.key.key(), delta);
+                        } else {
+                            stringConnection.hIncrBy(counter.key.key(), counter.key.field(), delta);
+                        }
+                    }
+                    return null;
+                });
+            } catch (RedisPipelineException e) {
+                // 部分命令失败时其余命令已经生效，按每条命令的结果分别处理
+                results = e.getResults();
+            } catch (Exception e) {
+                // 各命令是否生效未知，增量保留在累加器中，已移除的计数项放回待刷新列表
+                chunk.forEach(this::keep);
+                log.error("批量写入计数失败，数量: {}", chunk.size(), e);
+                continue;
+            }
+            if (results.size() != chunk.size()) {
+                chunk.forEach(this::keep);
+                log.error("批量写入计数的结果数量不符，期望: {}，实际: {}", chunk.size(), results.size());
+                continue;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                Counter counter = chunk.get(i);
+                if (results.get(i) instanceof Throwable error) {
+                    fail(counter, chunkSums.get(i), error);
+                } else {
+                    counter.flushed = chunkSums.get(i);
+                    counter.failures = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 命令失败的计数项保留增量，连续失败达到上限时丢弃增量，避免每轮重试同一条坏命令
+     */
+    private void fail(Counter counter, long sum, Throwable error) {
+        if (++counter.failures < config.getMaxFailures()) {
+            keep(counter);
+            log.warn("写入计数失败，增量保留到下一轮: key={}, field={}, {}",
+                    counter.key.key(), counter.key.field(), error.getMessage());
+            return;
+        }
+        log.error("写入计数连续失败{}轮，丢弃未刷新的增量: key={}, field={}, delta={}", counter.failures,
+                counter.key.key(), counter.key.field(), sum - counter.flushed, error);
+        counter.flushed = sum;
+        counter.failures = 0;
+    }
+
+    /**
+     * 保留计数项的增量到下一轮，已从映射中移除的计数项放回待刷新列表
+     */
+    private void keep(Counter counter) {
+        if (counters.get(counter.key) != counter) {
+            retired.add(counter);
+        }
+    }
+
+    private void write(CounterKey counterKey, long delta) {
+        if (counterKey.field() == null) {
+            redisTemplate.opsForValue().increment(counterKey.key(), delta);
+        } else {
+            redisTemplate.opsForHash().increment(counterKey.key(), counterKey.field(), delta);
+        }
+    }
+
+    private static long parse(String value) {
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    /**
+     * 计数项标识，field为null时表示字符串计数
+     */
+    private record CounterKey(String key, String field) {
+    }
+
+    /**
+     * 计数项
+     * 累加器只增不清零，已写入Redis的总量记录在flushed中，两者之差即为未刷新的增量，避免清零时丢失并发写入
+     */
+    private static class Counter {
+        private final CounterKey key;
+        private final LongAdder adder = new LongAdder();
+        private volatile long flushed;
+        private int idleRounds;
+
+        /**
+         * 命令连续失败的轮数，仅刷新线程访问
+         */
+        private int failures;
+
+        private Counter(CounterKey key) {
+            this.key = key;
+        }
+
+        private long pending() {
+            return adder.sum() - flushed;
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package online.yueyun.redis.delay;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.RedisSharedResources;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.script.RedisScriptRegistry;
+import online.yueyun.redis.utils.RedisKeyUtils;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 基于有序集合的延迟任务调度器
+ * <p>
+ * 任务按哈希分散到多个分片，每个分片是一对有序集合：ready保存待执行任务（分数为到期时间），
+ * lease保存已被领取、正在执行的任务（分数为租约到期时间）。每个分片由一个拉取线程通过Lua脚本
+ * 原子地批量领取到期任务并移入lease，执行成功后从lease中删除；执行失败的任务立即、节点宕机的任务在租约到期后
+ * 按指数退避重新放回ready再次执行，实现至少一次语义。累计执行{@code max-attempts}次仍失败的任务移入死信有序集合，
+ * 不再自动执行。
+ * </p>
+ * <p>
+ * 拉取线程空闲时按分片中最早的到期时间在本地时间轮上登记唤醒，本节点新增更早的任务时也会提前唤醒，
+ * 其他节点新增的任务最晚在{@code max-poll-interval}后被发现。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class DelayedTaskScheduler {
+
+    /**
+     * 失败重试的Lua函数：累加任务的失败次数，达到最大执行次数时移入死信集合并返回0，
+     * 否则按指数退避放回ready并返回失败次数。KEYS依次为ready、lease、attempts、dead
+     */
+    private static final String RETRY_FUNCTION =
+            "local function retry(item, now, maxAttempts, backoff, maxBackoff) " +
+            "local attempts = redis.call('HINCRBY', KEYS[3], item, 1) " +
+            "if maxAttempts > 0 and attempts >= maxAttempts then " +
+            "redis.call('HDEL', KEYS[3], item) " +
+            "redis.call('ZADD', KEYS[4], now, item) " +
+            "return 0 end " +
+            "redis.call('ZADD', KEYS[1], now + math.min(maxBackoff, backoff * 2 ^ (attempts - 1)), item) " +
+            "return attempts end ";
+
+    /**
+     * 领取脚本：先将租约过期的任务按失败重试处理，再批量领取到期任务移入lease。
+     * 返回 [任务1, 到期时间1, ..., 下一个任务的到期时间或空串, 放回的任务数, 移入死信的任务数]
+     */
+    private static final RedisScript<List> CLAIM_SCRIPT = RedisScript.of(
+            RETRY_FUNCTION +
+            "local now = tonumber(ARGV[1]) " +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, ARGV[2]) " +
+            "local dead = 0 " +
+            "for _, item in ipairs(expired) do " +
+            "if retry(item, now, tonumber(ARGV[4]), tonumber(ARGV[5]), tonumber(ARGV[6])) == 0 then " +
+            "dead = dead + 1 end end " +
+            "if #expired > 0 then redis.call('ZREM', KEYS[2], unpack(expired)) end " +
+            "local items = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'WITHSCORES', 'LIMIT', 0, ARGV[2]) " +
+            "for i = 1, #items, 2 do " +
+            "redis.call('ZREM', KEYS[1], items[i]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[3], items[i]) end " +
+            "local nextItem = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES') " +
+            "items[#items + 1] = nextItem[2] or '' " +
+            "items[#items + 1] = tostring(#expired - dead) " +
+            "items[#items + 1] = tostring(dead) " +
+            "return items", List.class);
+
+    /**
+     * 失败脚本：任务仍在lease中时移出并按失败重试处理，已不在lease中（例如租约已过期被放回）时返回-1
+     */
+    private static final RedisScript<Long> FAIL_SCRIPT = RedisScript.of(
+            RETRY_FUNCTION +
+            "if redis.call('ZREM', KEYS[2], ARGV[1]) == 0 then return -1 end " +
+            "return retry(ARGV[1], tonumber(ARGV[2]), tonumber(ARGV[3]), tonumber(ARGV[4]), tonumber(ARGV[5]))",
+            Long.class);
+
+    private static final String CLAIM_SCRIPT_NAME = "delay-claim";
+
+    private static final String FAIL_SCRIPT_NAME = "delay-fail";
+
+    /**
+     * 指标名称
+     */
+    private static final String METRIC_TASKS = "yueyun.redis.delay.tasks";
+
+    private static final String METRIC_LAG = "yueyun.redis.delay.lag";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.Delay config;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 唤醒拉取线程的时间轮
+     */
+    private final HashedWheelTimer wheel;
+
+    /**
+     * 时间轮是否由本类创建
+     */
+    private final boolean ownWheel;
+
+    /**
+     * 任务处理线程池
+     */
+    private final ThreadPoolExecutor handlerExecutor;
+
+    /**
+     * 队列名称到各分片拉取器的映射
+     */
+    private final Map<String, ShardPoller[]> pollers = new ConcurrentHashMap<>();
+
+    /**
+     * 脚本注册表，设置后领取脚本随注册表预加载并记录执行耗时
+     */
+    private volatile RedisScriptRegistry scriptRegistry;
+
+    private volatile boolean running = true;
+
+    public DelayedTaskScheduler(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties,
+                                RedisSharedResources sharedResources, MeterRegistry meterRegistry) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getDelay();
+        this.meterRegistry = meterRegistry;
+        if (sharedResources != null) {
+            this.wheel = sharedResources.getTimer();
+            this.ownWheel = false;
+        } else {
+            this.wheel = new HashedWheelTimer(new DefaultThreadFactory("redis-delay-wheel", true),
+                    config.getWheelTick().toMillis(), TimeUnit.MILLISECONDS);
+            this.ownWheel = true;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-delay-handler-");
+        threadFactory.setDaemon(true);
+        int threads = config.getHandlerThreads();
+        this.handlerExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getHandlerQueueCapacity()), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.handlerExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 设置脚本注册表，注册延迟任务领取脚本
+     *
+     * @param scriptRegistry 脚本注册表
+     */
+    public void setScriptRegistry(RedisScriptRegistry scriptRegistry) {
+        if (scriptRegistry != null) {
+            scriptRegistry.register(CLAIM_SCRIPT_NAME, CLAIM_SCRIPT);
+            scriptRegistry.register(FAIL_SCRIPT_NAME, FAIL_SCRIPT);
+        }
+        this.scriptRegistry = scriptRegistry;
+    }
+
+    /**
+     * 添加延迟任务，相同内容的任务只保留一个，重复添加会更新到期时间
+     *
+     * @param queue 队列名称
+     * @param task 任务内容，需能唯一标识任务，例如业务ID
+     * @param delay 延迟时间
+     */
+    public void schedule(String queue, String task, Duration delay) {
+        scheduleAt(queue, task, System.currentTimeMillis() + delay.toMillis());
+    }
+
+    /**
+     * 添加在指定时间执行的任务
+     *
+     * @param queue 队列名称
+     * @param task 任务内容
+     * @param dueTime 到期时间戳（毫秒）
+     */
+    public void scheduleAt(String queue, String task, long dueTime) {
+        int shard = shardOf(task);
+        redisTemplate.opsForZSet().add(readyKey(queue, shard), task, dueTime);
+        count(queue, shard, "scheduled", 1);
+        ShardPoller[] shardPollers = pollers.get(queue);
+        if (shardPollers != null) {
+            shardPollers[shard].wakeAt(dueTime);
+        }
+    }
+
+    /**
+     * 取消尚未被领取的任务
+     *
+     * @param queue 队列名称
+     * @param task 任务内容
+     * @return 是否取消成功
+     */
+    public boolean cancel(String queue, String task) {
+        int shard = shardOf(task);
+        Long removed = redisTemplate.opsForZSet().remove(readyKey(queue, shard), task);
+        if (removed == null || removed == 0) {
+            return false;
+        }
+        redisTemplate.opsForHash().delete(attemptsKey(queue, shard), task);
+        return true;
+    }
+
+    /**
+     * 注册任务处理器，为队列的每个分片启动一个拉取线程
+     *
+     * @param queue 队列名称
+     * @param handler 任务处理器，抛出异常的任务按指数退避重新执行，达到最大执行次数后移入死信集合
+     */
+    public void register(String queue, Consumer<String> handler) {
+        ShardPoller[] shardPollers = new ShardPoller[config.getShards()];
+        for (int shard = 0; shard < shardPollers.length; shard++) {
+            shardPollers[shard] = new ShardPoller(queue, shard, handler);
+        }
+        if (pollers.putIfAbsent(queue, shardPollers) != null) {
+            throw new IllegalStateException("延迟队列已注册处理器: " + queue);
+        }
+        for (ShardPoller poller : shardPollers) {
+            poller.thread.start();
+        }
+        log.info("注册延迟队列处理器，queue: {}, shards: {}", queue, shardPollers.length);
+    }
+
+    /**
+     * 获取队列各分片的待执行任务数
+     *
+     * @param queue 队列名称
+     * @return 各分片的任务数
+     */
+    public long[] backlog(String queue) {
+        long[] result = new long[config.getShards()];
+        for (int shard = 0; shard < result.length; shard++) {
+            Long size = redisTemplate.opsForZSet().zCard(readyKey(queue, shard));
+            result[shard] = size != null ? size : 0;
+        }
+        return result;
+    }
+
+    /**
+     * 获取队列中达到最大执行次数的死信任务，按移入时间从早到晚排列
+     *
+     * @param queue 队列名称
+     * @param limit 每个分片最多返回的任务数
+     * @return 死信任务
+     */
+    public List<String> deadLetters(String queue, int limit) {
+        List<String> result = new ArrayList<>();
+        for (int shard = 0; shard < config.getShards(); shard++) {
+            Set<String> tasks = redisTemplate.opsForZSet().range(deadKey(queue, shard), 0, limit - 1L);
+            if (tasks != null) {
+                result.addAll(tasks);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将死信任务重新放回队列立即执行，执行次数重新计算
+     *
+     * @param queue 队列名称
+     * @param task 任务内容
+     * @return 任务是否在死信集合中
+     */
+    public boolean redeliver(String queue, String task) {
+        Long removed = redisTemplate.opsForZSet().remove(deadKey(queue, shardOf(task)), task);
+        if (removed == null || removed == 0) {
+            return false;
+        }
+        scheduleAt(queue, task, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * 关闭调度器
+     */
+    public void shutdown() {
+        running = false;
+        pollers.values().forEach(shardPollers -> Arrays.stream(shardPollers).forEach(ShardPoller::wake));
+        handlerExecutor.shutdown();
+        try {
+            handlerExecutor.awaitTermination(config.getLease().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pollers.values().forEach(shardPollers -> Arrays.stream(shardPollers).forEach(ShardPoller::flushAcks));
+        if (ownWheel) {
+            wheel.stop();
+        }
+    }
+
+    /**
+     * 执行领取脚本，设置了脚本注册表时通过注册表执行
+     */
+    @SuppressWarnings("rawtypes")
+    private List<?> claim(List<String> keys, Object... args) {
+        RedisScriptRegistry registry = scriptRegistry;
+        if (registry != null) {
+            return registry.execute(redisTemplate, CLAIM_SCRIPT_NAME, List.class, keys, args);
+        }
+        return redisTemplate.execute(CLAIM_SCRIPT, keys, args);
+    }
+
+    private int shardOf(String task) {
+        int hash = task.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % config.getShards();
+    }
+
+    /**
+     * 分片的ready和lease使用相同的哈希标签，保证Lua脚本中的两个键位于同一个哈希槽
+     */
+    private String readyKey(String queue, int shard) {
+        return config.getKeyPrefix() + RedisKeyUtils.hashTag(queue + ":" + shard) + ":ready";
+    }
+
+    private String leaseKey(String queue, int shard) {
+        return config.getKeyPrefix() + RedisKeyUtils.hashTag(queue + ":" + shard) + ":lease";
+    }
+
+    /**
+     * 分片中各任务的失败次数，任务完成、取消或移入死信时删除
+     */
+    private String attemptsKey(String queue, int shard) {
+        return config.getKeyPrefix() + RedisKeyUtils.hashTag(queue + ":" + shard) + ":attempts";
+    }
+
+    private String deadKey(String queue, int shard) {
+        return config.getKeyPrefix() + RedisKeyUtils.hashTag(queue + ":" + shard) + ":dead";
+    }
+
+    /**
+     * 失败重试的脚本参数：当前时间、最大执行次数、初始退避和最大退避（毫秒）
+     */
+    private Object[] retryArgs(long now) {
+        return new Object[]{String.valueOf(now), String.valueOf(config.getMaxAttempts()),
+                String.valueOf(config.getRetryBackoff().toMillis()), String.valueOf(config.getMaxRetryBackoff().toMillis())};
+    }
+
+    private void count(String queue, int shard, String event, long amount) {
+        if (meterRegistry != null && amount > 0) {
+            Counter.builder(METRIC_TASKS)
+                    .tag("queue", queue)
+                    .tag("shard", String.valueOf(shard))
+                    .tag("event", event)
+                    .register(meterRegistry)
+                    .increment(amount);
+        }
+    }
+
+    /**
+     * 单个分片的拉取器
+     */
+    private class ShardPoller implements Runnable {
+        private final String queue;
+        private final int shard;
+        private final Consumer<String> handler;
+        private final String readyKey;
+        private final String leaseKey;
+        private final String attemptsKey;
+        private final List<String> keys;
+        private final Thread thread;
+        private final Timer lagTimer;
+
+        /**
+         * 执行成功、等待从lease中删除的任务
+         */
+        private final Queue<String> completed = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 已在时间轮上登记的最早唤醒时间
+         */
+        private volatile long wakeAt = Long.MAX_VALUE;
+
+        private ShardPoller(String queue, int shard, Consumer<String> handler) {
+            this.queue = queue;
+            this.shard = shard;
+            this.handler = handler;
+            this.readyKey = readyKey(queue, shard);
+            this.leaseKey = leaseKey(queue, shard);
+            this.attemptsKey = attemptsKey(queue, shard);
+            this.keys = List.of(readyKey, leaseKey, attemptsKey, deadKey(queue, shard));
+            this.thread = new Thread(this, "redis-delay-poller-" + queue + "-" + shard);
+            this.thread.setDaemon(true);
+            this.lagTimer = meterRegistry == null ? null : Timer.builder(METRIC_LAG)
+                    .tag("queue", queue)
+                    .tag("shard", String.valueOf(shard))
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void run() {
+            int batch = config.getBatchSize();
+            long maxPollInterval = config.getMaxPollInterval().toMillis();
+            while (running) {
+                long next;
+                int claimed;
+                try {
+                    flushAcks();
+                    long now = System.currentTimeMillis();
+                    Object[] retryArgs = retryArgs(now);
+                    List<?> result = claim(keys, retryArgs[0], String.valueOf(batch),
+                            String.valueOf(now + config.getLease().toMillis()), retryArgs[1], retryArgs[2], retryArgs[3]);
+                    claimed = dispatch(result, now);
+                    String nextScore = String.valueOf(result.get(result.size() - 3));
+                    next = nextScore.isEmpty() ? Long.MAX_VALUE : (long) Double.parseDouble(nextScore);
+                    count(queue, shard, "requeued", Long.parseLong(String.valueOf(result.get(result.size() - 2))));
+                    count(queue, shard, "dead", Long.parseLong(String.valueOf(result.get(result.size() - 1))));
+                } catch (Exception e) {
+                    if (!running) {
+                        break;
+                    }
+                    log.error("领取延迟任务失败，queue: {}, shard: {}", queue, shard, e);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(maxPollInterval));
+                    continue;
+                }
+                if (claimed >= batch) {
+                    // 可能还有到期任务，立即继续领取
+                    continue;
+                }
+                long now = System.currentTimeMillis();
+                long sleep = Math.min(maxPollInterval, Math.max(0, next - now));
+                if (sleep > 0) {
+                    if (next - now < maxPollInterval) {
+                        wakeAt(next);
+                    }
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(sleep));
+                    wakeAt = Long.MAX_VALUE;
+                }
+            }
+        }
+
+        /**
+         * 分发领取到的任务
+         *
+         * @return 领取到的任务数
+         */
+        private int dispatch(List<?> result, long now) {
+            int claimed = (result.size() - 3) / 2;
+            for (int i = 0; i + 1 < result.size() - 3; i += 2) {
+                String task = String.valueOf(result.get(i));
+                long due = (long) Double.parseDouble(String.valueOf(result.get(i + 1)));
+                if (lagTimer != null) {
+                    lagTimer.record(Math.max(0, now - due), TimeUnit.MILLISECONDS);
+                }
+                handlerExecutor.execute(() -> handle(task));
+            }
+            count(queue, shard, "claimed", claimed);
+            return claimed;
+        }
+
+        private void handle(String task) {
+            try {
+                handler.accept(task);
+                completed.add(task);
+            } catch (Exception e) {
+                count(queue, shard, "failed", 1);
+                log.error("执行延迟任务失败，queue: {}, task: {}", queue, task, e);
+                retry(task);
+            }
+        }
+
+        /**
+         * 将失败的任务按退避时间放回ready，达到最大执行次数时移入死信集合；
+         * 脚本执行失败时任务留在lease中，租约到期后由领取脚本处理
+         */
+        private void retry(String task) {
+            try {
+                Object[] args = retryArgs(System.currentTimeMillis());
+                RedisScriptRegistry registry = scriptRegistry;
+                Long attempts = registry != null
+                        ? registry.execute(redisTemplate, FAIL_SCRIPT_NAME, Long.class, keys, task, args[0], args[1],
+                                args[2], args[3])
+                        : redisTemplate.execute(FAIL_SCRIPT, keys, task, args[0], args[1], args[2], args[3]);
+                if (attempts != null && attempts == 0) {
+                    count(queue, shard, "dead", 1);
+                    log.warn("延迟任务达到最大执行次数，移入死信集合，queue: {}, task: {}", queue, task);
+                } else if (attempts != null && attempts > 0) {
+                    count(queue, shard, "requeued", 1);
+                }
+            } catch (Exception e) {
+                log.error("放回失败的延迟任务失败，queue: {}, task: {}", queue, task, e);
+            }
+        }
+
+        /**
+         * 批量从lease中删除已完成的任务
+         */
+        private void flushAcks() {
+            List<String> tasks = new ArrayList<>();
+            String task;
+            while ((task = completed.poll()) != null) {
+                tasks.add(task);
+            }
+            if (!tasks.isEmpty()) {
+                String[] members = tasks.toArray(new String[0]);
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    stringConnection.zRem(leaseKey, members);
+                    stringConnection.hDel(attemptsKey, members);
+                    return null;
+                });
+                count(queue, shard, "completed", tasks.size());
+            }
+        }
+
+        /**
+         * 在时间轮上登记唤醒，已登记的唤醒时间更早时忽略
+         */
+        private void wakeAt(long time) {
+            if (time >= wakeAt) {
+                return;
+            }
+            wakeAt = time;
+            long delay = Math.max(0, time - System.currentTimeMillis());
+            if (delay == 0) {
+                wake();
+            } else {
+                wheel.newTimeout(timeout -> wake(), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void wake() {
+            LockSupport.unpark(thread);
+        }
+    }
+}
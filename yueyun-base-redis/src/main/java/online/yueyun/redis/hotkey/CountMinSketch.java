@@ -0,0 +1,116 @@
+package online.yueyun.redis.hotkey;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch
+ * 以固定内存估算任意多个key的访问次数，估算值只会偏大不会偏小；
+ * 每行使用不同种子的MurmurHash3定位计数器，行与行之间的冲突相互独立
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class CountMinSketch {
+
+    /**
+     * 各行哈希种子的间隔
+     */
+    private static final int SEED_STEP = 0x9E3779B9;
+
+    /**
+     * 哈希函数个数（行数）
+     */
+    private final int depth;
+
+    /**
+     * 每行计数器个数，2的幂
+     */
+    private final int width;
+
+    /**
+     * 计数器，按行连续存放
+     */
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int depth, int width) {
+        this.depth = Math.max(1, depth);
+        this.width = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.counters = new AtomicLongArray(this.depth * this.width);
+    }
+
+    /**
+     * 增加key的计数
+     *
+     * @param key 键
+     * @param weight 增加的次数
+     * @return 增加后的估算次数
+     */
+    public long add(String key, long weight) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.addAndGet(index(i, key), weight));
+        }
+        return min;
+    }
+
+    /**
+     * 估算key的访问次数
+     *
+     * @param key 键
+     * @return 估算次数
+     */
+    public long estimate(String key) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, counters.get(index(i, key)));
+        }
+        return min;
+    }
+
+    /**
+     * 所有计数减半，使历史访问逐步衰减
+     */
+    public void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value = counters.get(i);
+            if (value != 0) {
+                counters.set(i, value >>> 1);
+            }
+        }
+    }
+
+    /**
+     * 计算第row行的计数器下标
+     */
+    private int index(int row, String key) {
+        return row * width + (murmur3(key, (row + 1) * SEED_STEP) & (width - 1));
+    }
+
+    /**
+     * 32位MurmurHash3，按UTF-16字符计算，每两个字符组成一个块
+     */
+    private static int murmur3(String key, int seed) {
+        int h = seed;
+        int length = key.length();
+        for (int i = 1; i < length; i += 2) {
+            h ^= mixK(key.charAt(i - 1) | (key.charAt(i) << 16));
+            h = Integer.rotateLeft(h, 13) * 5 + 0xE6546B64;
+        }
+        if ((length & 1) == 1) {
+            h ^= mixK(key.charAt(length - 1));
+        }
+        h ^= length * 2;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        k *= 0xCC9E2D51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1B873593;
+    }
+}
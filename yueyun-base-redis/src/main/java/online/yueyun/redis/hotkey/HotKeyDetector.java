@@ -0,0 +1,390 @@
+package online.yueyun.redis.hotkey;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.*;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * 热点key探测器
+ * <p>
+ * 读取时对key进行采样计数（Count-Min Sketch），并维护访问次数最多的前K个key。
+ * 统计窗口内访问次数超过阈值的key被标记为热点，其值自动复制到短时效的本地缓存，
+ * 后续读取直接命中本地，不再访问Redis。每个窗口结束时将本节点的热点统计上报到Redis有序集合，
+ * 便于查看整个集群的热点分布。
+ * </p>
+ * <p>
+ * 前K个key由每个线程各自维护，读取路径上只有本线程的缓冲区加锁，窗口结束时合并各线程的结果。
+ * 上报的有序集合按时间段划分key，每次上报后裁剪到{@code report-max-keys}个，过期的时间段整体删除。
+ * </p>
+ * <p>
+ * 本地缓存只在本节点写入时失效，其他节点的写入要等本地缓存过期后才可见，过期时间应按业务可接受的延迟设置。
+ * 失效时递增key所在分段的版本号，读取期间版本号发生变化的值不会写入本地缓存，
+ * 避免与写入并发的读取把旧值放回本地缓存。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class HotKeyDetector {
+
+    /**
+     * 失效版本号的分段数，2的幂
+     */
+    private static final int INVALIDATION_STRIPES = 256;
+
+    private final YueyunRedisProperties.HotKey config;
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 当前窗口的访问计数
+     */
+    private final CountMinSketch sketch;
+
+    /**
+     * 当前线程的前K个key缓冲区
+     */
+    private final ThreadLocal<TopKeyBuffer> topBuffer = ThreadLocal.withInitial(this::newTopBuffer);
+
+    /**
+     * 所有线程的前K个key缓冲区，窗口结束时合并，线程结束后移除
+     */
+    private final Queue<TopKeyBuffer> topBuffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 当前热点key
+     */
+    private final Set<String> hotKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 热点key的本地副本
+     */
+    private final Map<String, LocalValue> localCache = new ConcurrentHashMap<>();
+
+    /**
+     * 本地副本失效版本号，按key哈希分段
+     */
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    /**
+     * 上一个窗口的前K个key快照
+     */
+    private volatile List<KeyCount> lastTopKeys = Collections.emptyList();
+
+    private final ScheduledExecutorService scheduler;
+
+    public HotKeyDetector(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.config = properties.getHotKey();
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.sketch = new CountMinSketch(config.getSketchDepth(), config.getSketchWidth());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-hotkey-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long window = config.getWindow().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::rollWindow, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 读取key，热点key优先从本地缓存读取
+     *
+     * @param key 键
+     * @param loader 从Redis读取的函数
+     * @return 值
+     */
+    public Object read(String key, Supplier<Object> loader) {
+        record(key);
+        LocalValue local = localCache.get(key);
+        if (local != null) {
+            if (local.expiresAt > System.currentTimeMillis()) {
+                return local.value;
+            }
+            localCache.remove(key, local);
+        }
+        int stripe = stripe(key);
+        long version = invalidations.get(stripe);
+        Object value = loader.get();
+        if (value != null && hotKeys.contains(key) && localCache.size() < config.getLocalCacheMaxSize()) {
+            // 在compute内比较版本号，与invalidate中的remove互斥，读取期间发生过失效则不缓存
+            long expiresAt = System.currentTimeMillis() + config.getLocalCacheTtl().toMillis();
+            localCache.compute(key, (k, current) ->
+                    invalidations.get(stripe) == version ? new LocalValue(value, expiresAt) : current);
+        }
+        return value;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 键
+     */
+    public void record(String key) {
+        double sampleRate = config.getSampleRate();
+        long weight = 1;
+        if (sampleRate < 1.0) {
+            if (ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return;
+            }
+            weight = Math.round(1 / sampleRate);
+        }
+        long count = sketch.add(key, weight);
+        if (count >= config.getThreshold() && hotKeys.add(key)) {
+            log.info("发现热点key: {}, 窗口内访问次数: {}", key, count);
+        }
+        TopKeyBuffer buffer = topBuffer.get();
+        if (count > buffer.floor) {
+            buffer.offer(key, count, config.getTopK());
+        }
+    }
+
+    /**
+     * 使本地副本失效，本节点写入或删除key时在写入前后各调用一次
+     *
+     * @param key 键
+     */
+    public void invalidate(String key) {
+        invalidations.incrementAndGet(stripe(key));
+        localCache.remove(key);
+    }
+
+    /**
+     * 判断key当前是否为热点
+     *
+     * @param key 键
+     * @return 是否为热点
+     */
+    public boolean isHot(String key) {
+        return hotKeys.contains(key);
+    }
+
+    /**
+     * 获取当前的热点key
+     */
+    public Set<String> getHotKeys() {
+        return Collections.unmodifiableSet(hotKeys);
+    }
+
+    /**
+     * 获取本节点上一个窗口访问次数最多的key
+     */
+    public List<KeyCount> getTopKeys() {
+        return lastTopKeys;
+    }
+
+    /**
+     * 获取本地缓存的热点key数量
+     */
+    public int getLocalCacheSize() {
+        return localCache.size();
+    }
+
+    /**
+     * 获取集群范围内上报次数最多的key
+     *
+     * @param limit 返回数量
+     * @return key及其累计访问次数，按次数降序
+     */
+    public List<KeyCount> getClusterTopKeys(int limit) {
+        // 合并当前和上一个时间段，两段各取前limit个后相加
+        long period = currentReportPeriod();
+        Map<String, Long> counts = new HashMap<>();
+        for (long p = period - 1; p <= period; p++) {
+            Set<TypedTuple<String>> tuples = redisTemplate.opsForZSet().reverseRangeWithScores(reportKey(p), 0, limit - 1);
+            if (tuples != null) {
+                for (TypedTuple<String> tuple : tuples) {
+                    long score = tuple.getScore() != null ? tuple.getScore().longValue() : 0;
+                    counts.merge(tuple.getValue(), score, Long::sum);
+                }
+            }
+        }
+        List<KeyCount> result = new ArrayList<>();
+        counts.forEach((key, count) -> result.add(new KeyCount(key, count)));
+        result.sort(Comparator.comparingLong(KeyCount::getCount).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 关闭探测器
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        localCache.clear();
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (INVALIDATION_STRIPES - 1);
+    }
+
+    private TopKeyBuffer newTopBuffer() {
+        TopKeyBuffer buffer = new TopKeyBuffer(Thread.currentThread());
+        topBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * 合并各线程的前K个key，同一个key取各线程观察到的最大计数，并移除已结束线程的缓冲区
+     */
+    private List<KeyCount> drainTopKeys() {
+        Map<String, Long> merged = new HashMap<>();
+        for (TopKeyBuffer buffer : topBuffers) {
+            for (KeyCount entry : buffer.drain()) {
+                merged.merge(entry.key, entry.count, Math::max);
+            }
+            Thread owner = buffer.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                topBuffers.remove(buffer);
+            }
+        }
+        List<KeyCount> top = new ArrayList<>(merged.size());
+        merged.forEach((key, count) -> top.add(new KeyCount(key, count)));
+        top.sort(Comparator.comparingLong(KeyCount::getCount).reversed());
+        return top.size() > config.getTopK() ? new ArrayList<>(top.subList(0, config.getTopK())) : top;
+    }
+
+    /**
+     * 窗口结束：上报统计、重新判定热点、衰减计数、清理过期的本地副本
+     */
+    private void rollWindow() {
+        try {
+            List<KeyCount> top = drainTopKeys();
+            lastTopKeys = Collections.unmodifiableList(top);
+
+            // 上个窗口未达到阈值的key不再视为热点
+            Set<String> stillHot = new HashSet<>();
+            top.stream().filter(entry -> entry.count >= config.getThreshold()).forEach(entry -> stillHot.add(entry.key));
+            hotKeys.retainAll(stillHot);
+            sketch.decay();
+
+            long now = System.currentTimeMillis();
+            localCache.entrySet().removeIf(entry -> entry.getValue().expiresAt <= now || !hotKeys.contains(entry.getKey()));
+
+            report(top);
+        } catch (Exception e) {
+            log.warn("热点key窗口统计失败", e);
+        }
+    }
+
+    /**
+     * 将本节点的热点统计上报到当前时间段的Redis有序集合，并裁剪到最多report-max-keys个key
+     */
+    private void report(List<KeyCount> top) {
+        if (top.isEmpty() || !config.isReportEnabled()) {
+            return;
+        }
+        String reportKey = reportKey(currentReportPeriod());
+        long ttl = config.getReportTtl().getSeconds() * 2;
+        long maxKeys = Math.max(1, config.getReportMaxKeys());
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (KeyCount entry : top) {
+                stringConnection.zIncrBy(reportKey, entry.count, entry.key);
+            }
+            // 按分数升序排列，删除排名在前maxKeys之外的低频key
+            stringConnection.zRemRange(reportKey, 0, -maxKeys - 1);
+            stringConnection.expire(reportKey, ttl);
+            return null;
+        });
+    }
+
+    private long currentReportPeriod() {
+        return System.currentTimeMillis() / Math.max(1, config.getReportTtl().toMillis());
+    }
+
+    private String reportKey(long period) {
+        return config.getReportKey() + ":" + period;
+    }
+
+    /**
+     * key及其访问次数
+     */
+    public static class KeyCount {
+        private final String key;
+        private long count;
+
+        public KeyCount(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * 单个线程的前K个key，最小堆；只有所属线程写入，窗口结束时由统计线程取走，锁基本无竞争
+     */
+    private static class TopKeyBuffer {
+        private final WeakReference<Thread> owner;
+        private final PriorityQueue<KeyCount> heap = new PriorityQueue<>(Comparator.comparingLong(KeyCount::getCount));
+        private final Map<String, KeyCount> index = new HashMap<>();
+
+        /**
+         * 进入前K所需的最小访问次数，无锁读取用于过滤绝大多数冷key
+         */
+        private volatile long floor;
+
+        private TopKeyBuffer(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        private synchronized void offer(String key, long count, int topK) {
+            KeyCount existing = index.get(key);
+            if (existing != null) {
+                heap.remove(existing);
+                existing.count = count;
+                heap.offer(existing);
+            } else {
+                KeyCount entry = new KeyCount(key, count);
+                heap.offer(entry);
+                index.put(key, entry);
+                if (heap.size() > topK) {
+                    index.remove(heap.poll().key);
+                }
+            }
+            floor = heap.size() >= topK ? heap.peek().count : 0;
+        }
+
+        private synchronized List<KeyCount> drain() {
+            List<KeyCount> entries = new ArrayList<>(heap);
+            heap.clear();
+            index.clear();
+            floor = 0;
+            return entries;
+        }
+    }
+
+    /**
+     * 本地副本
+     */
+    private static class LocalValue {
+        private final Object value;
+        private final long expiresAt;
+
+        private LocalValue(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package online.yueyun.redis.hotkey;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 热点key监控端点
+ * 访问路径：/actuator/redishotkeys
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Endpoint(id = "redishotkeys")
+@RequiredArgsConstructor
+public class HotKeyEndpoint {
+
+    private final HotKeyDetector hotKeyDetector;
+
+    /**
+     * 查看本节点和集群范围的热点key
+     */
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hotKeys", hotKeyDetector.getHotKeys());
+        result.put("localCacheSize", hotKeyDetector.getLocalCacheSize());
+        result.put("topKeys", hotKeyDetector.getTopKeys());
+        result.put("clusterTopKeys", hotKeyDetector.getClusterTopKeys(hotKeyDetector.getTopKeys().size() + 20));
+        return result;
+    }
+}
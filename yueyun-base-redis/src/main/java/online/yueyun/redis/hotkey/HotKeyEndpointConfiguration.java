@@ -0,0 +1,27 @@
+package online.yueyun.redis.hotkey;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 热点key监控端点配置
+ * 仅在引入spring-boot-actuator且开启热点探测时生效
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnProperty(prefix = "spring.data.redis.hot-key", name = "enabled", havingValue = "true")
+public class HotKeyEndpointConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(HotKeyEndpoint.class)
+    public HotKeyEndpoint hotKeyEndpoint(HotKeyDetector hotKeyDetector) {
+        return new HotKeyEndpoint(hotKeyDetector);
+    }
+}
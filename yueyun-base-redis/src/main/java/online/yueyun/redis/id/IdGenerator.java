@@ -0,0 +1,18 @@
+package online.yueyun.redis.id;
+
+/**
+ * ID生成器
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+    /**
+     * 生成下一个ID
+     *
+     * @return ID
+     */
+    long nextId();
+}
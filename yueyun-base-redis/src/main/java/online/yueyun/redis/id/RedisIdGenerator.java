@@ -0,0 +1,103 @@
+package online.yueyun.redis.id;
+
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 分布式ID服务
+ * 提供按业务标签划分的号段ID和按时间有序的雪花ID，两者均为64位整数，适合作为数据库主键或唯一索引
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class RedisIdGenerator {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.Id config;
+
+    /**
+     * 号段预取和机器号续期共用的后台线程
+     */
+    private final ScheduledExecutorService executor;
+
+    private final Map<String, SegmentIdGenerator> segments = new ConcurrentHashMap<>();
+
+    private volatile SnowflakeIdGenerator snowflake;
+
+    public RedisIdGenerator(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getId();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-id-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newScheduledThreadPool(1, threadFactory);
+    }
+
+    /**
+     * 生成号段ID，同一业务标签的ID全局唯一
+     *
+     * @param bizTag 业务标签
+     * @return ID
+     */
+    public long nextId(String bizTag) {
+        return segment(bizTag).nextId();
+    }
+
+    /**
+     * 生成雪花ID
+     *
+     * @return ID
+     */
+    public long nextSnowflakeId() {
+        return snowflake().nextId();
+    }
+
+    /**
+     * 获取业务标签对应的号段ID生成器
+     *
+     * @param bizTag 业务标签
+     * @return ID生成器
+     */
+    public IdGenerator segment(String bizTag) {
+        return segments.computeIfAbsent(bizTag, tag -> new SegmentIdGenerator(redisTemplate,
+                config.getKeyPrefix() + "segment:" + tag, config.getSegmentStep(), config.getPrefetchRatio(), executor));
+    }
+
+    /**
+     * 获取雪花ID生成器，首次使用时租借机器号
+     *
+     * @return ID生成器
+     */
+    public IdGenerator snowflake() {
+        SnowflakeIdGenerator generator = snowflake;
+        if (generator == null) {
+            synchronized (this) {
+                generator = snowflake;
+                if (generator == null) {
+                    generator = new SnowflakeIdGenerator(redisTemplate, config.getKeyPrefix(),
+                            config.getSnowflakeEpoch(), config.getWorkerLeaseTtl(), executor);
+                    snowflake = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    /**
+     * 关闭ID服务，释放机器号
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        SnowflakeIdGenerator generator = snowflake;
+        if (generator != null) {
+            generator.release();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package online.yueyun.redis.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段ID生成器
+ * <p>
+ * 通过INCRBY从Redis一次租借一个号段，号段内的ID在本地无锁分配；
+ * 当前号段剩余比例低于阈值时异步预取下一个号段，号段切换时通常无需等待Redis。
+ * 生成的ID全局唯一且单调递增（同一节点内），多个节点之间按号段交错递增。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class SegmentIdGenerator implements IdGenerator {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String key;
+
+    private final long step;
+
+    /**
+     * 剩余ID数低于该值时预取下一个号段
+     */
+    private final long prefetchThreshold;
+
+    private final Executor prefetchExecutor;
+
+    private volatile Segment current;
+
+    /**
+     * 预取中或已预取的下一个号段
+     */
+    private volatile CompletableFuture<Segment> next;
+
+    public SegmentIdGenerator(StringRedisTemplate redisTemplate, String key, long step, double prefetchRatio,
+                              Executor prefetchExecutor) {
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.step = step;
+        this.prefetchThreshold = Math.max(1, (long) (step * prefetchRatio));
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            Segment segment = current;
+            if (segment != null) {
+                long id = segment.cursor.getAndIncrement();
+                if (id <= segment.max) {
+                    if (segment.max - id == prefetchThreshold) {
+                        prefetch();
+                    }
+                    return id;
+                }
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 异步预取下一个号段
+     */
+    private synchronized void prefetch() {
+        if (next == null) {
+            next = CompletableFuture.supplyAsync(this::lease, prefetchExecutor);
+        }
+    }
+
+    /**
+     * 当前号段用完时切换到下一个号段，只有一个线程执行切换
+     */
+    private synchronized void switchSegment(Segment exhausted) {
+        if (current != exhausted) {
+            return;
+        }
+        CompletableFuture<Segment> prefetched = next;
+        next = null;
+        Segment segment = null;
+        if (prefetched != null) {
+            try {
+                segment = prefetched.join();
+            } catch (Exception e) {
+                log.warn("预取号段失败，同步重新获取，key: {}", key, e);
+            }
+        }
+        current = segment != null ? segment : lease();
+    }
+
+    /**
+     * 从Redis租借一个号段
+     */
+    private Segment lease() {
+        Long max = redisTemplate.opsForValue().increment(key, step);
+        if (max == null) {
+            throw new IllegalStateException("获取号段失败: " + key);
+        }
+        return new Segment(max - step + 1, max);
+    }
+
+    /**
+     * 号段
+     */
+    private static class Segment {
+        private final AtomicLong cursor;
+        private final long max;
+
+        private Segment(long start, long max) {
+            this.cursor = new AtomicLong(start);
+            this.max = max;
+        }
+    }
+}
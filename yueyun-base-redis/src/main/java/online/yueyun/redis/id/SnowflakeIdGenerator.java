@@ -0,0 +1,204 @@
+package online.yueyun.redis.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花ID生成器
+ * <p>
+ * 64位ID由41位时间戳（相对纪元的毫秒数）、10位机器号和12位序列号组成，按时间有序。
+ * 机器号从Redis中带过期时间租借，并定期续期，避免多个节点使用相同的机器号。
+ * 本地按发起租借或续期的时间加过期时间再减去安全余量记录租约截止时间，续期停顿超过截止时间后拒绝生成ID，
+ * 防止租约在Redis中过期、机器号被其他节点租走后产生重复ID。
+ * 时间戳与序列号合并为一个原子变量，通过CAS无锁分配；同一毫秒内序列号用完或时钟回拨时，
+ * 继续在上一个时间戳上递增（借用后续毫秒），不会阻塞调用线程。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    private static final int WORKER_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int MAX_WORKERS = 1 << WORKER_BITS;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 本地租约截止时间相对过期时间预留的比例，抵消网络往返和两端计时误差
+     */
+    private static final int SAFETY_MARGIN_DIVISOR = 10;
+
+    /**
+     * 续期脚本：值匹配时刷新过期时间
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    /**
+     * 释放脚本：值匹配时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String keyPrefix;
+
+    private final long epoch;
+
+    private final Duration leaseTtl;
+
+    /**
+     * 机器号租约的值，唯一标识本实例
+     */
+    private final String leaseValue = UUID.randomUUID().toString();
+
+    /**
+     * 高位为时间戳，低12位为序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 当前租约，机器号与本地截止时间一起替换
+     */
+    private volatile WorkerLease lease = WorkerLease.NONE;
+
+    public SnowflakeIdGenerator(StringRedisTemplate redisTemplate, String keyPrefix, long epoch, Duration leaseTtl,
+                                ScheduledExecutorService renewScheduler) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.epoch = epoch;
+        this.leaseTtl = leaseTtl;
+        acquireWorkerId();
+        long period = Math.max(1, leaseTtl.toMillis() / 3);
+        renewScheduler.scheduleWithFixedDelay(this::renew, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long nextId() {
+        WorkerLease current = lease;
+        long worker = current.workerId;
+        if (worker < 0) {
+            throw new IllegalStateException("雪花ID机器号租约已失效");
+        }
+        if (System.nanoTime() - current.deadline >= 0) {
+            throw new IllegalStateException("雪花ID机器号租约续期超时，暂停生成ID: " + worker);
+        }
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - epoch;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS))
+                        | (worker << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 获取当前的机器号
+     */
+    public long getWorkerId() {
+        return lease.workerId;
+    }
+
+    /**
+     * 从随机位置开始依次尝试租借机器号
+     */
+    private void acquireWorkerId() {
+        int start = ThreadLocalRandom.current().nextInt(MAX_WORKERS);
+        for (int i = 0; i < MAX_WORKERS; i++) {
+            int candidate = (start + i) % MAX_WORKERS;
+            long requestedAt = System.nanoTime();
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(workerKey(candidate), leaseValue, leaseTtl))) {
+                lease = new WorkerLease(candidate, deadline(requestedAt));
+                log.info("租借雪花ID机器号: {}", candidate);
+                return;
+            }
+        }
+        throw new IllegalStateException("没有可用的雪花ID机器号");
+    }
+
+    /**
+     * 续期机器号租约，租约丢失时重新租借
+     */
+    private void renew() {
+        try {
+            long worker = lease.workerId;
+            if (worker >= 0) {
+                long requestedAt = System.nanoTime();
+                Long renewed = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(workerKey(worker)),
+                        leaseValue, String.valueOf(leaseTtl.toMillis()));
+                if (renewed != null && renewed > 0) {
+                    // 以发起续期的时间计算截止时间，不把往返耗时算进租约
+                    lease = new WorkerLease(worker, deadline(requestedAt));
+                    return;
+                }
+                log.error("雪花ID机器号租约丢失: {}", worker);
+                lease = WorkerLease.NONE;
+            }
+            acquireWorkerId();
+        } catch (Exception e) {
+            log.error("续期雪花ID机器号失败", e);
+        }
+    }
+
+    /**
+     * 释放机器号
+     */
+    public void release() {
+        long worker = lease.workerId;
+        lease = WorkerLease.NONE;
+        if (worker >= 0) {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(workerKey(worker)), leaseValue);
+        }
+    }
+
+    private String workerKey(long worker) {
+        return keyPrefix + "worker:" + worker;
+    }
+
+    /**
+     * 计算本地租约截止时间
+     */
+    private long deadline(long requestedAt) {
+        long ttlNanos = leaseTtl.toNanos();
+        return requestedAt + ttlNanos - ttlNanos / SAFETY_MARGIN_DIVISOR;
+    }
+
+    /**
+     * 机器号租约
+     */
+    private static class WorkerLease {
+        private static final WorkerLease NONE = new WorkerLease(-1, 0);
+
+        private final long workerId;
+
+        /**
+         * 本地截止时间，System.nanoTime()
+         */
+        private final long deadline;
+
+        private WorkerLease(long workerId, long deadline) {
+            this.workerId = workerId;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package online.yueyun.redis.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.script.RedisScriptRegistry;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地租约限流器
+ * <p>
+ * 所有节点共享Redis中的令牌桶，每个节点按最近的消耗速度一次租借一批令牌，
+ * 单次获取直接在本地无锁计数器上扣减，只有本地令牌不足时才访问Redis。
+ * 租约到期后未用完的令牌归还到共享令牌桶。
+ * 本地租约按key、速率和时间间隔区分，同一key以不同速率调用时各自使用对应速率的租约。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class LeasedRateLimiter {
+
+    /**
+     * 令牌桶Lua脚本：先归还令牌，再在令牌数不少于最小授予数时授予至多requested个令牌，返回实际授予数
+     */
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = RedisScript.of(
+            "local rate = tonumber(ARGV[1]) " +
+            "local interval = tonumber(ARGV[2]) " +
+            "local requested = tonumber(ARGV[3]) " +
+            "local minGrant = tonumber(ARGV[4]) " +
+            "local returned = tonumber(ARGV[5]) " +
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(state[1]) " +
+            "local ts = tonumber(state[2]) " +
+            "if tokens == nil then tokens = rate ts = now end " +
+            "tokens = math.min(rate, tokens + math.max(0, now - ts) * rate / interval + returned) " +
+            "local granted = 0 " +
+            "if requested > 0 and tokens >= minGrant then " +
+            "granted = math.min(requested, math.floor(tokens)) " +
+            "tokens = tokens - granted end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now)) " +
+            "redis.call('PEXPIRE', KEYS[1], interval * 2) " +
+            "return granted", Long.class);
+
+    private static final String TOKEN_BUCKET_SCRIPT_NAME = "limiter-token-bucket";
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 脚本注册表，设置后令牌桶脚本随注册表预加载并记录执行耗时
+     */
+    private volatile RedisScriptRegistry scriptRegistry;
+
+    private final YueyunRedisProperties.RateLimiter config;
+
+    /**
+     * 各限流key的本地租约，键由key、速率和时间间隔组成
+     */
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 归还过期租约的调度器
+     */
+    private final ScheduledExecutorService sweeper;
+
+    public LeasedRateLimiter(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getRateLimiter();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-limiter-sweeper-");
+        threadFactory.setDaemon(true);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long period = config.getLeaseDuration().toMillis();
+        this.sweeper.scheduleWithFixedDelay(this::sweepExpiredLeases, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 设置脚本注册表，注册令牌桶脚本
+     *
+     * @param scriptRegistry 脚本注册表
+     */
+    public void setScriptRegistry(RedisScriptRegistry scriptRegistry) {
+        if (scriptRegistry != null) {
+            scriptRegistry.register(TOKEN_BUCKET_SCRIPT_NAME, TOKEN_BUCKET_SCRIPT);
+        }
+        this.scriptRegistry = scriptRegistry;
+    }
+
+    /**
+     * 尝试获取1个令牌
+     *
+     * @param key 限流器key
+     * @param rate 每个时间间隔允许的请求数
+     * @param interval 时间间隔
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, long rate, Duration interval) {
+        return tryAcquire(key, 1, rate, interval);
+    }
+
+    /**
+     * 尝试获取令牌
+     *
+     * @param key 限流器key
+     * @param permits 需要的令牌数
+     * @param rate 每个时间间隔允许的请求数
+     * @param interval 时间间隔
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int permits, long rate, Duration interval) {
+        long intervalMillis = interval.toMillis();
+        String leaseKey = key + "@" + rate + "/" + intervalMillis;
+        while (true) {
+            Lease lease = leases.computeIfAbsent(leaseKey, k -> new Lease(key, rate, intervalMillis));
+            if (System.currentTimeMillis() < lease.expiresAt && lease.tryTake(permits)) {
+                lease.consumed.add(permits);
+                return true;
+            }
+            Boolean acquired = refill(lease, permits);
+            if (acquired != null) {
+                return acquired;
+            }
+            // 租约已被清理，重新获取
+        }
+    }
+
+    /**
+     * 本地令牌不足或租约过期时从共享令牌桶租借新的一批令牌
+     *
+     * @return 是否获取成功，租约已被清理时返回null
+     */
+    private Boolean refill(Lease lease, int permits) {
+        String key = lease.key;
+        lease.refillLock.lock();
+        try {
+            if (lease.retired) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            if (now < lease.expiresAt && lease.tryTake(permits)) {
+                lease.consumed.add(permits);
+                return true;
+            }
+
+            // 过期租约的剩余令牌随本次请求一并归还，未过期的继续留用
+            long leftover = lease.available.getAndSet(0);
+            long returned = 0;
+            if (now >= lease.expiresAt) {
+                returned = leftover;
+                leftover = 0;
+            }
+            long needed = Math.max(0, permits - leftover);
+            long batch = Math.max(needed, nextBatchSize(lease, now));
+
+            long granted = needed == 0 && returned == 0 ? 0 : lease(key, lease, batch, needed, returned);
+            if (granted < needed) {
+                lease.available.addAndGet(leftover);
+                return false;
+            }
+            lease.available.addAndGet(leftover + granted - permits);
+            lease.consumed.add(permits);
+            lease.expiresAt = now + config.getLeaseDuration().toMillis();
+            return true;
+        } catch (Exception e) {
+            log.error("租借令牌失败，key: {}, permits: {}", key, permits, e);
+            return false;
+        } finally {
+            lease.refillLock.unlock();
+        }
+    }
+
+    /**
+     * 根据上一个租约期内的消耗速度计算下一批租借数量
+     */
+    private long nextBatchSize(Lease lease, long now) {
+        long leaseMillis = config.getLeaseDuration().toMillis();
+        long elapsed = Math.max(1, now - lease.leasedAt);
+        double observed = (double) lease.consumed.sumThenReset() / elapsed;
+        lease.ratePerMilli = lease.leasedAt == 0 ? observed : (lease.ratePerMilli + observed) / 2;
+        lease.leasedAt = now;
+
+        // 单个节点一次最多租借令牌桶容量的一定比例，避免少数节点囤积令牌
+        long maxBatch = Math.max(1, Math.min(config.getMaxBatch(), (long) (lease.rate * config.getMaxBatchRatio())));
+        long expected = (long) Math.ceil(lease.ratePerMilli * leaseMillis);
+        return Math.min(maxBatch, Math.max(config.getMinBatch(), expected));
+    }
+
+    /**
+     * 执行令牌桶脚本
+     */
+    private long lease(String key, Lease lease, long requested, long minGrant, long returned) {
+        List<String> keys = Collections.singletonList(bucketKey(key));
+        Object[] args = {String.valueOf(lease.rate), String.valueOf(lease.intervalMillis), String.valueOf(requested),
+                String.valueOf(minGrant), String.valueOf(returned)};
+        RedisScriptRegistry registry = scriptRegistry;
+        Long granted = registry != null
+                ? registry.execute(redisTemplate, TOKEN_BUCKET_SCRIPT_NAME, Long.class, keys, args)
+                : redisTemplate.execute(TOKEN_BUCKET_SCRIPT, keys, args);
+        return granted != null ? granted : 0L;
+    }
+
+    /**
+     * 归还过期租约中未使用的令牌，并清理长时间未使用的租约
+     */
+    private void sweepExpiredLeases() {
+        long now = System.currentTimeMillis();
+        leases.forEach((leaseKey, lease) -> {
+            if (now < lease.expiresAt || !lease.refillLock.tryLock()) {
+                return;
+            }
+            try {
+                long leftover = lease.available.getAndSet(0);
+                if (leftover > 0) {
+                    lease(lease.key, lease, 0, 0, leftover);
+                } else if (now - lease.expiresAt > lease.intervalMillis && leases.remove(leaseKey, lease)) {
+                    // 在租约锁内标记，已拿到该租约的线程补充令牌时会改用新租约，令牌不会记到已移除的租约上
+                    lease.retired = true;
+                }
+            } catch (Exception e) {
+                log.warn("归还令牌失败，key: {}", lease.key, e);
+            } finally {
+                lease.refillLock.unlock();
+            }
+        });
+    }
+
+    /**
+     * 关闭限流器，归还所有未使用的令牌
+     */
+    public void destroy() {
+        sweeper.shutdownNow();
+        leases.forEach((leaseKey, lease) -> {
+            long leftover = lease.available.getAndSet(0);
+            if (leftover > 0) {
+                try {
+                    lease(lease.key, lease, 0, 0, leftover);
+                } catch (Exception e) {
+                    log.warn("归还令牌失败，key: {}", lease.key, e);
+                }
+            }
+        });
+    }
+
+    private String bucketKey(String key) {
+        return config.getKeyPrefix() + key;
+    }
+
+    /**
+     * 本地租约
+     */
+    private static class Lease {
+        private final String key;
+        private final long rate;
+        private final long intervalMillis;
+        private final AtomicLong available = new AtomicLong();
+        private final LongAdder consumed = new LongAdder();
+        private final ReentrantLock refillLock = new ReentrantLock();
+        private volatile long expiresAt;
+        private long leasedAt;
+        private double ratePerMilli;
+
+        /**
+         * 已从租约表中移除，只在refillLock内读写
+         */
+        private boolean retired;
+
+        private Lease(String key, long rate, long intervalMillis) {
+            this.key = key;
+            this.rate = rate;
+            this.intervalMillis = intervalMillis;
+        }
+
+        /**
+         * 无锁扣减本地令牌
+         */
+        private boolean tryTake(int permits) {
+            while (true) {
+                long current = available.get();
+                if (current < permits) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - permits)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
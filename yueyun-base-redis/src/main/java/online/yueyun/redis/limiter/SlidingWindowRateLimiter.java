@@ -0,0 +1,99 @@
+package online.yueyun.redis.limiter;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.script.RedisScriptRegistry;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 滑动窗口限流器
+ * 基于有序集合记录窗口内每次请求的时间，适合对突发流量精确限制、限流阈值较小的场景
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class SlidingWindowRateLimiter {
+
+    /**
+     * 滑动窗口Lua脚本，允许时返回1，拒绝时返回0
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = RedisScript.of(
+            "local window = tonumber(ARGV[1]) " +
+            "local limit = tonumber(ARGV[2]) " +
+            "local permits = tonumber(ARGV[3]) " +
+            "local t = redis.call('TIME') " +
+            "local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], 0, now - window) " +
+            "if redis.call('ZCARD', KEYS[1]) + permits > limit then return 0 end " +
+            "for i = 1, permits do redis.call('ZADD', KEYS[1], now, ARGV[4] .. ':' .. i) end " +
+            "redis.call('PEXPIRE', KEYS[1], window) " +
+            "return 1", Long.class);
+
+    private static final String SLIDING_WINDOW_SCRIPT_NAME = "limiter-sliding-window";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.RateLimiter config;
+
+    /**
+     * 脚本注册表，设置后限流脚本随注册表预加载并记录执行耗时
+     */
+    private volatile RedisScriptRegistry scriptRegistry;
+
+    public SlidingWindowRateLimiter(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getRateLimiter();
+    }
+
+    /**
+     * 设置脚本注册表，注册滑动窗口限流脚本
+     *
+     * @param scriptRegistry 脚本注册表
+     */
+    public void setScriptRegistry(RedisScriptRegistry scriptRegistry) {
+        if (scriptRegistry != null) {
+            scriptRegistry.register(SLIDING_WINDOW_SCRIPT_NAME, SLIDING_WINDOW_SCRIPT);
+        }
+        this.scriptRegistry = scriptRegistry;
+    }
+
+    /**
+     * 尝试获取令牌
+     *
+     * @param key 限流器key
+     * @param permits 需要的令牌数
+     * @param limit 窗口内允许的请求数
+     * @param window 窗口大小
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int permits, long limit, Duration window) {
+        try {
+            Long result = runScript(Collections.singletonList(config.getKeyPrefix() + "window:" + key),
+                    String.valueOf(window.toMillis()), String.valueOf(limit), String.valueOf(permits),
+                    UUID.randomUUID().toString());
+            return result != null && result > 0;
+        } catch (Exception e) {
+            log.error("滑动窗口限流失败，key: {}, permits: {}", key, permits, e);
+            return false;
+        }
+    }
+
+    /**
+     * 执行滑动窗口脚本，设置了脚本注册表时通过注册表执行
+     */
+    private Long runScript(List<String> keys, Object... args) {
+        RedisScriptRegistry registry = scriptRegistry;
+        if (registry != null) {
+            return registry.execute(redisTemplate, SLIDING_WINDOW_SCRIPT_NAME, Long.class, keys, args);
+        }
+        return redisTemplate.execute(SLIDING_WINDOW_SCRIPT, keys, args);
+    }
+}
@@ -1,26 +1,73 @@
 package online.yueyun.redis.lock;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.OnRedisServerCondition;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.utils.RedisKeyUtils;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 分布式锁工具类
+ * <p>
+ * 采用两级加锁：同一JVM内争抢同一个key的线程先通过该key独占的本地锁排队，
+ * 只有拿到本地锁的线程才会去竞争Redis锁，避免热点key上大量线程同时请求Redis。
+ * 释放时先释放Redis锁再释放本地锁，本地等待者按顺序接手。
+ * 本地锁按key引用计数，没有线程持有或等待时即从表中移除，不同key之间互不影响。
+ * </p>
+ * <p>
+ * leaseTime小于等于0时不设置固定过期时间，由Redisson看门狗自动续期，业务执行时间不确定时推荐使用。
+ * </p>
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
 @Component
+@Conditional(OnRedisServerCondition.class)
 public class DistributedLock {
 
+    /**
+     * 锁等待时间指标名称
+     */
+    private static final String METRIC_WAIT = "yueyun.redis.lock.wait";
+
+    /**
+     * 锁持有时间指标名称
+     */
+    private static final String METRIC_HOLD = "yueyun.redis.lock.hold";
+
     @Autowired
     private RedissonClient redissonClient;
 
+    @Autowired
+    private YueyunRedisProperties properties;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    /**
+     * 各key的本地锁，引用计数归零时移除
+     */
+    private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程通过本类持有的锁及其重入次数、首次加锁时间
+     */
+    private final ThreadLocal<Map<String, HoldState>> holdStates = ThreadLocal.withInitial(HashMap::new);
+
     /**
      * 获取分布式锁
      *
@@ -36,18 +83,40 @@ public class DistributedLock {
      *
      * @param lockKey 锁的key
      * @param waitTime 等待时间
-     * @param leaseTime 持有锁的时间
+     * @param leaseTime 持有锁的时间，小于等于0时由看门狗自动续期
      * @param timeUnit 时间单位
      * @return 是否获取成功
      */
     public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        long start = System.nanoTime();
+        long waitNanos = timeUnit.toNanos(waitTime);
+        LocalLock localLock = retainLocalLock(lockKey);
+        boolean localLocked = false;
+        boolean acquired = false;
         try {
-            RLock lock = getLock(lockKey);
-            return lock.tryLock(waitTime, leaseTime, timeUnit);
+            // 先在本地排队，同一节点同一时刻只有一个线程竞争Redis锁
+            localLocked = localLock.lock.tryLock(waitNanos, TimeUnit.NANOSECONDS);
+            if (localLocked) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, waitNanos - (System.nanoTime() - start)));
+                long leaseMillis = leaseTime > 0 ? timeUnit.toMillis(leaseTime) : -1;
+                acquired = getLock(lockKey).tryLock(remainingMillis, leaseMillis, TimeUnit.MILLISECONDS);
+            }
+            if (acquired) {
+                holdStates.get().computeIfAbsent(lockKey, k -> new HoldState(System.nanoTime())).count++;
+            }
+            return acquired;
         } catch (InterruptedException e) {
             log.error("获取分布式锁失败: {}", lockKey, e);
             Thread.currentThread().interrupt();
             return false;
+        } finally {
+            if (!acquired) {
+                if (localLocked) {
+                    localLock.lock.unlock();
+                }
+                releaseLocalLock(lockKey);
+            }
+            recordWait(lockKey, start, acquired);
         }
     }
 
@@ -67,13 +136,27 @@ public class DistributedLock {
      * @param lockKey 锁的key
      */
     public void unlock(String lockKey) {
+        Map<String, HoldState> states = holdStates.get();
+        HoldState state = states.get(lockKey);
         try {
             RLock lock = getLock(lockKey);
-            if (lock.isHeldByCurrentThread()) {
+            if (state != null || lock.isHeldByCurrentThread()) {
                 lock.unlock();
             }
         } catch (Exception e) {
             log.error("释放分布式锁失败: {}", lockKey, e);
+        } finally {
+            if (state != null) {
+                if (--state.count == 0) {
+                    states.remove(lockKey);
+                    recordHold(lockKey, state.since);
+                }
+                LocalLock localLock = localLocks.get(lockKey);
+                if (localLock != null) {
+                    localLock.lock.unlock();
+                    releaseLocalLock(lockKey);
+                }
+            }
         }
     }
 
@@ -93,7 +176,7 @@ public class DistributedLock {
      *
      * @param lockKey 锁的key
      * @param waitTime 等待时间
-     * @param leaseTime 持有锁的时间
+     * @param leaseTime 持有锁的时间，小于等于0时由看门狗自动续期
      * @param timeUnit 时间单位
      * @param task 要执行的任务
      * @return 任务执行结果
@@ -109,6 +192,81 @@ public class DistributedLock {
         throw new RuntimeException("获取分布式锁失败: " + lockKey);
     }
 
+    /**
+     * 获取key对应的本地锁并增加引用计数，每次调用都要有一次对应的{@link #releaseLocalLock(String)}
+     */
+    private LocalLock retainLocalLock(String lockKey) {
+        return localLocks.compute(lockKey, (key, localLock) -> {
+            if (localLock == null) {
+                localLock = new LocalLock(properties.getLock().isFairLocalLock());
+            }
+            localLock.refs++;
+            return localLock;
+        });
+    }
+
+    /**
+     * 减少key对应本地锁的引用计数，归零时移除
+     */
+    private void releaseLocalLock(String lockKey) {
+        localLocks.computeIfPresent(lockKey, (key, localLock) -> --localLock.refs == 0 ? null : localLock);
+    }
+
+    /**
+     * 记录锁等待时间
+     */
+    private void recordWait(String lockKey, long start, boolean acquired) {
+        MeterRegistry registry = meterRegistry();
+        if (registry != null) {
+            Timer.builder(METRIC_WAIT)
+                    .tag("name", RedisKeyUtils.prefix(lockKey))
+                    .tag("result", acquired ? "acquired" : "timeout")
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 记录锁持有时间
+     */
+    private void recordHold(String lockKey, long since) {
+        MeterRegistry registry = meterRegistry();
+        if (registry != null) {
+            Timer.builder(METRIC_HOLD)
+                    .tag("name", RedisKeyUtils.prefix(lockKey))
+                    .register(registry)
+                    .record(System.nanoTime() - since, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private MeterRegistry meterRegistry() {
+        return properties.getLock().isMetricsEnabled() ? meterRegistryProvider.getIfAvailable() : null;
+    }
+
+    /**
+     * 本地锁及其引用计数，引用计数只在ConcurrentHashMap的compute中修改
+     */
+    private static class LocalLock {
+        private final ReentrantLock lock;
+        private int refs;
+
+        private LocalLock(boolean fair) {
+            this.lock = new ReentrantLock(fair);
+        }
+    }
+
+    /**
+     * 锁持有状态
+     */
+    private static class HoldState {
+        private final long since;
+        private int count;
+
+        private HoldState(long since) {
+            this.since = since;
+        }
+    }
+
     /**
      * 分布式锁任务接口
      */
@@ -121,4 +279,4 @@ public class DistributedLock {
          */
         T execute();
     }
-} 
\ No newline at end of file
+}
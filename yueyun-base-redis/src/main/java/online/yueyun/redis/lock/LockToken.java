@@ -0,0 +1,32 @@
+package online.yueyun.redis.lock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 锁凭证
+ * 持有锁期间使用，释放锁时需传回；fencingToken随每次成功加锁单调递增，
+ * 下游存储可以拒绝携带较小token的写入，防止锁过期后旧持有者的延迟写入
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Data
+@AllArgsConstructor
+public class LockToken {
+
+    /**
+     * 锁键
+     */
+    private String lockKey;
+
+    /**
+     * 锁值，唯一标识本次加锁
+     */
+    private String lockValue;
+
+    /**
+     * 防护令牌
+     */
+    private long fencingToken;
+}
@@ -0,0 +1,69 @@
+package online.yueyun.redis.metrics;
+
+import online.yueyun.redis.service.RedisService;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * 带指标记录的Redis服务代理
+ * 以方法名作为命令类型、第一个字符串参数作为key，记录每次调用的耗时
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public final class InstrumentedRedisService implements InvocationHandler {
+
+    private final RedisService target;
+
+    private final RedisCommandMetrics metrics;
+
+    private InstrumentedRedisService(RedisService target, RedisCommandMetrics metrics) {
+        this.target = target;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 为Redis服务创建带指标记录的代理
+     *
+     * @param target 被代理的Redis服务
+     * @param metrics 命令指标
+     * @return 代理
+     */
+    public static RedisService wrap(RedisService target, RedisCommandMetrics metrics) {
+        return (RedisService) Proxy.newProxyInstance(RedisService.class.getClassLoader(),
+                new Class<?>[]{RedisService.class}, new InstrumentedRedisService(target, metrics));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        String key = args != null && args.length > 0 && args[0] instanceof String str ? str : null;
+        try {
+            return metrics.record(method.getName(), key, () -> {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw new InvocationFailure(e.getCause());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (InvocationFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 在Supplier中传递被代理方法抛出的原始异常
+     */
+    private static class InvocationFailure extends RuntimeException {
+        private InvocationFailure(Throwable cause) {
+            super(cause, false, false);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package online.yueyun.redis.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 记录序列化字节数的序列化器
+ * out为写入Redis的字节数，in为从Redis读取的字节数
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class MeteredRedisSerializer<T> implements RedisSerializer<T> {
+
+    /**
+     * 序列化字节数指标名称
+     */
+    private static final String METRIC_BYTES = "yueyun.redis.serialized.bytes";
+
+    private final RedisSerializer<T> delegate;
+
+    private final DistributionSummary bytesOut;
+
+    private final DistributionSummary bytesIn;
+
+    public MeteredRedisSerializer(RedisSerializer<T> delegate, String serializer, MeterRegistry meterRegistry) {
+        this(delegate, serializer, meterRegistry, false);
+    }
+
+    public MeteredRedisSerializer(RedisSerializer<T> delegate, String serializer, MeterRegistry meterRegistry,
+                                  boolean percentileHistogram) {
+        this.delegate = delegate;
+        this.bytesOut = summary(serializer, "out", meterRegistry, percentileHistogram);
+        this.bytesIn = summary(serializer, "in", meterRegistry, percentileHistogram);
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        if (bytes != null) {
+            bytesOut.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes != null) {
+            bytesIn.record(bytes.length);
+        }
+        return delegate.deserialize(bytes);
+    }
+
+    @Override
+    public boolean canSerialize(Class<?> type) {
+        return delegate.canSerialize(type);
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return delegate.getTargetType();
+    }
+
+    private static DistributionSummary summary(String serializer, String direction, MeterRegistry meterRegistry,
+                                               boolean percentileHistogram) {
+        return DistributionSummary.builder(METRIC_BYTES)
+                .baseUnit("bytes")
+                .tag("serializer", serializer)
+                .tag("direction", direction)
+                .publishPercentileHistogram(percentileHistogram)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,78 @@
+package online.yueyun.redis.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.cache.LoaderClock;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.utils.RedisKeyUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Redis命令指标
+ * 按命令类型和key前缀记录耗时，超过阈值的命令记录慢命令日志；
+ * 旁路缓存加载函数的耗时通过{@link LoaderClock}扣除，加载函数抛出的异常记为loader_error
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisCommandMetrics {
+
+    /**
+     * 命令耗时指标名称
+     */
+    private static final String METRIC_COMMAND = "yueyun.redis.command";
+
+    private final YueyunRedisProperties.Metrics config;
+
+    private final MeterRegistry meterRegistry;
+
+    public RedisCommandMetrics(YueyunRedisProperties properties, MeterRegistry meterRegistry) {
+        this.config = properties.getMetrics();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 执行命令并记录耗时
+     *
+     * @param command 命令类型
+     * @param key 键，可以为空
+     * @param action 命令
+     * @param <T> 返回值类型
+     * @return 命令结果
+     */
+    public <T> T record(String command, String key, Supplier<T> action) {
+        long start = System.nanoTime();
+        long loaderStart = LoaderClock.elapsedNanos();
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (LoaderClock.isLoaderFailure(e)) {
+                outcome = "loader_error";
+            }
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start - (LoaderClock.elapsedNanos() - loaderStart);
+            String prefix = key != null ? RedisKeyUtils.prefix(key) : "none";
+            if (meterRegistry != null) {
+                Timer.builder(METRIC_COMMAND)
+                        .tag("command", command)
+                        .tag("prefix", prefix)
+                        .tag("result", outcome)
+                        .publishPercentileHistogram(config.isPercentileHistogram())
+                        .register(meterRegistry)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            }
+            long slowThreshold = config.getSlowCommandThreshold().toNanos();
+            if (slowThreshold > 0 && elapsed > slowThreshold) {
+                log.warn("Redis慢命令，command: {}, key: {}, 耗时: {}ms", command, key, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+}
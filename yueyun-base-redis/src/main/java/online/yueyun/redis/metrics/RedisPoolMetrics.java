@@ -0,0 +1,178 @@
+package online.yueyun.redis.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Redis连接池指标
+ * <p>
+ * Lettuce连接池读取Spring Data Redis内部的commons-pool2连接池，提供活跃、空闲、等待数；
+ * Redisson开源版没有公开连接池统计接口，通过其内部的连接管理器读取活跃和空闲连接数，
+ * 版本不兼容时不注册对应指标。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisPoolMetrics implements MeterBinder {
+
+    /**
+     * 连接池指标名称前缀
+     */
+    private static final String METRIC_POOL = "yueyun.redis.pool.";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final RedissonClient redissonClient;
+
+    public RedisPoolMetrics(RedisConnectionFactory connectionFactory, RedissonClient redissonClient) {
+        this.connectionFactory = connectionFactory;
+        this.redissonClient = redissonClient;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindLettuce(registry);
+        if (redissonClient != null) {
+            bindRedisson(registry);
+        }
+    }
+
+    /**
+     * 注册Lettuce连接池指标
+     */
+    private void bindLettuce(MeterRegistry registry) {
+        if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+            return;
+        }
+        gauge(registry, "active", "lettuce", this, metrics -> sumLettucePools(GenericObjectPool::getNumActive));
+        gauge(registry, "idle", "lettuce", this, metrics -> sumLettucePools(GenericObjectPool::getNumIdle));
+        gauge(registry, "pending", "lettuce", this, metrics -> sumLettucePools(GenericObjectPool::getNumWaiters));
+    }
+
+    /**
+     * 汇总Lettuce各类型连接池的统计值，连接池按连接类型延迟创建
+     */
+    private double sumLettucePools(ToDoubleFunction<GenericObjectPool<?>> metric) {
+        Map<?, ?> pools = lettucePools();
+        if (pools == null) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (Object pool : pools.values()) {
+            if (pool instanceof GenericObjectPool<?> objectPool) {
+                sum += metric.applyAsDouble(objectPool);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 读取LettucePoolingConnectionProvider中的连接池，连接提供者外层有一层异常转换包装
+     */
+    private Map<?, ?> lettucePools() {
+        try {
+            Object provider = new DirectFieldAccessor(connectionFactory).getPropertyValue("connectionProvider");
+            DirectFieldAccessor accessor = provider != null ? new DirectFieldAccessor(provider) : null;
+            if (accessor != null && accessor.isReadableProperty("delegate")) {
+                provider = accessor.getPropertyValue("delegate");
+                accessor = provider != null ? new DirectFieldAccessor(provider) : null;
+            }
+            if (accessor != null && accessor.isReadableProperty("pools")) {
+                return (Map<?, ?>) accessor.getPropertyValue("pools");
+            }
+        } catch (Exception e) {
+            log.debug("读取Lettuce连接池失败", e);
+        }
+        return null;
+    }
+
+    /**
+     * 注册Redisson连接池指标
+     */
+    private void bindRedisson(MeterRegistry registry) {
+        if (redissonEntries() == null) {
+            log.info("当前Redisson版本不支持读取连接池统计，跳过Redisson连接池指标");
+            return;
+        }
+        gauge(registry, "active", "redisson", this, metrics -> sumRedisson(true));
+        gauge(registry, "idle", "redisson", this, metrics -> sumRedisson(false));
+    }
+
+    /**
+     * 汇总Redisson各节点的连接数
+     */
+    private double sumRedisson(boolean active) {
+        Collection<?> entries = redissonEntries();
+        if (entries == null) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (Object masterSlaveEntry : entries) {
+            Object clients = invoke(masterSlaveEntry, "getAllEntries");
+            if (!(clients instanceof Collection<?> clientEntries)) {
+                continue;
+            }
+            for (Object client : clientEntries) {
+                Object all = invoke(client, "getAllConnections");
+                Object free = invoke(client, "getFreeConnections");
+                int total = all instanceof Collection<?> allConnections ? allConnections.size() : 0;
+                int idle = free instanceof Collection<?> freeConnections ? freeConnections.size() : 0;
+                sum += active ? total - idle : idle;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 读取Redisson连接管理器中的主从节点
+     */
+    private Collection<?> redissonEntries() {
+        Object connectionManager = invoke(redissonClient, "getConnectionManager");
+        if (connectionManager == null) {
+            connectionManager = invoke(invoke(redissonClient, "getCommandExecutor"), "getConnectionManager");
+        }
+        Object entries = invoke(connectionManager, "getEntrySet");
+        return entries instanceof Collection<?> collection ? collection : null;
+    }
+
+    /**
+     * 反射调用无参方法，方法不存在或调用失败时返回null
+     */
+    private static Object invoke(Object target, String methodName) {
+        if (target == null) {
+            return null;
+        }
+        Method method = ReflectionUtils.findMethod(target.getClass(), methodName);
+        if (method == null) {
+            return null;
+        }
+        try {
+            ReflectionUtils.makeAccessible(method);
+            return method.invoke(target);
+        } catch (Exception e) {
+            log.debug("调用{}.{}失败", target.getClass().getName(), methodName, e);
+            return null;
+        }
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String client, T obj, ToDoubleFunction<T> function) {
+        Gauge.builder(METRIC_POOL + name, obj, function)
+                .tag("client", client)
+                .register(registry);
+    }
+}
@@ -0,0 +1,219 @@
+package online.yueyun.redis.script;
+
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lua脚本注册表
+ * <p>
+ * 启动时加载类路径下的.lua脚本（脚本名为文件名），也可以由组件注册内置脚本。
+ * 每个脚本的SHA1只计算一次，容器启动完成后通过SCRIPT LOAD预加载到Redis，集群模式下加载到每个主节点。
+ * 执行时始终先发送EVALSHA，Redis返回NOSCRIPT（例如节点重启或故障转移后）时自动改用EVAL并重新缓存脚本。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisScriptRegistry implements SmartInitializingSingleton {
+
+    /**
+     * 脚本执行耗时指标名称
+     */
+    private static final String METRIC_SCRIPT = "yueyun.redis.script";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final YueyunRedisProperties.Script config;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 脚本名称到脚本内容的映射
+     */
+    private final Map<String, String> sources = new ConcurrentHashMap<>();
+
+    /**
+     * 按脚本名称和返回值类型缓存的脚本对象，SHA1在对象内只计算一次
+     */
+    private final Map<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    private volatile boolean initialized;
+
+    public RedisScriptRegistry(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.config = properties.getScript();
+        this.meterRegistry = meterRegistry;
+        loadClasspathScripts();
+    }
+
+    /**
+     * 注册脚本，容器启动完成后注册的脚本立即预加载
+     *
+     * @param name 脚本名称
+     * @param script 脚本
+     */
+    public void register(String name, RedisScript<?> script) {
+        String previous = sources.putIfAbsent(name, script.getScriptAsString());
+        if (previous != null && !previous.equals(script.getScriptAsString())) {
+            throw new IllegalStateException("脚本名称重复: " + name);
+        }
+        scripts.putIfAbsent(cacheKey(name, script.getResultType()), script);
+        if (initialized && config.isPreload()) {
+            preload(Map.of(name, script.getScriptAsString()));
+        }
+    }
+
+    /**
+     * 获取脚本
+     *
+     * @param name 脚本名称
+     * @param resultType 返回值类型
+     * @param <T> 返回值类型
+     * @return 脚本
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RedisScript<T> getScript(String name, Class<T> resultType) {
+        return (RedisScript<T>) scripts.computeIfAbsent(cacheKey(name, resultType), key -> {
+            String source = sources.get(name);
+            if (source == null) {
+                throw new IllegalArgumentException("脚本不存在: " + name);
+            }
+            return new DefaultRedisScript<>(source, resultType);
+        });
+    }
+
+    /**
+     * 执行脚本并记录耗时
+     *
+     * @param operations Redis操作模板，决定参数和返回值的序列化方式
+     * @param name 脚本名称
+     * @param resultType 返回值类型
+     * @param keys 键列表
+     * @param args 参数列表
+     * @param <K> 键类型
+     * @param <T> 返回值类型
+     * @return 脚本执行结果
+     */
+    public <K, T> T execute(RedisOperations<K, ?> operations, String name, Class<T> resultType, List<K> keys,
+                            Object... args) {
+        RedisScript<T> script = getScript(name, resultType);
+        if (meterRegistry == null) {
+            return operations.execute(script, keys, args);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = operations.execute(script, keys, args);
+            success = true;
+            return result;
+        } finally {
+            Timer.builder(METRIC_SCRIPT)
+                    .tag("script", name)
+                    .tag("result", success ? "success" : "error")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        initialized = true;
+        if (config.isPreload() && !sources.isEmpty()) {
+            preload(sources);
+        }
+    }
+
+    /**
+     * 加载类路径下的脚本
+     */
+    private void loadClasspathScripts() {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (String location : config.getLocations()) {
+            try {
+                for (Resource resource : resolver.getResources(location)) {
+                    String filename = resource.getFilename();
+                    if (filename == null || !filename.endsWith(".lua")) {
+                        continue;
+                    }
+                    try (InputStream in = resource.getInputStream()) {
+                        String name = filename.substring(0, filename.length() - ".lua".length());
+                        sources.put(name, StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("加载Lua脚本失败，location: {}", location, e);
+            }
+        }
+        if (!sources.isEmpty()) {
+            log.info("加载Lua脚本: {}", sources.keySet());
+        }
+    }
+
+    /**
+     * 预加载脚本，失败不影响使用，首次执行时会通过EVAL回退加载
+     */
+    private void preload(Map<String, String> toLoad) {
+        try {
+            if (connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware()) {
+                preloadCluster(toLoad);
+                return;
+            }
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                toLoad.values().forEach(source -> connection.scriptingCommands()
+                        .scriptLoad(source.getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (Exception e) {
+            log.warn("预加载Lua脚本失败: {}", toLoad.keySet(), e);
+        }
+    }
+
+    /**
+     * 在每个主节点上执行SCRIPT LOAD
+     */
+    @SuppressWarnings("unchecked")
+    private void preloadCluster(Map<String, String> toLoad) throws Exception {
+        try (RedisClusterConnection connection = connectionFactory.getClusterConnection()) {
+            RedisAdvancedClusterAsyncCommands<byte[], byte[]> commands =
+                    (RedisAdvancedClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+            for (RedisClusterNode node : connection.clusterGetNodes()) {
+                if (!node.isMaster() || node.getHost() == null || node.getPort() == null) {
+                    continue;
+                }
+                for (String source : toLoad.values()) {
+                    commands.getConnection(node.getHost(), node.getPort())
+                            .scriptLoad(source.getBytes(StandardCharsets.UTF_8))
+                            .get(10, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    private static String cacheKey(String name, Class<?> resultType) {
+        return name + "@" + (resultType != null ? resultType.getName() : "void");
+    }
+}
@@ -7,6 +7,8 @@ import org.springframework.data.redis.core.script.RedisScript;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Redis服务接口
@@ -139,6 +141,19 @@ public interface RedisService {
      */
     <T> T execute(RedisScript<T> script, List<String> keys, Object... args);
 
+    /**
+     * 按名称执行脚本注册表中的Lua脚本
+     * 优先发送EVALSHA，Redis中不存在该脚本时自动回退为EVAL
+     *
+     * @param name 脚本名称，类路径脚本为不含扩展名的文件名
+     * @param resultType 返回值类型
+     * @param keys 键列表
+     * @param args 参数列表
+     * @param <T> 返回值类型
+     * @return 脚本执行结果
+     */
+    <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args);
+
     // ------------------ 字符串操作 ------------------
 
     /**
@@ -259,7 +274,7 @@ public interface RedisService {
     void multiSet(Map<String, Object> map);
 
     /**
-     * 仅当所有key都不存在时批量设置值
+     * 仅当所有key都不存在时批量设置值，集群模式下所有键必须位于同一个槽
      *
      * @param map 键值对映射
      * @return 是否成功
@@ -293,6 +308,55 @@ public interface RedisService {
      */
     Long decrement(String key, long delta);
 
+    /**
+     * 获取缓存，未命中时加载并回填
+     * 同一个key同时只有一个加载在执行，null结果以空值标记短时缓存，过期时间带随机抖动
+     *
+     * @param key 键
+     * @param loader 加载函数
+     * @param ttl 过期时间
+     * @param <T> 值类型
+     * @return 值，不存在时返回null
+     */
+    <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl);
+
+    /**
+     * 获取缓存，未命中时先检查布隆过滤器，过滤器中不存在的key直接返回null
+     *
+     * @param key 键
+     * @param loader 加载函数
+     * @param ttl 过期时间
+     * @param bloomFilterKey 布隆过滤器的key，过滤器中保存的是缓存的key
+     * @param <T> 值类型
+     * @return 值，不存在时返回null
+     */
+    <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl, String bloomFilterKey);
+
+    /**
+     * 批量获取缓存，未命中的key合并为一次加载并回填
+     *
+     * @param keys 键集合
+     * @param loader 批量加载函数，入参为未命中的key，返回结果中不包含的key视为不存在
+     * @param ttl 过期时间
+     * @param <T> 值类型
+     * @return 存在的key与值的映射
+     */
+    <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                    Duration ttl);
+
+    /**
+     * 批量获取缓存，未命中的key先逐个检查布隆过滤器，过滤器中不存在的key不参与加载
+     *
+     * @param keys 键集合
+     * @param loader 批量加载函数，入参为未命中的key，返回结果中不包含的key视为不存在
+     * @param ttl 过期时间
+     * @param bloomFilterKey 布隆过滤器的key，过滤器中保存的是缓存的key
+     * @param <T> 值类型
+     * @return 存在的key与值的映射
+     */
+    <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                    Duration ttl, String bloomFilterKey);
+
     // ------------------ 哈希操作 ------------------
 
     /**
@@ -0,0 +1,1306 @@
+package online.yueyun.redis.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.service.RedisService;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 内存版Redis服务实现
+ * <p>
+ * 不依赖Redis服务器，用于单元测试、本地单节点运行，以及作为基准衡量序列化和网络层的开销。
+ * 单个key上的命令原子执行，多key命令（rename、multiSet、multiSetIfAbsent、sMove、加锁脚本等）执行期间
+ * 不会穿插其他写入；过期的key在访问时惰性删除，并由后台线程每秒清理一次。
+ * </p>
+ * <p>
+ * 内存模式无法执行Lua脚本：分布式锁的加锁、释放、续期脚本内置了Java实现，可以通过{@link #executeScript}按名称执行；
+ * 其他脚本需要先通过{@link #registerScript}注册等价的Java实现，未注册的脚本执行时抛出{@link UnsupportedOperationException}。
+ * </p>
+ * <p>
+ * 与Redis实现的差异：值按引用保存，不经过序列化，读取到的对象被修改会影响缓存中的值；
+ * 数据只在当前进程内可见。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class InMemoryRedisService implements RedisService {
+
+    private static final String WRONG_TYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+    /**
+     * 阻塞弹出的轮询间隔，单位：毫秒
+     */
+    private static final long POP_POLL_INTERVAL = 10L;
+
+    private final ConcurrentHashMap<String, Entry> store = new ConcurrentHashMap<>();
+
+    /**
+     * 加载锁，同一个key的旁路缓存加载串行执行
+     */
+    private final Object[] loadLocks = new Object[64];
+
+    /**
+     * 单key写命令持有读锁，彼此之间依靠ConcurrentHashMap的单key原子性；
+     * 多key命令和脚本持有写锁，执行期间不会穿插任何写入
+     */
+    private final ReentrantReadWriteLock keyLock = new ReentrantReadWriteLock();
+
+    /**
+     * 按SHA1注册的脚本实现
+     */
+    private final Map<String, ScriptHandler> scripts = new ConcurrentHashMap<>();
+
+    /**
+     * 按名称注册的脚本实现
+     */
+    private final Map<String, ScriptHandler> namedScripts = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService expirer;
+
+    public InMemoryRedisService() {
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new Object();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-memory-expirer-");
+        threadFactory.setDaemon(true);
+        this.expirer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.expirer.scheduleWithFixedDelay(this::removeExpired, 1, 1, TimeUnit.SECONDS);
+
+        namedScripts.put("lock-acquire", (keys, args) -> acquireLock(keys.get(0), keys.get(1),
+                String.valueOf(args[0]), Long.parseLong(String.valueOf(args[1]))));
+        namedScripts.put("lock-acquire-plain", (keys, args) -> acquireLock(keys.get(0), null,
+                String.valueOf(args[0]), Long.parseLong(String.valueOf(args[1]))));
+        namedScripts.put("lock-release", (keys, args) -> releaseLock(keys.get(0), String.valueOf(args[0])));
+        namedScripts.put("lock-renew", (keys, args) -> renewLock(keys.get(0), String.valueOf(args[0]),
+                Long.parseLong(String.valueOf(args[1]))));
+    }
+
+    /**
+     * 停止后台过期清理
+     */
+    public void shutdown() {
+        expirer.shutdownNow();
+    }
+
+    // ------------------ 通用操作 ------------------
+
+    @Override
+    public Boolean hasKey(String key) {
+        return live(key) != null;
+    }
+
+    @Override
+    public Long getExpire(String key) {
+        Entry entry = live(key);
+        if (entry == null) {
+            return -2L;
+        }
+        long expireAt = entry.expireAt;
+        return expireAt == 0 ? -1L : TimeUnit.MILLISECONDS.toSeconds(expireAt - System.currentTimeMillis());
+    }
+
+    @Override
+    public Boolean expire(String key, long timeout) {
+        return expire(key, Duration.ofSeconds(timeout));
+    }
+
+    @Override
+    public Boolean expire(String key, Duration duration) {
+        return setExpireAt(key, System.currentTimeMillis() + duration.toMillis());
+    }
+
+    @Override
+    public Boolean expireAt(String key, Date date) {
+        return setExpireAt(key, date.getTime());
+    }
+
+    @Override
+    public Boolean persist(String key) {
+        Boolean[] result = {false};
+        singleKey(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            result[0] = entry.expireAt != 0;
+            entry.expireAt = 0;
+            return entry;
+        }));
+        return result[0];
+    }
+
+    @Override
+    public DataType getType(String key) {
+        Entry entry = live(key);
+        return entry != null ? entry.type : DataType.NONE;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        Entry entry = singleKey(() -> store.remove(key));
+        return entry != null && !entry.isExpired(System.currentTimeMillis());
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        return multiKey(() -> {
+            long count = 0;
+            for (String key : keys) {
+                if (delete(key)) {
+                    count++;
+                }
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public Long deleteByPattern(String pattern) {
+        return delete(keys(pattern));
+    }
+
+    @Override
+    public Set<String> keys(String pattern) {
+        Pattern regex = globToRegex(pattern);
+        long now = System.currentTimeMillis();
+        Set<String> keys = new HashSet<>();
+        store.forEach((key, entry) -> {
+            if (!entry.isExpired(now) && regex.matcher(key).matches()) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    @Override
+    public Boolean rename(String oldKey, String newKey) {
+        return multiKey(() -> {
+            Entry entry = live(oldKey);
+            if (entry == null) {
+                return false;
+            }
+            store.remove(oldKey);
+            store.put(newKey, entry);
+            return true;
+        });
+    }
+
+    @Override
+    public Boolean renameIfAbsent(String oldKey, String newKey) {
+        return multiKey(() -> live(newKey) == null && rename(oldKey, newKey));
+    }
+
+    /**
+     * 执行通过{@link #registerScript(RedisScript, ScriptHandler)}注册了Java实现的脚本，按SHA1匹配
+     *
+     * @throws UnsupportedOperationException 脚本未注册
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+        ScriptHandler handler = scripts.get(script.getSha1());
+        if (handler == null) {
+            throw new UnsupportedOperationException("内存模式不能执行Lua脚本，请先通过registerScript注册Java实现: "
+                    + script.getSha1());
+        }
+        return (T) multiKey(() -> handler.execute(keys, args));
+    }
+
+    /**
+     * 按名称执行脚本，内置分布式锁的lock-acquire、lock-acquire-plain、lock-release、lock-renew脚本，
+     * 其他名称需先通过{@link #registerScript(String, ScriptHandler)}注册
+     *
+     * @throws UnsupportedOperationException 脚本未注册
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        ScriptHandler handler = namedScripts.get(name);
+        if (handler == null) {
+            throw new UnsupportedOperationException("内存模式不能执行Lua脚本，请先通过registerScript注册Java实现: " + name);
+        }
+        return (T) multiKey(() -> handler.execute(keys, args));
+    }
+
+    /**
+     * 注册脚本的Java实现，之后{@link #execute}遇到SHA1相同的脚本时执行该实现
+     *
+     * @param script 脚本
+     * @param handler Java实现，在多key写锁内执行
+     */
+    public void registerScript(RedisScript<?> script, ScriptHandler handler) {
+        scripts.put(script.getSha1(), handler);
+    }
+
+    /**
+     * 按名称注册脚本的Java实现，供{@link #executeScript}使用，同名时覆盖内置实现
+     *
+     * @param name 脚本名称
+     * @param handler Java实现，在多key写锁内执行
+     */
+    public void registerScript(String name, ScriptHandler handler) {
+        namedScripts.put(name, handler);
+    }
+
+    // ------------------ 字符串操作 ------------------
+
+    @Override
+    public void set(String key, Object value) {
+        singleKey(() -> store.put(key, new Entry(DataType.STRING, value, 0)));
+    }
+
+    @Override
+    public void set(String key, Object value, long timeout) {
+        set(key, value, Duration.ofSeconds(timeout));
+    }
+
+    @Override
+    public void set(String key, Object value, Duration duration) {
+        singleKey(() -> store.put(key, new Entry(DataType.STRING, value, expireAt(duration))));
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, Object value) {
+        return setIfAbsent(key, value, 0L);
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, Object value, long timeout) {
+        return setIfAbsent(key, value, timeout > 0 ? Duration.ofSeconds(timeout) : null);
+    }
+
+    @Override
+    public Boolean setIfAbsent(String key, Object value, Duration duration) {
+        Boolean[] result = {false};
+        singleKey(() -> store.compute(key, (k, entry) -> {
+            if (entry != null && !entry.isExpired(System.currentTimeMillis())) {
+                return entry;
+            }
+            result[0] = true;
+            return new Entry(DataType.STRING, value, expireAt(duration));
+        }));
+        return result[0];
+    }
+
+    @Override
+    public Boolean setIfPresent(String key, Object value) {
+        return setIfPresent(key, value, (Duration) null);
+    }
+
+    @Override
+    public Boolean setIfPresent(String key, Object value, long timeout) {
+        return setIfPresent(key, value, Duration.ofSeconds(timeout));
+    }
+
+    @Override
+    public Boolean setIfPresent(String key, Object value, Duration duration) {
+        Boolean[] result = {false};
+        singleKey(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            result[0] = true;
+            return new Entry(DataType.STRING, value, expireAt(duration));
+        }));
+        return result[0];
+    }
+
+    @Override
+    public Object get(String key) {
+        return read(key, DataType.STRING, value -> value, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Class<T> clazz) {
+        Object value = get(key);
+        return value != null && clazz.isAssignableFrom(value.getClass()) ? (T) value : null;
+    }
+
+    @Override
+    public List<Object> multiGet(Collection<String> keys) {
+        return multiKey(() -> {
+            List<Object> values = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                Entry entry = live(key);
+                values.add(entry != null && entry.type == DataType.STRING ? entry.value : null);
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public void multiSet(Map<String, Object> map) {
+        multiKey(() -> {
+            map.forEach(this::set);
+            return null;
+        });
+    }
+
+    @Override
+    public Boolean multiSetIfAbsent(Map<String, Object> map) {
+        return multiKey(() -> {
+            for (String key : map.keySet()) {
+                if (live(key) != null) {
+                    return false;
+                }
+            }
+            map.forEach(this::set);
+            return true;
+        });
+    }
+
+    @Override
+    public Long increment(String key, long delta) {
+        Long[] result = new Long[1];
+        singleKey(() -> store.compute(key, (k, entry) -> {
+            Entry current = entry == null || entry.isExpired(System.currentTimeMillis()) ? null : entry;
+            result[0] = (current != null ? toNumber(checkType(current, DataType.STRING).value).longValue() : 0L) + delta;
+            return new Entry(DataType.STRING, result[0], current != null ? current.expireAt : 0);
+        }));
+        return result[0];
+    }
+
+    @Override
+    public Double increment(String key, double delta) {
+        Double[] result = new Double[1];
+        singleKey(() -> store.compute(key, (k, entry) -> {
+            Entry current = entry == null || entry.isExpired(System.currentTimeMillis()) ? null : entry;
+            result[0] = (current != null ? toNumber(checkType(current, DataType.STRING).value).doubleValue() : 0D) + delta;
+            return new Entry(DataType.STRING, result[0], current != null ? current.expireAt : 0);
+        }));
+        return result[0];
+    }
+
+    @Override
+    public Long decrement(String key, long delta) {
+        return increment(key, -delta);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl) {
+        Object cached = get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        synchronized (loadLocks[(key.hashCode() & 0x7fffffff) % loadLocks.length]) {
+            cached = get(key);
+            if (cached != null) {
+                return (T) cached;
+            }
+            T value = loader.get();
+            if (value != null) {
+                set(key, value, ttl);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 内存模式没有布隆过滤器，忽略bloomFilterKey
+     */
+    @Override
+    public <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl, String bloomFilterKey) {
+        return getOrLoad(key, loader, ttl);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl) {
+        Map<String, T> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            Object cached = get(key);
+            if (cached != null) {
+                result.put(key, (T) cached);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, T> loaded = loader.apply(missing);
+            if (loaded != null) {
+                loaded.forEach((key, value) -> {
+                    if (value != null) {
+                        set(key, value, ttl);
+                        result.put(key, value);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 内存模式没有布隆过滤器，忽略bloomFilterKey
+     */
+    @Override
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl, String bloomFilterKey) {
+        return getOrLoadAll(keys, loader, ttl);
+    }
+
+    // ------------------ 哈希操作 ------------------
+
+    @Override
+    public void hSet(String key, Object hashKey, Object value) {
+        this.<Map<Object, Object>, Object>write(key, DataType.HASH, LinkedHashMap::new, hash -> hash.put(hashKey, value));
+    }
+
+    @Override
+    public Boolean hSetIfAbsent(String key, Object hashKey, Object value) {
+        return this.<Map<Object, Object>, Boolean>write(key, DataType.HASH, LinkedHashMap::new,
+                hash -> hash.putIfAbsent(hashKey, value) == null);
+    }
+
+    @Override
+    public void hMultiSet(String key, Map<?, ?> map) {
+        this.<Map<Object, Object>, Object>write(key, DataType.HASH, LinkedHashMap::new, hash -> {
+            hash.putAll(map);
+            return null;
+        });
+    }
+
+    @Override
+    public Object hGet(String key, Object hashKey) {
+        return this.<Map<Object, Object>, Object>read(key, DataType.HASH, hash -> hash.get(hashKey), null);
+    }
+
+    @Override
+    public List<Object> hMultiGet(String key, Collection<Object> hashKeys) {
+        return this.<Map<Object, Object>, List<Object>>read(key, DataType.HASH, hash -> {
+            List<Object> values = new ArrayList<>(hashKeys.size());
+            hashKeys.forEach(hashKey -> values.add(hash.get(hashKey)));
+            return values;
+        }, new ArrayList<>(Collections.nCopies(hashKeys.size(), null)));
+    }
+
+    @Override
+    public Long hDelete(String key, Object... hashKeys) {
+        return this.<Map<Object, Object>, Long>modify(key, DataType.HASH, hash -> {
+            long count = 0;
+            for (Object hashKey : hashKeys) {
+                if (hash.remove(hashKey) != null) {
+                    count++;
+                }
+            }
+            return count;
+        }, 0L);
+    }
+
+    @Override
+    public Boolean hHasKey(String key, Object hashKey) {
+        return this.<Map<Object, Object>, Boolean>read(key, DataType.HASH, hash -> hash.containsKey(hashKey), false);
+    }
+
+    @Override
+    public Long hIncrement(String key, Object hashKey, long delta) {
+        return this.<Map<Object, Object>, Long>write(key, DataType.HASH, LinkedHashMap::new, hash -> {
+            Object current = hash.get(hashKey);
+            long value = (current != null ? toNumber(current).longValue() : 0L) + delta;
+            hash.put(hashKey, value);
+            return value;
+        });
+    }
+
+    @Override
+    public Double hIncrement(String key, Object hashKey, double delta) {
+        return this.<Map<Object, Object>, Double>write(key, DataType.HASH, LinkedHashMap::new, hash -> {
+            Object current = hash.get(hashKey);
+            double value = (current != null ? toNumber(current).doubleValue() : 0D) + delta;
+            hash.put(hashKey, value);
+            return value;
+        });
+    }
+
+    @Override
+    public Set<Object> hKeys(String key) {
+        return this.<Map<Object, Object>, Set<Object>>read(key, DataType.HASH, hash -> new LinkedHashSet<>(hash.keySet()),
+                new LinkedHashSet<>());
+    }
+
+    @Override
+    public List<Object> hValues(String key) {
+        return this.<Map<Object, Object>, List<Object>>read(key, DataType.HASH, hash -> new ArrayList<>(hash.values()),
+                new ArrayList<>());
+    }
+
+    @Override
+    public Map<Object, Object> hEntries(String key) {
+        return this.<Map<Object, Object>, Map<Object, Object>>read(key, DataType.HASH, LinkedHashMap::new,
+                new LinkedHashMap<>());
+    }
+
+    @Override
+    public Long hSize(String key) {
+        return this.<Map<Object, Object>, Long>read(key, DataType.HASH, hash -> (long) hash.size(), 0L);
+    }
+
+    // ------------------ 列表操作 ------------------
+
+    @Override
+    public Long lLeftPush(String key, Object value) {
+        return lLeftPushAll(key, Collections.singletonList(value));
+    }
+
+    @Override
+    public Long lLeftPushAll(String key, Object... values) {
+        return lLeftPushAll(key, Arrays.asList(values));
+    }
+
+    @Override
+    public Long lLeftPushAll(String key, Collection<Object> values) {
+        return this.<List<Object>, Long>write(key, DataType.LIST, ArrayList::new, list -> {
+            values.forEach(value -> list.add(0, value));
+            return (long) list.size();
+        });
+    }
+
+    @Override
+    public Long lRightPush(String key, Object value) {
+        return lRightPushAll(key, Collections.singletonList(value));
+    }
+
+    @Override
+    public Long lRightPushAll(String key, Object... values) {
+        return lRightPushAll(key, Arrays.asList(values));
+    }
+
+    @Override
+    public Long lRightPushAll(String key, Collection<Object> values) {
+        return this.<List<Object>, Long>write(key, DataType.LIST, ArrayList::new, list -> {
+            list.addAll(values);
+            return (long) list.size();
+        });
+    }
+
+    @Override
+    public Object lLeftPop(String key) {
+        return this.<List<Object>, Object>modify(key, DataType.LIST, list -> list.remove(0), null);
+    }
+
+    @Override
+    public Object lLeftPop(String key, long timeout, TimeUnit unit) {
+        return blockingPop(() -> lLeftPop(key), unit.toMillis(timeout));
+    }
+
+    @Override
+    public Object lRightPop(String key) {
+        return this.<List<Object>, Object>modify(key, DataType.LIST, list -> list.remove(list.size() - 1), null);
+    }
+
+    @Override
+    public Object lRightPop(String key, long timeout, TimeUnit unit) {
+        return blockingPop(() -> lRightPop(key), unit.toMillis(timeout));
+    }
+
+    @Override
+    public Long lSize(String key) {
+        return this.<List<Object>, Long>read(key, DataType.LIST, list -> (long) list.size(), 0L);
+    }
+
+    @Override
+    public Object lIndex(String key, long index) {
+        return this.<List<Object>, Object>read(key, DataType.LIST, list -> {
+            long i = index < 0 ? list.size() + index : index;
+            return i >= 0 && i < list.size() ? list.get((int) i) : null;
+        }, null);
+    }
+
+    @Override
+    public List<Object> lRange(String key, long start, long end) {
+        return this.<List<Object>, List<Object>>read(key, DataType.LIST, list -> {
+            int[] range = range(start, end, list.size());
+            return new ArrayList<>(list.subList(range[0], range[1]));
+        }, new ArrayList<>());
+    }
+
+    @Override
+    public Long lRemove(String key, long count, Object value) {
+        return this.<List<Object>, Long>modify(key, DataType.LIST, list -> {
+            long removed = 0;
+            long limit = count == 0 ? Long.MAX_VALUE : Math.abs(count);
+            ListIterator<Object> iterator = count >= 0 ? list.listIterator() : list.listIterator(list.size());
+            while (removed < limit && (count >= 0 ? iterator.hasNext() : iterator.hasPrevious())) {
+                Object element = count >= 0 ? iterator.next() : iterator.previous();
+                if (Objects.equals(element, value)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        }, 0L);
+    }
+
+    @Override
+    public void lSet(String key, long index, Object value) {
+        Boolean updated = this.<List<Object>, Boolean>modify(key, DataType.LIST, list -> {
+            long i = index < 0 ? list.size() + index : index;
+            if (i < 0 || i >= list.size()) {
+                return false;
+            }
+            list.set((int) i, value);
+            return true;
+        }, false);
+        if (!updated) {
+            throw new RedisSystemException("ERR index out of range", null);
+        }
+    }
+
+    @Override
+    public void lTrim(String key, long start, long end) {
+        this.<List<Object>, Object>modify(key, DataType.LIST, list -> {
+            int[] range = range(start, end, list.size());
+            List<Object> kept = new ArrayList<>(list.subList(range[0], range[1]));
+            list.clear();
+            list.addAll(kept);
+            return null;
+        }, null);
+    }
+
+    // ------------------ 集合操作 ------------------
+
+    @Override
+    public Long sAdd(String key, Object... values) {
+        return sAdd(key, Arrays.asList(values));
+    }
+
+    @Override
+    public Long sAdd(String key, Collection<Object> values) {
+        return this.<Set<Object>, Long>write(key, DataType.SET, LinkedHashSet::new, set -> {
+            long added = 0;
+            for (Object value : values) {
+                if (set.add(value)) {
+                    added++;
+                }
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public Long sRemove(String key, Object... values) {
+        return this.<Set<Object>, Long>modify(key, DataType.SET, set -> {
+            long removed = 0;
+            for (Object value : values) {
+                if (set.remove(value)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }, 0L);
+    }
+
+    @Override
+    public Object sPop(String key) {
+        List<Object> popped = sPop(key, 1);
+        return popped.isEmpty() ? null : popped.get(0);
+    }
+
+    @Override
+    public List<Object> sPop(String key, long count) {
+        return this.<Set<Object>, List<Object>>modify(key, DataType.SET, set -> {
+            List<Object> members = new ArrayList<>(set);
+            Collections.shuffle(members, ThreadLocalRandom.current());
+            List<Object> popped = new ArrayList<>(members.subList(0, (int) Math.min(count, members.size())));
+            popped.forEach(set::remove);
+            return popped;
+        }, new ArrayList<>());
+    }
+
+    @Override
+    public Boolean sMove(String sourceKey, Object value, String destinationKey) {
+        return multiKey(() -> {
+            if (sRemove(sourceKey, value) == 0) {
+                return false;
+            }
+            sAdd(destinationKey, value);
+            return true;
+        });
+    }
+
+    @Override
+    public Long sSize(String key) {
+        return this.<Set<Object>, Long>read(key, DataType.SET, set -> (long) set.size(), 0L);
+    }
+
+    @Override
+    public Boolean sIsMember(String key, Object value) {
+        return this.<Set<Object>, Boolean>read(key, DataType.SET, set -> set.contains(value), false);
+    }
+
+    @Override
+    public Set<Object> sMembers(String key) {
+        return this.<Set<Object>, Set<Object>>read(key, DataType.SET, LinkedHashSet::new, new LinkedHashSet<>());
+    }
+
+    @Override
+    public Object sRandomMember(String key) {
+        List<Object> members = sRandomMembers(key, 1);
+        return members.isEmpty() ? null : members.get(0);
+    }
+
+    /**
+     * 与SRANDMEMBER负数count一致，返回的成员可能重复
+     */
+    @Override
+    public List<Object> sRandomMembers(String key, long count) {
+        return this.<Set<Object>, List<Object>>read(key, DataType.SET, set -> {
+            List<Object> members = new ArrayList<>(set);
+            List<Object> result = new ArrayList<>();
+            for (long i = 0; i < count && !members.isEmpty(); i++) {
+                result.add(members.get(ThreadLocalRandom.current().nextInt(members.size())));
+            }
+            return result;
+        }, new ArrayList<>());
+    }
+
+    @Override
+    public Set<Object> sIntersect(String key, String otherKey) {
+        return sIntersect(key, Collections.singletonList(otherKey));
+    }
+
+    @Override
+    public Set<Object> sIntersect(String key, Collection<String> otherKeys) {
+        Set<Object> result = sMembers(key);
+        otherKeys.forEach(otherKey -> result.retainAll(sMembers(otherKey)));
+        return result;
+    }
+
+    @Override
+    public Set<Object> sUnion(String key, String otherKey) {
+        return sUnion(key, Collections.singletonList(otherKey));
+    }
+
+    @Override
+    public Set<Object> sUnion(String key, Collection<String> otherKeys) {
+        Set<Object> result = sMembers(key);
+        otherKeys.forEach(otherKey -> result.addAll(sMembers(otherKey)));
+        return result;
+    }
+
+    @Override
+    public Set<Object> sDifference(String key, String otherKey) {
+        return sDifference(key, Collections.singletonList(otherKey));
+    }
+
+    @Override
+    public Set<Object> sDifference(String key, Collection<String> otherKeys) {
+        Set<Object> result = sMembers(key);
+        otherKeys.forEach(otherKey -> result.removeAll(sMembers(otherKey)));
+        return result;
+    }
+
+    // ------------------ 有序集合操作 ------------------
+
+    @Override
+    public Boolean zAdd(String key, Object value, double score) {
+        return this.<ScoredSet, Boolean>write(key, DataType.ZSET, ScoredSet::new, zset -> zset.add(value, score));
+    }
+
+    @Override
+    public Long zAdd(String key, Set<TypedTuple<Object>> tuples) {
+        return this.<ScoredSet, Long>write(key, DataType.ZSET, ScoredSet::new, zset -> {
+            long added = 0;
+            for (TypedTuple<Object> tuple : tuples) {
+                if (zset.add(tuple.getValue(), tuple.getScore() != null ? tuple.getScore() : 0D)) {
+                    added++;
+                }
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public Long zRemove(String key, Object... values) {
+        return this.<ScoredSet, Long>modify(key, DataType.ZSET, zset -> {
+            long removed = 0;
+            for (Object value : values) {
+                if (zset.remove(value)) {
+                    removed++;
+                }
+            }
+            return removed;
+        }, 0L);
+    }
+
+    @Override
+    public Long zRank(String key, Object value) {
+        return this.<ScoredSet, Long>read(key, DataType.ZSET, zset -> zset.rank(value), null);
+    }
+
+    @Override
+    public Long zReverseRank(String key, Object value) {
+        return this.<ScoredSet, Long>read(key, DataType.ZSET, zset -> {
+            Long rank = zset.rank(value);
+            return rank != null ? zset.size() - 1 - rank : null;
+        }, null);
+    }
+
+    @Override
+    public Set<Object> zRange(String key, long start, long end) {
+        return values(zRangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Set<Object> zReverseRange(String key, long start, long end) {
+        return values(zReverseRangeWithScores(key, start, end));
+    }
+
+    @Override
+    public Set<TypedTuple<Object>> zRangeWithScores(String key, long start, long end) {
+        return this.<ScoredSet, Set<TypedTuple<Object>>>read(key, DataType.ZSET,
+                zset -> zset.byRank(start, end, false), new LinkedHashSet<>());
+    }
+
+    @Override
+    public Set<TypedTuple<Object>> zReverseRangeWithScores(String key, long start, long end) {
+        return this.<ScoredSet, Set<TypedTuple<Object>>>read(key, DataType.ZSET,
+                zset -> zset.byRank(start, end, true), new LinkedHashSet<>());
+    }
+
+    @Override
+    public Set<Object> zRangeByScore(String key, double min, double max) {
+        return values(zRangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<Object> zReverseRangeByScore(String key, double min, double max) {
+        return values(zReverseRangeByScoreWithScores(key, min, max));
+    }
+
+    @Override
+    public Set<TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max) {
+        return this.<ScoredSet, Set<TypedTuple<Object>>>read(key, DataType.ZSET,
+                zset -> zset.byScore(min, max, false), new LinkedHashSet<>());
+    }
+
+    @Override
+    public Set<TypedTuple<Object>> zReverseRangeByScoreWithScores(String key, double min, double max) {
+        return this.<ScoredSet, Set<TypedTuple<Object>>>read(key, DataType.ZSET,
+                zset -> zset.byScore(min, max, true), new LinkedHashSet<>());
+    }
+
+    @Override
+    public Long zCount(String key, double min, double max) {
+        return (long) zRangeByScoreWithScores(key, min, max).size();
+    }
+
+    @Override
+    public Long zSize(String key) {
+        return this.<ScoredSet, Long>read(key, DataType.ZSET, zset -> (long) zset.size(), 0L);
+    }
+
+    @Override
+    public Double zScore(String key, Object value) {
+        return this.<ScoredSet, Double>read(key, DataType.ZSET, zset -> zset.score(value), null);
+    }
+
+    @Override
+    public Long zRemoveRangeByScore(String key, double min, double max) {
+        return this.<ScoredSet, Long>modify(key, DataType.ZSET, zset -> {
+            Set<TypedTuple<Object>> removed = zset.byScore(min, max, false);
+            removed.forEach(tuple -> zset.remove(tuple.getValue()));
+            return (long) removed.size();
+        }, 0L);
+    }
+
+    @Override
+    public Long zRemoveRange(String key, long start, long end) {
+        return this.<ScoredSet, Long>modify(key, DataType.ZSET, zset -> {
+            Set<TypedTuple<Object>> removed = zset.byRank(start, end, false);
+            removed.forEach(tuple -> zset.remove(tuple.getValue()));
+            return (long) removed.size();
+        }, 0L);
+    }
+
+    @Override
+    public Double zIncrementScore(String key, Object value, double delta) {
+        return this.<ScoredSet, Double>write(key, DataType.ZSET, ScoredSet::new, zset -> {
+            Double current = zset.score(value);
+            double score = (current != null ? current : 0D) + delta;
+            zset.add(value, score);
+            return score;
+        });
+    }
+
+    // ------------------ 锁脚本 ------------------
+
+    /**
+     * 与加锁脚本一致：成功返回防护令牌（不使用防护令牌时返回1），失败返回锁剩余过期时间的相反数，
+     * 调用方已持有写锁
+     */
+    private long acquireLock(String lockKey, String fencingKey, String lockValue, long expireMillis) {
+        Entry entry = live(lockKey);
+        if (entry == null) {
+            store.put(lockKey, new Entry(DataType.STRING, lockValue, System.currentTimeMillis() + expireMillis));
+            return fencingKey != null ? increment(fencingKey, 1L) : 1L;
+        }
+        if (entry.expireAt == 0) {
+            return 0L;
+        }
+        return -Math.max(1, entry.expireAt - System.currentTimeMillis());
+    }
+
+    private long releaseLock(String lockKey, String lockValue) {
+        Boolean[] released = {false};
+        store.computeIfPresent(lockKey, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            if (lockValue.equals(String.valueOf(entry.value))) {
+                released[0] = true;
+                return null;
+            }
+            return entry;
+        });
+        return released[0] ? 1L : 0L;
+    }
+
+    private long renewLock(String lockKey, String lockValue, long expireMillis) {
+        Boolean[] renewed = {false};
+        store.computeIfPresent(lockKey, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            if (lockValue.equals(String.valueOf(entry.value))) {
+                entry.expireAt = System.currentTimeMillis() + expireMillis;
+                renewed[0] = true;
+            }
+            return entry;
+        });
+        return renewed[0] ? 1L : 0L;
+    }
+
+    // ------------------ 内部方法 ------------------
+
+    /**
+     * 获取未过期的条目，已过期的惰性删除
+     */
+    private Entry live(String key) {
+        Entry entry = store.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            store.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 读取条目，key不存在时返回默认值
+     */
+    @SuppressWarnings("unchecked")
+    private <V, R> R read(String key, DataType type, Function<V, R> reader, R absent) {
+        Object[] result = {absent};
+        store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            result[0] = reader.apply((V) checkType(entry, type).value);
+            return entry;
+        });
+        return (R) result[0];
+    }
+
+    /**
+     * 写入条目，key不存在时创建
+     */
+    @SuppressWarnings("unchecked")
+    private <V, R> R write(String key, DataType type, Supplier<V> creator, Function<V, R> writer) {
+        Object[] result = new Object[1];
+        singleKey(() -> store.compute(key, (k, entry) -> {
+            Entry target = entry == null || entry.isExpired(System.currentTimeMillis())
+                    ? new Entry(type, creator.get(), 0) : checkType(entry, type);
+            result[0] = writer.apply((V) target.value);
+            return target;
+        }));
+        return (R) result[0];
+    }
+
+    /**
+     * 修改已存在的条目，集合类型变为空时删除key
+     */
+    @SuppressWarnings("unchecked")
+    private <V, R> R modify(String key, DataType type, Function<V, R> modifier, R absent) {
+        Object[] result = {absent};
+        singleKey(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            V value = (V) checkType(entry, type).value;
+            if (!isEmpty(value)) {
+                result[0] = modifier.apply(value);
+            }
+            return isEmpty(value) ? null : entry;
+        }));
+        return (R) result[0];
+    }
+
+    private Boolean setExpireAt(String key, long expireAt) {
+        Boolean[] result = {false};
+        singleKey(() -> store.computeIfPresent(key, (k, entry) -> {
+            if (entry.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            entry.expireAt = expireAt;
+            result[0] = true;
+            return entry.isExpired(System.currentTimeMillis()) ? null : entry;
+        }));
+        return result[0];
+    }
+
+    /**
+     * 持有读锁执行单key写命令
+     */
+    private <R> R singleKey(Supplier<R> command) {
+        return locked(keyLock.readLock(), command);
+    }
+
+    /**
+     * 持有写锁执行多key命令，期间不会穿插其他写入
+     */
+    private <R> R multiKey(Supplier<R> command) {
+        return locked(keyLock.writeLock(), command);
+    }
+
+    private static <R> R locked(Lock lock, Supplier<R> command) {
+        lock.lock();
+        try {
+            return command.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object blockingPop(Supplier<Object> pop, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Object value = pop.get();
+        while (value == null && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POP_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            value = pop.get();
+        }
+        return value;
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        store.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+    }
+
+    private static Entry checkType(Entry entry, DataType type) {
+        if (entry.type != type) {
+            throw new RedisSystemException(WRONG_TYPE, null);
+        }
+        return entry;
+    }
+
+    private static boolean isEmpty(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.isEmpty();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.isEmpty();
+        }
+        return value instanceof ScoredSet zset && zset.size() == 0;
+    }
+
+    private static Number toNumber(Object value) {
+        if (value instanceof Number number) {
+            return number;
+        }
+        try {
+            return Double.parseDouble(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new RedisSystemException("ERR value is not an integer or a float", e);
+        }
+    }
+
+    private static long expireAt(Duration duration) {
+        return duration != null && !duration.isZero() ? System.currentTimeMillis() + duration.toMillis() : 0;
+    }
+
+    /**
+     * 将Redis的起止下标（支持负数，包含结束下标）转换为subList的区间
+     */
+    private static int[] range(long start, long end, int size) {
+        long from = start < 0 ? Math.max(0, size + start) : start;
+        long to = end < 0 ? size + end : Math.min(end, size - 1L);
+        if (from > to || from >= size) {
+            return new int[]{0, 0};
+        }
+        return new int[]{(int) from, (int) to + 1};
+    }
+
+    private static Set<Object> values(Set<TypedTuple<Object>> tuples) {
+        Set<Object> values = new LinkedHashSet<>();
+        tuples.forEach(tuple -> values.add(tuple.getValue()));
+        return values;
+    }
+
+    private static Pattern globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> regex.append(".*");
+                case '?' -> regex.append('.');
+                case '[' -> regex.append('[');
+                case ']' -> regex.append(']');
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                }
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * 脚本的Java实现，参数与Lua脚本的KEYS、ARGV一致
+     */
+    @FunctionalInterface
+    public interface ScriptHandler {
+
+        /**
+         * 执行脚本
+         *
+         * @param keys 脚本的KEYS
+         * @param args 脚本的ARGV
+         * @return 脚本返回值
+         */
+        Object execute(List<String> keys, Object[] args);
+    }
+
+    /**
+     * 存储条目
+     */
+    private static final class Entry {
+        private final DataType type;
+        private final Object value;
+
+        /**
+         * 过期时间戳，0表示不过期
+         */
+        private volatile long expireAt;
+
+        private Entry(DataType type, Object value, long expireAt) {
+            this.type = type;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAt != 0 && expireAt <= now;
+        }
+    }
+
+    /**
+     * 有序集合，成员按分数升序排列，分数相同时按成员的字符串形式排序，
+     * 字符串形式也相同的不同成员（如1和"1"）按加入顺序排列，不会合并为一个成员
+     */
+    private static final class ScoredSet {
+        private long sequence;
+        private final Map<Object, Member> members = new HashMap<>();
+        private final TreeSet<Member> ordered = new TreeSet<>((a, b) -> {
+            int result = Double.compare(a.score, b.score);
+            if (result == 0) {
+                result = a.text.compareTo(b.text);
+            }
+            return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+        });
+
+        private boolean add(Object value, double score) {
+            Member previous = members.get(value);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            Member member = new Member(value, score, previous != null ? previous.sequence : ++sequence);
+            members.put(value, member);
+            ordered.add(member);
+            return previous == null;
+        }
+
+        private boolean remove(Object value) {
+            Member previous = members.remove(value);
+            if (previous == null) {
+                return false;
+            }
+            ordered.remove(previous);
+            return true;
+        }
+
+        private int size() {
+            return members.size();
+        }
+
+        private Double score(Object value) {
+            Member member = members.get(value);
+            return member != null ? member.score : null;
+        }
+
+        private Long rank(Object value) {
+            Member member = members.get(value);
+            return member != null ? (long) ordered.headSet(member).size() : null;
+        }
+
+        private Set<TypedTuple<Object>> byRank(long start, long end, boolean reverse) {
+            List<Member> list = new ArrayList<>(reverse ? ordered.descendingSet() : ordered);
+            int[] range = range(start, end, list.size());
+            return tuples(list.subList(range[0], range[1]));
+        }
+
+        private Set<TypedTuple<Object>> byScore(double min, double max, boolean reverse) {
+            List<Member> list = new ArrayList<>();
+            for (Member member : reverse ? ordered.descendingSet() : ordered) {
+                if (member.score >= min && member.score <= max) {
+                    list.add(member);
+                }
+            }
+            return tuples(list);
+        }
+
+        private static Set<TypedTuple<Object>> tuples(List<Member> members) {
+            Set<TypedTuple<Object>> tuples = new LinkedHashSet<>();
+            for (Member member : members) {
+                tuples.add(new DefaultTypedTuple<>(member.value, member.score));
+            }
+            return tuples;
+        }
+
+        /**
+         * 有序集合成员，sequence在成员首次加入时分配，分数变化时保持不变
+         */
+        private record Member(Object value, double score, long sequence, String text) {
+            private Member(Object value, double score, long sequence) {
+                this(value, score, sequence, String.valueOf(value));
+            }
+        }
+    }
+}
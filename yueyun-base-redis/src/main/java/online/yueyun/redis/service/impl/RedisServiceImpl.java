@@ -1,6 +1,8 @@
 package online.yueyun.redis.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import online.yueyun.redis.cache.CacheAsideLoader;
+import online.yueyun.redis.script.RedisScriptRegistry;
 import online.yueyun.redis.service.RedisService;
 import online.yueyun.redis.template.RedisTemplateWrapper;
 import org.springframework.data.redis.connection.DataType;
@@ -10,6 +12,8 @@ import org.springframework.data.redis.core.script.RedisScript;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Redis服务实现类
@@ -24,17 +28,46 @@ public class RedisServiceImpl implements RedisService {
      * Redis模板包装类
      */
     private final RedisTemplateWrapper redisTemplate;
+
+    /**
+     * 旁路缓存加载器
+     */
+    private final CacheAsideLoader cacheAsideLoader;
+
+    /**
+     * Lua脚本注册表
+     */
+    private final RedisScriptRegistry scriptRegistry;
+
+    /**
+     * 只读方法使用的模板包装类，配置了从节点读取时按读取策略路由，为空时与写命令共用主节点
+     */
+    private RedisTemplateWrapper readTemplate;
+
+    /**
+     * 设置只读方法使用的模板包装类
+     *
+     * @param readTemplate 从节点读取的模板包装类
+     */
+    public void setReadTemplate(RedisTemplateWrapper readTemplate) {
+        this.readTemplate = readTemplate;
+    }
+
+    private RedisTemplateWrapper reads() {
+        RedisTemplateWrapper template = readTemplate;
+        return template != null ? template : redisTemplate;
+    }
     
     // ------------------ 通用操作 ------------------
     
     @Override
     public Boolean hasKey(String key) {
-        return redisTemplate.hasKey(key);
+        return reads().hasKey(key);
     }
     
     @Override
     public Long getExpire(String key) {
-        return redisTemplate.getExpire(key);
+        return reads().getExpire(key);
     }
     
     @Override
@@ -59,7 +92,7 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public DataType getType(String key) {
-        return redisTemplate.type(key);
+        return reads().type(key);
     }
     
     @Override
@@ -79,7 +112,7 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Set<String> keys(String pattern) {
-        return redisTemplate.keys(pattern);
+        return reads().keys(pattern);
     }
     
     @Override
@@ -97,6 +130,11 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.execute(script, keys, args);
     }
     
+    @Override
+    public <T> T executeScript(String name, Class<T> resultType, List<String> keys, Object... args) {
+        return scriptRegistry.execute(redisTemplate.getRedisTemplate(), name, resultType, keys, args);
+    }
+    
     // ------------------ 字符串操作 ------------------
     
     @Override
@@ -146,17 +184,17 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Object get(String key) {
-        return redisTemplate.get(key);
+        return reads().get(key);
     }
     
     @Override
     public <T> T get(String key, Class<T> clazz) {
-        return redisTemplate.get(key, clazz);
+        return reads().get(key, clazz);
     }
     
     @Override
     public List<Object> multiGet(Collection<String> keys) {
-        return redisTemplate.multiGet(keys);
+        return reads().multiGet(keys);
     }
     
     @Override
@@ -184,11 +222,33 @@ public class RedisServiceImpl implements RedisService {
         return redisTemplate.decrement(key, delta);
     }
     
+    @Override
+    public <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl) {
+        return cacheAsideLoader.getOrLoad(key, loader, ttl, null);
+    }
+    
+    @Override
+    public <T> T getOrLoad(String key, Supplier<T> loader, Duration ttl, String bloomFilterKey) {
+        return cacheAsideLoader.getOrLoad(key, loader, ttl, bloomFilterKey);
+    }
+    
+    @Override
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl) {
+        return cacheAsideLoader.getOrLoadAll(keys, loader, ttl, null);
+    }
+    
+    @Override
+    public <T> Map<String, T> getOrLoadAll(Collection<String> keys, Function<Collection<String>, Map<String, T>> loader,
+                                           Duration ttl, String bloomFilterKey) {
+        return cacheAsideLoader.getOrLoadAll(keys, loader, ttl, bloomFilterKey);
+    }
+    
     // ------------------ 哈希操作 ------------------
     
     @Override
     public void hSet(String key, Object hashKey, Object value) {
-        redisTemplate.opsForHash().put(key, hashKey, value);
+        redisTemplate.hSet(key, hashKey, value);
     }
     
     @Override
@@ -198,17 +258,17 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public void hMultiSet(String key, Map<?, ?> map) {
-        redisTemplate.opsForHash().putAll(key, map);
+        redisTemplate.hMultiSet(key, map);
     }
     
     @Override
     public Object hGet(String key, Object hashKey) {
-        return redisTemplate.opsForHash().get(key, hashKey);
+        return reads().opsForHash().get(key, hashKey);
     }
     
     @Override
     public List<Object> hMultiGet(String key, Collection<Object> hashKeys) {
-        return redisTemplate.opsForHash().multiGet(key, hashKeys);
+        return reads().opsForHash().multiGet(key, hashKeys);
     }
     
     @Override
@@ -218,7 +278,7 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Boolean hHasKey(String key, Object hashKey) {
-        return redisTemplate.opsForHash().hasKey(key, hashKey);
+        return reads().opsForHash().hasKey(key, hashKey);
     }
     
     @Override
@@ -233,22 +293,22 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Set<Object> hKeys(String key) {
-        return redisTemplate.opsForHash().keys(key);
+        return reads().opsForHash().keys(key);
     }
     
     @Override
     public List<Object> hValues(String key) {
-        return redisTemplate.opsForHash().values(key);
+        return reads().opsForHash().values(key);
     }
     
     @Override
     public Map<Object, Object> hEntries(String key) {
-        return redisTemplate.opsForHash().entries(key);
+        return reads().hEntries(key);
     }
     
     @Override
     public Long hSize(String key) {
-        return redisTemplate.opsForHash().size(key);
+        return reads().opsForHash().size(key);
     }
     
     // ------------------ 列表操作 ------------------
@@ -305,17 +365,17 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Long lSize(String key) {
-        return redisTemplate.opsForList().size(key);
+        return reads().opsForList().size(key);
     }
     
     @Override
     public Object lIndex(String key, long index) {
-        return redisTemplate.opsForList().index(key, index);
+        return reads().opsForList().index(key, index);
     }
     
     @Override
     public List<Object> lRange(String key, long start, long end) {
-        return redisTemplate.opsForList().range(key, start, end);
+        return reads().lRange(key, start, end);
     }
     
     @Override
@@ -367,57 +427,57 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Long sSize(String key) {
-        return redisTemplate.opsForSet().size(key);
+        return reads().opsForSet().size(key);
     }
     
     @Override
     public Boolean sIsMember(String key, Object value) {
-        return redisTemplate.opsForSet().isMember(key, value);
+        return reads().opsForSet().isMember(key, value);
     }
     
     @Override
     public Set<Object> sMembers(String key) {
-        return redisTemplate.opsForSet().members(key);
+        return reads().opsForSet().members(key);
     }
     
     @Override
     public Object sRandomMember(String key) {
-        return redisTemplate.opsForSet().randomMember(key);
+        return reads().opsForSet().randomMember(key);
     }
     
     @Override
     public List<Object> sRandomMembers(String key, long count) {
-        return redisTemplate.opsForSet().randomMembers(key, count);
+        return reads().opsForSet().randomMembers(key, count);
     }
     
     @Override
     public Set<Object> sIntersect(String key, String otherKey) {
-        return redisTemplate.opsForSet().intersect(key, otherKey);
+        return reads().opsForSet().intersect(key, otherKey);
     }
     
     @Override
     public Set<Object> sIntersect(String key, Collection<String> otherKeys) {
-        return redisTemplate.opsForSet().intersect(key, otherKeys);
+        return reads().opsForSet().intersect(key, otherKeys);
     }
     
     @Override
     public Set<Object> sUnion(String key, String otherKey) {
-        return redisTemplate.opsForSet().union(key, otherKey);
+        return reads().opsForSet().union(key, otherKey);
     }
     
     @Override
     public Set<Object> sUnion(String key, Collection<String> otherKeys) {
-        return redisTemplate.opsForSet().union(key, otherKeys);
+        return reads().opsForSet().union(key, otherKeys);
     }
     
     @Override
     public Set<Object> sDifference(String key, String otherKey) {
-        return redisTemplate.opsForSet().difference(key, otherKey);
+        return reads().opsForSet().difference(key, otherKey);
     }
     
     @Override
     public Set<Object> sDifference(String key, Collection<String> otherKeys) {
-        return redisTemplate.opsForSet().difference(key, otherKeys);
+        return reads().opsForSet().difference(key, otherKeys);
     }
     
     // ------------------ 有序集合操作 ------------------
@@ -439,67 +499,67 @@ public class RedisServiceImpl implements RedisService {
     
     @Override
     public Long zRank(String key, Object value) {
-        return redisTemplate.opsForZSet().rank(key, value);
+        return reads().opsForZSet().rank(key, value);
     }
     
     @Override
     public Long zReverseRank(String key, Object value) {
-        return redisTemplate.opsForZSet().reverseRank(key, value);
+        return reads().opsForZSet().reverseRank(key, value);
     }
     
     @Override
     public Set<Object> zRange(String key, long start, long end) {
-        return redisTemplate.opsForZSet().range(key, start, end);
+        return reads().opsForZSet().range(key, start, end);
     }
     
     @Override
     public Set<Object> zReverseRange(String key, long start, long end) {
-        return redisTemplate.opsForZSet().reverseRange(key, start, end);
+        return reads().opsForZSet().reverseRange(key, start, end);
     }
     
     @Override
     public Set<TypedTuple<Object>> zRangeWithScores(String key, long start, long end) {
-        return redisTemplate.opsForZSet().rangeWithScores(key, start, end);
+        return reads().opsForZSet().rangeWithScores(key, start, end);
     }
     
     @Override
     public Set<TypedTuple<Object>> zReverseRangeWithScores(String key, long start, long end) {
-        return redisTemplate.opsForZSet().reverseRangeWithScores(key, start, end);
+        return reads().opsForZSet().reverseRangeWithScores(key, start, end);
     }
     
     @Override
     public Set<Object> zRangeByScore(String key, double min, double max) {
-        return redisTemplate.opsForZSet().rangeByScore(key, min, max);
+        return reads().opsForZSet().rangeByScore(key, min, max);
     }
     
     @Override
     public Set<Object> zReverseRangeByScore(String key, double min, double max) {
-        return redisTemplate.opsForZSet().reverseRangeByScore(key, min, max);
+        return reads().opsForZSet().reverseRangeByScore(key, min, max);
     }
     
     @Override
     public Set<TypedTuple<Object>> zRangeByScoreWithScores(String key, double min, double max) {
-        return redisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max);
+        return reads().opsForZSet().rangeByScoreWithScores(key, min, max);
     }
     
     @Override
     public Set<TypedTuple<Object>> zReverseRangeByScoreWithScores(String key, double min, double max) {
-        return redisTemplate.opsForZSet().reverseRangeByScoreWithScores(key, min, max);
+        return reads().opsForZSet().reverseRangeByScoreWithScores(key, min, max);
     }
     
     @Override
     public Long zCount(String key, double min, double max) {
-        return redisTemplate.opsForZSet().count(key, min, max);
+        return reads().opsForZSet().count(key, min, max);
     }
     
     @Override
     public Long zSize(String key) {
-        return redisTemplate.opsForZSet().size(key);
+        return reads().opsForZSet().size(key);
     }
     
     @Override
     public Double zScore(String key, Object value) {
-        return redisTemplate.opsForZSet().score(key, value);
+        return reads().opsForZSet().score(key, value);
     }
     
     @Override
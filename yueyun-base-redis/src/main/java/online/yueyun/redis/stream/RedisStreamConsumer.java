@@ -0,0 +1,462 @@
+package online.yueyun.redis.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.RedisStreamCommands.XClaimOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Redis Stream消费组引擎
+ * <p>
+ * 每个订阅由一个拉取线程在独占的连接上批量执行阻塞的XREADGROUP，不占用其他组件共享的连接；
+ * 消息交给有界线程池处理，线程池满时由拉取线程自己执行，从而对拉取形成背压。处理成功的消息ID在每轮拉取后合并为一条XACK确认；
+ * 处理失败的消息留在待处理列表中，空闲超过阈值后由XCLAIM转给存活的消费者重新投递，实现至少一次消费，业务处理需保证幂等。
+ * 投递次数达到上限的消息转入死信Stream后确认，不再重试。
+ * </p>
+ * <p>
+ * 消费者名称在重启后保持不变，重启前未确认的消息仍归属于同一个消费者；没有待处理消息且长时间不活跃的消费者会被移除。
+ * 字段按UTF-8字符串读写，其他语言的客户端可以直接生产和消费。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class RedisStreamConsumer {
+
+    /**
+     * 死信消息中记录原始消息ID、消费组和投递次数的字段
+     */
+    public static final String DEAD_LETTER_SOURCE_ID = "source-id";
+    public static final String DEAD_LETTER_GROUP = "group";
+    public static final String DEAD_LETTER_DELIVERIES = "deliveries";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final YueyunRedisProperties.Stream config;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 当前实例的消费者名称
+     */
+    private final String consumerName;
+
+    /**
+     * 消息处理线程池
+     */
+    private final ThreadPoolExecutor handlerExecutor;
+
+    /**
+     * 定时认领空闲消息的调度器
+     */
+    private final ScheduledExecutorService claimScheduler;
+
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+
+    public RedisStreamConsumer(RedisConnectionFactory connectionFactory, YueyunRedisProperties properties) {
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+        this.config = properties.getStream();
+        this.consumerName = resolveConsumerName(config.getConsumerName());
+        CustomizableThreadFactory handlerThreadFactory = new CustomizableThreadFactory("redis-stream-handler-");
+        handlerThreadFactory.setDaemon(true);
+        int threads = config.getHandlerThreads();
+        this.handlerExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.getHandlerQueueCapacity()), handlerThreadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.handlerExecutor.allowCoreThreadTimeOut(true);
+        CustomizableThreadFactory claimThreadFactory = new CustomizableThreadFactory("redis-stream-claim-");
+        claimThreadFactory.setDaemon(true);
+        this.claimScheduler = Executors.newSingleThreadScheduledExecutor(claimThreadFactory);
+    }
+
+    /**
+     * 发送消息，并按配置近似裁剪Stream长度（MAXLEN ~）
+     *
+     * @param stream Stream的key
+     * @param message 消息内容
+     * @return 消息ID
+     */
+    public RecordId publish(String stream, Object message) {
+        return add(stream, Collections.singletonMap(config.getPayloadField(), serialize(message)));
+    }
+
+    /**
+     * 订阅Stream，消费组不存在时自动创建
+     *
+     * @param stream Stream的key
+     * @param group 消费组
+     * @param clazz 消息类型
+     * @param consumer 消息消费者
+     * @param <T> 消息类型
+     */
+    public <T> void subscribe(String stream, String group, Class<T> clazz, Consumer<T> consumer) {
+        createGroupIfAbsent(stream, group);
+        Subscription<T> subscription = new Subscription<>(stream, group, clazz, consumer);
+        subscriptions.add(subscription);
+
+        Thread poller = new Thread(subscription::pollLoop, "redis-stream-poller-" + stream + "-" + group);
+        poller.setDaemon(true);
+        poller.start();
+
+        long claimInterval = config.getClaimInterval().toMillis();
+        claimScheduler.scheduleWithFixedDelay(subscription::claimIdle, claimInterval, claimInterval, TimeUnit.MILLISECONDS);
+        log.info("订阅Redis Stream成功，stream: {}, group: {}, consumer: {}", stream, group, consumerName);
+    }
+
+    /**
+     * 按近似长度裁剪Stream
+     *
+     * @param stream Stream的key
+     * @param maxLen 保留的最大长度
+     * @return 删除的消息数
+     */
+    public long trim(String stream, int maxLen) {
+        Long removed = redisTemplate.opsForStream().trim(stream, maxLen, true);
+        return removed != null ? removed : 0L;
+    }
+
+    /**
+     * 获取Stream对应的死信Stream
+     *
+     * @param stream Stream的key
+     * @return 死信Stream的key
+     */
+    public String deadLetterStream(String stream) {
+        return stream + config.getDeadLetterSuffix();
+    }
+
+    /**
+     * 获取当前实例的消费者名称
+     */
+    public String getConsumerName() {
+        return consumerName;
+    }
+
+    /**
+     * 关闭所有订阅，等待处理中的消息完成并确认
+     */
+    public void shutdown() {
+        running = false;
+        claimScheduler.shutdownNow();
+        handlerExecutor.shutdown();
+        try {
+            handlerExecutor.awaitTermination(config.getBlockTime().toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscriptions.forEach(Subscription::flushAcks);
+    }
+
+    private RecordId add(String stream, Map<String, String> fields) {
+        byte[] rawStream = stream.getBytes(StandardCharsets.UTF_8);
+        Map<byte[], byte[]> rawFields = new LinkedHashMap<>(fields.size() * 2);
+        fields.forEach((field, value) -> rawFields.put(field.getBytes(StandardCharsets.UTF_8),
+                value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0]));
+        XAddOptions options = config.getMaxLen() > 0
+                ? XAddOptions.maxlen(config.getMaxLen()).approximateTrimming(true) : XAddOptions.none();
+        return redisTemplate.execute((RedisCallback<RecordId>) connection -> connection.streamCommands()
+                .xAdd(StreamRecords.newRecord().in(rawStream).ofMap(rawFields), options));
+    }
+
+    private void createGroupIfAbsent(String stream, String group) {
+        try {
+            redisTemplate.opsForStream().createGroup(stream, ReadOffset.from("0"), group);
+        } catch (RedisSystemException e) {
+            if (!containsMessage(e, "BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean containsMessage(Throwable e, String text) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String serialize(Object message) {
+        if (message instanceof String str) {
+            return str;
+        }
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("消息序列化失败", e);
+        }
+    }
+
+    /**
+     * 解析消费者名称，未配置时使用主机名，重启后保持不变
+     */
+    private static String resolveConsumerName(String configured) {
+        if (StringUtils.hasText(configured)) {
+            return configured;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+            int at = runtimeName.indexOf('@');
+            return at >= 0 ? runtimeName.substring(at + 1) : runtimeName;
+        }
+    }
+
+    /**
+     * 单个Stream消费组的订阅
+     */
+    private class Subscription<T> {
+        private final String stream;
+        private final String group;
+        private final Class<T> clazz;
+        private final Consumer<T> consumer;
+
+        /**
+         * 已处理完成、等待确认的消息ID
+         */
+        private final Queue<RecordId> completed = new ConcurrentLinkedQueue<>();
+
+        private Subscription(String stream, String group, Class<T> clazz, Consumer<T> consumer) {
+            this.stream = stream;
+            this.group = group;
+            this.clazz = clazz;
+            this.consumer = consumer;
+        }
+
+        /**
+         * 在独占的连接上批量拉取新消息，连接出错时关闭并重新获取
+         */
+        private void pollLoop() {
+            StreamReadOptions options = StreamReadOptions.empty()
+                    .count(config.getBatchSize())
+                    .block(config.getBlockTime());
+            StreamOffset<byte[]> offset = StreamOffset.create(stream.getBytes(StandardCharsets.UTF_8),
+                    ReadOffset.lastConsumed());
+            org.springframework.data.redis.connection.stream.Consumer self =
+                    org.springframework.data.redis.connection.stream.Consumer.from(group, consumerName);
+            StreamOperations<String, Object, Object> ops = redisTemplate.opsForStream();
+            RedisConnection connection = null;
+            while (running) {
+                try {
+                    if (connection == null) {
+                        connection = connectionFactory.getConnection();
+                    }
+                    List<ByteRecord> records = connection.streamCommands().xReadGroup(self, options, offset);
+                    if (records != null) {
+                        records.forEach(record -> dispatch(ops.deserializeRecord(record)));
+                    }
+                    flushAcks();
+                } catch (Exception e) {
+                    closeQuietly(connection);
+                    connection = null;
+                    if (!running) {
+                        break;
+                    }
+                    log.error("拉取Redis Stream消息失败，stream: {}, group: {}", stream, group, e);
+                    sleepQuietly(config.getBlockTime().toMillis());
+                }
+            }
+            closeQuietly(connection);
+        }
+
+        /**
+         * 认领其他消费者空闲过久的待处理消息并重新处理，投递次数达到上限的消息转入死信Stream；
+         * 最后移除没有待处理消息且长时间不活跃的消费者
+         */
+        private void claimIdle() {
+            try {
+                StreamOperations<String, Object, Object> ops = redisTemplate.opsForStream();
+                Range<String> range = Range.unbounded();
+                while (running) {
+                    PendingMessages pending = ops.pending(stream, group, range, config.getBatchSize());
+                    if (pending == null || pending.isEmpty()) {
+                        break;
+                    }
+                    List<RecordId> retry = new ArrayList<>();
+                    Map<RecordId, Long> exhausted = new LinkedHashMap<>();
+                    RecordId last = null;
+                    for (PendingMessage message : pending) {
+                        last = message.getId();
+                        if (message.getElapsedTimeSinceLastDelivery().compareTo(config.getClaimMinIdle()) < 0) {
+                            continue;
+                        }
+                        if (config.getMaxDeliveries() > 0 && message.getTotalDeliveryCount() >= config.getMaxDeliveries()) {
+                            exhausted.put(message.getId(), message.getTotalDeliveryCount());
+                        } else {
+                            retry.add(message.getId());
+                        }
+                    }
+                    if (!retry.isEmpty()) {
+                        List<MapRecord<String, Object, Object>> claimed = claim(ops, retry);
+                        if (!claimed.isEmpty()) {
+                            log.info("认领空闲消息，stream: {}, group: {}, count: {}", stream, group, claimed.size());
+                        }
+                        claimed.forEach(this::dispatch);
+                    }
+                    if (!exhausted.isEmpty()) {
+                        deadLetter(ops, exhausted);
+                    }
+                    if (pending.size() < config.getBatchSize()) {
+                        break;
+                    }
+                    range = Range.rightUnbounded(Range.Bound.inclusive(
+                            RecordId.of(last.getTimestamp(), last.getSequence() + 1).getValue()));
+                }
+                flushAcks();
+                removeStaleConsumers(ops);
+            } catch (Exception e) {
+                log.error("认领Redis Stream空闲消息失败，stream: {}, group: {}", stream, group, e);
+            }
+        }
+
+        /**
+         * 按空闲时间条件认领消息，其他消费者已先一步认领的消息不会返回
+         */
+        private List<MapRecord<String, Object, Object>> claim(StreamOperations<String, Object, Object> ops,
+                                                              List<RecordId> ids) {
+            List<MapRecord<String, Object, Object>> claimed = ops.claim(stream, group, consumerName,
+                    XClaimOptions.minIdle(config.getClaimMinIdle()).ids(ids.toArray(new RecordId[0])));
+            return claimed != null ? claimed : Collections.emptyList();
+        }
+
+        /**
+         * 将投递次数达到上限的消息写入死信Stream后确认，先认领再转移，避免多个节点重复写入死信
+         */
+        private void deadLetter(StreamOperations<String, Object, Object> ops, Map<RecordId, Long> exhausted) {
+            String deadLetterStream = deadLetterStream(stream);
+            for (MapRecord<String, Object, Object> record : claim(ops, new ArrayList<>(exhausted.keySet()))) {
+                Map<String, String> fields = new LinkedHashMap<>();
+                record.getValue().forEach((field, value) -> fields.put(String.valueOf(field), String.valueOf(value)));
+                fields.put(DEAD_LETTER_SOURCE_ID, record.getId().getValue());
+                fields.put(DEAD_LETTER_GROUP, group);
+                fields.put(DEAD_LETTER_DELIVERIES, String.valueOf(exhausted.getOrDefault(record.getId(), 0L) + 1));
+                add(deadLetterStream, fields);
+                ops.acknowledge(stream, group, record.getId());
+                log.warn("Redis Stream消息投递次数达到上限，转入死信: stream: {}, group: {}, id: {}, deadLetter: {}",
+                        stream, group, record.getId(), deadLetterStream);
+            }
+        }
+
+        /**
+         * 移除没有待处理消息且不活跃超过consumer-expire的消费者（XGROUP DELCONSUMER），
+         * 仍有待处理消息的消费者等消息被认领后再移除
+         */
+        private void removeStaleConsumers(StreamOperations<String, Object, Object> ops) {
+            if (config.getConsumerExpire() == null || config.getConsumerExpire().isZero()) {
+                return;
+            }
+            StreamInfo.XInfoConsumers consumers = ops.consumers(stream, group);
+            if (consumers == null) {
+                return;
+            }
+            consumers.forEach(info -> {
+                if (!consumerName.equals(info.consumerName()) && info.pendingCount() == 0
+                        && info.idleTime().compareTo(config.getConsumerExpire()) > 0) {
+                    ops.deleteConsumer(stream,
+                            org.springframework.data.redis.connection.stream.Consumer.from(group, info.consumerName()));
+                    log.info("移除不活跃的Redis Stream消费者，stream: {}, group: {}, consumer: {}",
+                            stream, group, info.consumerName());
+                }
+            });
+        }
+
+        /**
+         * 将消息交给处理线程池
+         */
+        private void dispatch(MapRecord<String, Object, Object> record) {
+            handlerExecutor.execute(() -> handle(record.getId(), record.getValue()));
+        }
+
+        private void handle(RecordId id, Map<Object, Object> fields) {
+            try {
+                Object payload = fields.get(config.getPayloadField());
+                consumer.accept(deserialize(payload != null ? payload.toString() : null));
+                completed.add(id);
+            } catch (Exception e) {
+                // 不确认，消息留在待处理列表中，空闲超时后重新投递
+                log.error("处理Redis Stream消息失败，stream: {}, group: {}, id: {}", stream, group, id, e);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T deserialize(String payload) throws JsonProcessingException {
+            if (payload == null || clazz == String.class) {
+                return (T) payload;
+            }
+            return objectMapper.readValue(payload, clazz);
+        }
+
+        /**
+         * 一次XACK确认所有已处理完成的消息
+         */
+        private void flushAcks() {
+            List<RecordId> ids = new ArrayList<>();
+            RecordId id;
+            while ((id = completed.poll()) != null) {
+                ids.add(id);
+            }
+            if (!ids.isEmpty()) {
+                try {
+                    redisTemplate.opsForStream().acknowledge(stream, group, ids.toArray(new RecordId[0]));
+                } catch (Exception e) {
+                    log.error("确认Redis Stream消息失败，stream: {}, group: {}, count: {}", stream, group, ids.size(), e);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(RedisConnection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.debug("关闭Redis Stream拉取连接失败", e);
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
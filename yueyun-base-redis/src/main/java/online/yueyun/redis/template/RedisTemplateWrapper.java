@@ -1,14 +1,36 @@
 package online.yueyun.redis.template;
 
 import lombok.RequiredArgsConstructor;
+import online.yueyun.redis.bigkey.BigKeyGuard;
+import online.yueyun.redis.hotkey.HotKeyDetector;
+import online.yueyun.redis.utils.RedisKeyUtils;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.*;
 import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 /**
  * Redis模板包装类，简化Redis操作
@@ -19,10 +41,85 @@ import java.util.function.Consumer;
 @RequiredArgsConstructor
 public class RedisTemplateWrapper {
 
+    /**
+     * 写入主键并在成功后删除分片哈希的Lua脚本，ARGV[2]为过期毫秒数（0表示不过期），ARGV[3]为NX、XX或空
+     */
+    private static final byte[] SET_AND_DROP_CHUNKS_SCRIPT = (
+            "local args = {KEYS[1], ARGV[1]} " +
+            "if tonumber(ARGV[2]) > 0 then args[#args + 1] = 'PX' args[#args + 1] = ARGV[2] end " +
+            "if ARGV[3] ~= '' then args[#args + 1] = ARGV[3] end " +
+            "if redis.call('SET', unpack(args)) then redis.call('DEL', KEYS[2]) return 1 end " +
+            "return 0").getBytes(StandardCharsets.UTF_8);
+
     /**
      * Spring Redis模板
      */
     private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 集群模式下按节点并行执行批量命令的线程池，为空时在调用线程中依次执行
+     */
+    private ExecutorService clusterBatchExecutor;
+
+    /**
+     * 是否集群模式，首次使用时根据连接工厂判断
+     */
+    private volatile Boolean clusterMode;
+
+    /**
+     * 热点key探测器，为空时不做探测
+     */
+    private HotKeyDetector hotKeyDetector;
+
+    /**
+     * 大key防护，为空时不做检查
+     */
+    private BigKeyGuard bigKeyGuard;
+
+    /**
+     * 设置大key防护，值的写入和读取改为先序列化再执行，以便记录大小和分片存储
+     *
+     * @param bigKeyGuard 大key防护
+     */
+    public void setBigKeyGuard(BigKeyGuard bigKeyGuard) {
+        this.bigKeyGuard = bigKeyGuard;
+    }
+
+    /**
+     * 设置热点key探测器，热点key的读取会优先命中本地副本
+     *
+     * @param hotKeyDetector 热点key探测器
+     */
+    public void setHotKeyDetector(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    /**
+     * 设置集群模式下按节点并行执行批量命令的线程数，小于等于1时在调用线程中依次执行
+     *
+     * @param parallelism 线程数
+     */
+    public void setClusterParallelism(int parallelism) {
+        shutdown();
+        if (parallelism > 1) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-batch-");
+            threadFactory.setDaemon(true);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+            executor.allowCoreThreadTimeOut(true);
+            this.clusterBatchExecutor = executor;
+        }
+    }
+
+    /**
+     * 关闭批量命令线程池
+     */
+    public void shutdown() {
+        if (clusterBatchExecutor != null) {
+            clusterBatchExecutor.shutdown();
+            clusterBatchExecutor = null;
+        }
+    }
     
     /**
      * 获取RedisTemplate
@@ -33,6 +130,7 @@ public class RedisTemplateWrapper {
     
     /**
      * 获取值操作助手
+     * 直接读写不经过大key分片和热点key本地副本失效，开启分片存储的key请使用{@link #get(String)}、{@link #set(String, Object)}等方法
      */
     public ValueOperations<String, Object> opsForValue() {
         return redisTemplate.opsForValue();
@@ -108,7 +206,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean expire(String key, long timeout) {
-        return redisTemplate.expire(key, timeout, TimeUnit.SECONDS);
+        return expire(key, Duration.ofSeconds(timeout));
     }
     
     /**
@@ -119,6 +217,9 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean expire(String key, Duration duration) {
+        if (bigKeyGuard != null && bigKeyGuard.isChunked(key)) {
+            redisTemplate.expire(BigKeyGuard.chunkKey(key), duration.getSeconds(), TimeUnit.SECONDS);
+        }
         return redisTemplate.expire(key, duration.getSeconds(), TimeUnit.SECONDS);
     }
     
@@ -160,7 +261,12 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean delete(String key) {
-        return redisTemplate.delete(key);
+        return invalidating(key, () -> {
+            if (bigKeyGuard != null && bigKeyGuard.isChunked(key)) {
+                redisTemplate.delete(BigKeyGuard.chunkKey(key));
+            }
+            return redisTemplate.delete(key);
+        });
     }
     
     /**
@@ -170,7 +276,23 @@ public class RedisTemplateWrapper {
      * @return 删除的键数量
      */
     public Long delete(Collection<String> keys) {
-        return redisTemplate.delete(keys);
+        if (keys == null || keys.isEmpty()) {
+            return 0L;
+        }
+        return invalidating(keys, () -> {
+            if (!isClusterMode() || RedisKeyUtils.isSameSlot(keys)) {
+                return redisTemplate.delete(keys);
+            }
+            Map<Integer, List<String>> slotKeys = RedisKeyUtils.groupBySlot(keys);
+            AtomicLong deleted = new AtomicLong();
+            executeBySlot(slotKeys.keySet(), slot -> {
+                Long count = redisTemplate.delete(slotKeys.get(slot));
+                if (count != null) {
+                    deleted.addAndGet(count);
+                }
+            });
+            return deleted.get();
+        });
     }
     
     /**
@@ -182,7 +304,7 @@ public class RedisTemplateWrapper {
     public Long deleteByPattern(String pattern) {
         Set<String> keys = redisTemplate.keys(pattern);
         if (keys != null && !keys.isEmpty()) {
-            return redisTemplate.delete(keys);
+            return invalidating(keys, () -> redisTemplate.delete(keys));
         }
         return 0L;
     }
@@ -205,8 +327,10 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean rename(String oldKey, String newKey) {
-        redisTemplate.rename(oldKey, newKey);
-        return Boolean.TRUE;
+        return invalidating(Arrays.asList(oldKey, newKey), () -> {
+            redisTemplate.rename(oldKey, newKey);
+            return Boolean.TRUE;
+        });
     }
     
     /**
@@ -217,7 +341,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean renameIfAbsent(String oldKey, String newKey) {
-        return redisTemplate.renameIfAbsent(oldKey, newKey);
+        return invalidating(Arrays.asList(oldKey, newKey), () -> redisTemplate.renameIfAbsent(oldKey, newKey));
     }
     
     /**
@@ -271,7 +395,7 @@ public class RedisTemplateWrapper {
      * @param value 值
      */
     public void set(String key, Object value) {
-        opsForValue().set(key, value);
+        doSet(key, value, null, SetOption.upsert());
     }
     
     /**
@@ -282,7 +406,7 @@ public class RedisTemplateWrapper {
      * @param timeout 过期时间，单位：秒
      */
     public void set(String key, Object value, long timeout) {
-        opsForValue().set(key, value, timeout, TimeUnit.SECONDS);
+        doSet(key, value, Duration.ofSeconds(timeout), SetOption.upsert());
     }
     
     /**
@@ -293,7 +417,7 @@ public class RedisTemplateWrapper {
      * @param duration 过期时间
      */
     public void set(String key, Object value, Duration duration) {
-        opsForValue().set(key, value, duration);
+        doSet(key, value, duration, SetOption.upsert());
     }
     
     /**
@@ -304,7 +428,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfAbsent(String key, Object value) {
-        return opsForValue().setIfAbsent(key, value);
+        return doSet(key, value, null, SetOption.ifAbsent());
     }
     
     /**
@@ -316,7 +440,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfAbsent(String key, Object value, long timeout) {
-        return opsForValue().setIfAbsent(key, value, timeout, TimeUnit.SECONDS);
+        return doSet(key, value, Duration.ofSeconds(timeout), SetOption.ifAbsent());
     }
     
     /**
@@ -328,7 +452,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfAbsent(String key, Object value, Duration duration) {
-        return opsForValue().setIfAbsent(key, value, duration);
+        return doSet(key, value, duration, SetOption.ifAbsent());
     }
     
     /**
@@ -339,7 +463,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfPresent(String key, Object value) {
-        return opsForValue().setIfPresent(key, value);
+        return doSet(key, value, null, SetOption.ifPresent());
     }
     
     /**
@@ -351,7 +475,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfPresent(String key, Object value, long timeout) {
-        return opsForValue().setIfPresent(key, value, timeout, TimeUnit.SECONDS);
+        return doSet(key, value, Duration.ofSeconds(timeout), SetOption.ifPresent());
     }
     
     /**
@@ -363,7 +487,7 @@ public class RedisTemplateWrapper {
      * @return 是否成功
      */
     public Boolean setIfPresent(String key, Object value, Duration duration) {
-        return opsForValue().setIfPresent(key, value, duration);
+        return doSet(key, value, duration, SetOption.ifPresent());
     }
     
     /**
@@ -373,7 +497,11 @@ public class RedisTemplateWrapper {
      * @return 值
      */
     public Object get(String key) {
-        return opsForValue().get(key);
+        HotKeyDetector detector = hotKeyDetector;
+        if (detector == null) {
+            return doGet(key);
+        }
+        return detector.read(key, () -> doGet(key));
     }
     
     /**
@@ -386,7 +514,7 @@ public class RedisTemplateWrapper {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key, Class<T> clazz) {
-        Object value = opsForValue().get(key);
+        Object value = get(key);
         if (value == null) {
             return null;
         }
@@ -403,7 +531,28 @@ public class RedisTemplateWrapper {
      * @return 值列表
      */
     public List<Object> multiGet(Collection<String> keys) {
-        return opsForValue().multiGet(keys);
+        if (keys == null || keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!isClusterMode() || RedisKeyUtils.isSameSlot(keys)) {
+            return doMultiGet(keys instanceof List<String> list ? list : new ArrayList<>(keys));
+        }
+        // 集群模式下按槽拆分为多条MGET，结果按输入顺序回填
+        List<String> keyList = new ArrayList<>(keys);
+        Map<Integer, List<Integer>> slotIndexes = RedisKeyUtils.groupIndexesBySlot(keyList);
+        Object[] results = new Object[keyList.size()];
+        executeBySlot(slotIndexes.keySet(), slot -> {
+            List<Integer> indexes = slotIndexes.get(slot);
+            List<String> slotKeys = new ArrayList<>(indexes.size());
+            indexes.forEach(index -> slotKeys.add(keyList.get(index)));
+            List<Object> values = doMultiGet(slotKeys);
+            if (values != null) {
+                for (int i = 0; i < indexes.size(); i++) {
+                    results[indexes.get(i)] = values.get(i);
+                }
+            }
+        });
+        return new ArrayList<>(Arrays.asList(results));
     }
     
     /**
@@ -412,17 +561,85 @@ public class RedisTemplateWrapper {
      * @param map 键值对映射
      */
     public void multiSet(Map<String, Object> map) {
-        opsForValue().multiSet(map);
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        invalidating(map.keySet(), () -> {
+            if (!isClusterMode() || RedisKeyUtils.isSameSlot(map.keySet())) {
+                opsForValue().multiSet(map);
+                return null;
+            }
+            Map<Integer, List<String>> slotKeys = RedisKeyUtils.groupBySlot(map.keySet());
+            executeBySlot(slotKeys.keySet(), slot -> opsForValue().multiSet(subMap(map, slotKeys.get(slot))));
+            return null;
+        });
     }
     
+    /**
+     * 流水线批量写入值，每个key可以有各自的过期时间
+     * <p>
+     * 与{@link #set(String, Object, Duration)}一样经过大key检查和热点key本地副本失效，
+     * 开启分片存储的key逐个按单key写入，其余key合并为一个管道
+     * </p>
+     *
+     * @param values 键值对映射
+     * @param ttl 根据key返回过期时间，返回null时不过期
+     * @param onlyIfAbsent 是否只写入不存在的key
+     */
+    public void setAll(Map<String, ?> values, Function<String, Duration> ttl, boolean onlyIfAbsent) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        SetOption option = onlyIfAbsent ? SetOption.ifAbsent() : SetOption.upsert();
+        invalidating(values.keySet(), () -> {
+            BigKeyGuard guard = bigKeyGuard;
+            List<byte[][]> pipelined = new ArrayList<>(values.size());
+            List<Expiration> expirations = new ArrayList<>(values.size());
+            values.forEach((key, value) -> {
+                Duration duration = ttl.apply(key);
+                if (guard != null && guard.isChunked(key)) {
+                    doSetRemote(key, value, duration, option);
+                    return;
+                }
+                byte[] rawValue = valueSerializer().serialize(value);
+                if (guard != null) {
+                    guard.checkWrite(key, "set", rawValue != null ? rawValue.length : 0);
+                }
+                pipelined.add(new byte[][]{rawKey(key), rawValue});
+                expirations.add(duration != null ? Expiration.from(duration) : Expiration.persistent());
+            });
+            if (!pipelined.isEmpty()) {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (int i = 0; i < pipelined.size(); i++) {
+                        byte[][] entry = pipelined.get(i);
+                        connection.stringCommands().set(entry[0], entry[1], expirations.get(i), option);
+                    }
+                    return null;
+                });
+            }
+            return null;
+        });
+    }
+
     /**
      * 仅当所有key都不存在时批量设置值
+     * <p>
+     * MSETNX要求全部成功或全部失败，集群模式下只有位于同一个槽的键才能保证这一点，
+     * 跨槽的键会被拒绝，请使用{@link RedisKeyUtils#withHashTag(String, String...)}让键落在同一个槽
+     * </p>
      *
      * @param map 键值对映射
      * @return 是否成功
+     * @throws IllegalArgumentException 集群模式下键位于不同的槽
      */
     public Boolean multiSetIfAbsent(Map<String, Object> map) {
-        return opsForValue().multiSetIfAbsent(map);
+        if (map == null || map.isEmpty()) {
+            return Boolean.FALSE;
+        }
+        if (isClusterMode() && !RedisKeyUtils.isSameSlot(map.keySet())) {
+            throw new IllegalArgumentException("集群模式下multiSetIfAbsent的键必须位于同一个槽，请使用hash tag: " + map.keySet());
+        }
+        return invalidating(map.keySet(), () -> opsForValue().multiSetIfAbsent(map));
     }
     
     /**
@@ -433,7 +650,7 @@ public class RedisTemplateWrapper {
      * @return 递增后的值
      */
     public Long increment(String key, long delta) {
-        return opsForValue().increment(key, delta);
+        return invalidating(key, () -> opsForValue().increment(key, delta));
     }
     
     /**
@@ -444,7 +661,7 @@ public class RedisTemplateWrapper {
      * @return 递增后的值
      */
     public Double increment(String key, double delta) {
-        return opsForValue().increment(key, delta);
+        return invalidating(key, () -> opsForValue().increment(key, delta));
     }
     
     /**
@@ -455,6 +672,402 @@ public class RedisTemplateWrapper {
      * @return 递减后的值
      */
     public Long decrement(String key, long delta) {
-        return opsForValue().decrement(key, delta);
+        return invalidating(key, () -> opsForValue().decrement(key, delta));
+    }
+
+    /**
+     * 设置哈希字段的值
+     *
+     * @param key 键
+     * @param hashKey 字段
+     * @param value 值
+     */
+    public void hSet(String key, Object hashKey, Object value) {
+        if (bigKeyGuard == null) {
+            opsForHash().put(key, hashKey, value);
+            return;
+        }
+        byte[] rawValue = hashValueSerializer().serialize(value);
+        bigKeyGuard.checkWrite(key, "hset", rawValue != null ? rawValue.length : 0);
+        byte[] rawKey = rawKey(key);
+        byte[] rawHashKey = hashKeySerializer().serialize(hashKey);
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.hashCommands().hSet(rawKey, rawHashKey, rawValue));
+    }
+
+    /**
+     * 批量设置哈希字段的值
+     *
+     * @param key 键
+     * @param map 字段与值的映射
+     */
+    public void hMultiSet(String key, Map<?, ?> map) {
+        if (bigKeyGuard == null) {
+            opsForHash().putAll(key, map);
+            return;
+        }
+        if (map == null || map.isEmpty()) {
+            return;
+        }
+        Map<byte[], byte[]> hashes = new LinkedHashMap<>(map.size() * 2);
+        int total = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            byte[] rawValue = hashValueSerializer().serialize(entry.getValue());
+            int size = rawValue != null ? rawValue.length : 0;
+            bigKeyGuard.checkWrite(key, "hset", size);
+            total += size;
+            hashes.put(hashKeySerializer().serialize(entry.getKey()), rawValue);
+        }
+        bigKeyGuard.checkWrite(key, "hmset", total);
+        byte[] rawKey = rawKey(key);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hMSet(rawKey, hashes);
+            return null;
+        });
+    }
+
+    /**
+     * 获取哈希的所有字段和值，元素数较多时改为HSCAN分批读取，避免单条命令返回整个大哈希
+     *
+     * @param key 键
+     * @return 字段与值的映射
+     */
+    public Map<Object, Object> hEntries(String key) {
+        if (bigKeyGuard == null) {
+            return opsForHash().entries(key);
+        }
+        Long size = opsForHash().size(key);
+        if (size == null || !bigKeyGuard.checkElements(key, "hgetall", size)) {
+            return opsForHash().entries(key);
+        }
+        Map<Object, Object> entries = new LinkedHashMap<>((int) Math.min(size * 2, Integer.MAX_VALUE));
+        ScanOptions options = ScanOptions.scanOptions().count(bigKeyGuard.getScanBatchSize()).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = opsForHash().scan(key, options)) {
+            cursor.forEachRemaining(entry -> entries.put(entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * 获取列表指定范围的元素，读取整个大列表时改为分页读取
+     *
+     * @param key 键
+     * @param start 开始位置
+     * @param end 结束位置，-1表示最后一个元素
+     * @return 元素列表
+     */
+    public List<Object> lRange(String key, long start, long end) {
+        if (bigKeyGuard == null || start != 0 || end != -1) {
+            return opsForList().range(key, start, end);
+        }
+        Long size = opsForList().size(key);
+        if (size == null || !bigKeyGuard.checkElements(key, "lrange", size)) {
+            return opsForList().range(key, start, end);
+        }
+        int batch = bigKeyGuard.getScanBatchSize();
+        List<Object> result = new ArrayList<>((int) Math.min(size, Integer.MAX_VALUE));
+        for (long offset = 0; ; offset += batch) {
+            List<Object> page = opsForList().range(key, offset, offset + batch - 1);
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            result.addAll(page);
+            if (page.size() < batch) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 写入值，写入前后使本地副本失效
+     */
+    private Boolean doSet(String key, Object value, Duration ttl, SetOption option) {
+        return invalidating(key, () -> doSetRemote(key, value, ttl, option));
+    }
+
+    /**
+     * 写入Redis，开启大key防护时先序列化以检查大小，超过分片大小的值按分片写入
+     */
+    private Boolean doSetRemote(String key, Object value, Duration ttl, SetOption option) {
+        BigKeyGuard guard = bigKeyGuard;
+        if (guard == null) {
+            ValueOperations<String, Object> ops = opsForValue();
+            if (option == SetOption.SET_IF_ABSENT) {
+                return ttl != null ? ops.setIfAbsent(key, value, ttl) : ops.setIfAbsent(key, value);
+            }
+            if (option == SetOption.SET_IF_PRESENT) {
+                return ttl != null ? ops.setIfPresent(key, value, ttl) : ops.setIfPresent(key, value);
+            }
+            if (ttl != null) {
+                ops.set(key, value, ttl);
+            } else {
+                ops.set(key, value);
+            }
+            return Boolean.TRUE;
+        }
+        byte[] rawValue = valueSerializer().serialize(value);
+        int size = rawValue != null ? rawValue.length : 0;
+        guard.checkWrite(key, "set", size);
+        byte[] rawKey = rawKey(key);
+        Expiration expiration = ttl != null ? Expiration.from(ttl) : Expiration.persistent();
+        if (!guard.isChunked(key)) {
+            return redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(rawKey, rawValue, expiration, option));
+        }
+        if (!guard.shouldChunk(key, size)) {
+            // 原来可能是分片存储的值，写入成功后删除分片哈希
+            return setAndDropChunks(key, rawKey, rawValue, expiration, option);
+        }
+        // 条件写入先按条件写入分片标记占住主键，成功后再写分片，写分片期间读取按分片缺失处理
+        if (option != SetOption.UPSERT
+                && !setAndDropChunks(key, rawKey, BigKeyGuard.chunkMarker(0, 0), expiration, option)) {
+            return Boolean.FALSE;
+        }
+        writeChunks(key, rawKey, rawValue, expiration);
+        return Boolean.TRUE;
+    }
+
+    /**
+     * 执行SET，成功时在同一个脚本中删除分片哈希
+     */
+    private Boolean setAndDropChunks(String key, byte[] rawKey, byte[] rawValue, Expiration expiration, SetOption option) {
+        byte[] rawChunkKey = rawKey(BigKeyGuard.chunkKey(key));
+        byte[] ttl = String.valueOf(expiration.isPersistent() ? 0 : expiration.getExpirationTimeInMilliseconds())
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] condition = (option == SetOption.SET_IF_ABSENT ? "NX" : option == SetOption.SET_IF_PRESENT ? "XX" : "")
+                .getBytes(StandardCharsets.US_ASCII);
+        Long result = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands()
+                .eval(SET_AND_DROP_CHUNKS_SCRIPT, ReturnType.INTEGER, 2, rawKey, rawChunkKey, rawValue, ttl, condition));
+        return result != null && result > 0;
+    }
+
+    /**
+     * 按分片写入：先写分片哈希，再写主键中的分片标记，两个键位于同一个哈希槽
+     */
+    private void writeChunks(String key, byte[] rawKey, byte[] rawValue, Expiration expiration) {
+        int chunkSize = bigKeyGuard.getChunkSize();
+        int count = (rawValue.length + chunkSize - 1) / chunkSize;
+        byte[] rawChunkKey = rawKey(BigKeyGuard.chunkKey(key));
+        byte[] marker = BigKeyGuard.chunkMarker(count, rawValue.length);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(rawChunkKey);
+            for (int i = 0; i < count; i++) {
+                int from = i * chunkSize;
+                connection.hashCommands().hSet(rawChunkKey, chunkField(i),
+                        Arrays.copyOfRange(rawValue, from, Math.min(rawValue.length, from + chunkSize)));
+            }
+            if (!expiration.isPersistent()) {
+                connection.keyCommands().pExpire(rawChunkKey, expiration.getExpirationTimeInMilliseconds());
+            }
+            connection.stringCommands().set(rawKey, marker, expiration, SetOption.upsert());
+            return null;
+        });
+    }
+
+    /**
+     * 读取值，开启大key防护时记录大小并识别分片标记
+     */
+    private Object doGet(String key) {
+        BigKeyGuard guard = bigKeyGuard;
+        if (guard == null) {
+            return opsForValue().get(key);
+        }
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey));
+        return decode(guard, key, rawValue, "get");
+    }
+
+    /**
+     * 批量读取值，开启大key防护时读取原始字节，识别分片标记后再反序列化
+     */
+    private List<Object> doMultiGet(List<String> keys) {
+        BigKeyGuard guard = bigKeyGuard;
+        if (guard == null) {
+            return opsForValue().multiGet(keys);
+        }
+        byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = rawKey(keys.get(i));
+        }
+        List<byte[]> rawValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(rawKeys));
+        if (rawValues == null) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(rawValues.size());
+        for (int i = 0; i < rawValues.size(); i++) {
+            values.add(decode(guard, keys.get(i), rawValues.get(i), "mget"));
+        }
+        return values;
+    }
+
+    /**
+     * 反序列化读取到的原始值，分片标记替换为拼接后的分片
+     */
+    private Object decode(BigKeyGuard guard, String key, byte[] rawValue, String command) {
+        if (rawValue == null) {
+            return null;
+        }
+        int[] marker = BigKeyGuard.parseChunkMarker(rawValue);
+        if (marker != null) {
+            // 分片数为0的标记表示条件写入已占住主键、分片尚未写完
+            rawValue = marker[0] > 0 ? readChunks(key, marker[0], marker[1]) : null;
+            if (rawValue == null) {
+                return null;
+            }
+        }
+        guard.checkRead(key, command, rawValue.length);
+        return valueSerializer().deserialize(rawValue);
+    }
+
+    /**
+     * 按批次流水线执行HMGET读取分片并拼接，任一分片缺失（例如正在被覆盖）时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] readChunks(String key, int count, int length) {
+        byte[] rawChunkKey = rawKey(BigKeyGuard.chunkKey(key));
+        int batch = bigKeyGuard.getChunkFetchBatch();
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int from = 0; from < count; from += batch) {
+                byte[][] fields = new byte[Math.min(batch, count - from)][];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = chunkField(from + i);
+                }
+                connection.hashCommands().hMGet(rawChunkKey, fields);
+            }
+            return null;
+        }, null);
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (Object reply : replies) {
+            for (byte[] chunk : (List<byte[]>) reply) {
+                if (chunk == null || offset + chunk.length > length) {
+                    return null;
+                }
+                System.arraycopy(chunk, 0, result, offset, chunk.length);
+                offset += chunk.length;
+            }
+        }
+        return offset == length ? result : null;
+    }
+
+    private static byte[] chunkField(int index) {
+        return Integer.toString(index).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashKeySerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashKeySerializer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> hashValueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+    }
+
+    /**
+     * 执行写入，写入前后各使一次本地副本失效：写入前失效避免写入期间继续返回旧值，
+     * 写入后失效清除与写入并发的读取放回的旧值
+     */
+    private <T> T invalidating(String key, Supplier<T> write) {
+        invalidateLocal(key);
+        try {
+            return write.get();
+        } finally {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * 执行涉及多个key的写入，写入前后各使一次本地副本失效
+     */
+    private <T> T invalidating(Collection<String> keys, Supplier<T> write) {
+        keys.forEach(this::invalidateLocal);
+        try {
+            return write.get();
+        } finally {
+            keys.forEach(this::invalidateLocal);
+        }
+    }
+
+    /**
+     * 使热点key的本地副本失效
+     */
+    private void invalidateLocal(String key) {
+        HotKeyDetector detector = hotKeyDetector;
+        if (detector != null) {
+            detector.invalidate(key);
+        }
+    }
+
+    /**
+     * 是否集群模式
+     */
+    private boolean isClusterMode() {
+        Boolean cluster = clusterMode;
+        if (cluster == null) {
+            RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+            cluster = factory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware();
+            clusterMode = cluster;
+        }
+        return cluster;
+    }
+
+    /**
+     * 按节点分组后并行执行各个槽的命令，同一节点的槽在同一个任务中依次执行
+     *
+     * @param slots 哈希槽集合
+     * @param action 针对单个槽的操作
+     */
+    private void executeBySlot(Collection<Integer> slots, IntConsumer action) {
+        Map<RedisClusterNode, List<Integer>> nodeSlots = groupSlotsByNode(slots);
+        ExecutorService executor = clusterBatchExecutor;
+        if (executor == null || nodeSlots.size() == 1) {
+            nodeSlots.values().forEach(group -> group.forEach(action::accept));
+            return;
+        }
+        CompletableFuture<?>[] futures = nodeSlots.values().stream()
+                .map(group -> CompletableFuture.runAsync(() -> group.forEach(action::accept), executor))
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 将哈希槽按所属的主节点分组
+     */
+    private Map<RedisClusterNode, List<Integer>> groupSlotsByNode(Collection<Integer> slots) {
+        Map<RedisClusterNode, List<Integer>> nodeSlots = new LinkedHashMap<>();
+        try (RedisClusterConnection connection = redisTemplate.getRequiredConnectionFactory().getClusterConnection()) {
+            for (Integer slot : slots) {
+                nodeSlots.computeIfAbsent(connection.clusterGetNodeForSlot(slot), k -> new ArrayList<>()).add(slot);
+            }
+        }
+        return nodeSlots;
+    }
+
+    /**
+     * 截取指定键的子映射
+     */
+    private Map<String, Object> subMap(Map<String, Object> map, List<String> keys) {
+        Map<String, Object> result = new LinkedHashMap<>(keys.size() * 2);
+        keys.forEach(key -> result.put(key, map.get(key)));
+        return result;
     }
-} 
\ No newline at end of file
+}
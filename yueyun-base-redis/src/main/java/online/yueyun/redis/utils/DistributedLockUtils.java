@@ -1,25 +1,28 @@
 package online.yueyun.redis.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
+import online.yueyun.redis.config.OnRedisServerCondition;
+import online.yueyun.redis.lock.DistributedLock;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式锁工具类
- * 提供便捷的分布式锁操作API
+ * 提供便捷的分布式锁操作API，加解锁统一委托给{@link DistributedLock}
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
 @Component
+@Conditional(OnRedisServerCondition.class)
 public class DistributedLockUtils {
 
     @Autowired
-    private RedissonUtils redissonUtils;
+    private DistributedLock distributedLock;
 
     /**
      * 尝试获取锁
@@ -31,14 +34,7 @@ public class DistributedLockUtils {
      * @return 是否获取成功
      */
     public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
-        try {
-            RLock lock = redissonUtils.getLock(lockKey);
-            return lock.tryLock(waitTime, leaseTime, timeUnit);
-        } catch (InterruptedException e) {
-            log.error("获取分布式锁失败: {}", lockKey, e);
-            Thread.currentThread().interrupt();
-            return false;
-        }
+        return distributedLock.tryLock(lockKey, waitTime, leaseTime, timeUnit);
     }
 
     /**
@@ -57,14 +53,7 @@ public class DistributedLockUtils {
      * @param lockKey 锁的key
      */
     public void unlock(String lockKey) {
-        try {
-            RLock lock = redissonUtils.getLock(lockKey);
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        } catch (Exception e) {
-            log.error("释放分布式锁失败: {}", lockKey, e);
-        }
+        distributedLock.unlock(lockKey);
     }
 
     /**
@@ -89,14 +78,7 @@ public class DistributedLockUtils {
      * @return 任务执行结果
      */
     public <T> T executeWithLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, LockTask<T> task) {
-        if (tryLock(lockKey, waitTime, leaseTime, timeUnit)) {
-            try {
-                return task.execute();
-            } finally {
-                unlock(lockKey);
-            }
-        }
-        throw new RuntimeException("获取分布式锁失败: " + lockKey);
+        return distributedLock.executeWithLock(lockKey, waitTime, leaseTime, timeUnit, task::execute);
     }
 
     /**
@@ -1,29 +1,57 @@
 package online.yueyun.redis.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.OnRedisServerCondition;
+import online.yueyun.redis.annotation.RateLimit;
+import online.yueyun.redis.limiter.LeasedRateLimiter;
+import online.yueyun.redis.limiter.SlidingWindowRateLimiter;
 import org.redisson.api.RRateLimiter;
 import org.redisson.api.RedissonClient;
 import org.redisson.api.RateType;
 import org.redisson.api.RateIntervalUnit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式限流工具类
- * 基于Redisson实现
+ * 提供Redisson令牌桶、本地租约令牌桶和滑动窗口三种实现；
+ * 不带超时的{@link #tryAcquire(String, int)}对本节点通过{@link #initRateLimiter}初始化过的key走本地租约令牌桶，
+ * 大部分请求在本地完成，不产生Redis访问；带超时的获取需要阻塞等待令牌，仍使用Redisson令牌桶
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
 @Component
+@Conditional(OnRedisServerCondition.class)
 public class RateLimiterUtils {
 
     @Autowired
     private RedissonClient redissonClient;
 
+    @Autowired
+    private LeasedRateLimiter leasedRateLimiter;
+
+    @Autowired
+    private SlidingWindowRateLimiter slidingWindowRateLimiter;
+
+    /**
+     * 已设置过速率的Redisson限流器，键由key、速率和时间间隔组成，避免每次获取令牌都多一次trySetRate往返
+     */
+    private final Set<String> configuredRates = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 本节点初始化过的限流速率，不带超时的获取按该速率走本地租约令牌桶
+     */
+    private final Map<String, Rate> initializedRates = new ConcurrentHashMap<>();
+
     /**
      * 初始化限流器
      *
@@ -36,6 +64,7 @@ public class RateLimiterUtils {
             RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
             // 初始化限流器，设置每秒允许的请求数和时间间隔
             rateLimiter.trySetRate(RateType.OVERALL, rate, rateInterval, RateIntervalUnit.SECONDS);
+            initializedRates.put(key, new Rate(rate, Duration.ofSeconds(rateInterval)));
             log.info("初始化限流器成功，key: {}, rate: {}, rateInterval: {}", key, rate, rateInterval);
         } catch (Exception e) {
             log.error("初始化限流器失败，key: {}, rate: {}, rateInterval: {}", key, rate, rateInterval, e);
@@ -45,12 +74,18 @@ public class RateLimiterUtils {
 
     /**
      * 尝试获取令牌
+     * 本节点通过{@link #initRateLimiter}初始化过的key按初始化的速率走本地租约令牌桶；
+     * 只在其他节点初始化过的key不知道速率，每次调用访问一次Redisson令牌桶
      *
      * @param key 限流器key
      * @param permits 需要的令牌数
      * @return 是否获取成功
      */
     public boolean tryAcquire(String key, int permits) {
+        Rate rate = initializedRates.get(key);
+        if (rate != null) {
+            return leasedRateLimiter.tryAcquire(key, permits, rate.permits, rate.interval);
+        }
         try {
             RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
             return rateLimiter.tryAcquire(permits);
@@ -62,6 +97,7 @@ public class RateLimiterUtils {
 
     /**
      * 尝试获取令牌（带超时时间）
+     * 令牌不足时阻塞等待，使用Redisson令牌桶，每次调用至少访问一次Redis
      *
      * @param key 限流器key
      * @param permits 需要的令牌数
@@ -78,4 +114,64 @@ public class RateLimiterUtils {
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 尝试获取令牌（本地租约令牌桶）
+     * 各节点从共享令牌桶按需租借一批令牌，租约内的请求只在本地计数
+     *
+     * @param key 限流器key
+     * @param permits 需要的令牌数
+     * @param rate 每个时间间隔允许的请求数
+     * @param interval 时间间隔
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int permits, long rate, Duration interval) {
+        return leasedRateLimiter.tryAcquire(key, permits, rate, interval);
+    }
+
+    /**
+     * 尝试获取令牌（指定限流算法）
+     *
+     * @param key 限流器key
+     * @param permits 需要的令牌数
+     * @param rate 每个时间间隔允许的请求数
+     * @param interval 时间间隔
+     * @param algorithm 限流算法
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(String key, int permits, long rate, Duration interval, RateLimit.Algorithm algorithm) {
+        switch (algorithm) {
+            case SLIDING_WINDOW:
+                return slidingWindowRateLimiter.tryAcquire(key, permits, rate, interval);
+            case REDISSON:
+                String rateKey = key + "@" + rate + "/" + interval.toMillis();
+                try {
+                    RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
+                    if (configuredRates.add(rateKey)) {
+                        rateLimiter.trySetRate(RateType.OVERALL, rate, interval.toMillis(), RateIntervalUnit.MILLISECONDS);
+                    }
+                    return rateLimiter.tryAcquire(permits);
+                } catch (Exception e) {
+                    // 设置失败或限流器配置在Redis中丢失时，下次调用重新设置
+                    configuredRates.remove(rateKey);
+                    log.error("获取令牌失败，key: {}, permits: {}", key, permits, e);
+                    return false;
+                }
+            default:
+                return leasedRateLimiter.tryAcquire(key, permits, rate, interval);
+        }
+    }
+
+    /**
+     * 限流速率
+     */
+    private static class Rate {
+        private final long permits;
+        private final Duration interval;
+
+        private Rate(long permits, Duration interval) {
+            this.permits = permits;
+            this.interval = interval;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package online.yueyun.redis.utils;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * Redis键工具类
+ * 提供集群模式下的哈希槽计算与哈希标签（hash tag）辅助方法
+ * <p>
+ * 集群模式下只有位于同一个哈希槽的键才能在一条多键命令中执行，
+ * 通过哈希标签可以让相关的键落在同一个槽，例如：{@code {order:1001}:detail} 与 {@code {order:1001}:items}
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public final class RedisKeyUtils {
+
+    /**
+     * 键分隔符
+     */
+    private static final String SEPARATOR = ":";
+
+    /**
+     * 不含分隔符的键统一归入的前缀
+     */
+    public static final String OTHER_PREFIX = "other";
+
+    private RedisKeyUtils() {
+    }
+
+    /**
+     * 生成哈希标签
+     *
+     * @param tag 标签内容
+     * @return 哈希标签，例如 {@code {tag}}
+     */
+    public static String hashTag(String tag) {
+        if (!StringUtils.hasText(tag)) {
+            throw new IllegalArgumentException("哈希标签不能为空");
+        }
+        return "{" + tag + "}";
+    }
+
+    /**
+     * 使用哈希标签拼接键，保证同一标签下的键落在同一个哈希槽
+     *
+     * @param tag 标签内容
+     * @param parts 键的其余部分
+     * @return 拼接后的键，例如 {@code {tag}:part1:part2}
+     */
+    public static String withHashTag(String tag, String... parts) {
+        StringBuilder builder = new StringBuilder(hashTag(tag));
+        for (String part : parts) {
+            builder.append(SEPARATOR).append(part);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 生成与指定键位于同一哈希槽的关联键，用于锁的防护计数器、分片存储等附属数据
+     *
+     * @param key 主键
+     * @param suffix 后缀
+     * @return 关联键，主键已含哈希标签时直接追加后缀，否则以整个主键作为哈希标签
+     */
+    public static String sameSlotKey(String key, String suffix) {
+        return key.indexOf('{') >= 0 ? key + SEPARATOR + suffix : hashTag(key) + SEPARATOR + suffix;
+    }
+
+    /**
+     * 提取键的前缀（第一个分隔符之前的部分），用于指标等需要低基数标签的场景
+     *
+     * @param key 键
+     * @return 键前缀，键中不含分隔符时返回{@link #OTHER_PREFIX}，避免整个键成为标签值
+     */
+    public static String prefix(String key) {
+        if (key == null) {
+            return OTHER_PREFIX;
+        }
+        int index = key.indexOf(SEPARATOR);
+        return index > 0 ? key.substring(0, index) : OTHER_PREFIX;
+    }
+
+    /**
+     * 计算键所在的哈希槽
+     *
+     * @param key 键
+     * @return 哈希槽
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    /**
+     * 判断所有键是否位于同一个哈希槽
+     *
+     * @param keys 键集合
+     * @return 是否位于同一个哈希槽
+     */
+    public static boolean isSameSlot(Collection<String> keys) {
+        Integer first = null;
+        for (String key : keys) {
+            int slot = slot(key);
+            if (first == null) {
+                first = slot;
+            } else if (first != slot) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按哈希槽对键分组，组内保持原有顺序
+     *
+     * @param keys 键集合
+     * @return 哈希槽到键列表的映射
+     */
+    public static Map<Integer, List<String>> groupBySlot(Collection<String> keys) {
+        Map<Integer, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(slot(key), k -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    /**
+     * 按哈希槽对键在列表中的下标分组，用于批量结果按输入顺序回填
+     *
+     * @param keys 键列表
+     * @return 哈希槽到下标列表的映射
+     */
+    public static Map<Integer, List<Integer>> groupIndexesBySlot(List<String> keys) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            groups.computeIfAbsent(slot(keys.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+}
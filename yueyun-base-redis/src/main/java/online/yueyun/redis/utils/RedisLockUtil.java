@@ -1,53 +1,108 @@
 package online.yueyun.redis.utils;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.connection.RedisStringCommands;
-import org.springframework.data.redis.core.RedisCallback;
-import org.springframework.data.redis.core.RedisTemplate;
+import online.yueyun.redis.lock.DistributedLock;
+import online.yueyun.redis.lock.LockToken;
+import online.yueyun.redis.script.RedisScriptRegistry;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
-import org.springframework.data.redis.core.types.Expiration;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Redis分布式锁工具类
+ * <p>
+ * 以锁值和锁凭证的形式提供加解锁，加锁、等待和释放统一委托给{@link DistributedLock}：
+ * 同一节点争抢同一个key的线程先在本地排队，等待锁释放由Redisson的订阅通知唤醒，自动续期由看门狗完成。
+ * 本类只额外维护按需发放的单调递增防护令牌。锁由加锁线程持有，需要在同一线程内释放。
+ * </p>
  *
  * @author YueYun
  * @since 1.0.0
  */
 @Slf4j
-@RequiredArgsConstructor
 public class RedisLockUtil {
 
-    /**
-     * Redis模板
-     */
-    private final RedisTemplate<String, Object> redisTemplate;
-    
     /**
      * 默认锁过期时间，单位：毫秒
      */
     private static final long DEFAULT_EXPIRE = 30000L;
-    
+
     /**
      * 默认重试次数
      */
     private static final int DEFAULT_RETRY_TIMES = 3;
-    
+
     /**
      * 默认重试间隔，单位：毫秒
      */
     private static final long DEFAULT_RETRY_INTERVAL = 100L;
-    
+
+    /**
+     * 防护令牌计数器的最短过期时间，单位：毫秒
+     */
+    private static final long FENCING_KEY_TTL = 86400000L;
+
+    /**
+     * 发放防护令牌的Lua脚本，返回递增后的令牌
+     * <p>
+     * 计数器带过期时间，避免每个锁名永久残留一个键；计数器不存在时以Redis当前时间（微秒）为初始值，
+     * 过期重建后的令牌仍大于之前发放的令牌
+     * </p>
+     */
+    private static final RedisScript<Long> FENCE_SCRIPT = RedisScript.of(
+            "if redis.call('exists', KEYS[1]) == 0 then " +
+            "local now = redis.call('time') " +
+            "redis.call('set', KEYS[1], now[1] .. string.rep('0', 6 - #now[2]) .. now[2]) end " +
+            "local token = redis.call('incr', KEYS[1]) " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+            "return token", Long.class);
+
+    /**
+     * 脚本注册表中的脚本名称
+     */
+    private static final String FENCE_SCRIPT_NAME = "lock-fence";
+
+    private final DistributedLock distributedLock;
+
+    /**
+     * 字符串模板，令牌计数器按原始字符串读写，避免被JSON序列化
+     */
+    private final StringRedisTemplate redisTemplate;
+
     /**
-     * 释放锁的Lua脚本
+     * 脚本注册表，设置后令牌脚本随注册表预加载并记录执行耗时
      */
-    private static final String RELEASE_LOCK_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
-    
+    private volatile RedisScriptRegistry scriptRegistry;
+
+    /**
+     * 未释放的锁值到锁键的映射，重复释放或使用错误的锁值不会释放当前线程的重入加锁
+     */
+    private final Map<String, String> heldValues = new ConcurrentHashMap<>();
+
+    public RedisLockUtil(DistributedLock distributedLock, RedisConnectionFactory connectionFactory) {
+        this.distributedLock = distributedLock;
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    /**
+     * 设置脚本注册表，注册防护令牌脚本
+     *
+     * @param scriptRegistry 脚本注册表
+     */
+    public void setScriptRegistry(RedisScriptRegistry scriptRegistry) {
+        if (scriptRegistry != null) {
+            scriptRegistry.register(FENCE_SCRIPT_NAME, FENCE_SCRIPT);
+        }
+        this.scriptRegistry = scriptRegistry;
+    }
+
     /**
      * 获取锁
      *
@@ -57,7 +112,7 @@ public class RedisLockUtil {
     public String tryLock(String lockKey) {
         return tryLock(lockKey, DEFAULT_EXPIRE, DEFAULT_RETRY_TIMES, DEFAULT_RETRY_INTERVAL);
     }
-    
+
     /**
      * 获取锁
      *
@@ -68,89 +123,103 @@ public class RedisLockUtil {
     public String tryLock(String lockKey, long expireTime) {
         return tryLock(lockKey, expireTime, DEFAULT_RETRY_TIMES, DEFAULT_RETRY_INTERVAL);
     }
-    
+
     /**
      * 获取锁
+     * 最多尝试retryTimes次，即最长等待(retryTimes - 1) * retryInterval毫秒，期间锁被释放时立即重试
      *
      * @param lockKey 锁键
      * @param expireTime 锁过期时间，单位：毫秒
-     * @param retryTimes 重试次数
+     * @param retryTimes 尝试次数，小于等于1时只尝试一次
      * @param retryInterval 重试间隔，单位：毫秒
      * @return 锁值，如果获取失败则返回null
      */
     public String tryLock(String lockKey, long expireTime, int retryTimes, long retryInterval) {
-        // 生成锁值，使用UUID确保唯一性
-        String lockValue = UUID.randomUUID().toString();
-        
-        // 尝试获取锁
-        for (int i = 0; i < retryTimes; i++) {
-            boolean success = doLock(lockKey, lockValue, expireTime);
-            if (success) {
-                return lockValue;
-            }
-            
-            // 获取锁失败，等待一段时间后重试
-            if (retryInterval > 0) {
-                try {
-                    TimeUnit.MILLISECONDS.sleep(retryInterval);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
+        long waitTime = retryTimes > 1 ? (retryTimes - 1) * Math.max(0, retryInterval) : 0;
+        LockToken token = acquire(lockKey, expireTime, waitTime, false);
+        return token != null ? token.getLockValue() : null;
+    }
+
+    /**
+     * 获取锁并返回锁凭证
+     * 不发放防护令牌，凭证中的防护令牌为0，需要防护令牌时使用带fenced参数的重载
+     *
+     * @param lockKey 锁键
+     * @param expireTime 锁过期时间，单位：毫秒
+     * @param waitTime 最长等待时间，单位：毫秒
+     * @param autoRenew 是否在持有期间自动续期
+     * @return 锁凭证，如果获取失败则返回null
+     */
+    public LockToken acquire(String lockKey, long expireTime, long waitTime, boolean autoRenew) {
+        return acquire(lockKey, expireTime, waitTime, autoRenew, false);
+    }
+
+    /**
+     * 获取锁并返回锁凭证
+     * 开启autoRenew时不设置固定过期时间，由看门狗按Redisson的lockWatchdogTimeout续期；
+     * 开启fenced时为锁名维护令牌计数器并发放单调递增的防护令牌，按业务key动态生成、数量很大的锁不要开启，
+     * 避免每个锁名残留一个计数器
+     *
+     * @param lockKey 锁键
+     * @param expireTime 锁过期时间，单位：毫秒
+     * @param waitTime 最长等待时间，单位：毫秒
+     * @param autoRenew 是否在持有期间自动续期
+     * @param fenced 是否发放防护令牌，关闭时凭证中的防护令牌为0
+     * @return 锁凭证，如果获取失败则返回null
+     */
+    public LockToken acquire(String lockKey, long expireTime, long waitTime, boolean autoRenew, boolean fenced) {
+        long leaseTime = autoRenew ? -1 : expireTime;
+        if (!distributedLock.tryLock(lockKey, Math.max(0, waitTime), leaseTime, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        long fencingToken = 0L;
+        if (fenced) {
+            try {
+                fencingToken = nextFencingToken(lockKey, expireTime);
+            } catch (Exception e) {
+                log.error("发放防护令牌失败: key={}", lockKey, e);
+                distributedLock.unlock(lockKey);
+                return null;
             }
         }
-        
-        return null;
+        String lockValue = UUID.randomUUID().toString();
+        heldValues.put(lockValue, lockKey);
+        return new LockToken(lockKey, lockValue, fencingToken);
     }
-    
+
     /**
-     * 释放锁
+     * 释放锁，需要在加锁线程内调用
      *
      * @param lockKey 锁键
      * @param lockValue 锁值
      * @return 是否成功
      */
     public boolean releaseLock(String lockKey, String lockValue) {
-        if (lockValue == null) {
+        if (lockValue == null || !heldValues.remove(lockValue, lockKey)) {
             return false;
         }
-        
+        boolean held;
         try {
-            RedisScript<Long> script = RedisScript.of(RELEASE_LOCK_SCRIPT, Long.class);
-            Long result = redisTemplate.execute(script, Collections.singletonList(lockKey), lockValue);
-            return result != null && result > 0;
+            held = distributedLock.getLock(lockKey).isHeldByCurrentThread();
         } catch (Exception e) {
-            log.error("释放锁失败: key={}, value={}", lockKey, lockValue, e);
-            return false;
+            log.error("检查锁状态失败: key={}", lockKey, e);
+            held = false;
         }
+        // 锁已过期时也要调用，释放本地排队锁和持有记录
+        distributedLock.unlock(lockKey);
+        return held;
     }
-    
+
     /**
-     * 执行获取锁操作
+     * 释放锁，需要在加锁线程内调用
      *
-     * @param lockKey 锁键
-     * @param lockValue 锁值
-     * @param expireTime 锁过期时间，单位：毫秒
+     * @param token 锁凭证
      * @return 是否成功
      */
-    private boolean doLock(String lockKey, String lockValue, long expireTime) {
-        try {
-            RedisCallback<Boolean> callback = connection -> {
-                // 使用SET命令设置锁值并设置过期时间
-                return connection.set(
-                        lockKey.getBytes(StandardCharsets.UTF_8),
-                        lockValue.getBytes(StandardCharsets.UTF_8),
-                        Expiration.milliseconds(expireTime),
-                        RedisStringCommands.SetOption.SET_IF_ABSENT
-                );
-            };
-            return Boolean.TRUE.equals(redisTemplate.execute(callback));
-        } catch (Exception e) {
-            log.error("获取锁失败: key={}", lockKey, e);
-            return false;
-        }
+    public boolean release(LockToken token) {
+        return token != null && releaseLock(token.getLockKey(), token.getLockValue());
     }
-    
+
     /**
      * 锁是否存在
      *
@@ -159,10 +228,33 @@ public class RedisLockUtil {
      */
     public boolean isLocked(String lockKey) {
         try {
-            return redisTemplate.hasKey(lockKey);
+            return distributedLock.getLock(lockKey).isLocked();
         } catch (Exception e) {
             log.error("检查锁状态失败: key={}", lockKey, e);
             return false;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * 发放防护令牌，设置了脚本注册表时通过注册表执行
+     */
+    private long nextFencingToken(String lockKey, long expireTime) {
+        List<String> keys = Collections.singletonList(fencingKey(lockKey));
+        String ttl = String.valueOf(Math.max(FENCING_KEY_TTL, expireTime * 10));
+        RedisScriptRegistry registry = scriptRegistry;
+        Long token = registry != null
+                ? registry.execute(redisTemplate, FENCE_SCRIPT_NAME, Long.class, keys, ttl)
+                : redisTemplate.execute(FENCE_SCRIPT, keys, ttl);
+        if (token == null) {
+            throw new IllegalStateException("防护令牌脚本未返回结果: " + lockKey);
+        }
+        return token;
+    }
+
+    /**
+     * 防护令牌计数器的键，与锁键位于同一个哈希槽
+     */
+    private String fencingKey(String lockKey) {
+        return RedisKeyUtils.sameSlotKey(lockKey, "fence");
+    }
+}
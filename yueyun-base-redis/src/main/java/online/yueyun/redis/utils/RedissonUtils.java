@@ -2,7 +2,9 @@ package online.yueyun.redis.utils;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.OnRedisServerCondition;
 import org.redisson.api.*;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
 /**
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Component;
  */
 @Slf4j
 @Component
+@Conditional(OnRedisServerCondition.class)
 @RequiredArgsConstructor
 public class RedissonUtils {
 
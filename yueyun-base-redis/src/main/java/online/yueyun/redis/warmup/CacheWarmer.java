@@ -0,0 +1,40 @@
+package online.yueyun.redis.warmup;
+
+import java.time.Duration;
+
+/**
+ * 缓存预热器
+ * 业务模块实现此接口并注册为Bean，在{@link #warmUp(WarmupSink)}中按游标或分页流式读取数据源，
+ * 逐条写入{@link WarmupSink}，由框架合并为管道批量写入Redis
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public interface CacheWarmer {
+
+    /**
+     * 预热器名称，用于日志
+     *
+     * @return 名称
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 读取数据源并写入缓存
+     *
+     * @param sink 写入目标，写入速度超过限流时会阻塞
+     * @throws Exception 读取数据源失败
+     */
+    void warmUp(WarmupSink sink) throws Exception;
+
+    /**
+     * 预热数据的过期时间
+     *
+     * @return 过期时间，为null时使用全局默认值
+     */
+    default Duration getTtl() {
+        return null;
+    }
+}
@@ -0,0 +1,225 @@
+package online.yueyun.redis.warmup;
+
+import lombok.extern.slf4j.Slf4j;
+import online.yueyun.redis.config.YueyunRedisProperties;
+import online.yueyun.redis.template.RedisTemplateWrapper;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 缓存预热管理器
+ * <p>
+ * 应用启动完成后（以及熔断器从故障中恢复后）执行所有{@link CacheWarmer}：
+ * 预热器在有界线程池中并行执行，写入的数据按批通过{@link RedisTemplateWrapper#setAll}合并为管道命令，
+ * 与普通写入一样经过大key分片和热点key本地副本失效，所有预热器共享全局限速。
+ * 默认只写入不存在的key（SET NX），不会覆盖预热期间业务写入的新值。
+ * </p>
+ * <p>
+ * 开启就绪门控后，预热完成前就绪探针（{@link CacheWarmupReadinessIndicator}）报告{@link ReadinessState#REFUSING_TRAFFIC}，
+ * 负载均衡不会把流量导入冷缓存的实例。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+@Slf4j
+public class CacheWarmupManager {
+
+    private final RedisTemplateWrapper redisTemplate;
+
+    private final List<CacheWarmer> warmers;
+
+    private final YueyunRedisProperties.Warmup config;
+
+    private final ExecutorService executor;
+
+    /**
+     * 全局限速的下一个可用时间点，单位：纳秒
+     */
+    private long nextFreeNanos;
+
+    /**
+     * 正在执行的预热
+     */
+    private final AtomicReference<CompletableFuture<Void>> running = new AtomicReference<>();
+
+    /**
+     * 启动预热是否尚未完成，期间就绪探针报告拒绝流量
+     */
+    private volatile boolean gating;
+
+    public CacheWarmupManager(RedisTemplateWrapper redisTemplate, List<CacheWarmer> warmers,
+                              YueyunRedisProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.warmers = List.copyOf(warmers);
+        this.config = properties.getWarmup();
+        // 从创建起就拦截就绪状态，直到启动预热完成
+        this.gating = config.isGateReadiness() && config.isOnStartup() && !this.warmers.isEmpty();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redis-warmup-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getParallelism()), threadFactory);
+    }
+
+    /**
+     * 应用启动完成后开始预热
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!config.isOnStartup() || warmers.isEmpty()) {
+            return;
+        }
+        warmUpAsync().whenComplete((result, e) -> gating = false);
+    }
+
+    /**
+     * 启动预热是否仍在进行且开启了就绪门控
+     *
+     * @return 是否应拒绝流量
+     */
+    public boolean isGatingReadiness() {
+        return gating;
+    }
+
+    /**
+     * 异步执行所有预热器，已有预热在执行时返回同一个任务
+     *
+     * @return 全部预热器执行完成的任务
+     */
+    public CompletableFuture<Void> warmUpAsync() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> current = running.compareAndExchange(null, future);
+        if (current != null) {
+            return current;
+        }
+        log.info("开始缓存预热，预热器数量: {}", warmers.size());
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(warmers.size());
+        for (CacheWarmer warmer : warmers) {
+            tasks.add(CompletableFuture.runAsync(() -> runWarmer(warmer), executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+            running.set(null);
+            log.info("缓存预热完成，耗时: {}ms", System.currentTimeMillis() - start);
+            future.complete(null);
+        });
+        return future;
+    }
+
+    /**
+     * 同步执行所有预热器
+     */
+    public void warmUp() {
+        warmUpAsync().join();
+    }
+
+    /**
+     * 关闭预热线程池
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runWarmer(CacheWarmer warmer) {
+        long start = System.currentTimeMillis();
+        BatchingSink sink = new BatchingSink(warmer.getTtl() != null ? warmer.getTtl() : config.getDefaultTtl());
+        try {
+            warmer.warmUp(sink);
+            sink.flush();
+            log.info("预热器{}完成，写入: {}，耗时: {}ms", warmer.getName(), sink.written,
+                    System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("预热器{}被中断，已写入: {}", warmer.getName(), sink.written);
+        } catch (Exception e) {
+            log.error("预热器{}执行失败，已写入: {}", warmer.getName(), sink.written, e);
+        }
+    }
+
+    /**
+     * 按全局限速等待，maxKeysPerSecond小于等于0时不限速
+     */
+    private void throttle(int permits) throws InterruptedException {
+        long maxKeysPerSecond = config.getMaxKeysPerSecond();
+        if (maxKeysPerSecond <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long nextFree = Math.max(nextFreeNanos, now);
+            waitNanos = nextFree - now;
+            nextFreeNanos = nextFree + permits * TimeUnit.SECONDS.toNanos(1) / maxKeysPerSecond;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 攒批写入的预热目标，每个预热器线程一个实例
+     */
+    private class BatchingSink implements WarmupSink {
+
+        private final Duration defaultTtl;
+
+        private final List<Object[]> buffer = new ArrayList<>();
+
+        private long written;
+
+        private BatchingSink(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+        }
+
+        @Override
+        public void put(String key, Object value) {
+            put(key, value, defaultTtl);
+        }
+
+        @Override
+        public void put(String key, Object value, Duration ttl) {
+            if (value == null) {
+                return;
+            }
+            buffer.add(new Object[]{key, value, ttl});
+            if (buffer.size() >= config.getBatchSize()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            try {
+                throttle(buffer.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("缓存预热被中断", e);
+            }
+            Map<String, Object> values = new LinkedHashMap<>(buffer.size() * 2);
+            Map<String, Duration> ttls = new HashMap<>(buffer.size() * 2);
+            for (Object[] entry : buffer) {
+                values.put((String) entry[0], entry[1]);
+                ttls.put((String) entry[0], (Duration) entry[2]);
+            }
+            int size = buffer.size();
+            buffer.clear();
+            redisTemplate.setAll(values, ttls::get, !config.isOverwrite());
+            written += size;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package online.yueyun.redis.warmup;
+
+import org.springframework.boot.actuate.availability.ReadinessStateHealthIndicator;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
+
+/**
+ * 带缓存预热门控的就绪探针
+ * <p>
+ * 替换Spring Boot默认的readinessState健康指示器：启动预热完成前报告{@link ReadinessState#REFUSING_TRAFFIC}，
+ * 之后与默认行为一致。门控只作用于就绪探针，不修改{@link ApplicationAvailability}中的就绪状态，
+ * 因此不依赖可用性事件监听器的执行顺序。
+ * </p>
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public class CacheWarmupReadinessIndicator extends ReadinessStateHealthIndicator {
+
+    private final CacheWarmupManager warmupManager;
+
+    public CacheWarmupReadinessIndicator(ApplicationAvailability availability, CacheWarmupManager warmupManager) {
+        super(availability);
+        this.warmupManager = warmupManager;
+    }
+
+    @Override
+    protected AvailabilityState getState(ApplicationAvailability applicationAvailability) {
+        if (warmupManager.isGatingReadiness()) {
+            return ReadinessState.REFUSING_TRAFFIC;
+        }
+        return super.getState(applicationAvailability);
+    }
+}
@@ -0,0 +1,29 @@
+package online.yueyun.redis.warmup;
+
+import java.time.Duration;
+
+/**
+ * 预热数据写入目标
+ *
+ * @author YueYun
+ * @since 1.0.0
+ */
+public interface WarmupSink {
+
+    /**
+     * 写入缓存，使用预热器的过期时间
+     *
+     * @param key 键
+     * @param value 值
+     */
+    void put(String key, Object value);
+
+    /**
+     * 写入缓存
+     *
+     * @param key 键
+     * @param value 值
+     * @param ttl 过期时间，为null时不过期
+     */
+    void put(String key, Object value, Duration ttl);
+}